@@ -0,0 +1,158 @@
+package com.fastfood.management.bench;
+
+import com.fastfood.management.entity.Address;
+import com.fastfood.management.entity.Drone;
+import com.fastfood.management.entity.Order;
+import com.fastfood.management.entity.Store;
+import com.fastfood.management.repository.DeliveryRepository;
+import com.fastfood.management.repository.DeliveryRouteRepository;
+import com.fastfood.management.repository.DroneAssignmentRepository;
+import com.fastfood.management.repository.DroneRepository;
+import com.fastfood.management.repository.OrderRepository;
+import com.fastfood.management.service.impl.FleetServiceImpl;
+import com.fastfood.management.service.impl.FleetStateStore;
+import com.fastfood.management.service.impl.IdleDroneIndex;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.lang.reflect.Proxy;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Chọn drone cho một đơn qua FleetServiceImpl thật: selectDroneByEta (index IDLE trong FleetStateStore
+ * rồi xác nhận trên entity) so với nhánh dự phòng round-robin quét toàn bộ drone IDLE. DroneRepository
+ * là stub trong bộ nhớ nên kết quả đo phần CPU; bộ đếm "lookups" là số lời gọi repository (chia cho số op).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DispatchBenchmark {
+
+    private static final int CANDIDATE_LIMIT = 8;
+    private static final double DISPATCH_RADIUS_KM = 10.0;
+    private static final int ORDERS = 256;
+
+    @Param({"100", "1000", "10000"})
+    private int fleetSize;
+
+    @Param({"0.3"})
+    private double idleRatio;
+
+    private final AtomicLong lookups = new AtomicLong();
+    private FleetStateStore store;
+    private FleetServiceImpl fleetService;
+    private final Order[] orders = new Order[ORDERS];
+    private int cursor;
+
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class Counters {
+        public long lookups;
+    }
+
+    @Setup
+    public void setUp() {
+        List<Drone> drones = SyntheticFleet.drones(fleetSize, idleRatio, 42);
+        Map<Long, Drone> dronesById = drones.stream().collect(Collectors.toMap(Drone::getId, Function.identity()));
+        List<Drone> idle = drones.stream().filter(d -> d.getStatus() == Drone.DroneStatus.IDLE).toList();
+
+        // Repository/JdbcTemplate chỉ dùng khi load/checkpoint, không cần cho truy vấn trong bộ nhớ
+        store = new FleetStateStore(null, null, null);
+        drones.forEach(store::syncFromEntity);
+
+        DroneRepository droneRepository = stub(DroneRepository.class, (name, args) -> switch (name) {
+            case "findById" -> Optional.ofNullable(dronesById.get((Long) args[0]));
+            case "findByStatus" -> args[0] == Drone.DroneStatus.IDLE ? idle : List.of();
+            default -> throw new UnsupportedOperationException(name);
+        });
+        // Chọn drone không ghi gì: các repository còn lại không được gọi
+        fleetService = new FleetServiceImpl(droneRepository,
+                stub(DroneAssignmentRepository.class, DispatchBenchmark::unexpected),
+                stub(DeliveryRepository.class, DispatchBenchmark::unexpected),
+                stub(DeliveryRouteRepository.class, DispatchBenchmark::unexpected),
+                stub(OrderRepository.class, DispatchBenchmark::unexpected),
+                null, null, store, null);
+
+        Random random = new Random(11);
+        for (int i = 0; i < ORDERS; i++) {
+            double storeLat = SyntheticFleet.CENTER_LAT + (random.nextDouble() - 0.5) * 0.2;
+            double storeLng = SyntheticFleet.CENTER_LNG + (random.nextDouble() - 0.5) * 0.2;
+            orders[i] = Order.builder()
+                    .id((long) i + 1)
+                    .store(Store.builder().id((long) i + 1).lat(storeLat).lng(storeLng).build())
+                    .address(Address.builder().id((long) i + 1)
+                            .lat(storeLat + (random.nextDouble() - 0.5) * 0.05)
+                            .lng(storeLng + (random.nextDouble() - 0.5) * 0.05)
+                            .build())
+                    .build();
+        }
+    }
+
+    @Benchmark
+    public List<IdleDroneIndex.Neighbor> indexedNearestIdle() {
+        Store orderStore = orders[cursor++ & (ORDERS - 1)].getStore();
+        return store.findNearestIdle(orderStore.getLatitude(), orderStore.getLongitude(),
+                CANDIDATE_LIMIT, DISPATCH_RADIUS_KM);
+    }
+
+    @Benchmark
+    public Optional<Drone> selectDroneByEta(Counters counters) {
+        long before = lookups.get();
+        Optional<Drone> drone = fleetService.selectDroneByEta(orders[cursor++ & (ORDERS - 1)]);
+        counters.lookups += lookups.get() - before;
+        return drone;
+    }
+
+    @Benchmark
+    public Optional<Drone> roundRobinFallback(Counters counters) {
+        long before = lookups.get();
+        Optional<Drone> drone = fleetService.selectDroneRoundRobin(fleetService.getAvailableDrones());
+        counters.lookups += lookups.get() - before;
+        return drone;
+    }
+
+    @FunctionalInterface
+    private interface Handler {
+        Object handle(String method, Object[] args);
+    }
+
+    private static Object unexpected(String method, Object[] args) {
+        throw new UnsupportedOperationException(method);
+    }
+
+    // Stub repository: mỗi lời gọi tính là một lượt truy vấn DB
+    @SuppressWarnings("unchecked")
+    private <T> T stub(Class<T> type, Handler handler) {
+        return (T) Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[]{type}, (proxy, method, args) -> {
+            if (method.getDeclaringClass() == Object.class) {
+                return switch (method.getName()) {
+                    case "hashCode" -> System.identityHashCode(proxy);
+                    case "equals" -> proxy == args[0];
+                    default -> type.getSimpleName() + "Stub";
+                };
+            }
+            lookups.incrementAndGet();
+            return handler.handle(method.getName(), args);
+        });
+    }
+}
@@ -0,0 +1,102 @@
+package com.fastfood.management.bench;
+
+import ch.qos.logback.classic.Level;
+import com.fastfood.management.config.CorsResponseFilter;
+import com.fastfood.management.security.JwtAuthenticationFilter;
+import com.fastfood.management.security.JwtTokenProvider;
+import com.fastfood.management.security.RequestPathClassifier;
+import com.fastfood.management.security.UserDetailsImpl;
+import jakarta.servlet.FilterChain;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.slf4j.LoggerFactory;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.util.AntPathMatcher;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Chi phí mỗi request của CorsResponseFilter + JwtAuthenticationFilter (token hợp lệ, người gọi lặp lại)
+ * và riêng phần phân loại đường dẫn: RequestPathClassifier so với cách cũ duyệt danh sách qua AntPathMatcher.
+ * Chạy kèm -prof gc để xem classify không cấp phát (gc.alloc.rate.norm ~ 0 B/op).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class FilterChainBenchmark {
+
+    private static final List<String> LEGACY_EXCLUDED = List.of(
+            "/auth/**", "/api/auth/**", "/public/**", "/payments/vnpay/**", "/ws/**", "/api/ws/**",
+            "/drone-management/**", "/deliveries/**", "/drone-tracking/**");
+
+    @Param({"/auth/login", "/orders/me", "/drone-tracking/drones/42/path"})
+    private String path;
+
+    private final AntPathMatcher pathMatcher = new AntPathMatcher();
+    private RequestPathClassifier classifier;
+    private CorsResponseFilter corsFilter;
+    private JwtAuthenticationFilter jwtFilter;
+    private MockHttpServletRequest request;
+    private MockHttpServletResponse response;
+    private FilterChain chain;
+
+    @Setup
+    public void setUp() throws Exception {
+        // Log ở mức cấu hình production (com.fastfood=INFO), không để logback mặc định in DEBUG
+        ((ch.qos.logback.classic.Logger) LoggerFactory.getLogger(org.slf4j.Logger.ROOT_LOGGER_NAME)).setLevel(Level.INFO);
+
+        JwtTokenProvider tokenProvider = new JwtTokenProvider();
+        ReflectionTestUtils.setField(tokenProvider, "jwtSecret", "bench-secret-bench-secret-bench-secret");
+        ReflectionTestUtils.setField(tokenProvider, "jwtExpirationMs", TimeUnit.HOURS.toMillis(1));
+        ReflectionTestUtils.setField(tokenProvider, "cacheMaxEntries", 10_000);
+        tokenProvider.init();
+        UserDetailsImpl user = UserDetailsImpl.builder().id(1L).email("bench@fastfood.local")
+                .authorities(List.of(new SimpleGrantedAuthority("ROLE_CUSTOMER"))).build();
+        String token = tokenProvider.generateToken(new UsernamePasswordAuthenticationToken(user, null, user.getAuthorities()));
+
+        classifier = new RequestPathClassifier();
+        corsFilter = new CorsResponseFilter(classifier);
+        jwtFilter = new JwtAuthenticationFilter(tokenProvider, null, classifier);
+
+        request = new MockHttpServletRequest("GET", path);
+        request.addHeader("Origin", "http://localhost:3000");
+        request.addHeader("Authorization", "Bearer " + token);
+        response = new MockHttpServletResponse();
+        chain = (req, res) -> jwtFilter.doFilter(req, res, (innerReq, innerRes) -> SecurityContextHolder.clearContext());
+    }
+
+    @Benchmark
+    public boolean legacyAntMatch() {
+        String uri = request.getRequestURI();
+        return LEGACY_EXCLUDED.stream().anyMatch(pattern -> pathMatcher.match(pattern, uri));
+    }
+
+    @Benchmark
+    public int trieClassify() {
+        return classifier.classify(request.getRequestURI(), request.getContextPath());
+    }
+
+    @Benchmark
+    public MockHttpServletResponse corsAndJwtFilters() throws Exception {
+        corsFilter.doFilter(request, response, chain);
+        return response;
+    }
+}
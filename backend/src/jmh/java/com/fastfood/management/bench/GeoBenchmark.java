@@ -0,0 +1,50 @@
+package com.fastfood.management.bench;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import utils.GeoUtils;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Chi phí một lần haversineKm (gọi cho mỗi cặp drone/cửa hàng khi dispatch và mỗi chặng khi lập tuyến)
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class GeoBenchmark {
+
+    private static final int POINTS = 1024;
+
+    private final double[] lat = new double[POINTS];
+    private final double[] lng = new double[POINTS];
+    private int cursor;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(7);
+        for (int i = 0; i < POINTS; i++) {
+            lat[i] = SyntheticFleet.CENTER_LAT + (random.nextDouble() - 0.5) * 0.2;
+            lng[i] = SyntheticFleet.CENTER_LNG + (random.nextDouble() - 0.5) * 0.2;
+        }
+    }
+
+    @Benchmark
+    public double haversineKm() {
+        int i = cursor++ & (POINTS - 1);
+        int j = (i + 1) & (POINTS - 1);
+        return GeoUtils.haversineKm(lat[i], lng[i], lat[j], lng[j]);
+    }
+}
@@ -0,0 +1,86 @@
+package com.fastfood.management.bench;
+
+import com.fastfood.management.entity.Category;
+import com.fastfood.management.entity.MenuItem;
+import com.fastfood.management.entity.Store;
+import com.fastfood.management.service.impl.MenuSearchIndex;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Độ trễ một lần tìm món theo kích thước menu. Số món khớp mỗi query được giữ cố định (chỉ một cửa hàng
+ * có món "Gà rán"), nên thời gian phải gần như không đổi khi catalogSize tăng.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MenuSearchBenchmark {
+
+    private static final String[] DISHES = {"Phở bò", "Bún chả", "Cơm tấm", "Bánh mì", "Trà sữa", "Bún bò Huế",
+            "Cà phê sữa đá", "Mì Quảng", "Hủ tiếu", "Bánh xèo", "Chè đậu đỏ", "Xôi xéo"};
+    private static final String[] CATEGORIES = {"Món chính", "Đồ uống", "Món ngọt", "Ăn vặt"};
+    private static final int STORES = 50;
+
+    @Param({"1000", "10000", "100000"})
+    private int catalogSize;
+
+    private MenuSearchIndex index;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(11);
+        List<Store> stores = new ArrayList<>(STORES);
+        for (long id = 1; id <= STORES; id++) {
+            stores.add(Store.builder().id(id).name("Store " + id).build());
+        }
+        List<MenuItem> items = new ArrayList<>(catalogSize);
+        for (long id = 1; id <= catalogSize; id++) {
+            Store store = stores.get(random.nextInt(STORES));
+            String category = CATEGORIES[random.nextInt(CATEGORIES.length)];
+            items.add(MenuItem.builder().id(id)
+                    .name(DISHES[random.nextInt(DISHES.length)] + " " + id)
+                    .description("Món ngon số " + id + " của " + store.getName())
+                    .price(BigDecimal.valueOf(30000))
+                    .available(true)
+                    .store(store)
+                    .category(Category.builder().id((long) category.hashCode()).name(category).build())
+                    .build());
+        }
+        // Tập khớp cố định cho query "ga ran"
+        Store target = stores.get(0);
+        for (long id = 1; id <= 20; id++) {
+            items.add(MenuItem.builder().id(1_000_000 + id).name("Gà rán giòn " + id).price(BigDecimal.valueOf(45000))
+                    .available(true).store(target).build());
+        }
+        index = new MenuSearchIndex(null);
+        index.replaceAll(items);
+    }
+
+    @Benchmark
+    public List<Long> foldedTwoTerms() {
+        return index.search("ga ran", null);
+    }
+
+    @Benchmark
+    public List<Long> shortPrefixInStore() {
+        return index.search("gà", 1L);
+    }
+}
@@ -0,0 +1,140 @@
+package com.fastfood.management.bench;
+
+import com.fastfood.management.dto.request.OrderRequest;
+import com.fastfood.management.entity.Address;
+import com.fastfood.management.entity.MenuItem;
+import com.fastfood.management.entity.Order;
+import com.fastfood.management.entity.Store;
+import com.fastfood.management.entity.User;
+import com.fastfood.management.entity.id.AppIds;
+import com.fastfood.management.repository.AddressRepository;
+import com.fastfood.management.repository.MenuItemRepository;
+import com.fastfood.management.repository.OrderActivityRepository;
+import com.fastfood.management.repository.OrderRepository;
+import com.fastfood.management.repository.PaymentRepository;
+import com.fastfood.management.service.impl.OrderCodeGenerator;
+import com.fastfood.management.service.impl.OrderServiceImpl;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.lang.reflect.Proxy;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Số đơn/giây của OrderServiceImpl.createOrder theo số dòng đơn. Repository là stub trong bộ nhớ
+ * (persist gán id từ AppIds như Hibernate) nên kết quả đo phần CPU của luồng nhận đơn; bộ đếm
+ * "statements" cho biết số lời gọi repository (chia cho số op), phải giữ cố định bất kể số dòng
+ * vì dòng đơn được cascade và insert theo batch khi flush.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class OrderIntakeBenchmark {
+
+    @Param({"1", "5", "20"})
+    private int itemCount;
+
+    private final AtomicLong statements = new AtomicLong();
+    private OrderServiceImpl orderService;
+    private OrderRequest request;
+    private User customer;
+
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class Counters {
+        public long statements;
+    }
+
+    @Setup
+    public void setUp() {
+        Store store = Store.builder().id(1L).name("Bench Store").build();
+        Address address = Address.builder().id(1L).lat(10.7769).lng(106.7009).build();
+        customer = User.builder().id(1L).email("bench@example.com").build();
+
+        List<MenuItem> menu = new ArrayList<>();
+        for (long id = 1; id <= 40; id++) {
+            menu.add(MenuItem.builder().id(id).name("Món " + id).price(BigDecimal.valueOf(25000 + id * 1000))
+                    .available(true).store(store).imageUrl("/images/" + id + ".jpg").build());
+        }
+        Map<Long, MenuItem> menuById = menu.stream().collect(Collectors.toMap(MenuItem::getId, Function.identity()));
+
+        OrderRepository orderRepository = stub(OrderRepository.class, (name, args) -> {
+            Order order = (Order) args[0];
+            order.setId(AppIds.next());
+            order.getOrderItems().forEach(item -> item.setId(AppIds.next()));
+            return order;
+        });
+        AddressRepository addressRepository = stub(AddressRepository.class, (name, args) -> Optional.of(address));
+        MenuItemRepository menuItemRepository = stub(MenuItemRepository.class, (name, args) ->
+                ((Collection<?>) args[0]).stream().map(menuById::get).collect(Collectors.toList()));
+        OrderActivityRepository activityRepository = stub(OrderActivityRepository.class, (name, args) -> args[0]);
+        PaymentRepository paymentRepository = stub(PaymentRepository.class, (name, args) -> args[0]);
+
+        orderService = new OrderServiceImpl(orderRepository, menuItemRepository, addressRepository,
+                activityRepository, paymentRepository, null, null, null, null,
+                new OrderCodeGenerator(), null, null);
+
+        request = new OrderRequest();
+        request.setAddressId(1L);
+        request.setPaymentMethod("VNPAY");
+        List<OrderRequest.OrderItemRequest> items = new ArrayList<>(itemCount);
+        for (int i = 0; i < itemCount; i++) {
+            OrderRequest.OrderItemRequest item = new OrderRequest.OrderItemRequest();
+            item.setMenuItemId((long) (i % menu.size()) + 1);
+            item.setQuantity(1 + i % 3);
+            items.add(item);
+        }
+        request.setItems(items);
+    }
+
+    @Benchmark
+    public Order createOrder(Counters counters) {
+        long before = statements.get();
+        Order order = orderService.createOrder(request, customer);
+        counters.statements += statements.get() - before;
+        return order;
+    }
+
+    @FunctionalInterface
+    private interface Handler {
+        Object handle(String method, Object[] args);
+    }
+
+    // Stub repository: mỗi lời gọi tính là một câu lệnh (hoặc một batch) SQL
+    @SuppressWarnings("unchecked")
+    private <T> T stub(Class<T> type, Handler handler) {
+        return (T) Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[]{type}, (proxy, method, args) -> {
+            if (method.getDeclaringClass() == Object.class) {
+                return switch (method.getName()) {
+                    case "hashCode" -> System.identityHashCode(proxy);
+                    case "equals" -> proxy == args[0];
+                    default -> type.getSimpleName() + "Stub";
+                };
+            }
+            statements.incrementAndGet();
+            return handler.handle(method.getName(), args);
+        });
+    }
+}
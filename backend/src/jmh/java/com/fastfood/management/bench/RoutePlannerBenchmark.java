@@ -0,0 +1,65 @@
+package com.fastfood.management.bench;
+
+import com.fastfood.management.service.api.RoutePlanner;
+import com.fastfood.management.service.impl.HeuristicRoutePlanner;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Thời gian lập tuyến theo số điểm dừng và chiến lược. Ngân sách thời gian đặt đủ lớn
+ * để đo trọn thời gian hội tụ của heuristic.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RoutePlannerBenchmark {
+
+    @Param({"3", "5", "10", "20", "40"})
+    private int stopCount;
+
+    @Param({"NEAREST_NEIGHBOUR", "TWO_OPT", "OR_OPT"})
+    private RoutePlanner.Strategy strategy;
+
+    private final RoutePlanner planner = new HeuristicRoutePlanner();
+    private final Duration budget = Duration.ofSeconds(1);
+    private RoutePlanner.Point store;
+    private RoutePlanner.Point home;
+    private List<RoutePlanner.Stop> stops;
+
+    @Setup
+    public void setUp() {
+        // Cửa hàng ở trung tâm TP.HCM, điểm giao rải ngẫu nhiên trong bán kính ~3 km
+        Random random = new Random(42);
+        store = new RoutePlanner.Point(10.7769, 106.7009);
+        home = new RoutePlanner.Point(10.7800, 106.6950);
+        stops = new ArrayList<>(stopCount);
+        for (int i = 0; i < stopCount; i++) {
+            stops.add(new RoutePlanner.Stop((long) i,
+                    store.lat() + (random.nextDouble() - 0.5) * 0.054,
+                    store.lng() + (random.nextDouble() - 0.5) * 0.054));
+        }
+    }
+
+    @Benchmark
+    public RoutePlanner.Route plan() {
+        return planner.plan(store, stops, home, strategy, budget);
+    }
+}
@@ -0,0 +1,61 @@
+package com.fastfood.management.bench;
+
+import com.fastfood.management.config.DroneConfig;
+import com.fastfood.management.entity.Delivery;
+import com.fastfood.management.service.impl.DroneSimulatorImpl;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Phần tính toán của một tick mô phỏng: vị trí nội suy và ETA còn lại cho mọi delivery đang bay.
+ * Không gồm I/O (query delivery, GPS sink, STOMP).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SimulationBenchmark {
+
+    @Param({"10", "100", "1000"})
+    private int activeDeliveries;
+
+    private DroneSimulatorImpl simulator;
+    private List<Delivery> deliveries;
+
+    @Setup
+    public void setUp() {
+        // Đồng hồ mô phỏng chỉ khởi động qua @PostConstruct nên không chạy trong benchmark;
+        // các phép tính dưới đây chỉ đọc DroneConfig và chính delivery
+        simulator = new DroneSimulatorImpl(new DroneConfig(), null, null, null, null, null, null, null, null, null);
+        deliveries = SyntheticFleet.inFlightDeliveries(activeDeliveries, 42);
+    }
+
+    @Benchmark
+    public void calculateCurrentPosition(Blackhole bh) {
+        for (Delivery delivery : deliveries) {
+            bh.consume(simulator.calculateCurrentPosition(delivery));
+        }
+    }
+
+    @Benchmark
+    public void calculateRemainingETA(Blackhole bh) {
+        for (Delivery delivery : deliveries) {
+            bh.consume(simulator.calculateRemainingETA(delivery));
+        }
+    }
+}
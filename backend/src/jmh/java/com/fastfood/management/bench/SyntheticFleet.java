@@ -0,0 +1,73 @@
+package com.fastfood.management.bench;
+
+import com.fastfood.management.entity.Delivery;
+import com.fastfood.management.entity.Drone;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Dữ liệu giả lập cho benchmark: drone và delivery rải ngẫu nhiên (seed cố định) quanh trung tâm TP.HCM
+ */
+final class SyntheticFleet {
+
+    static final double CENTER_LAT = 10.7769;
+    static final double CENTER_LNG = 106.7009;
+    // ~0.2 độ ≈ 22 km mỗi cạnh
+    private static final double SPREAD_DEG = 0.2;
+
+    private SyntheticFleet() {
+    }
+
+    static List<Drone> drones(int count, double idleRatio, long seed) {
+        Random random = new Random(seed);
+        List<Drone> drones = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            double lat = CENTER_LAT + (random.nextDouble() - 0.5) * SPREAD_DEG;
+            double lng = CENTER_LNG + (random.nextDouble() - 0.5) * SPREAD_DEG;
+            drones.add(Drone.builder()
+                    .id((long) i + 1)
+                    .serial("BENCH-" + (i + 1))
+                    .status(random.nextDouble() < idleRatio ? Drone.DroneStatus.IDLE : Drone.DroneStatus.EN_ROUTE_TO_CUSTOMER)
+                    .currentLat(lat)
+                    .currentLng(lng)
+                    .homeLat(lat)
+                    .homeLng(lng)
+                    .batteryPct(100.0)
+                    .maxPayloadKg(2.5)
+                    .maxRangeKm(20.0)
+                    .build());
+        }
+        return drones;
+    }
+
+    /**
+     * Delivery đang bay ở các segment khác nhau, bắt đầu segment từ 0-200 giây trước
+     */
+    static List<Delivery> inFlightDeliveries(int count, long seed) {
+        Random random = new Random(seed);
+        String[] segments = {"W0_W1", "W1_W2", "DWELL"};
+        LocalDateTime now = LocalDateTime.now();
+        List<Delivery> deliveries = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            deliveries.add(Delivery.builder()
+                    .id((long) i + 1)
+                    .status(Delivery.DeliveryStatus.IN_PROGRESS)
+                    .w0Lat(point(random, CENTER_LAT)).w0Lng(point(random, CENTER_LNG))
+                    .w1Lat(point(random, CENTER_LAT)).w1Lng(point(random, CENTER_LNG))
+                    .w2Lat(point(random, CENTER_LAT)).w2Lng(point(random, CENTER_LNG))
+                    .w3Lat(point(random, CENTER_LAT)).w3Lng(point(random, CENTER_LNG))
+                    .currentSegment(segments[random.nextInt(segments.length)])
+                    .segmentStartTime(now.minusSeconds(random.nextInt(200)))
+                    .dwellTicksRemaining(1)
+                    .build());
+        }
+        return deliveries;
+    }
+
+    private static double point(Random random, double center) {
+        return center + (random.nextDouble() - 0.5) * SPREAD_DEG;
+    }
+}
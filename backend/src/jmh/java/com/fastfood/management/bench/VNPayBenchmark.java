@@ -0,0 +1,57 @@
+package com.fastfood.management.bench;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import utils.VNPayUtils;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Ký/kiểm tra chữ ký VNPay: chạy một lần khi tạo URL thanh toán và một lần cho mỗi callback/IPN
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class VNPayBenchmark {
+
+    private String secret;
+    private String query;
+
+    @Setup
+    public void setUp() {
+        secret = "BENCHMARKSECRETKEY0123456789ABCDEF";
+        Map<String, String> params = new TreeMap<>();
+        params.put("vnp_Version", "2.1.0");
+        params.put("vnp_Command", "pay");
+        params.put("vnp_TmnCode", "BENCH001");
+        params.put("vnp_Amount", "15000000");
+        params.put("vnp_CurrCode", "VND");
+        params.put("vnp_TxnRef", "ORD-20240101-000123");
+        params.put("vnp_OrderInfo", "Thanh toan don hang ORD-20240101-000123");
+        params.put("vnp_OrderType", "other");
+        params.put("vnp_Locale", "vn");
+        params.put("vnp_ReturnUrl", "http://localhost:8080/api/payments/vnpay/return");
+        params.put("vnp_IpAddr", "127.0.0.1");
+        params.put("vnp_CreateDate", "20240101120000");
+        params.put("vnp_ExpireDate", "20240101121500");
+        query = VNPayUtils.generateQueryUrl(params, true);
+    }
+
+    @Benchmark
+    public String hmacSHA512() {
+        return VNPayUtils.hmacSHA512(secret, query);
+    }
+}
@@ -4,24 +4,38 @@ import com.fastfood.management.entity.Delivery;
 import com.fastfood.management.entity.Drone;
 import com.fastfood.management.entity.DroneAssignment;
 import com.fastfood.management.entity.Order;
+import com.fastfood.management.event.DispatchEvent;
 import com.fastfood.management.repository.DeliveryRepository;
 import com.fastfood.management.repository.DroneRepository;
 import com.fastfood.management.repository.OrderRepository;
 import com.fastfood.management.service.api.DroneSimulator;
 import com.fastfood.management.service.api.FleetService;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Sort;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.time.LocalDateTime;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
 
 @Component
 @RequiredArgsConstructor
@@ -33,25 +47,112 @@ public class AutoAssignScheduler {
     private final DeliveryRepository deliveryRepository;
     private final DroneRepository droneRepository;
     private final DroneSimulator droneSimulator;
+    private final PlatformTransactionManager transactionManager;
+
+    // BATCH: gán tối ưu toàn lô trong một transaction; GREEDY: gán lần lượt từng đơn;
+    // ROUTE: gom đơn cùng cửa hàng thành chuyến nhiều điểm dừng
+    @Value("${drone.autoAssign.mode:BATCH}")
+    private String mode;
+
+    @Value("${drone.batching.maxStops:3}")
+    private int maxStops;
+
+    // Bỏ mốc READY của đơn chờ quá lâu để map không tăng vô hạn
+    private static final long READY_TRACKING_TTL_NANOS = TimeUnit.HOURS.toNanos(1);
 
     private final AtomicBoolean running = new AtomicBoolean(false);
+    private final AtomicBoolean rerunRequested = new AtomicBoolean(false);
+    private final AtomicBoolean triggerQueued = new AtomicBoolean(false);
+    private final ExecutorService dispatchTrigger = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "dispatch-trigger");
+        t.setDaemon(true);
+        return t;
+    });
+    // orderId -> thời điểm (nanoTime) đơn READY_FOR_DELIVERY, dùng để đo độ trễ dispatch
+    private final Map<Long, Long> readySinceNanos = new ConcurrentHashMap<>();
+    private final AtomicLong triggeredRuns = new AtomicLong();
+    private final AtomicLong scheduledRuns = new AtomicLong();
+    private final AtomicLong dispatchedOrders = new AtomicLong();
+    private final AtomicLong totalLatencyNanos = new AtomicLong();
+    private final AtomicLong maxLatencyNanos = new AtomicLong();
+    private volatile long lastLatencyNanos;
+    private TransactionTemplate transactionTemplate;
+
+    @PostConstruct
+    void init() {
+        transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    @PreDestroy
+    void shutdown() {
+        dispatchTrigger.shutdownNow();
+    }
 
     /**
-     * Chu kỳ kiểm tra tự động: mỗi 5 giây (có thể điều chỉnh bằng property `drone.autoAssign.pollDelayMs`).
-     * Lấy tối đa số lượng bằng với số drone IDLE hiện có và auto-assign theo thứ tự đơn cũ nhất.
+     * Nhận sự kiện đơn READY_FOR_DELIVERY / drone IDLE sau khi transaction phát sự kiện commit
+     * và chạy dispatch ngay trên thread riêng.
      */
-    @Scheduled(fixedDelayString = "${drone.autoAssign.pollDelayMs:5000}")
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onDispatchEvent(DispatchEvent event) {
+        if (event.orderId() != null) {
+            readySinceNanos.putIfAbsent(event.orderId(), event.occurredAtNanos());
+        }
+        triggerDispatch();
+    }
+
+    /**
+     * Lưới an toàn: chu kỳ kiểm tra mỗi 30 giây (có thể điều chỉnh bằng property `drone.autoAssign.pollDelayMs`)
+     * cho các đơn bị lỡ sự kiện. Đường chính là {@link #onDispatchEvent(DispatchEvent)}.
+     */
+    @Scheduled(fixedDelayString = "${drone.autoAssign.pollDelayMs:30000}")
     public void pollAndAssign() {
+        scheduledRuns.incrementAndGet();
+        dispatch();
+    }
+
+    public Map<String, Object> getDispatchStats() {
+        long count = dispatchedOrders.get();
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("mode", mode);
+        stats.put("triggeredRuns", triggeredRuns.get());
+        stats.put("scheduledRuns", scheduledRuns.get());
+        stats.put("dispatchedOrders", count);
+        stats.put("waitingOrders", readySinceNanos.size());
+        stats.put("avgLatencyMs", count > 0 ? totalLatencyNanos.get() / count / 1_000_000.0 : 0.0);
+        stats.put("maxLatencyMs", maxLatencyNanos.get() / 1_000_000.0);
+        stats.put("lastLatencyMs", lastLatencyNanos / 1_000_000.0);
+        return stats;
+    }
+
+    private void triggerDispatch() {
+        // Gộp các sự kiện dồn dập thành một lượt dispatch đang chờ
+        if (triggerQueued.compareAndSet(false, true)) {
+            dispatchTrigger.execute(() -> {
+                triggerQueued.set(false);
+                triggeredRuns.incrementAndGet();
+                dispatch();
+            });
+        }
+    }
+
+    /**
+     * Lấy tối đa số lượng bằng với số drone IDLE hiện có và auto-assign theo thứ tự đơn cũ nhất
+     * (gán tối ưu cả lô hoặc lần lượt, theo `drone.autoAssign.mode`).
+     */
+    private void dispatch() {
         if (!running.compareAndSet(false, true)) {
-            return; // tránh job chồng nhau
+            rerunRequested.set(true); // lượt đang chạy xong sẽ chạy lại để không lỡ sự kiện
+            return;
         }
         try {
+            evictStaleReadyMarks();
             List<Drone> available = fleetService.getAvailableDrones();
             if (available == null || available.isEmpty()) {
                 return;
             }
 
-            int capacity = Math.max(1, available.size());
+            // Chế độ ROUTE một drone chở được nhiều đơn
+            int capacity = Math.max(1, available.size()) * ("ROUTE".equalsIgnoreCase(mode) ? maxStops : 1);
             Pageable oldestN = PageRequest.of(0, capacity, Sort.by(Sort.Direction.ASC, "createdAt"));
             Page<Order> page = orderRepository.findByStatus(Order.OrderStatus.READY_FOR_DELIVERY, oldestN);
             List<Order> candidates = page.getContent();
@@ -59,41 +160,146 @@ public class AutoAssignScheduler {
                 return;
             }
 
-            for (Order order : candidates) {
-                // Bảo vệ thêm: chỉ auto-assign các đơn đã thanh toán
-                if (order.getPaymentStatus() != Order.PaymentStatus.PAID) {
-                    continue;
-                }
-
-                Optional<DroneAssignment> opt = fleetService.autoAssignDrone(order);
-                if (opt.isEmpty()) {
-                    break; // hết drone rảnh
-                }
-                DroneAssignment assignment = opt.get();
-
-                // Cập nhật trạng thái order/delivery/drone để bắt đầu giao hàng
-                order.setStatus(Order.OrderStatus.OUT_FOR_DELIVERY);
-                order.setUpdatedAt(LocalDateTime.now());
-                orderRepository.save(order);
-
-                Delivery delivery = assignment.getDelivery();
-                delivery.setStatus(Delivery.DeliveryStatus.IN_PROGRESS);
-                delivery.setCurrentSegment("W0_W1");
-                delivery.setSegmentStartTime(LocalDateTime.now());
-                deliveryRepository.save(delivery);
-
-                Drone drone = assignment.getDrone();
-                drone.setStatus(Drone.DroneStatus.EN_ROUTE_TO_STORE);
-                droneRepository.save(drone);
-
-                // Bắt đầu mô phỏng bay
-                droneSimulator.startSimulation(delivery.getId());
-                log.info("Auto-assigned order {} to drone {} and started simulation (delivery {}).", order.getId(), drone.getId(), delivery.getId());
+            if ("GREEDY".equalsIgnoreCase(mode)) {
+                assignGreedy(candidates);
+            } else if ("ROUTE".equalsIgnoreCase(mode)) {
+                assignRoutes(candidates);
+            } else {
+                assignBatch(candidates);
             }
         } catch (Exception e) {
             log.error("Auto-assign scheduler error: {}", e.getMessage());
         } finally {
             running.set(false);
+            if (rerunRequested.getAndSet(false)) {
+                triggerDispatch();
+            }
+        }
+    }
+
+    private void recordDispatchLatency(Long orderId) {
+        Long readyAt = readySinceNanos.remove(orderId);
+        if (readyAt == null) {
+            return;
+        }
+        long latency = System.nanoTime() - readyAt;
+        dispatchedOrders.incrementAndGet();
+        totalLatencyNanos.addAndGet(latency);
+        maxLatencyNanos.accumulateAndGet(latency, Math::max);
+        lastLatencyNanos = latency;
+    }
+
+    private void evictStaleReadyMarks() {
+        long cutoff = System.nanoTime() - READY_TRACKING_TTL_NANOS;
+        readySinceNanos.values().removeIf(readyAt -> readyAt - cutoff < 0);
+    }
+
+    private void assignGreedy(List<Order> candidates) {
+        for (Order order : candidates) {
+            // Bảo vệ thêm: chỉ auto-assign các đơn đã thanh toán
+            if (order.getPaymentStatus() != Order.PaymentStatus.PAID) {
+                continue;
+            }
+
+            Optional<DroneAssignment> opt = fleetService.autoAssignDrone(order);
+            if (opt.isEmpty()) {
+                break; // hết drone rảnh
+            }
+            DroneAssignment assignment = opt.get();
+            markInFlight(assignment);
+
+            // Bắt đầu mô phỏng bay
+            Long deliveryId = assignment.getDelivery().getId();
+            droneSimulator.startSimulation(deliveryId);
+            recordDispatchLatency(order.getId());
+            log.info("Auto-assigned order {} to drone {} and started simulation (delivery {}).", order.getId(), assignment.getDrone().getId(), deliveryId);
+        }
+    }
+
+    /**
+     * Gán cả lô bằng bài toán gán tối ưu; assignment và cập nhật trạng thái commit trong một transaction,
+     * mô phỏng chỉ bắt đầu sau khi commit.
+     */
+    private void assignBatch(List<Order> candidates) {
+        // Bảo vệ thêm: chỉ auto-assign các đơn đã thanh toán
+        List<Order> paid = candidates.stream()
+                .filter(order -> order.getPaymentStatus() == Order.PaymentStatus.PAID)
+                .toList();
+        if (paid.isEmpty()) {
+            return;
+        }
+
+        List<DroneAssignment> assignments = transactionTemplate.execute(status -> {
+            List<DroneAssignment> created = fleetService.batchAssignDrones(paid);
+            created.forEach(this::markInFlight);
+            return created;
+        });
+        if (assignments == null) {
+            return;
+        }
+        for (DroneAssignment assignment : assignments) {
+            droneSimulator.startSimulation(assignment.getDelivery().getId());
+            recordDispatchLatency(assignment.getOrder().getId());
+        }
+        if (!assignments.isEmpty()) {
+            log.info("Batch auto-assigned {} of {} ready orders and started simulations.", assignments.size(), paid.size());
+        }
+    }
+
+    /**
+     * Gom đơn thành chuyến nhiều điểm dừng; mọi đơn trong chuyến chuyển OUT_FOR_DELIVERY ngay,
+     * mô phỏng chỉ chạy cho điểm dừng đầu, các điểm sau được kích hoạt khi điểm trước giao xong.
+     */
+    private void assignRoutes(List<Order> candidates) {
+        List<Order> paid = candidates.stream()
+                .filter(order -> order.getPaymentStatus() == Order.PaymentStatus.PAID)
+                .toList();
+        if (paid.isEmpty()) {
+            return;
+        }
+
+        List<DroneAssignment> assignments = transactionTemplate.execute(status -> {
+            List<DroneAssignment> created = fleetService.assignRoutes(paid);
+            created.forEach(this::markInFlight);
+            return created;
+        });
+        if (assignments == null) {
+            return;
+        }
+        for (DroneAssignment assignment : assignments) {
+            if (!isWaitingStop(assignment.getDelivery())) {
+                droneSimulator.startSimulation(assignment.getDelivery().getId());
+            }
+            recordDispatchLatency(assignment.getOrder().getId());
+        }
+        if (!assignments.isEmpty()) {
+            log.info("Route auto-assigned {} of {} ready orders and started simulations.", assignments.size(), paid.size());
         }
     }
-}
\ No newline at end of file
+
+    // Điểm dừng thứ 2 trở đi của chuyến: đã lên drone nhưng chưa tới lượt bay
+    private boolean isWaitingStop(Delivery delivery) {
+        return delivery.getStopSequence() != null && delivery.getStopSequence() > 0;
+    }
+
+    // Cập nhật trạng thái order/delivery/drone để bắt đầu giao hàng
+    private void markInFlight(DroneAssignment assignment) {
+        Order order = assignment.getOrder();
+        order.setStatus(Order.OrderStatus.OUT_FOR_DELIVERY);
+        order.setUpdatedAt(LocalDateTime.now());
+        orderRepository.save(order);
+
+        Delivery delivery = assignment.getDelivery();
+        if (isWaitingStop(delivery)) {
+            return;
+        }
+        delivery.setStatus(Delivery.DeliveryStatus.IN_PROGRESS);
+        delivery.setCurrentSegment("W0_W1");
+        delivery.setSegmentStartTime(LocalDateTime.now());
+        deliveryRepository.save(delivery);
+
+        Drone drone = assignment.getDrone();
+        drone.setStatus(Drone.DroneStatus.EN_ROUTE_TO_STORE);
+        droneRepository.save(drone);
+    }
+}
@@ -7,6 +7,7 @@ import jakarta.servlet.ServletRequest;
 import jakarta.servlet.ServletResponse;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
+import com.fastfood.management.security.RequestPathClassifier;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.core.Ordered;
@@ -31,6 +32,12 @@ public class CorsResponseFilter implements Filter {
             "http://localhost:3000"
     );
 
+    private final RequestPathClassifier pathClassifier;
+
+    public CorsResponseFilter(RequestPathClassifier pathClassifier) {
+        this.pathClassifier = pathClassifier;
+    }
+
     @Override
     public void doFilter(ServletRequest servletRequest, ServletResponse servletResponse, FilterChain filterChain)
             throws IOException, ServletException {
@@ -40,12 +47,15 @@ public class CorsResponseFilter implements Filter {
         String origin = request.getHeader("Origin");
 
         // Log request for debugging on deployed platform
-        logger.info("CORS filter invoked: method={}, uri={}, origin={}", request.getMethod(), request.getRequestURI(), origin);
-
-        // Log POST requests specially to debug login issues
-        if ("POST".equalsIgnoreCase(request.getMethod())) {
-            logger.warn("POST request detected: uri={}, origin={}, contentType={}",
-                request.getRequestURI(), origin, request.getContentType());
+        if (logger.isDebugEnabled()) {
+            logger.debug("CORS filter invoked: method={}, uri={}, origin={}", request.getMethod(), request.getRequestURI(), origin);
+
+            // Log POST tới /auth để debug lỗi đăng nhập
+            int flags = pathClassifier.classify(request.getRequestURI(), request.getContextPath());
+            if ((flags & RequestPathClassifier.AUTH) != 0 && "POST".equalsIgnoreCase(request.getMethod())) {
+                logger.debug("Auth POST request: uri={}, origin={}, contentType={}",
+                    request.getRequestURI(), origin, request.getContentType());
+            }
         }
 
         // Only set CORS headers if origin is present and allowed
@@ -57,14 +67,14 @@ public class CorsResponseFilter implements Filter {
                 response.setHeader("Access-Control-Allow-Credentials", "true");
                 response.setHeader("Access-Control-Allow-Methods", "GET,POST,PUT,DELETE,OPTIONS,PATCH");
                 response.setHeader("Access-Control-Allow-Headers", "Authorization,Content-Type,Accept,X-Requested-With");
-                response.setHeader("Access-Control-Expose-Headers", "Authorization,x-auth-token");
+                response.setHeader("Access-Control-Expose-Headers", "Authorization,x-auth-token,X-Next-Cursor,Retry-After");
             } else {
                 logger.warn("Origin not allowed: {}", origin);
             }
         }
 
         if ("OPTIONS".equalsIgnoreCase(request.getMethod())) {
-            logger.info("CORS preflight request - returning 200 OK for uri={}", request.getRequestURI());
+            logger.debug("CORS preflight request - returning 200 OK for uri={}", request.getRequestURI());
             response.setStatus(HttpServletResponse.SC_OK);
             return;
         }
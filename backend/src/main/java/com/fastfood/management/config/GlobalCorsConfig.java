@@ -20,7 +20,7 @@ public class GlobalCorsConfig implements WebMvcConfigurer {
                 )
                 .allowedMethods("GET", "POST", "PUT", "PATCH", "DELETE", "OPTIONS")
                 .allowedHeaders("*")
-                .exposedHeaders("Authorization", "x-auth-token")
+                .exposedHeaders("Authorization", "x-auth-token", "X-Next-Cursor", "Retry-After")
                 .allowCredentials(true)
                 .maxAge(3600);
     }
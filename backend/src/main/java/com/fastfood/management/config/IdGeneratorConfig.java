@@ -0,0 +1,35 @@
+package com.fastfood.management.config;
+
+import com.fastfood.management.entity.id.AppIds;
+import com.fastfood.management.entity.id.IdGenerator;
+import com.fastfood.management.entity.id.TimeOrderedIdGenerator;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.orm.jpa.EntityManagerFactoryDependsOnPostProcessor;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.stereotype.Component;
+
+/**
+ * Cấu hình id phía ứng dụng. Mỗi instance chạy song song phải có app.id.nodeId riêng (0-255).
+ */
+@Configuration
+@Slf4j
+public class IdGeneratorConfig {
+
+    @Bean
+    public IdGenerator idGenerator(@Value("${app.id.nodeId:0}") int nodeId) {
+        IdGenerator generator = new TimeOrderedIdGenerator(nodeId);
+        AppIds.install(generator);
+        log.info("Time-ordered id generator installed for node {}", nodeId);
+        return generator;
+    }
+
+    // EntityManagerFactory chỉ khởi động sau khi generator đã được cài vào AppIds
+    @Component
+    static class EntityManagerFactoryDependsOnIdGenerator extends EntityManagerFactoryDependsOnPostProcessor {
+        EntityManagerFactoryDependsOnIdGenerator() {
+            super("idGenerator");
+        }
+    }
+}
@@ -0,0 +1,87 @@
+package com.fastfood.management.config;
+
+import com.fastfood.management.service.ImageDerivativeService;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.HandlerInterceptor;
+import org.springframework.web.util.UrlPathHelper;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Chặn GET /images/** và /uploads/** có ?preset= hoặc ?w= (&h=, &fit=contain|cover) để trả ảnh đã thu nhỏ
+ * thay vì ảnh gốc. Không có tham số thì request đi tiếp tới resource handler như cũ.
+ * Biến thể không bao giờ đổi nội dung theo URL nên được cache lâu dài (immutable).
+ */
+@Component
+public class ImageDerivativeInterceptor implements HandlerInterceptor {
+
+    private static final CacheControl IMMUTABLE = CacheControl.maxAge(365, TimeUnit.DAYS).cachePublic().immutable();
+    private static final UrlPathHelper PATH_HELPER = new UrlPathHelper();
+
+    private final ImageDerivativeService imageDerivativeService;
+
+    public ImageDerivativeInterceptor(ImageDerivativeService imageDerivativeService) {
+        this.imageDerivativeService = imageDerivativeService;
+    }
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) throws IOException {
+        String preset = request.getParameter("preset");
+        String width = request.getParameter("w");
+        if (!"GET".equals(request.getMethod()) || (preset == null && width == null)) {
+            return true;
+        }
+        String path = PATH_HELPER.getPathWithinApplication(request);
+        ImageDerivativeService.Derivative derivative;
+        try {
+            derivative = preset != null
+                    ? imageDerivativeService.preset(path, preset)
+                    : imageDerivativeService.resize(path, parseSize(width, "w"), parseSize(request.getParameter("h"), "h"),
+                            parseFit(request.getParameter("fit")));
+        } catch (NoSuchFileException e) {
+            response.sendError(HttpStatus.NOT_FOUND.value());
+            return false;
+        } catch (ImageDerivativeService.BusyException e) {
+            response.setHeader(HttpHeaders.RETRY_AFTER, "1");
+            response.sendError(HttpStatus.SERVICE_UNAVAILABLE.value(), e.getMessage());
+            return false;
+        }
+
+        response.setContentType(derivative.contentType());
+        response.setContentLengthLong(Files.size(derivative.file()));
+        response.setHeader(HttpHeaders.CACHE_CONTROL, IMMUTABLE.getHeaderValue());
+        Files.copy(derivative.file(), response.getOutputStream());
+        return false;
+    }
+
+    private static int parseSize(String value, String name) {
+        if (value == null || value.isBlank()) {
+            return 0;
+        }
+        try {
+            return Integer.parseInt(value.trim());
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid image " + name + ": " + value);
+        }
+    }
+
+    private static ImageDerivativeService.Fit parseFit(String value) {
+        if (value == null || value.isBlank()) {
+            return ImageDerivativeService.Fit.CONTAIN;
+        }
+        try {
+            return ImageDerivativeService.Fit.valueOf(value.trim().toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Invalid image fit: " + value);
+        }
+    }
+}
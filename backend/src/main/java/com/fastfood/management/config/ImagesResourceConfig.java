@@ -4,11 +4,14 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.http.CacheControl;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
 import org.springframework.web.servlet.config.annotation.ResourceHandlerRegistry;
 import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
 import org.springframework.web.servlet.resource.PathResourceResolver;
 
 import java.nio.file.Paths;
+import java.util.concurrent.TimeUnit;
 
 @Configuration
 public class ImagesResourceConfig implements WebMvcConfigurer {
@@ -20,6 +23,19 @@ public class ImagesResourceConfig implements WebMvcConfigurer {
     @Value("${app.upload-dir:uploads}")
     private String uploadDir;
 
+    private final ImageDerivativeInterceptor imageDerivativeInterceptor;
+
+    public ImagesResourceConfig(ImageDerivativeInterceptor imageDerivativeInterceptor) {
+        this.imageDerivativeInterceptor = imageDerivativeInterceptor;
+    }
+
+    // ?preset= / ?w= trả ảnh thu nhỏ (cache trên đĩa) thay cho ảnh gốc
+    @Override
+    public void addInterceptors(InterceptorRegistry registry) {
+        registry.addInterceptor(imageDerivativeInterceptor)
+                .addPathPatterns("/images/**", "/uploads/**");
+    }
+
     @Override
     public void addResourceHandlers(ResourceHandlerRegistry registry) {
         // Existing images mapping
@@ -45,6 +61,11 @@ public class ImagesResourceConfig implements WebMvcConfigurer {
 
         log.info("Static images mapped: '/images/**' -> {}", location);
 
+        // Blob theo nội dung (tên file là SHA-256) không bao giờ đổi nội dung nên cache vĩnh viễn
+        registry.addResourceHandler("/uploads/blobs/**")
+                .addResourceLocations("file:" + Paths.get(uploadDir, "blobs").toAbsolutePath().toString() + "/")
+                .setCacheControl(CacheControl.maxAge(365, TimeUnit.DAYS).cachePublic().immutable());
+
         // New uploads mapping for POC
         registry.addResourceHandler("/uploads/**")
                 .addResourceLocations("file:" + Paths.get(uploadDir).toAbsolutePath().toString() + "/");
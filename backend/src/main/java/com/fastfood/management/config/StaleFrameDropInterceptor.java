@@ -0,0 +1,78 @@
+package com.fastfood.management.config;
+
+import com.fastfood.management.service.impl.TrackingBroadcaster;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageChannel;
+import org.springframework.messaging.MessageHandler;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.support.ExecutorChannelInterceptor;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Interceptor cho clientOutboundChannel: với frame tracking (có header seq), nếu một frame mới hơn
+ * cho cùng session + destination đã vào hàng đợi trước khi frame cũ kịp gửi (subscriber chậm)
+ * thì bỏ frame cũ thay vì để hàng đợi của session phình ra.
+ */
+@Component
+@Slf4j
+public class StaleFrameDropInterceptor implements ExecutorChannelInterceptor {
+
+    // sessionId|destination -> seq mới nhất đang chờ gửi; chỉ giữ key có frame đang chờ
+    private final Map<String, Long> latestQueued = new ConcurrentHashMap<>();
+    private final AtomicLong dropped = new AtomicLong();
+
+    @Override
+    public Message<?> preSend(Message<?> message, MessageChannel channel) {
+        String key = key(message);
+        Long seq = seq(message);
+        if (key != null && seq != null) {
+            latestQueued.merge(key, seq, Math::max);
+        }
+        return message;
+    }
+
+    @Override
+    public Message<?> beforeHandle(Message<?> message, MessageChannel channel, MessageHandler handler) {
+        String key = key(message);
+        Long seq = seq(message);
+        if (key == null || seq == null) {
+            return message;
+        }
+        Long latest = latestQueued.get(key);
+        if (latest != null && latest > seq) {
+            long total = dropped.incrementAndGet();
+            log.debug("Dropped stale tracking frame {} for {} (latest {}), total dropped {}", seq, key, latest, total);
+            return null;
+        }
+        latestQueued.remove(key, seq);
+        return message;
+    }
+
+    public long getDroppedCount() {
+        return dropped.get();
+    }
+
+    private static String key(Message<?> message) {
+        String sessionId = SimpMessageHeaderAccessor.getSessionId(message.getHeaders());
+        String destination = SimpMessageHeaderAccessor.getDestination(message.getHeaders());
+        return sessionId != null && destination != null ? sessionId + "|" + destination : null;
+    }
+
+    private static Long seq(Message<?> message) {
+        SimpMessageHeaderAccessor accessor = SimpMessageHeaderAccessor.wrap(message);
+        String value = accessor.getFirstNativeHeader(TrackingBroadcaster.SEQ_HEADER);
+        if (value == null) {
+            return null;
+        }
+        try {
+            return Long.parseLong(value);
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+}
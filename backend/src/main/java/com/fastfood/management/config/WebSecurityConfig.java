@@ -3,6 +3,7 @@ package com.fastfood.management.config;
 // Cấu hình bảo mật: bật xác thực JWT cho tất cả endpoint trừ /api/auth/**
 
 import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.http.HttpMethod;
@@ -98,9 +99,10 @@ public class WebSecurityConfig {
         return http.build();
     }
 
+    // Tăng strength thì hash cũ được nâng cấp khi đăng nhập nếu bật auth.login.rehash
     @Bean
-    public PasswordEncoder passwordEncoder() {
-        return new BCryptPasswordEncoder();
+    public PasswordEncoder passwordEncoder(@Value("${auth.bcrypt.strength:10}") int strength) {
+        return new BCryptPasswordEncoder(strength);
     }
 
     @Bean
@@ -114,7 +116,7 @@ public class WebSecurityConfig {
         // Allow all request headers to avoid CORS preflight rejections when clients send custom headers
         configuration.setAllowedHeaders(Arrays.asList("*"));
         configuration.setAllowCredentials(true); // Enable credentials support
-        configuration.setExposedHeaders(Arrays.asList("x-auth-token", "Authorization"));
+        configuration.setExposedHeaders(Arrays.asList("x-auth-token", "Authorization", "X-Next-Cursor", "Retry-After"));
         UrlBasedCorsConfigurationSource source = new UrlBasedCorsConfigurationSource();
         source.registerCorsConfiguration("/**", configuration);
         return source;
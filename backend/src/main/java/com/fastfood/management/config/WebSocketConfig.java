@@ -1,7 +1,9 @@
 package com.fastfood.management.config;
 
+import lombok.RequiredArgsConstructor;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.messaging.simp.config.ChannelRegistration;
 import org.springframework.messaging.simp.config.MessageBrokerRegistry;
 import org.springframework.web.socket.config.annotation.EnableWebSocketMessageBroker;
 import org.springframework.web.socket.config.annotation.StompEndpointRegistry;
@@ -18,11 +20,17 @@ import org.springframework.web.socket.config.annotation.WebSocketMessageBrokerCo
  * - /topic/drone/{droneId}/state: State changes cho drone cụ thể
  * - /topic/delivery/{deliveryId}/eta: ETA updates cho delivery cụ thể
  * - /topic/delivery/{deliveryId}/events: Delivery events
+ * - /topic/delivery/{orderId}: SEGMENT descriptor để client nội suy, GPS_UPDATE khi lệch quá ngưỡng / không có descriptor
+ * - /topic/fleet/store/{storeId}, /topic/fleet/region/{cell}: batch frame tracking theo cửa hàng / khu vực
+ * - /topic/drone-tracking: batch frame tracking toàn fleet
  */
 @Configuration
 @EnableWebSocketMessageBroker
+@RequiredArgsConstructor
 public class WebSocketConfig implements WebSocketMessageBrokerConfigurer {
 
+    private final StaleFrameDropInterceptor staleFrameDropInterceptor;
+
     @Value("${app.websocket.path:/ws}")
     private String websocketPath;
 
@@ -38,6 +46,12 @@ public class WebSocketConfig implements WebSocketMessageBrokerConfigurer {
         registry.setUserDestinationPrefix("/user");
     }
 
+    @Override
+    public void configureClientOutboundChannel(ChannelRegistration registration) {
+        // Bỏ frame tracking đã cũ khi subscriber nhận chậm hơn nhịp phát
+        registration.interceptors(staleFrameDropInterceptor);
+    }
+
     @Override
     public void registerStompEndpoints(StompEndpointRegistry registry) {
         // Đăng ký WebSocket endpoint với SockJS fallback
@@ -5,7 +5,7 @@ import com.fastfood.management.entity.Address;
 import com.fastfood.management.entity.User;
 import com.fastfood.management.dto.response.AddressSimpleResponse;
 import com.fastfood.management.repository.AddressRepository;
-import com.fastfood.management.repository.UserRepository;
+import com.fastfood.management.service.impl.PrincipalUserCache;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import org.springframework.http.HttpStatus;
@@ -22,13 +22,13 @@ import java.util.Map;
 public class AddressController {
 
     private final AddressRepository addressRepository;
-    private final UserRepository userRepository;
+    private final PrincipalUserCache principalUserCache;
 
     @PostMapping
     @Transactional
     public ResponseEntity<?> createAddress(@Valid @RequestBody AddressRequest req,
                                            @RequestParam("userId") Long userId) {
-        User user = userRepository.findById(userId).orElse(null);
+        User user = principalUserCache.findById(userId).orElse(null);
         if (user == null) {
             return ResponseEntity.status(HttpStatus.BAD_REQUEST)
                     .body(Map.of("message", "Không tìm thấy người dùng"));
@@ -68,7 +68,7 @@ public class AddressController {
     public ResponseEntity<?> updateAddress(@PathVariable("id") Long id,
                                            @Valid @RequestBody AddressRequest req,
                                            @RequestParam("userId") Long userId) {
-        User user = userRepository.findById(userId).orElse(null);
+        User user = principalUserCache.findById(userId).orElse(null);
         if (user == null) {
             return ResponseEntity.status(HttpStatus.BAD_REQUEST)
                     .body(Map.of("message", "Không tìm thấy người dùng"));
@@ -91,12 +91,14 @@ public class AddressController {
         address.setLng(req.getLng());
 
         Address saved = addressRepository.save(address);
+        // User trong cache giữ bản sao địa chỉ mặc định
+        principalUserCache.evict(user.getId());
         return ResponseEntity.ok(toResponse(saved));
     }
 
     @GetMapping
     public ResponseEntity<?> listMyAddresses(@RequestParam("userId") Long userId) {
-        User user = userRepository.findById(userId).orElse(null);
+        User user = principalUserCache.findById(userId).orElse(null);
         if (user == null) {
             return ResponseEntity.status(HttpStatus.BAD_REQUEST)
                     .body(Map.of("message", "Không tìm thấy người dùng"));
@@ -108,7 +110,7 @@ public class AddressController {
 
     @GetMapping("/default")
     public ResponseEntity<?> getDefaultAddress(@RequestParam("userId") Long userId) {
-        User user = userRepository.findById(userId).orElse(null);
+        User user = principalUserCache.findById(userId).orElse(null);
         if (user == null) {
             return ResponseEntity.status(HttpStatus.BAD_REQUEST)
                     .body(Map.of("message", "Không tìm thấy người dùng"));
@@ -127,7 +129,7 @@ public class AddressController {
     @Transactional
     public ResponseEntity<?> setDefault(@PathVariable("id") Long id,
                                         @RequestParam("userId") Long userId) {
-        User user = userRepository.findById(userId).orElse(null);
+        User user = principalUserCache.findById(userId).orElse(null);
         if (user == null) {
             return ResponseEntity.status(HttpStatus.BAD_REQUEST)
                     .body(Map.of("message", "Không tìm thấy người dùng"));
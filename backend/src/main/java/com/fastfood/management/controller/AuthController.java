@@ -6,14 +6,17 @@ import com.fastfood.management.entity.User;
 import com.fastfood.management.entity.StoreStaff;
 import com.fastfood.management.entity.Store;
 import com.fastfood.management.entity.Role;
+import com.fastfood.management.exception.LoginThrottledException;
 import com.fastfood.management.repository.UserRepository;
 import com.fastfood.management.repository.StoreRepository;
 import com.fastfood.management.repository.StoreStaffRepository;
 import com.fastfood.management.repository.RoleRepository;
 import com.fastfood.management.security.JwtTokenProvider;
 import com.fastfood.management.security.UserDetailsImpl;
+import com.fastfood.management.service.impl.LoginHashExecutor;
 import lombok.RequiredArgsConstructor;
 import java.util.HashSet;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
@@ -40,6 +43,7 @@ public class AuthController {
     private final StoreRepository storeRepository;
     private final PasswordEncoder passwordEncoder;
     private final JwtTokenProvider jwtTokenProvider;
+    private final LoginHashExecutor loginHashExecutor;
 
     @PostMapping("/login")
     public ResponseEntity<?> authenticateUser(@RequestBody LoginRequest loginRequest) {
@@ -69,8 +73,8 @@ public class AuthController {
             }
 
             System.out.println("Step 3: Checking password");
-            // (BCrypt)
-            boolean matches = passwordEncoder.matches(loginRequest.getPassword(), user.getPasswordHash());
+            // (BCrypt) trên pool kiểm mật khẩu riêng
+            boolean matches = loginHashExecutor.matches(user, loginRequest.getPassword());
             if (!matches) {
                 System.err.println("Password mismatch for user: " + user.getEmail());
                 return ResponseEntity.status(HttpStatus.UNAUTHORIZED)
@@ -109,6 +113,10 @@ public class AuthController {
 
             System.out.println("=== LOGIN SUCCESS for " + user.getEmail() + " ===");
             return ResponseEntity.ok(response);
+        } catch (LoginThrottledException e) {
+            return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+                    .header(HttpHeaders.RETRY_AFTER, String.valueOf(e.getRetryAfterSeconds()))
+                    .body(Map.of("message", e.getMessage()));
         } catch (Exception e) {
             // Log exception for debugging
             System.err.println("=== LOGIN ERROR ===");
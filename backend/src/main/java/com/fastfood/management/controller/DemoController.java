@@ -1,11 +1,13 @@
 package com.fastfood.management.controller;
 
 import com.fastfood.management.entity.*;
+import com.fastfood.management.event.DispatchEvent;
 import com.fastfood.management.repository.*;
 import com.fastfood.management.service.api.DroneSimulator;
 import com.fastfood.management.service.api.FleetService;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
@@ -29,6 +31,7 @@ public class DemoController {
     private final DroneAssignmentRepository assignmentRepository;
     private final FleetService fleetService;
     private final DroneSimulator droneSimulator;
+    private final ApplicationEventPublisher eventPublisher;
 
     /**
      * GET /demo/status - Xem trạng thái hệ thống
@@ -112,6 +115,7 @@ public class DemoController {
                         .build();
                 deliveryRepository.save(delivery);
             }
+            eventPublisher.publishEvent(DispatchEvent.orderReady(orderId));
 
             return ResponseEntity.ok(Map.of(
                 "success", true,
@@ -1,5 +1,6 @@
 package com.fastfood.management.controller;
 
+import com.fastfood.management.bootstrap.AutoAssignScheduler;
 import com.fastfood.management.entity.Drone;
 import com.fastfood.management.entity.DroneAssignment;
 import com.fastfood.management.entity.Delivery;
@@ -28,6 +29,7 @@ public class DroneManagementController {
     private final DeliveryRepository deliveryRepository;
     private final FleetService fleetService;
     private final DroneSimulator droneSimulator;
+    private final AutoAssignScheduler autoAssignScheduler;
 
     /**
      * GET /api/drone-management/stats - Thống kê số lượng drone theo trạng thái chính
@@ -503,6 +505,38 @@ public class DroneManagementController {
         }
     }
 
+    /**
+     * GET /api/drone-management/simulation/stats - Số liệu đồng hồ mô phỏng và ước lượng số delivery đồng thời tối đa
+     */
+    @GetMapping("/simulation/stats")
+    public ResponseEntity<?> getSimulationStats() {
+        try {
+            Map<String, Object> response = new HashMap<>(droneSimulator.getEngineStats());
+            response.put("success", true);
+            return ResponseEntity.ok(response);
+        } catch (Exception e) {
+            log.error("Error fetching simulation stats: {}", e.getMessage());
+            return ResponseEntity.badRequest()
+                .body(Map.of("error", e.getMessage()));
+        }
+    }
+
+    /**
+     * GET /api/drone-management/dispatch/stats - Độ trễ dispatch (từ lúc đơn READY_FOR_DELIVERY đến khi gán drone)
+     */
+    @GetMapping("/dispatch/stats")
+    public ResponseEntity<?> getDispatchStats() {
+        try {
+            Map<String, Object> response = new HashMap<>(autoAssignScheduler.getDispatchStats());
+            response.put("success", true);
+            return ResponseEntity.ok(response);
+        } catch (Exception e) {
+            log.error("Error fetching dispatch stats: {}", e.getMessage());
+            return ResponseEntity.badRequest()
+                .body(Map.of("error", e.getMessage()));
+        }
+    }
+
     /**
      * POST /api/drone-management/deliveries/{id}/stop - Dừng delivery simulation
      */
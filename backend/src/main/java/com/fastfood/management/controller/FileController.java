@@ -1,8 +1,10 @@
 package com.fastfood.management.controller;
 
 import com.fastfood.management.service.CloudinaryService;
+import com.fastfood.management.service.ImageStorage;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
@@ -10,16 +12,34 @@ import org.springframework.web.multipart.MultipartFile;
 
 import java.io.IOException;
 import java.util.Map;
+import java.util.regex.Pattern;
 
 @RestController
 @RequestMapping("/files")
 public class FileController {
     private static final Logger log = LoggerFactory.getLogger(FileController.class);
+    private static final Pattern FOLDER = Pattern.compile("[A-Za-z0-9_-]{1,64}");
     
     private final CloudinaryService cloudinaryService;
+    private final ImageStorage imageStorage;
 
-    public FileController(CloudinaryService cloudinaryService) {
+    // cloudinary (mặc định) hoặc local: lưu dưới app.upload-dir qua ImageStorage (theo nội dung, có thumbnail)
+    @Value("${app.upload.storage:cloudinary}")
+    private String storage;
+
+    public FileController(CloudinaryService cloudinaryService, ImageStorage imageStorage) {
         this.cloudinaryService = cloudinaryService;
+        this.imageStorage = imageStorage;
+    }
+
+    private String store(MultipartFile file, String folder) throws IOException {
+        if (!FOLDER.matcher(folder).matches()) {
+            throw new IllegalArgumentException("Invalid folder name");
+        }
+        if ("local".equalsIgnoreCase(storage)) {
+            return imageStorage.store(file, folder);
+        }
+        return cloudinaryService.uploadImage(file, folder);
     }
 
     @PostMapping(value = "/upload", consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
@@ -37,11 +57,11 @@ public class FileController {
                     .body(Map.of("error", "Only image files are allowed"));
             }
 
-            // Upload to Cloudinary and get URL
-            String cloudinaryUrl = cloudinaryService.uploadImage(file, "products");
+            // Upload to configured storage and get URL/path
+            String path = store(file, "products");
             
-            log.info("File uploaded successfully to Cloudinary: {}", cloudinaryUrl);
-            return ResponseEntity.ok(Map.of("path", cloudinaryUrl));
+            log.info("File uploaded successfully to {}: {}", storage, path);
+            return ResponseEntity.ok(Map.of("path", path));
             
         } catch (IOException e) {
             log.error("File upload failed", e);
@@ -71,11 +91,11 @@ public class FileController {
                     .body(Map.of("error", "Only image files are allowed"));
             }
 
-            // Upload to Cloudinary in specified folder
-            String cloudinaryUrl = cloudinaryService.uploadImage(file, folder);
+            // Upload to configured storage in specified folder
+            String path = store(file, folder);
             
-            log.info("File uploaded to Cloudinary folder '{}': {}", folder, cloudinaryUrl);
-            return ResponseEntity.ok(Map.of("path", cloudinaryUrl));
+            log.info("File uploaded to {} folder '{}': {}", storage, folder, path);
+            return ResponseEntity.ok(Map.of("path", path));
             
         } catch (IOException e) {
             log.error("File upload to folder '{}' failed", folder, e);
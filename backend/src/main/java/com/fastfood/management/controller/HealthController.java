@@ -1,6 +1,9 @@
 package com.fastfood.management.controller;
 
+import com.fastfood.management.service.impl.LoginHashExecutor;
+import lombok.RequiredArgsConstructor;
 import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
@@ -9,8 +12,11 @@ import java.util.Map;
 
 @RestController
 @RequestMapping("/health")
+@RequiredArgsConstructor
 public class HealthController {
 
+    private final LoginHashExecutor loginHashExecutor;
+
     @GetMapping
     public ResponseEntity<?> health() {
         return ResponseEntity.ok(Map.of(
@@ -19,5 +25,11 @@ public class HealthController {
             "timestamp", System.currentTimeMillis()
         ));
     }
-}
 
+    // Pool kiểm mật khẩu đăng nhập: độ sâu hàng đợi, số lần từ chối, thời gian băm
+    @GetMapping("/login")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<?> loginHashStats() {
+        return ResponseEntity.ok(loginHashExecutor.getStats());
+    }
+}
@@ -4,9 +4,7 @@ import com.fastfood.management.entity.StoreStaff;
 import com.fastfood.management.entity.Store;
 import com.fastfood.management.entity.Role;
 import com.fastfood.management.entity.User;
-import com.fastfood.management.repository.StoreRepository;
-import com.fastfood.management.repository.StoreStaffRepository;
-import com.fastfood.management.repository.UserRepository;
+import com.fastfood.management.service.impl.PrincipalUserCache;
 import lombok.RequiredArgsConstructor;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
@@ -24,9 +22,7 @@ import java.util.stream.Collectors;
 @RequiredArgsConstructor
 public class MeController {
 
-    private final UserRepository userRepository;
-    private final StoreStaffRepository storeStaffRepository;
-    private final StoreRepository storeRepository;
+    private final PrincipalUserCache principalUserCache;
 
     /**
      * Trả về danh sách cửa hàng mà người dùng thuộc (MANAGER/STAFF) với trạng thái ACTIVE.
@@ -34,7 +30,7 @@ public class MeController {
      */
     @GetMapping("/stores")
     public ResponseEntity<?> getMyStores(@RequestParam("userId") Long userId) {
-        User user = userRepository.findById(userId).orElse(null);
+        User user = principalUserCache.findById(userId).orElse(null);
         if (user == null) {
             return ResponseEntity.status(HttpStatus.BAD_REQUEST)
                     .body(Map.of("message", "Không tìm thấy người dùng"));
@@ -43,8 +39,9 @@ public class MeController {
         boolean isMerchant = user.getRoles().stream().anyMatch(r -> Role.ROLE_MERCHANT.equals(r.getCode()));
         boolean isAdmin = user.getRoles().stream().anyMatch(r -> Role.ROLE_ADMIN.equals(r.getCode()));
 
-        List<StoreStaff> activeStaff = storeStaffRepository.findByUserIdAndStatus(user.getId(), StoreStaff.StaffStatus.ACTIVE);
-        List<Store> managerStores = storeRepository.findByManager(user);
+        PrincipalUserCache.Memberships memberships = principalUserCache.memberships(user);
+        List<StoreStaff> activeStaff = memberships.activeStaff();
+        List<Store> managerStores = memberships.managedStores();
 
         if (!(isMerchant || isAdmin) && activeStaff.isEmpty()) {
             return ResponseEntity.status(HttpStatus.FORBIDDEN)
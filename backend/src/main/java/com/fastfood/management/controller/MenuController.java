@@ -6,15 +6,20 @@ import com.fastfood.management.entity.Store;
 import com.fastfood.management.repository.CategoryRepository;
 import com.fastfood.management.repository.MenuItemRepository;
 import com.fastfood.management.repository.StoreRepository;
+import com.fastfood.management.service.impl.MenuCatalogCache;
+import com.fastfood.management.service.impl.MenuSearchIndex;
 import lombok.RequiredArgsConstructor;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
+import org.springframework.http.CacheControl;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
 
 @RestController
@@ -25,26 +30,24 @@ public class MenuController {
     private final MenuItemRepository menuItemRepository;
     private final CategoryRepository categoryRepository;
     private final StoreRepository storeRepository;
+    private final MenuCatalogCache menuCatalogCache;
+    private final MenuSearchIndex menuSearchIndex;
 
     // 
     // list món ăn.  page/size để phân trang.
+    // Đọc từ catalog cache; If-None-Match khớp ETag thì trả 304 không chạm DB
     @GetMapping("/items")
     public ResponseEntity<List<MenuItem>> getAvailableItems(
             @RequestParam(defaultValue = "0") int page,
             @RequestParam(defaultValue = "10") int size,
-            @RequestParam(required = false) Long storeId) {
-        Page<MenuItem> result;
-        if (storeId != null) {
-            Optional<Store> store = storeRepository.findById(storeId);
-            if (store.isPresent()) {
-                result = menuItemRepository.findByStoreAndAvailableTrue(store.get(), PageRequest.of(page, size));
-            } else {
-                result = Page.empty();
-            }
-        } else {
-            result = menuItemRepository.findByAvailableTrue(PageRequest.of(page, size));
+            @RequestParam(required = false) Long storeId,
+            WebRequest request) {
+        MenuCatalogCache.StoreCatalog catalog = menuCatalogCache.catalog(storeId);
+        if (request.checkNotModified(catalog.etag())) {
+            return null;
         }
-        return ResponseEntity.ok(result.getContent());
+        return ResponseEntity.ok().cacheControl(CacheControl.noCache())
+                .body(slice(catalog.items(), page, size));
     }
 
     // 
@@ -70,19 +73,21 @@ public class MenuController {
             @RequestParam String name,
             @RequestParam(defaultValue = "0") int page,
             @RequestParam(defaultValue = "10") int size,
-            @RequestParam(required = false) Long storeId) {
-        Page<MenuItem> result;
-        if (storeId != null) {
-            Optional<Store> store = storeRepository.findById(storeId);
-            if (store.isPresent()) {
-                result = menuItemRepository.findByStoreAndNameContainingAndAvailableTrue(store.get(), name, PageRequest.of(page, size));
-            } else {
-                result = Page.empty();
-            }
-        } else {
-            result = menuItemRepository.findByNameContainingAndAvailableTrue(name, PageRequest.of(page, size));
+            @RequestParam(required = false) Long storeId,
+            WebRequest request) {
+        MenuCatalogCache.StoreCatalog catalog = menuCatalogCache.catalog(storeId);
+        if (request.checkNotModified(catalog.etag())) {
+            return null;
         }
-        return ResponseEntity.ok(result.getContent());
+        // Chỉ mục trả id theo hạng, món lấy từ catalog cùng phiên bản với ETag
+        List<MenuItem> matches = MenuSearchIndex.fold(name).isEmpty()
+                ? catalog.items()
+                : menuSearchIndex.search(name, storeId).stream()
+                        .map(catalog.itemsById()::get)
+                        .filter(Objects::nonNull)
+                        .toList();
+        return ResponseEntity.ok().cacheControl(CacheControl.noCache())
+                .body(slice(matches, page, size));
     }
 
     // 
@@ -101,6 +106,8 @@ public class MenuController {
     public ResponseEntity<?> createMenuItem(@RequestBody MenuItem menuItem) {
         try {
             MenuItem savedItem = menuItemRepository.save(menuItem);
+            menuCatalogCache.invalidate(storeIdOf(savedItem));
+            menuSearchIndex.refresh(List.of(savedItem.getId()));
             return ResponseEntity.status(HttpStatus.CREATED).body(savedItem);
         } catch (Exception e) {
             return ResponseEntity.status(HttpStatus.BAD_REQUEST)
@@ -120,6 +127,7 @@ public class MenuController {
 
         try {
             MenuItem item = existingItem.get();
+            Long previousStoreId = storeIdOf(item);
             item.setName(menuItem.getName());
             item.setDescription(menuItem.getDescription());
             item.setPrice(menuItem.getPrice());
@@ -129,6 +137,8 @@ public class MenuController {
             item.setStore(menuItem.getStore());
             
             MenuItem updatedItem = menuItemRepository.save(item);
+            menuCatalogCache.invalidate(previousStoreId, storeIdOf(updatedItem));
+            menuSearchIndex.refresh(List.of(updatedItem.getId()));
             return ResponseEntity.ok(updatedItem);
         } catch (Exception e) {
             return ResponseEntity.status(HttpStatus.BAD_REQUEST)
@@ -148,6 +158,8 @@ public class MenuController {
 
         try {
             menuItemRepository.deleteById(id);
+            menuCatalogCache.invalidate(storeIdOf(existingItem.get()));
+            menuSearchIndex.remove(id);
             return ResponseEntity.ok(Map.of("message", "Đã xóa menu item thành công"));
         } catch (Exception e) {
             return ResponseEntity.status(HttpStatus.BAD_REQUEST)
@@ -157,14 +169,13 @@ public class MenuController {
 
     // API để lấy danh sách categories
     @GetMapping("/categories")
-    public ResponseEntity<List<Category>> getAllCategories(@RequestParam(required = false) Long storeId) {
-        List<Category> categories = categoryRepository.findAll();
-        if (storeId != null) {
-            categories = categories.stream()
-                    .filter(c -> c.getStore() != null && storeId.equals(c.getStore().getId()))
-                    .toList();
+    public ResponseEntity<List<Category>> getAllCategories(@RequestParam(required = false) Long storeId,
+                                                           WebRequest request) {
+        MenuCatalogCache.StoreCatalog catalog = menuCatalogCache.catalog(storeId);
+        if (request.checkNotModified(catalog.etag())) {
+            return null;
         }
-        return ResponseEntity.ok(categories);
+        return ResponseEntity.ok().cacheControl(CacheControl.noCache()).body(catalog.categories());
     }
 
     // Tạo category mới (merchant/admin)
@@ -184,6 +195,7 @@ public class MenuController {
             }
             cat.setSortOrder(req.getSortOrder());
             Category saved = categoryRepository.save(cat);
+            menuCatalogCache.invalidate(saved.getStore() != null ? saved.getStore().getId() : null);
             return ResponseEntity.status(HttpStatus.CREATED).body(saved);
         } catch (Exception e) {
             return ResponseEntity.status(HttpStatus.BAD_REQUEST)
@@ -213,6 +225,9 @@ public class MenuController {
                 st.ifPresent(cat::setStore);
             }
             Category updated = categoryRepository.save(cat);
+            // Danh mục được nhúng trong JSON của món, có thể thuộc catalog cửa hàng khác
+            menuCatalogCache.invalidateAll();
+            menuSearchIndex.refreshCategory(updated.getId());
             return ResponseEntity.ok(updated);
         } catch (Exception e) {
             return ResponseEntity.status(HttpStatus.BAD_REQUEST)
@@ -230,6 +245,9 @@ public class MenuController {
         }
         try {
             categoryRepository.deleteById(id);
+            menuCatalogCache.invalidateAll();
+            // Xóa danh mục cascade xóa món của nó
+            menuSearchIndex.removeCategory(id);
             return ResponseEntity.ok(Map.of("message", "Đã xóa danh mục thành công"));
         } catch (Exception e) {
             return ResponseEntity.status(HttpStatus.BAD_REQUEST)
@@ -239,9 +257,12 @@ public class MenuController {
 
     // API để lấy danh sách stores
     @GetMapping("/stores")
-    public ResponseEntity<List<Store>> getAllStores() {
-        List<Store> stores = storeRepository.findAll();
-        return ResponseEntity.ok(stores);
+    public ResponseEntity<List<Store>> getAllStores(WebRequest request) {
+        MenuCatalogCache.StoreList stores = menuCatalogCache.stores();
+        if (request.checkNotModified(stores.etag())) {
+            return null;
+        }
+        return ResponseEntity.ok().cacheControl(CacheControl.noCache()).body(stores.stores());
     }
 
     // Lấy chi tiết menu item theo id
@@ -254,4 +275,18 @@ public class MenuController {
         }
         return ResponseEntity.ok(item.get());
     }
-}
\ No newline at end of file
+
+    private static Long storeIdOf(MenuItem item) {
+        return item.getStore() != null ? item.getStore().getId() : null;
+    }
+
+    // Cắt trang trên danh sách đã cache, cùng kiểm tra tham số như PageRequest
+    static <T> List<T> slice(List<T> items, int page, int size) {
+        PageRequest pageRequest = PageRequest.of(page, size);
+        long from = pageRequest.getOffset();
+        if (from >= items.size()) {
+            return List.of();
+        }
+        return items.subList((int) from, (int) Math.min(items.size(), from + size));
+    }
+}
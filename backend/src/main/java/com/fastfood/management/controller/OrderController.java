@@ -1,16 +1,17 @@
 package com.fastfood.management.controller;
 
 import com.fastfood.management.dto.request.OrderRequest;
+import com.fastfood.management.dto.response.CursorPage;
 import com.fastfood.management.dto.response.OrderCompactResponse;
-import com.fastfood.management.mapper.OrderMapper;
 import com.fastfood.management.dto.response.OrderResponse;
 import com.fastfood.management.dto.response.DeliveryResponse;
 import com.fastfood.management.entity.Order;
 import com.fastfood.management.entity.User;
-import com.fastfood.management.repository.UserRepository;
 import jakarta.persistence.EntityNotFoundException;
 import com.fastfood.management.service.api.OrderService;
 import com.fastfood.management.service.api.DeliveryService;
+import com.fastfood.management.service.impl.OrderExpiryScheduler;
+import com.fastfood.management.service.impl.PrincipalUserCache;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import org.springframework.data.domain.Page;
@@ -22,7 +23,6 @@ import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.web.bind.annotation.*;
 
 import java.util.List;
-import java.util.stream.Collectors;
 import java.util.Map;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
@@ -33,9 +33,13 @@ import java.time.format.DateTimeParseException;
 @RequiredArgsConstructor
 public class OrderController {
 
+    public static final String NEXT_CURSOR_HEADER = "X-Next-Cursor";
+    private static final int MAX_HISTORY_LIMIT = 100;
+
     private final OrderService orderService;
-    private final UserRepository userRepository;
+    private final PrincipalUserCache principalUserCache;
     private final DeliveryService deliveryService;
+    private final OrderExpiryScheduler orderExpiryScheduler;
 
     @PostMapping
     @PreAuthorize("hasRole('CUSTOMER')")
@@ -125,23 +129,37 @@ public class OrderController {
     @PreAuthorize("hasRole('CUSTOMER')")
     public ResponseEntity<List<Order>> getMyOrders(
             @RequestParam(value = "userId", required = false) Long userId,
+            @RequestParam(value = "cursor", required = false) String cursor,
+            @RequestParam(value = "limit", defaultValue = "20") int limit,
             @AuthenticationPrincipal org.springframework.security.core.userdetails.User principal) {
         User currentUser = resolveUser(principal, userId);
-        List<Order> orders = orderService.listMyOrders(currentUser);
-        return ResponseEntity.ok(orders);
+        CursorPage<Order> page = orderService.listMyOrders(currentUser, cursor, clampHistoryLimit(limit));
+        return withNextCursor(page);
     }
 
     @GetMapping("/me/compact")
     @PreAuthorize("hasRole('CUSTOMER')")
     public ResponseEntity<List<OrderCompactResponse>> getMyOrdersCompact(
             @RequestParam(value = "userId", required = false) Long userId,
+            @RequestParam(value = "cursor", required = false) String cursor,
+            @RequestParam(value = "limit", defaultValue = "20") int limit,
             @AuthenticationPrincipal org.springframework.security.core.userdetails.User principal) {
         User currentUser = resolveUser(principal, userId);
-        List<Order> orders = orderService.listMyOrders(currentUser);
-        List<OrderCompactResponse> response = orders.stream()
-                .map(OrderMapper::toCompact)
-                .collect(Collectors.toList());
-        return ResponseEntity.ok(response);
+        CursorPage<OrderCompactResponse> page = orderService.listMyOrdersCompact(currentUser, cursor, clampHistoryLimit(limit));
+        return withNextCursor(page);
+    }
+
+    // Body vẫn là mảng như trước; cursor trang sau nằm ở header để client cũ không bị ảnh hưởng
+    private static <T> ResponseEntity<List<T>> withNextCursor(CursorPage<T> page) {
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok();
+        if (page.getNextCursor() != null) {
+            response.header(NEXT_CURSOR_HEADER, page.getNextCursor());
+        }
+        return response.body(page.getItems());
+    }
+
+    private static int clampHistoryLimit(int limit) {
+        return Math.max(1, Math.min(limit, MAX_HISTORY_LIMIT));
     }
 
     @DeleteMapping("/{id}")
@@ -265,17 +283,33 @@ public class OrderController {
                     ));
         }
     }
+
+    // Dựng lại rollup thống kê từ bảng orders (backfill / đối soát)
+    @PostMapping("/stats/rebuild")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<?> rebuildOrderStats() {
+        int buckets = orderService.rebuildOrderStats();
+        return ResponseEntity.ok(Map.of("buckets", buckets));
+    }
+
+    // Số timer hết hạn đang chờ và số đơn đã hủy / cảnh báo
+    @GetMapping("/expiry/stats")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<?> getExpiryStats() {
+        return ResponseEntity.ok(orderExpiryScheduler.getStats());
+    }
+
     private User resolveCurrentUser(org.springframework.security.core.userdetails.User principal) {
         if (principal == null) {
             throw new EntityNotFoundException("Authenticated principal not found");
         }
-        return userRepository.findByEmail(principal.getUsername())
+        return principalUserCache.findByEmail(principal.getUsername())
                 .orElseThrow(() -> new EntityNotFoundException("User not found"));
     }
 
     private User resolveUser(org.springframework.security.core.userdetails.User principal, Long userId) {
         if (userId != null) {
-            return userRepository.findById(userId)
+            return principalUserCache.findById(userId)
                     .orElseThrow(() -> new EntityNotFoundException("User not found"));
         }
         return resolveCurrentUser(principal);
@@ -8,6 +8,7 @@ import com.fastfood.management.repository.RoleRepository;
 import com.fastfood.management.repository.StoreRepository;
 import com.fastfood.management.repository.StoreStaffRepository;
 import com.fastfood.management.repository.UserRepository;
+import com.fastfood.management.service.impl.PrincipalUserCache;
 import lombok.RequiredArgsConstructor;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
@@ -26,6 +27,7 @@ public class StaffController {
     private final UserRepository userRepository;
     private final RoleRepository roleRepository;
     private final PasswordEncoder passwordEncoder;
+    private final PrincipalUserCache principalUserCache;
 
     @GetMapping
     public ResponseEntity<?> list(@RequestParam Long storeId,
@@ -88,6 +90,7 @@ public class StaffController {
                     .status(StoreStaff.StaffStatus.ACTIVE)
                     .build();
             StoreStaff saved = storeStaffRepository.save(staff);
+            principalUserCache.evict(user.getId());
 
             Map<String, Object> payload = Map.of(
                     "id", saved.getId(),
@@ -130,6 +133,7 @@ public class StaffController {
                 try { ss.setStatus(StoreStaff.StaffStatus.valueOf(statusStr.toUpperCase())); } catch (IllegalArgumentException ignored) {}
             }
             StoreStaff saved = storeStaffRepository.save(ss);
+            principalUserCache.evict(saved.getUser().getId());
             return ResponseEntity.ok(Map.of(
                     "id", saved.getId(),
                     "storeId", saved.getStore().getId(),
@@ -155,6 +159,7 @@ public class StaffController {
         User u = userOpt.get();
         u.setEnabled(false);
         userRepository.save(u);
+        principalUserCache.evict(u.getId());
         return ResponseEntity.ok(Map.of("userId", u.getId(), "enabled", u.isEnabled()));
     }
 
@@ -165,6 +170,7 @@ public class StaffController {
         User u = userOpt.get();
         u.setEnabled(true);
         userRepository.save(u);
+        principalUserCache.evict(u.getId());
         return ResponseEntity.ok(Map.of("userId", u.getId(), "enabled", u.isEnabled()));
     }
 
@@ -175,6 +181,7 @@ public class StaffController {
         StoreStaff ss = existingOpt.get();
         ss.setStatus(StoreStaff.StaffStatus.INACTIVE);
         StoreStaff saved = storeStaffRepository.save(ss);
+        principalUserCache.evict(saved.getUser().getId());
         return ResponseEntity.ok(Map.of("id", saved.getId(), "status", saved.getStatus().name()));
     }
 
@@ -185,6 +192,7 @@ public class StaffController {
         StoreStaff ss = existingOpt.get();
         ss.setStatus(StoreStaff.StaffStatus.ACTIVE);
         StoreStaff saved = storeStaffRepository.save(ss);
+        principalUserCache.evict(saved.getUser().getId());
         return ResponseEntity.ok(Map.of("id", saved.getId(), "status", saved.getStatus().name()));
     }
 }
\ No newline at end of file
@@ -1,15 +1,14 @@
 package com.fastfood.management.controller;
 
-import com.fastfood.management.entity.MenuItem;
 import com.fastfood.management.entity.Store;
-import com.fastfood.management.repository.MenuItemRepository;
 import com.fastfood.management.repository.StoreRepository;
+import com.fastfood.management.service.impl.MenuCatalogCache;
 import lombok.RequiredArgsConstructor;
-import org.springframework.data.domain.Page;
-import org.springframework.data.domain.PageRequest;
+import org.springframework.http.CacheControl;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 
 import java.util.List;
 import java.util.Map;
@@ -20,7 +19,7 @@ import java.util.Map;
 public class StoreController {
 
     private final StoreRepository storeRepository;
-    private final MenuItemRepository menuItemRepository;
+    private final MenuCatalogCache menuCatalogCache;
 
     @GetMapping
     public ResponseEntity<List<Store>> listStores(@RequestParam(name = "open", required = false) Boolean open) {
@@ -44,14 +43,18 @@ public class StoreController {
     public ResponseEntity<?> getStoreMenu(
             @PathVariable Long id,
             @RequestParam(defaultValue = "0") int page,
-            @RequestParam(defaultValue = "10") int size) {
-        Store store = storeRepository.findById(id).orElse(null);
-        if (store == null) {
+            @RequestParam(defaultValue = "10") int size,
+            WebRequest request) {
+        MenuCatalogCache.StoreCatalog catalog = menuCatalogCache.catalog(id);
+        if (!catalog.exists()) {
             return ResponseEntity.status(HttpStatus.NOT_FOUND)
                     .body(Map.of("message", "Không tìm thấy cửa hàng"));
         }
-        Page<MenuItem> result = menuItemRepository.findByStoreAndAvailableTrue(store, PageRequest.of(page, size));
-        return ResponseEntity.ok(result.getContent());
+        if (request.checkNotModified(catalog.etag())) {
+            return null;
+        }
+        return ResponseEntity.ok().cacheControl(CacheControl.noCache())
+                .body(MenuController.slice(catalog.items(), page, size));
     }
 
     // Cập nhật ảnh cửa hàng (imageUrl)
@@ -69,6 +72,8 @@ public class StoreController {
         }
         store.setImageUrl(imageUrl);
         Store saved = storeRepository.save(store);
+        // Cửa hàng được nhúng trong JSON món và danh mục
+        menuCatalogCache.invalidateAll();
         return ResponseEntity.ok(saved);
     }
 
@@ -113,6 +118,7 @@ public class StoreController {
         }
 
         Store saved = storeRepository.save(store);
+        menuCatalogCache.invalidateAll();
         return ResponseEntity.ok(saved);
     }
 
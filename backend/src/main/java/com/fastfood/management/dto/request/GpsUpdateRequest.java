@@ -1,6 +1,8 @@
 package com.fastfood.management.dto.request;
 
+import jakarta.validation.constraints.NotBlank;
 import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Size;
 import lombok.Data;
 
 @Data
@@ -19,4 +21,9 @@ public class GpsUpdateRequest {
     private Double heading;
     
     private Double batteryPct;
+    
+    // Định danh duy nhất của lần đo trong delivery (vd. số thứ tự telemetry); retry gửi lại cùng nonce để không ghi trùng
+    @NotBlank(message = "Nonce is required")
+    @Size(max = 64, message = "Nonce must be at most 64 characters")
+    private String nonce;
 }
\ No newline at end of file
@@ -1,11 +1,13 @@
 package com.fastfood.management.entity;
 
+import com.fastfood.management.entity.id.AppGeneratedId;
 import jakarta.persistence.*;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 import com.fasterxml.jackson.annotation.JsonBackReference;
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import org.springframework.data.annotation.CreatedDate;
 import org.springframework.data.annotation.LastModifiedDate;
 import org.springframework.data.jpa.domain.support.AuditingEntityListener;
@@ -24,7 +26,7 @@ import java.util.List;
 public class Delivery {
     
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @AppGeneratedId
     private Long id;
     
     @OneToOne
@@ -36,6 +38,21 @@ public class Delivery {
     @ManyToOne
     @JoinColumn(name = "drone_id")
     private Drone drone;
+
+    // Chuyến gom nhiều đơn (null nếu drone chỉ giao một đơn)
+    @ManyToOne
+    @JoinColumn(name = "route_id")
+    @JsonIgnore
+    private DeliveryRoute route;
+
+    @Column(name = "stop_sequence") // Thứ tự điểm dừng trong chuyến, bắt đầu từ 0
+    private Integer stopSequence;
+
+    @Column(name = "payload_kg")
+    private Double payloadKg;
+
+    @Column(name = "leg_duration_sec") // Thời gian bay chặng W1_W2 theo tuyến đã lập (null = theo cấu hình)
+    private Integer legDurationSec;
     
     @Enumerated(EnumType.STRING)
     @Column(nullable = false, length = 32)
@@ -1,5 +1,6 @@
 package com.fastfood.management.entity;
 
+import com.fastfood.management.entity.id.AppGeneratedId;
 import jakarta.persistence.*;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
@@ -25,7 +26,7 @@ import java.time.LocalDateTime;
 public class DeliveryEvent {
     
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @AppGeneratedId
     private Long id;
     
     @ManyToOne
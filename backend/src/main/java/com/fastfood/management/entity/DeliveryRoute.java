@@ -0,0 +1,70 @@
+package com.fastfood.management.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.EqualsAndHashCode;
+import lombok.NoArgsConstructor;
+import lombok.ToString;
+import org.springframework.data.annotation.CreatedDate;
+import org.springframework.data.jpa.domain.support.AuditingEntityListener;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Chuyến bay gom nhiều đơn của cùng một cửa hàng: drone lấy hàng một lần rồi lần lượt
+ * giao tới các điểm dừng (mỗi điểm dừng là một Delivery, thứ tự theo stopSequence).
+ */
+@Entity
+@Table(name = "delivery_routes")
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@EntityListeners(AuditingEntityListener.class)
+public class DeliveryRoute {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @ManyToOne
+    @JoinColumn(name = "drone_id", nullable = false)
+    private Drone drone;
+
+    @ManyToOne
+    @JoinColumn(name = "store_id", nullable = false)
+    private Store store;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 32)
+    private RouteStatus status;
+
+    @Column(name = "total_payload_kg")
+    private Double totalPayloadKg;
+
+    @Column(name = "planned_distance_km")
+    private Double plannedDistanceKm;
+
+    @OneToMany(mappedBy = "route")
+    @OrderBy("stopSequence ASC")
+    @Builder.Default
+    @ToString.Exclude
+    @EqualsAndHashCode.Exclude
+    private List<Delivery> stops = new ArrayList<>();
+
+    @CreatedDate
+    @Column(name = "created_at", nullable = false, updatable = false)
+    private LocalDateTime createdAt;
+
+    @Column(name = "completed_at")
+    private LocalDateTime completedAt;
+
+    public enum RouteStatus {
+        IN_PROGRESS, // Drone đang thực hiện chuyến
+        COMPLETED    // Đã giao hết các điểm dừng
+    }
+}
@@ -5,6 +5,7 @@ import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
 import lombok.NoArgsConstructor;
+import org.hibernate.annotations.DynamicUpdate;
 import org.springframework.data.annotation.LastModifiedDate;
 import org.springframework.data.annotation.CreatedDate;
 import org.springframework.data.jpa.domain.support.AuditingEntityListener;
@@ -17,6 +18,8 @@ import java.time.LocalDateTime;
 @Builder
 @NoArgsConstructor
 @AllArgsConstructor
+// Chỉ ghi cột đã đổi: lưu trạng thái không ghi đè vị trí/pin mà FleetStateStore checkpoint riêng
+@DynamicUpdate
 @EntityListeners(AuditingEntityListener.class)
 public class Drone {
 
@@ -65,6 +68,11 @@ public class Drone {
     @Column(name = "last_seen_at")
     private LocalDateTime lastSeenAt;
 
+    // Optimistic lock: hai lượt gán đồng thời cùng một drone thì lượt commit sau bị rollback
+    @Version
+    @Column(nullable = false)
+    private Long version;
+
     public enum DroneStatus {
         OFFLINE,              // Drone không hoạt động
         IDLE,                 // Drone rảnh, sẵn sàng nhận nhiệm vụ
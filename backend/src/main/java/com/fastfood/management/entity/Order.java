@@ -1,5 +1,6 @@
 package com.fastfood.management.entity;
 
+import com.fastfood.management.entity.id.AppGeneratedId;
 import jakarta.persistence.*;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
@@ -16,7 +17,10 @@ import java.util.ArrayList;
 import java.util.List;
 
 @Entity
-@Table(name = "orders")
+@Table(name = "orders", indexes = {
+        @Index(name = "idx_orders_store_created", columnList = "store_id, created_at"),
+        @Index(name = "idx_orders_customer_created", columnList = "customer_id, created_at, id")
+})
 @Data
 @Builder
 @NoArgsConstructor
@@ -25,7 +29,7 @@ import java.util.List;
 public class Order {
     
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @AppGeneratedId
     private Long id;
     
     @ManyToOne
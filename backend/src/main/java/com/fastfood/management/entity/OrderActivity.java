@@ -1,5 +1,6 @@
 package com.fastfood.management.entity;
 
+import com.fastfood.management.entity.id.AppGeneratedId;
 import jakarta.persistence.*;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
@@ -20,7 +21,7 @@ import java.time.LocalDateTime;
 public class OrderActivity {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @AppGeneratedId
     private Long id;
 
     @ManyToOne
@@ -1,5 +1,6 @@
 package com.fastfood.management.entity;
 
+import com.fastfood.management.entity.id.AppGeneratedId;
 import jakarta.persistence.*;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
@@ -19,7 +20,7 @@ import java.math.BigDecimal;
 public class OrderItem {
     
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @AppGeneratedId
     private Long id;
     
     @ManyToOne
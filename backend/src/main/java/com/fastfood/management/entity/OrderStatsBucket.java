@@ -0,0 +1,65 @@
+package com.fastfood.management.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.io.Serializable;
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * Số đơn và doanh thu theo cửa hàng / khung giờ (hoặc ngày) tạo đơn / trạng thái hiện tại.
+ * Được cập nhật cộng dồn mỗi khi đơn được tạo hoặc đổi trạng thái (OrderStatsListener),
+ * OrderStatsRollup cộng các bucket để trả lời thống kê theo khoảng thời gian.
+ */
+@Entity
+@Table(name = "order_stats_buckets")
+@IdClass(OrderStatsBucket.Key.class)
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class OrderStatsBucket {
+
+    // Đơn không gắn cửa hàng được gom vào storeId = 0
+    @Id
+    @Column(name = "store_id")
+    private Long storeId;
+
+    @Id
+    @Enumerated(EnumType.STRING)
+    @Column(length = 8)
+    private Granularity granularity;
+
+    @Id
+    @Column(name = "bucket_start")
+    private LocalDateTime bucketStart;
+
+    @Id
+    @Enumerated(EnumType.STRING)
+    @Column(length = 32)
+    private Order.OrderStatus status;
+
+    @Column(name = "order_count", nullable = false)
+    private long orderCount;
+
+    @Column(name = "total_amount", nullable = false, precision = 18, scale = 2)
+    private BigDecimal totalAmount;
+
+    public enum Granularity {
+        HOUR, DAY
+    }
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Key implements Serializable {
+        private Long storeId;
+        private Granularity granularity;
+        private LocalDateTime bucketStart;
+        private Order.OrderStatus status;
+    }
+}
@@ -0,0 +1,41 @@
+package com.fastfood.management.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * Thông báo realtime chờ phát qua STOMP. Được ghi cùng transaction với thay đổi nghiệp vụ
+ * (NotificationOutbox) và được OutboxRelay của từng node phát sau khi commit, theo thứ tự id (= thứ tự commit).
+ */
+@Entity
+@Table(name = "notification_outbox", indexes = {
+        @Index(name = "idx_outbox_created", columnList = "created_at")
+})
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class OutboxMessage {
+
+    // Lấy từ outbox_sequence lúc commit (không dùng @AppGeneratedId) để thứ tự id khớp thứ tự commit
+    @Id
+    private Long id;
+
+    // Id đơn hàng phát sinh thông báo
+    @Column(name = "aggregate_id")
+    private Long aggregateId;
+
+    @Column(nullable = false)
+    private String destination;
+
+    @Column(nullable = false, length = 4000)
+    private String payload;
+
+    @Column(name = "created_at", nullable = false)
+    private LocalDateTime createdAt;
+}
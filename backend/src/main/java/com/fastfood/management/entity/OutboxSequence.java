@@ -0,0 +1,25 @@
+package com.fastfood.management.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Dòng đếm cấp id cho notification_outbox (NotificationOutbox). Transaction tăng nextValue ngay trước commit và
+ * giữ khóa dòng tới lúc commit, nên id outbox tăng theo đúng thứ tự commit.
+ */
+@Entity
+@Table(name = "outbox_sequence")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class OutboxSequence {
+
+    @Id
+    private Integer id;
+
+    // Id outbox lớn nhất đã cấp
+    @Column(name = "next_value", nullable = false)
+    private long nextValue;
+}
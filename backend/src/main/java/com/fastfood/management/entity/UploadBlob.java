@@ -0,0 +1,43 @@
+package com.fastfood.management.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * Một file upload duy nhất theo nội dung (SHA-256), lưu một lần dưới uploads/blobs/.
+ * Các lần upload trùng nội dung dùng lại cùng path và chỉ cập nhật lastReferencedAt (UploadBlobIndex).
+ */
+@Entity
+@Table(name = "upload_blobs")
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class UploadBlob {
+
+    // SHA-256 dạng hex
+    @Id
+    @Column(length = 64)
+    private String digest;
+
+    // Đường dẫn trả cho client, bắt đầu bằng /uploads/blobs/
+    @Column(nullable = false, length = 512)
+    private String path;
+
+    @Column(name = "content_type", length = 100)
+    private String contentType;
+
+    @Column(name = "size_bytes", nullable = false)
+    private long sizeBytes;
+
+    @Column(name = "created_at", nullable = false)
+    private LocalDateTime createdAt;
+
+    @Column(name = "last_referenced_at", nullable = false)
+    private LocalDateTime lastReferencedAt;
+}
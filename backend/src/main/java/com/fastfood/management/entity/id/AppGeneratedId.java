@@ -0,0 +1,17 @@
+package com.fastfood.management.entity.id;
+
+import org.hibernate.annotations.IdGeneratorType;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Id do ứng dụng sinh (AppIds) thay cho IDENTITY, dùng cho các bảng insert nhiều
+ */
+@IdGeneratorType(AppIdHibernateGenerator.class)
+@Retention(RetentionPolicy.RUNTIME)
+@Target({ElementType.FIELD, ElementType.METHOD})
+public @interface AppGeneratedId {
+}
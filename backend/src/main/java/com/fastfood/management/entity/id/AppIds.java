@@ -0,0 +1,21 @@
+package com.fastfood.management.entity.id;
+
+/**
+ * Giữ IdGenerator dùng chung cho Hibernate (generator do Hibernate khởi tạo, không phải Spring bean).
+ * IdGeneratorConfig cài generator theo cấu hình trước khi EntityManagerFactory khởi động.
+ */
+public final class AppIds {
+
+    private static volatile IdGenerator generator = new TimeOrderedIdGenerator(0);
+
+    private AppIds() {
+    }
+
+    public static void install(IdGenerator idGenerator) {
+        generator = idGenerator;
+    }
+
+    public static long next() {
+        return generator.nextId();
+    }
+}
@@ -0,0 +1,9 @@
+package com.fastfood.management.entity.id;
+
+/**
+ * Nguồn id phía ứng dụng cho các bảng ghi nhiều (id có trước khi INSERT nên Hibernate batch được)
+ */
+public interface IdGenerator {
+
+    long nextId();
+}
@@ -0,0 +1,21 @@
+package com.fastfood.management.event;
+
+/**
+ * Sự kiện in-process báo cho dispatcher có thể gán drone ngay: đơn vừa READY_FOR_DELIVERY
+ * hoặc drone vừa về IDLE. Được xử lý sau khi transaction phát sự kiện commit.
+ */
+public record DispatchEvent(Reason reason, Long orderId, Long droneId, long occurredAtNanos) {
+
+    public enum Reason {
+        ORDER_READY, // Đơn chuyển sang READY_FOR_DELIVERY
+        DRONE_IDLE   // Drone hoàn tất assignment và rảnh
+    }
+
+    public static DispatchEvent orderReady(Long orderId) {
+        return new DispatchEvent(Reason.ORDER_READY, orderId, null, System.nanoTime());
+    }
+
+    public static DispatchEvent droneIdle(Long droneId) {
+        return new DispatchEvent(Reason.DRONE_IDLE, null, droneId, System.nanoTime());
+    }
+}
@@ -0,0 +1,17 @@
+package com.fastfood.management.exception;
+
+/**
+ * Pool kiểm mật khẩu đang quá tải; client nên thử lại sau retryAfterSeconds (429 + Retry-After)
+ */
+public class LoginThrottledException extends RuntimeException {
+    private final int retryAfterSeconds;
+
+    public LoginThrottledException(int retryAfterSeconds) {
+        super("Hệ thống đang bận, vui lòng thử đăng nhập lại sau");
+        this.retryAfterSeconds = retryAfterSeconds;
+    }
+
+    public int getRetryAfterSeconds() {
+        return retryAfterSeconds;
+    }
+}
@@ -4,6 +4,7 @@ import com.fastfood.management.entity.Category;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.stereotype.Repository;
 
+import java.util.List;
 import java.util.Optional;
 
 @Repository
@@ -12,4 +13,6 @@ public interface CategoryRepository extends JpaRepository<Category, Long> {
     Optional<Category> findByName(String name);
     
     boolean existsByName(String name);
+
+    List<Category> findByStoreIdOrderByIdAsc(Long storeId);
 }
\ No newline at end of file
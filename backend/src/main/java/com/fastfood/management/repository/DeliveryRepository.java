@@ -15,4 +15,5 @@ public interface DeliveryRepository extends JpaRepository<Delivery, Long> {
     List<Delivery> findByDrone_IdAndStatus(Long droneId, Delivery.DeliveryStatus status);
     Optional<Delivery> findByOrderId(Long orderId);
     long countByStatus(Delivery.DeliveryStatus status);
+    List<Delivery> findByRouteIdOrderByStopSequenceAsc(Long routeId);
 }
\ No newline at end of file
@@ -0,0 +1,12 @@
+package com.fastfood.management.repository;
+
+import com.fastfood.management.entity.DeliveryRoute;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+@Repository
+public interface DeliveryRouteRepository extends JpaRepository<DeliveryRoute, Long> {
+    List<DeliveryRoute> findByStatus(DeliveryRoute.RouteStatus status);
+}
@@ -6,8 +6,11 @@ import com.fastfood.management.entity.Store;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
 
 @Repository
@@ -19,4 +22,13 @@ public interface MenuItemRepository extends JpaRepository<MenuItem, Long> {
     boolean existsByName(String name);
     Page<MenuItem> findByStoreAndAvailableTrue(Store store, Pageable pageable);
     Page<MenuItem> findByStoreAndNameContainingAndAvailableTrue(Store store, String name, Pageable pageable);
+
+    // Nạp toàn bộ món của một đơn trong một query (kèm store, category)
+    @Query("select m from MenuItem m left join fetch m.store left join fetch m.category where m.id in :ids")
+    List<MenuItem> findAllWithStoreByIdIn(@Param("ids") Collection<Long> ids);
+
+    // Toàn bộ món đang bán (của một cửa hàng hoặc mọi cửa hàng) cho catalog cache, một query
+    @Query("select m from MenuItem m left join fetch m.store left join fetch m.category " +
+            "where m.available = true and (:storeId is null or m.store.id = :storeId) order by m.id")
+    List<MenuItem> findAvailableForCatalog(@Param("storeId") Long storeId);
 }
\ No newline at end of file
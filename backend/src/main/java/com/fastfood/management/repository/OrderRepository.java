@@ -20,7 +20,21 @@ public interface OrderRepository extends JpaRepository<Order, Long> {
     Page<Order> findByStoreIdAndStatus(Long storeId, Order.OrderStatus status, Pageable pageable);
     List<Order> findByStatusAndCreatedAtBefore(Order.OrderStatus status, LocalDateTime time);
     List<Order> findByCustomerAndCreatedAtBetween(User customer, LocalDateTime start, LocalDateTime end);
-    List<Order> findByCustomerOrderByCreatedAtDesc(User customer);
+    // Keyset trên idx_orders_customer_created: chỉ lấy id, dòng đơn được fetch riêng theo id
+    @Query("select o.id from Order o where o.customer = :customer " +
+            "order by o.createdAt desc, o.id desc")
+    List<Long> findIdPageByCustomer(@Param("customer") User customer, Pageable pageable);
+
+    @Query("select o.id from Order o where o.customer = :customer " +
+            "and (o.createdAt < :createdAt or (o.createdAt = :createdAt and o.id < :id)) " +
+            "order by o.createdAt desc, o.id desc")
+    List<Long> findIdPageByCustomerAfter(@Param("customer") User customer,
+                                         @Param("createdAt") LocalDateTime createdAt,
+                                         @Param("id") Long id,
+                                         Pageable pageable);
+
+    @Query("select distinct o from Order o left join fetch o.orderItems where o.id in :ids")
+    List<Order> findAllWithItemsByIdIn(@Param("ids") java.util.Collection<Long> ids);
     java.util.Optional<Order> findByOrderCode(String orderCode);
 
     @Query("select coalesce(sum(o.totalAmount), 0) from Order o " +
@@ -35,10 +35,23 @@ public class JwtTokenProvider {
     @Value("${app.jwt.refresh-expiration}")
     private long refreshExpirationMs;
 
+    // Số JWT đã xác thực được giữ lại; 0 để tắt cache
+    @Value("${app.jwt.cache.max-entries:10000}")
+    private int cacheMaxEntries;
+
     private Key key;
+    private JwtParser parser;
+    private VerifiedTokenCache verifiedTokens;
 
     @PostConstruct
     public void init() {
+        initKey();
+        // Parser dựng một lần, dùng chung (thread-safe) cho mọi lần parse
+        this.parser = Jwts.parserBuilder().setSigningKey(key).build();
+        this.verifiedTokens = new VerifiedTokenCache(cacheMaxEntries);
+    }
+
+    private void initKey() {
         try {
             byte[] keyBytes;
             String secret = jwtSecret != null ? jwtSecret.trim() : "";
@@ -101,22 +114,43 @@ public class JwtTokenProvider {
     }
 
     public String getUsernameFromToken(String token) {
-        Claims claims = Jwts.parserBuilder()
-                .setSigningKey(key)
-                .build()
-                .parseClaimsJws(token)
-                .getBody();
-
-        return claims.getSubject();
+        return parser.parseClaimsJws(token).getBody().getSubject();
     }
 
     public Authentication getAuthentication(String token) {
-        Claims claims = Jwts.parserBuilder()
-                .setSigningKey(key)
-                .build()
-                .parseClaimsJws(token)
-                .getBody();
+        return toAuthentication(parser.parseClaimsJws(token).getBody(), token);
+    }
+
+    /**
+     * Kiểm chữ ký và dựng Authentication trong một lần parse; token đã thấy thì lấy từ cache tới khi hết exp.
+     * Trả null nếu token không hợp lệ.
+     */
+    public Authentication authenticate(String token) {
+        long now = System.currentTimeMillis();
+        Authentication cached = verifiedTokens.get(token, now);
+        if (cached != null) {
+            return cached;
+        }
+        Claims claims;
+        try {
+            claims = parser.parseClaimsJws(token).getBody();
+        } catch (JwtException | IllegalArgumentException e) {
+            logger.error("Invalid JWT token: {}", e.getMessage());
+            return null;
+        }
+        // Refresh token không có roles, không dùng để gọi API
+        if (claims.get("roles") == null) {
+            logger.error("Invalid JWT token: missing roles claim");
+            return null;
+        }
+        Authentication authentication = toAuthentication(claims, token);
+        if (claims.getExpiration() != null) {
+            verifiedTokens.put(token, authentication, claims.getExpiration().getTime(), now);
+        }
+        return authentication;
+    }
 
+    private static Authentication toAuthentication(Claims claims, String token) {
         Collection<? extends GrantedAuthority> authorities =
                 Arrays.stream(claims.get("roles").toString().split(","))
                         .filter(auth -> !auth.trim().isEmpty())
@@ -130,7 +164,7 @@ public class JwtTokenProvider {
 
     public boolean validateToken(String token) {
         try {
-            Jwts.parserBuilder().setSigningKey(key).build().parseClaimsJws(token);
+            parser.parseClaimsJws(token);
             return true;
         } catch (JwtException | IllegalArgumentException e) {
             logger.error("Invalid JWT token: {}", e.getMessage());
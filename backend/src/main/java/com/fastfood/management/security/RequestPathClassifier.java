@@ -0,0 +1,129 @@
+package com.fastfood.management.security;
+
+import org.springframework.stereotype.Component;
+
+import java.util.Arrays;
+import java.util.Map;
+
+/**
+ * Phân loại đường dẫn request cho các filter (JwtAuthenticationFilter, CorsResponseFilter) bằng một trie theo
+ * segment, dựng một lần lúc khởi động. Mỗi pattern là đường dẫn cụ thể ("/payments/vnpay/return") hoặc
+ * tiền tố kết thúc bằng "/**" (khớp cả chính tiền tố, như AntPathMatcher). Kết quả là OR các cờ của mọi
+ * pattern khớp. Tra cứu đi thẳng trên URI, không cắt chuỗi nên không cấp phát.
+ * Khớp giống AntPathMatcher trên URI thô: đường dẫn phải bắt đầu bằng "/", segment rỗng ("//") bị bỏ qua,
+ * ";params" là một phần của segment (không bị cắt bỏ).
+ */
+@Component
+public class RequestPathClassifier {
+
+    // Không cần JWT: bỏ qua JwtAuthenticationFilter
+    public static final int JWT_EXCLUDED = 1;
+    // Đăng nhập/đăng ký: CorsResponseFilter ghi log chi tiết khi debug
+    public static final int AUTH = 1 << 1;
+
+    static final Map<String, Integer> PATTERNS = Map.ofEntries(
+            Map.entry("/auth/**", JWT_EXCLUDED | AUTH),
+            Map.entry("/api/auth/**", JWT_EXCLUDED | AUTH),
+            Map.entry("/public/**", JWT_EXCLUDED),
+            Map.entry("/payments/vnpay/**", JWT_EXCLUDED),
+            Map.entry("/ws/**", JWT_EXCLUDED),
+            Map.entry("/api/ws/**", JWT_EXCLUDED),
+            Map.entry("/drone-management/**", JWT_EXCLUDED),
+            Map.entry("/deliveries/**", JWT_EXCLUDED),
+            Map.entry("/drone-tracking/**", JWT_EXCLUDED)
+    );
+
+    private final Node root = new Node();
+
+    public RequestPathClassifier() {
+        PATTERNS.forEach(this::add);
+    }
+
+    /**
+     * Cờ của requestUri sau khi bỏ contextPath (rỗng hoặc null nếu không có)
+     */
+    public int classify(String requestUri, String contextPath) {
+        int start = contextPath != null && !contextPath.isEmpty() && requestUri.startsWith(contextPath)
+                ? contextPath.length() : 0;
+        return classify(requestUri, start);
+    }
+
+    int classify(String path, int start) {
+        int length = path.length();
+        // Mọi pattern bắt đầu bằng "/": đường dẫn không bắt đầu bằng "/" không khớp (như AntPathMatcher)
+        if (start >= length || path.charAt(start) != '/') {
+            return 0;
+        }
+        Node node = root;
+        int flags = node.prefixFlags;
+        int i = start;
+        while (true) {
+            while (i < length && path.charAt(i) == '/') {
+                i++;
+            }
+            if (i >= length) {
+                return flags | node.exactFlags;
+            }
+            int end = i;
+            while (end < length && path.charAt(end) != '/') {
+                end++;
+            }
+            node = node.child(path, i, end - i);
+            if (node == null) {
+                return flags;
+            }
+            flags |= node.prefixFlags;
+            i = end;
+        }
+    }
+
+    private void add(String pattern, int flags) {
+        String[] segments = Arrays.stream(pattern.split("/")).filter(s -> !s.isEmpty()).toArray(String[]::new);
+        boolean prefix = segments.length > 0 && segments[segments.length - 1].equals("**");
+        int literalCount = prefix ? segments.length - 1 : segments.length;
+        Node node = root;
+        for (int i = 0; i < literalCount; i++) {
+            if (segments[i].contains("*") || segments[i].contains("?") || segments[i].contains("{")) {
+                throw new IllegalArgumentException("Unsupported path pattern: " + pattern);
+            }
+            node = node.childOrCreate(segments[i]);
+        }
+        if (prefix) {
+            node.prefixFlags |= flags;
+        } else {
+            node.exactFlags |= flags;
+        }
+    }
+
+    private static final class Node {
+        private String[] segments = new String[0];
+        private Node[] children = new Node[0];
+        // Cờ của pattern "<node>/**": áp cho node và mọi đường dẫn bên dưới
+        private int prefixFlags;
+        // Cờ của pattern đúng bằng đường dẫn tới node
+        private int exactFlags;
+
+        Node child(String path, int offset, int length) {
+            for (int i = 0; i < segments.length; i++) {
+                String segment = segments[i];
+                if (segment.length() == length && path.regionMatches(offset, segment, 0, length)) {
+                    return children[i];
+                }
+            }
+            return null;
+        }
+
+        Node childOrCreate(String segment) {
+            Node existing = child(segment, 0, segment.length());
+            if (existing != null) {
+                return existing;
+            }
+            Node created = new Node();
+            segments = Arrays.copyOf(segments, segments.length + 1);
+            children = Arrays.copyOf(children, children.length + 1);
+            segments[segments.length - 1] = segment;
+            children[children.length - 1] = created;
+            return created;
+        }
+    }
+}
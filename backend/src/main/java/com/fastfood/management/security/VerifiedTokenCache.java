@@ -0,0 +1,80 @@
+package com.fastfood.management.security;
+
+import org.springframework.security.core.Authentication;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Base64;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Cache các JWT đã kiểm chữ ký: SHA-256 của token -> Authentication dựng sẵn, hết hạn đúng lúc exp của token.
+ * Giới hạn maxEntries: khi đầy thì dọn entry hết hạn, vẫn đầy thì bỏ bớt entry bất kỳ.
+ * Chỉ token hợp lệ được cache nên token giả không chiếm chỗ.
+ */
+class VerifiedTokenCache {
+
+    private record Entry(Authentication authentication, long expiresAtMillis) {}
+
+    private final int maxEntries;
+    private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+
+    VerifiedTokenCache(int maxEntries) {
+        this.maxEntries = maxEntries;
+    }
+
+    /**
+     * Authentication đã cache cho token còn hạn, null nếu chưa có
+     */
+    Authentication get(String token, long nowMillis) {
+        if (maxEntries <= 0) {
+            return null;
+        }
+        String key = keyOf(token);
+        Entry entry = entries.get(key);
+        if (entry == null) {
+            return null;
+        }
+        if (entry.expiresAtMillis() <= nowMillis) {
+            entries.remove(key, entry);
+            return null;
+        }
+        return entry.authentication();
+    }
+
+    void put(String token, Authentication authentication, long expiresAtMillis, long nowMillis) {
+        if (maxEntries <= 0 || expiresAtMillis <= nowMillis) {
+            return;
+        }
+        if (entries.size() >= maxEntries) {
+            evict(nowMillis);
+        }
+        entries.put(keyOf(token), new Entry(authentication, expiresAtMillis));
+    }
+
+    private void evict(long nowMillis) {
+        entries.values().removeIf(entry -> entry.expiresAtMillis() <= nowMillis);
+        if (entries.size() < maxEntries) {
+            return;
+        }
+        // Vẫn đầy: bỏ khoảng 1/8 để không phải dọn lại ở mỗi lần put
+        Iterator<String> keys = entries.keySet().iterator();
+        int excess = entries.size() - maxEntries + Math.max(1, maxEntries / 8);
+        while (excess-- > 0 && keys.hasNext()) {
+            keys.next();
+            keys.remove();
+        }
+    }
+
+    private static String keyOf(String token) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(token.getBytes(StandardCharsets.US_ASCII));
+            return Base64.getEncoder().withoutPadding().encodeToString(digest);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+}
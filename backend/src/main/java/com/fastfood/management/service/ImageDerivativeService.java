@@ -0,0 +1,400 @@
+package com.fastfood.management.service;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReader;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.ImageInputStream;
+import javax.imageio.stream.ImageOutputStream;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Sinh ảnh thu nhỏ theo yêu cầu cho /images/** và /uploads/**, mỗi biến thể chỉ tạo một lần và lưu trên đĩa.
+ * Bề rộng được làm tròn lên theo danh sách app.images.widths, chiều cao quy về tỉ lệ khung gần nhất trong
+ * app.images.aspect-ratios, nên mỗi ảnh gốc chỉ có một số biến thể hữu hạn. Tên file cache gồm
+ * mtime và kích thước ảnh gốc nên thay ảnh gốc sẽ sinh biến thể mới. Việc resize chạy trên pool có giới hạn;
+ * pool đầy thì báo Busy để controller trả 503.
+ */
+@Service
+public class ImageDerivativeService {
+    private static final Logger log = LoggerFactory.getLogger(ImageDerivativeService.class);
+
+    @Value("${app.images.dir}")
+    private String imagesDir;
+
+    @Value("${app.upload-dir:uploads}")
+    private String uploadDir;
+
+    @Value("${app.images.derivative-dir:derivatives}")
+    private String derivativeDir;
+
+    @Value("${app.images.widths:64,128,256,384,512,768,1024,1536}")
+    private int[] widths;
+
+    // Tỉ lệ cao/rộng cho phép khi có h
+    @Value("${app.images.aspect-ratios:0.25,0.5,0.5625,0.75,1,1.3333,1.5,1.7778,2,4}")
+    private double[] aspectRatios;
+
+    @Value("${app.images.resize-threads:2}")
+    private int resizeThreads;
+
+    @Value("${app.images.resize-queue:32}")
+    private int resizeQueue;
+
+    @Value("${app.images.resize-timeout-ms:10000}")
+    private long resizeTimeoutMs;
+
+    @Value("${app.images.max-source-pixels:40000000}")
+    private long maxSourcePixels;
+
+    private Path imagesRoot;
+    private Path uploadsRoot;
+    private Path derivativesRoot;
+    private ThreadPoolExecutor workers;
+    private final Map<Path, CompletableFuture<Path>> inFlight = new ConcurrentHashMap<>();
+
+    /**
+     * Preset đặt tên cho client, tương đương ?w=&h=&fit=
+     */
+    public enum Preset {
+        THUMB(128, 128, Fit.COVER),
+        CARD(384, 0, Fit.CONTAIN),
+        DETAIL(1024, 0, Fit.CONTAIN);
+
+        private final int width;
+        private final int height;
+        private final Fit fit;
+
+        Preset(int width, int height, Fit fit) {
+            this.width = width;
+            this.height = height;
+            this.fit = fit;
+        }
+    }
+
+    public enum Fit {
+        // Nằm gọn trong khung, giữ tỉ lệ
+        CONTAIN,
+        // Phủ kín khung rồi cắt phần thừa ở giữa
+        COVER
+    }
+
+    /**
+     * Pool resize đang đầy
+     */
+    public static class BusyException extends RuntimeException {
+        public BusyException() {
+            super("Image resizer is busy");
+        }
+    }
+
+    public record Derivative(Path file, String contentType) {}
+
+    private record Plan(Path source, Path target, int width, int height, Fit fit, String format) {}
+
+    @PostConstruct
+    void init() {
+        imagesRoot = Paths.get(imagesDir).toAbsolutePath().normalize();
+        uploadsRoot = Paths.get(uploadDir).toAbsolutePath().normalize();
+        derivativesRoot = Paths.get(derivativeDir).toAbsolutePath().normalize();
+        Arrays.sort(widths);
+        Arrays.sort(aspectRatios);
+        AtomicInteger threadCount = new AtomicInteger();
+        workers = new ThreadPoolExecutor(resizeThreads, resizeThreads, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(Math.max(1, resizeQueue)), r -> {
+                    Thread thread = new Thread(r, "image-resize-" + threadCount.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                }, new ThreadPoolExecutor.AbortPolicy());
+        log.info("Image derivatives cached under {}", derivativesRoot);
+    }
+
+    @PreDestroy
+    void stop() {
+        workers.shutdownNow();
+    }
+
+    public Derivative preset(String requestPath, String presetName) throws IOException {
+        Preset preset = parsePreset(presetName);
+        return resize(requestPath, preset.width, preset.height, preset.fit);
+    }
+
+    /**
+     * @param height 0 = theo tỉ lệ của width
+     */
+    public Derivative resize(String requestPath, int width, int height, Fit fit) throws IOException {
+        Plan plan = plan(requestPath, width, height, fit);
+        if (Files.exists(plan.target())) {
+            return new Derivative(plan.target(), contentType(plan.format()));
+        }
+        CompletableFuture<Path> pending = submit(plan);
+        try {
+            return new Derivative(pending.get(resizeTimeoutMs, TimeUnit.MILLISECONDS), contentType(plan.format()));
+        } catch (TimeoutException e) {
+            throw new BusyException();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while resizing image");
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof BusyException busy) {
+                throw busy;
+            }
+            if (e.getCause() instanceof IOException io) {
+                throw io;
+            }
+            if (e.getCause() instanceof IllegalArgumentException invalid) {
+                throw invalid;
+            }
+            throw new IOException("Image resize failed: " + e.getCause().getMessage(), e.getCause());
+        }
+    }
+
+    /**
+     * Sinh trước các preset cho ảnh vừa upload, không chờ; bỏ qua nếu pool đang bận
+     */
+    public void warm(String requestPath) {
+        for (Preset preset : new Preset[]{Preset.THUMB, Preset.CARD}) {
+            try {
+                Plan plan = plan(requestPath, preset.width, preset.height, preset.fit);
+                if (!Files.exists(plan.target())) {
+                    submit(plan);
+                }
+            } catch (Exception e) {
+                log.debug("Warming {} for {} skipped: {}", preset, requestPath, e.getMessage());
+            }
+        }
+    }
+
+    private Preset parsePreset(String presetName) {
+        try {
+            return Preset.valueOf(presetName.trim().toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Unknown image preset: " + presetName);
+        }
+    }
+
+    private Plan plan(String requestPath, int width, int height, Fit fit) throws IOException {
+        if (width <= 0 || height < 0) {
+            throw new IllegalArgumentException("Invalid image size");
+        }
+        Path source = resolveSource(requestPath);
+        BasicFileAttributes attributes = Files.readAttributes(source, BasicFileAttributes.class);
+        String format = outputFormat(source);
+        int targetWidth = snap(width);
+        int targetHeight = height == 0 ? 0
+                : (int) Math.max(1, Math.round(targetWidth * snapAspect((double) height / width)));
+        Fit effectiveFit = targetHeight == 0 ? Fit.CONTAIN : fit;
+
+        String relative = (source.startsWith(uploadsRoot) ? "uploads/" + uploadsRoot.relativize(source)
+                : "images/" + imagesRoot.relativize(source)).replace('\\', '/');
+        Path target = derivativesRoot.resolve(relative).resolve(targetWidth + "x" + targetHeight + "-"
+                + effectiveFit.name().toLowerCase(Locale.ROOT) + "-" + attributes.lastModifiedTime().toMillis()
+                + "-" + attributes.size() + "." + format);
+        return new Plan(source, target, targetWidth, targetHeight, effectiveFit, format);
+    }
+
+    // Một biến thể chỉ được sinh một lần dù nhiều request cùng hỏi
+    private CompletableFuture<Path> submit(Plan plan) {
+        CompletableFuture<Path> pending = inFlight.computeIfAbsent(plan.target(), key -> {
+            CompletableFuture<Path> future = new CompletableFuture<>();
+            try {
+                workers.execute(() -> {
+                    try {
+                        future.complete(generate(plan));
+                    } catch (Throwable t) {
+                        future.completeExceptionally(t);
+                    } finally {
+                        inFlight.remove(key, future);
+                    }
+                });
+            } catch (RejectedExecutionException e) {
+                future.completeExceptionally(new BusyException());
+            }
+            return future;
+        });
+        if (pending.isCompletedExceptionally()) {
+            inFlight.remove(plan.target(), pending);
+        }
+        return pending;
+    }
+
+    private Path resolveSource(String requestPath) throws IOException {
+        Path root;
+        String relative;
+        if (requestPath.startsWith("/uploads/")) {
+            root = uploadsRoot;
+            relative = requestPath.substring("/uploads/".length());
+        } else if (requestPath.startsWith("/images/")) {
+            root = imagesRoot;
+            relative = requestPath.substring("/images/".length());
+        } else {
+            throw new IllegalArgumentException("Unsupported image path");
+        }
+        Path source = root.resolve(relative).normalize();
+        if (!source.startsWith(root) || !Files.isRegularFile(source)) {
+            throw new NoSuchFileException(requestPath);
+        }
+        return source;
+    }
+
+    // Làm tròn lên bề rộng cho phép gần nhất
+    private int snap(int width) {
+        for (int allowed : widths) {
+            if (allowed >= width) {
+                return allowed;
+            }
+        }
+        return widths[widths.length - 1];
+    }
+
+    // Tỉ lệ cho phép gần nhất (so theo log để 1:2 và 2:1 cách đều 1:1)
+    private double snapAspect(double ratio) {
+        double best = aspectRatios[0];
+        for (double allowed : aspectRatios) {
+            if (Math.abs(Math.log(allowed / ratio)) < Math.abs(Math.log(best / ratio))) {
+                best = allowed;
+            }
+        }
+        return best;
+    }
+
+    private Path generate(Plan plan) throws IOException {
+        Path target = plan.target();
+        String format = plan.format();
+        if (Files.exists(target)) {
+            return target;
+        }
+        BufferedImage original = read(plan.source());
+        BufferedImage resized = scale(original, plan.width(), plan.height(), plan.fit(), "jpg".equals(format));
+        Files.createDirectories(target.getParent());
+        Path temp = Files.createTempFile(target.getParent(), ".resize-", "." + format);
+        try {
+            write(resized, format, temp);
+            Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+        log.debug("Image derivative generated: {} -> {}", plan.source(), target);
+        return target;
+    }
+
+    private BufferedImage read(Path source) throws IOException {
+        try (ImageInputStream input = ImageIO.createImageInputStream(source.toFile())) {
+            Iterator<ImageReader> readers = input != null ? ImageIO.getImageReaders(input) : null;
+            if (readers == null || !readers.hasNext()) {
+                throw new IllegalArgumentException("Unsupported image format");
+            }
+            ImageReader reader = readers.next();
+            try {
+                reader.setInput(input, true, true);
+                // Chặn ảnh quá lớn trước khi giải mã
+                if ((long) reader.getWidth(0) * reader.getHeight(0) > maxSourcePixels) {
+                    throw new IllegalArgumentException("Source image is too large to resize");
+                }
+                return reader.read(0);
+            } finally {
+                reader.dispose();
+            }
+        }
+    }
+
+    static BufferedImage scale(BufferedImage source, int width, int height, Fit fit, boolean opaque) {
+        double scaleX = (double) width / source.getWidth();
+        double scaleY = height == 0 ? scaleX : (double) height / source.getHeight();
+        double scale = fit == Fit.COVER ? Math.max(scaleX, scaleY) : Math.min(scaleX, scaleY);
+        // Không phóng to ảnh
+        scale = Math.min(scale, 1.0);
+        int scaledWidth = Math.max(1, (int) Math.round(source.getWidth() * scale));
+        int scaledHeight = Math.max(1, (int) Math.round(source.getHeight() * scale));
+
+        // Thu nhỏ từng nửa một cho ảnh đẹp hơn khi giảm mạnh
+        BufferedImage current = source;
+        int currentWidth = source.getWidth();
+        int currentHeight = source.getHeight();
+        while (currentWidth / 2 >= scaledWidth && currentHeight / 2 >= scaledHeight) {
+            currentWidth /= 2;
+            currentHeight /= 2;
+            current = draw(current, currentWidth, currentHeight, 0, 0, currentWidth, currentHeight, opaque);
+        }
+        int outWidth = fit == Fit.COVER && height > 0 ? Math.min(width, scaledWidth) : scaledWidth;
+        int outHeight = fit == Fit.COVER && height > 0 ? Math.min(height, scaledHeight) : scaledHeight;
+        int offsetX = (outWidth - scaledWidth) / 2;
+        int offsetY = (outHeight - scaledHeight) / 2;
+        return draw(current, outWidth, outHeight, offsetX, offsetY, scaledWidth, scaledHeight, opaque);
+    }
+
+    private static BufferedImage draw(BufferedImage source, int canvasWidth, int canvasHeight,
+                                      int x, int y, int width, int height, boolean opaque) {
+        BufferedImage canvas = new BufferedImage(canvasWidth, canvasHeight,
+                opaque ? BufferedImage.TYPE_INT_RGB : BufferedImage.TYPE_INT_ARGB);
+        Graphics2D graphics = canvas.createGraphics();
+        try {
+            graphics.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+            graphics.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+            graphics.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+            if (opaque) {
+                graphics.setColor(java.awt.Color.WHITE);
+                graphics.fillRect(0, 0, canvasWidth, canvasHeight);
+            }
+            graphics.drawImage(source, x, y, width, height, null);
+        } finally {
+            graphics.dispose();
+        }
+        return canvas;
+    }
+
+    private static void write(BufferedImage image, String format, Path target) throws IOException {
+        ImageWriter writer = ImageIO.getImageWritersByFormatName(format).next();
+        try (ImageOutputStream output = ImageIO.createImageOutputStream(target.toFile())) {
+            writer.setOutput(output);
+            ImageWriteParam param = writer.getDefaultWriteParam();
+            if ("jpg".equals(format)) {
+                param.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+                param.setCompressionQuality(0.85f);
+            }
+            writer.write(null, new IIOImage(image, null, null), param);
+        } finally {
+            writer.dispose();
+        }
+    }
+
+    // JPEG giữ JPEG, còn lại (PNG, GIF, BMP...) xuất PNG để giữ nền trong suốt
+    private static String outputFormat(Path source) {
+        String name = source.getFileName().toString().toLowerCase(Locale.ROOT);
+        return name.endsWith(".jpg") || name.endsWith(".jpeg") ? "jpg" : "png";
+    }
+
+    private static String contentType(String format) {
+        return "jpg".equals(format) ? "image/jpeg" : "image/png";
+    }
+}
@@ -1,5 +1,6 @@
 package com.fastfood.management.service;
 
+import com.fastfood.management.service.impl.UploadBlobIndex;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Value;
@@ -7,24 +8,51 @@ import org.springframework.stereotype.Service;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.FileAlreadyExistsException;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.time.LocalDate;
+import java.util.HexFormat;
+import java.util.Locale;
 import java.util.UUID;
+import java.util.regex.Pattern;
 
 @Service
 public class LocalImageStorage implements ImageStorage {
     private static final Logger log = LoggerFactory.getLogger(LocalImageStorage.class);
 
+    private static final String BLOBS_DIR = "blobs";
+    private static final Pattern EXTENSION = Pattern.compile("[a-z0-9]{1,5}");
+
     @Value("${app.upload-dir:uploads}")
     private String root;
 
+    // Lưu theo nội dung: file trùng byte chỉ giữ một bản dưới uploads/blobs/
+    @Value("${app.upload.content-addressed:true}")
+    private boolean contentAddressed;
+
+    private final ImageDerivativeService imageDerivativeService;
+    private final UploadBlobIndex uploadBlobIndex;
+
+    public LocalImageStorage(ImageDerivativeService imageDerivativeService, UploadBlobIndex uploadBlobIndex) {
+        this.imageDerivativeService = imageDerivativeService;
+        this.uploadBlobIndex = uploadBlobIndex;
+    }
+
     @Override
     public String store(MultipartFile file, String folder) throws IOException {
         if (file.isEmpty()) {
             throw new IOException("Cannot store empty file");
         }
+        if (contentAddressed) {
+            return storeBlob(file);
+        }
 
         String date = LocalDate.now().toString();
         String safeName = UUID.randomUUID() + "-" + sanitize(file.getOriginalFilename());
@@ -46,9 +74,76 @@ public class LocalImageStorage implements ImageStorage {
         String relativePath = "/uploads/" + folder + "/" + date + "/" + safeName;
         
         log.info("File stored: {} -> {} (absolute: {})", file.getOriginalFilename(), relativePath, target);
+        // Sinh sẵn thumbnail/card ở nền để lần xem đầu không phải chờ resize
+        imageDerivativeService.warm(relativePath);
         return relativePath;
     }
 
+    /**
+     * Băm SHA-256 trong lúc chép upload ra file tạm, rồi đặt file tại blobs/ab/cd/{digest}.{ext}.
+     * Nội dung đã có thì bỏ file tạm và trả lại path cũ; folder không ảnh hưởng tới path vì blob dùng chung.
+     */
+    private String storeBlob(MultipartFile file) throws IOException {
+        Path blobsRoot = Paths.get(root).toAbsolutePath().normalize().resolve(BLOBS_DIR);
+        Files.createDirectories(blobsRoot);
+        Path temp = Files.createTempFile(blobsRoot, ".incoming-", ".part");
+        try {
+            MessageDigest sha256 = sha256();
+            try (InputStream in = new DigestInputStream(file.getInputStream(), sha256)) {
+                Files.copy(in, temp, StandardCopyOption.REPLACE_EXISTING);
+            }
+            String digest = HexFormat.of().formatHex(sha256.digest());
+            long size = Files.size(temp);
+
+            String existing = uploadBlobIndex.pathOf(digest).orElse(null);
+            if (existing != null && Files.exists(blobsRoot.getParent().resolve(existing.substring("/uploads/".length())))) {
+                uploadBlobIndex.reference(digest, existing, file.getContentType(), size);
+                log.info("File deduplicated: {} -> {}", file.getOriginalFilename(), existing);
+                return existing;
+            }
+
+            String name = digest + extensionOf(file.getOriginalFilename());
+            Path dir = blobsRoot.resolve(digest.substring(0, 2)).resolve(digest.substring(2, 4));
+            Files.createDirectories(dir);
+            Path target = dir.resolve(name);
+            boolean created = false;
+            try {
+                Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE);
+                created = true;
+            } catch (FileAlreadyExistsException e) {
+                // Cùng nội dung vừa được request khác ghi xong
+            }
+            String relativePath = "/uploads/" + BLOBS_DIR + "/" + digest.substring(0, 2) + "/"
+                    + digest.substring(2, 4) + "/" + name;
+            String path = uploadBlobIndex.reference(digest, relativePath, file.getContentType(), size);
+            log.info("File stored: {} -> {} ({})", file.getOriginalFilename(), path, created ? "new blob" : "existing blob");
+            if (created) {
+                imageDerivativeService.warm(path);
+            }
+            return path;
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
+    // Phần mở rộng chữ thường từ tên gốc (".jpg"), rỗng nếu không hợp lệ
+    private static String extensionOf(String originalName) {
+        if (originalName == null) {
+            return "";
+        }
+        int dot = originalName.lastIndexOf('.');
+        String extension = dot >= 0 ? originalName.substring(dot + 1).toLowerCase(Locale.ROOT) : "";
+        return EXTENSION.matcher(extension).matches() ? "." + extension : "";
+    }
+
     private String sanitize(String name) {
         if (name == null || name.trim().isEmpty()) {
             return "file";
@@ -56,4 +151,4 @@ public class LocalImageStorage implements ImageStorage {
         // Remove unsafe characters, keep only alphanumeric, dots, underscores, and hyphens
         return name.replaceAll("[^a-zA-Z0-9._-]", "_");
     }
-}
\ No newline at end of file
+}
@@ -2,6 +2,8 @@ package com.fastfood.management.service.api;
 
 import com.fastfood.management.entity.Delivery;
 
+import java.util.Map;
+
 public interface DroneSimulator {
     
     /**
@@ -49,4 +51,10 @@ public interface DroneSimulator {
      * @return true nếu simulation đang chạy, false nếu không
      */
     boolean isSimulationRunning(Long deliveryId);
+    
+    /**
+     * Số liệu của đồng hồ mô phỏng (thời gian tick, độ trễ, số delivery giữ được nhịp tick)
+     * @return Map các chỉ số của simulation engine
+     */
+    Map<String, Object> getEngineStats();
 }
\ No newline at end of file
@@ -14,6 +14,13 @@ public interface DroneTrackingService {
      * Cập nhật tiến độ delivery
      */
     void updateDeliveryProgress(Long deliveryId, String currentSegment, int etaSeconds, String status);
+
+    /**
+     * Phát tiến độ delivery đang được mô phỏng: chỉ cập nhật fleet state và gộp vào frame tracking của drone,
+     * không ghi DB (delivery là entity managed của tick mô phỏng)
+     */
+    void publishDeliveryProgress(Long droneId, Long deliveryId, Long orderId, String currentSegment,
+                                 int etaSeconds, String status, boolean etaChanged);
     
     /**
      * Thông báo thay đổi trạng thái drone
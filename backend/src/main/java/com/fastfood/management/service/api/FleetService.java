@@ -1,5 +1,7 @@
 package com.fastfood.management.service.api;
 
+import com.fastfood.management.entity.Delivery;
+import com.fastfood.management.entity.DeliveryRoute;
 import com.fastfood.management.entity.Drone;
 import com.fastfood.management.entity.DroneAssignment;
 import com.fastfood.management.entity.Order;
@@ -16,6 +18,30 @@ public interface FleetService {
      */
     Optional<DroneAssignment> autoAssignDrone(Order order);
     
+    /**
+     * Gán drone cho một lô đơn hàng cùng lúc: dựng ma trận ETA đơn x drone rảnh và giải bài toán gán tối ưu
+     * (Hungarian) để tổng thời gian bay của fleet nhỏ nhất. Mọi assignment được ghi trong một transaction.
+     * @param orders Các đơn hàng cần gán
+     * @return Các assignment đã tạo (đơn không có drone phù hợp sẽ không có trong danh sách)
+     */
+    List<DroneAssignment> batchAssignDrones(List<Order> orders);
+
+    /**
+     * Gom đơn của cùng cửa hàng thành chuyến nhiều điểm dừng (giới hạn bởi tải trọng và tầm bay của drone)
+     * và gán mỗi chuyến cho drone rảnh gần cửa hàng nhất. Chuyến chỉ có một đơn được gán như thường.
+     * @param orders Các đơn hàng cần gán (đơn cũ nhất trước)
+     * @return Assignment đã tạo, theo từng chuyến và đúng thứ tự điểm dừng
+     */
+    List<DroneAssignment> assignRoutes(List<Order> orders);
+
+    /**
+     * Hoàn tất một điểm dừng của chuyến nhiều đơn. Nếu còn điểm dừng, kích hoạt điểm kế tiếp;
+     * nếu đây là điểm cuối, hoàn tất chuyến và đưa drone về IDLE.
+     * @param delivery Delivery vừa giao xong (thuộc một chuyến)
+     * @return Delivery của điểm dừng kế tiếp nếu còn
+     */
+    Optional<Delivery> completeRouteStop(Delivery delivery);
+    
     /**
      * Gán drone thủ công cho đơn hàng
      * @param order Đơn hàng cần gán
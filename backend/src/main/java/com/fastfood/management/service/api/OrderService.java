@@ -1,6 +1,8 @@
 package com.fastfood.management.service.api;
 
 import com.fastfood.management.dto.request.OrderRequest;
+import com.fastfood.management.dto.response.CursorPage;
+import com.fastfood.management.dto.response.OrderCompactResponse;
 import com.fastfood.management.dto.response.OrderResponse;
 import com.fastfood.management.dto.response.OrderStatsResponse;
 import com.fastfood.management.entity.Order;
@@ -14,7 +16,17 @@ import java.time.LocalDateTime;
 public interface OrderService {
     Order createOrder(OrderRequest orderRequest, User currentUser);
     Order getOrderById(Long id, User currentUser);
-    List<Order> listMyOrders(User currentUser);
+
+    /**
+     * Lịch sử đơn của khách theo keyset (created_at DESC, id DESC); cursor = null cho trang đầu
+     */
+    CursorPage<Order> listMyOrders(User currentUser, String cursor, int limit);
+
+    /**
+     * Như listMyOrders nhưng chỉ đọc các cột của OrderCompactResponse trong một câu SQL
+     */
+    CursorPage<OrderCompactResponse> listMyOrdersCompact(User currentUser, String cursor, int limit);
+
     Page<OrderResponse> getOrdersByStatus(Order.OrderStatus status, Pageable pageable);
     Page<OrderResponse> getOrdersByStatus(Order.OrderStatus status, Pageable pageable, String code);
     Page<OrderResponse> getOrdersByStatus(Order.OrderStatus status, Pageable pageable, String code, Long storeId);
@@ -22,4 +34,9 @@ public interface OrderService {
     void cancelOrder(Long id, String reason, User currentUser);
 
     OrderStatsResponse getOrderStats(Long storeId, LocalDateTime start, LocalDateTime end);
+
+    /**
+     * Dựng lại rollup thống kê đơn từ bảng orders, trả về số bucket đã ghi
+     */
+    int rebuildOrderStats();
 }
\ No newline at end of file
@@ -0,0 +1,57 @@
+package com.fastfood.management.service.api;
+
+import java.time.Duration;
+import java.util.List;
+
+/**
+ * Sắp thứ tự các điểm dừng của một chuyến bay: xuất phát từ start, ghé mọi stop đúng một lần
+ * rồi kết thúc tại end (thường là trạm của drone).
+ */
+public interface RoutePlanner {
+
+    enum Strategy {
+        NEAREST_NEIGHBOUR, // Luôn bay tới điểm gần nhất chưa ghé
+        TWO_OPT,           // Nearest-neighbour rồi đảo đoạn (2-opt) tới khi không cải thiện
+        OR_OPT             // 2-opt rồi dời từng cụm 1-3 điểm (or-opt) tới khi không cải thiện
+    }
+
+    /**
+     * Lập tuyến theo chiến lược và ngân sách thời gian mặc định trong cấu hình
+     */
+    Route plan(Point start, List<Stop> stops, Point end);
+
+    /**
+     * Lập tuyến với chiến lược và ngân sách thời gian chỉ định. Hết ngân sách thì trả về tuyến tốt nhất đã có.
+     */
+    Route plan(Point start, List<Stop> stops, Point end, Strategy strategy, Duration timeBudget);
+
+    /**
+     * Tính quãng đường của tuyến giữ nguyên thứ tự stops cho trước (không tối ưu)
+     */
+    Route evaluate(Point start, List<Stop> stops, Point end);
+
+    record Point(double lat, double lng) {}
+
+    /**
+     * Điểm dừng, key do bên gọi đặt (ví dụ orderId) để ánh xạ lại kết quả
+     */
+    record Stop(Long key, double lat, double lng) {}
+
+    /**
+     * Tuyến đã lập. legKm[i] là quãng đường đường thẳng tới stops[i], legKm[stops.size()] là chặng về end.
+     */
+    record Route(List<Stop> stops, double[] legKm, double distanceKm, Strategy strategy,
+                 long solveNanos, boolean budgetExhausted) {
+
+        /**
+         * Quãng đường từ start tới stops[index] (cộng dồn các chặng)
+         */
+        public double distanceToStopKm(int index) {
+            double sum = 0;
+            for (int i = 0; i <= index; i++) {
+                sum += legKm[i];
+            }
+            return sum;
+        }
+    }
+}
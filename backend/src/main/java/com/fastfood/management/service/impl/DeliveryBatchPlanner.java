@@ -0,0 +1,170 @@
+package com.fastfood.management.service.impl;
+
+import com.fastfood.management.entity.Order;
+import com.fastfood.management.entity.OrderItem;
+import com.fastfood.management.service.api.RoutePlanner;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import utils.GeoUtils;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Gom các đơn READY_FOR_DELIVERY của cùng một cửa hàng thành chuyến nhiều điểm dừng cho một drone.
+ * Đơn cũ nhất làm hạt giống, sau đó lần lượt nối đơn gần điểm dừng cuối nhất (nearest-neighbour)
+ * miễn là tổng tải trọng và quãng đường drone -> cửa hàng -> các điểm dừng -> trạm còn trong giới hạn.
+ * Thứ tự giao cuối cùng do RoutePlanner sắp lại (không dài hơn thứ tự đã chọn nên vẫn trong tầm bay).
+ */
+@Component
+@RequiredArgsConstructor
+public class DeliveryBatchPlanner {
+
+    private final RoutePlanner routePlanner;
+
+    @Value("${drone.batching.maxStops:3}")
+    private int maxStops;
+
+    // Chưa có khối lượng món trong menu: ước lượng theo số lượng món
+    @Value("${drone.batching.itemWeightKg:0.35}")
+    private double itemWeightKg;
+
+    // Chỉ gom các điểm giao cách điểm giao của đơn hạt giống không quá khoảng này
+    @Value("${drone.batching.maxStopSpreadKm:3.0}")
+    private double maxStopSpreadKm;
+
+    /**
+     * Nhóm đơn theo cửa hàng, giữ nguyên thứ tự đầu vào (đơn cũ nhất trước)
+     */
+    public Map<Long, List<Order>> groupByStore(List<Order> orders) {
+        Map<Long, List<Order>> byStore = new LinkedHashMap<>();
+        for (Order order : orders) {
+            byStore.computeIfAbsent(order.getStore().getId(), id -> new ArrayList<>()).add(order);
+        }
+        return byStore;
+    }
+
+    public double estimatePayloadKg(Order order) {
+        int quantity = order.getOrderItems().stream()
+                .map(OrderItem::getQuantity)
+                .filter(q -> q != null && q > 0)
+                .mapToInt(Integer::intValue)
+                .sum();
+        return Math.max(1, quantity) * itemWeightKg;
+    }
+
+    /**
+     * Lập chuyến cho một drone từ các đơn đang chờ của một cửa hàng.
+     * @param pending Đơn chờ của cửa hàng (đơn cũ nhất trước); đơn được chọn sẽ bị loại khỏi danh sách
+     * @param rangeBudgetKm Quãng đường đường thẳng tối đa drone còn bay được
+     * @return Chuyến rỗng nếu drone không chở nổi đơn nào
+     */
+    public RoutePlan plan(List<Order> pending, double droneLat, double droneLng, double homeLat, double homeLng,
+                          double maxPayloadKg, double rangeBudgetKm) {
+        if (pending.isEmpty()) {
+            return RoutePlan.EMPTY;
+        }
+        double storeLat = pending.get(0).getStore().getLatitude();
+        double storeLng = pending.get(0).getStore().getLongitude();
+        double toStoreKm = GeoUtils.haversineKm(droneLat, droneLng, storeLat, storeLng);
+
+        // Hạt giống: đơn cũ nhất mà drone chở được một mình
+        Order seed = null;
+        double seedKm = 0;
+        for (Order order : pending) {
+            double km = toStoreKm + legKm(storeLat, storeLng, order) + legToHomeKm(order, homeLat, homeLng);
+            if (estimatePayloadKg(order) <= maxPayloadKg && km <= rangeBudgetKm) {
+                seed = order;
+                seedKm = km;
+                break;
+            }
+        }
+        if (seed == null) {
+            return RoutePlan.EMPTY;
+        }
+        pending.remove(seed);
+
+        List<Order> stops = new ArrayList<>();
+        stops.add(seed);
+        double payloadKg = estimatePayloadKg(seed);
+        // Quãng đường tới điểm dừng cuối (chưa tính chặng về trạm)
+        double outboundKm = seedKm - legToHomeKm(seed, homeLat, homeLng);
+
+        while (stops.size() < maxStops) {
+            Order last = stops.get(stops.size() - 1);
+            Order best = null;
+            double bestLegKm = Double.MAX_VALUE;
+            for (Order candidate : pending) {
+                if (legKm(seed, candidate) > maxStopSpreadKm) {
+                    continue;
+                }
+                double leg = legKm(last, candidate);
+                if (leg >= bestLegKm) {
+                    continue;
+                }
+                double candidatePayload = estimatePayloadKg(candidate);
+                double totalKm = outboundKm + leg + legToHomeKm(candidate, homeLat, homeLng);
+                if (payloadKg + candidatePayload <= maxPayloadKg && totalKm <= rangeBudgetKm) {
+                    best = candidate;
+                    bestLegKm = leg;
+                }
+            }
+            if (best == null) {
+                break;
+            }
+            pending.remove(best);
+            stops.add(best);
+            payloadKg += estimatePayloadKg(best);
+            outboundKm += bestLegKm;
+        }
+        List<RoutePlanner.Stop> routeStops = stops.stream()
+                .map(o -> new RoutePlanner.Stop(o.getId(), o.getAddress().getLatitude(), o.getAddress().getLongitude()))
+                .toList();
+        RoutePlanner.Point store = new RoutePlanner.Point(storeLat, storeLng);
+        RoutePlanner.Point home = new RoutePlanner.Point(homeLat, homeLng);
+        RoutePlanner.Route route = routePlanner.plan(store, routeStops, home);
+        // Tuyến tối ưu lại bắt đầu từ cửa hàng nên hiếm khi dài hơn thứ tự đã chọn; nếu có thì giữ thứ tự đã chọn
+        RoutePlanner.Route selected = routePlanner.evaluate(store, routeStops, home);
+        if (selected.distanceKm() < route.distanceKm()) {
+            route = selected;
+        }
+        Map<Long, Order> byId = new LinkedHashMap<>();
+        stops.forEach(o -> byId.put(o.getId(), o));
+        List<Order> sequenced = route.stops().stream().map(stop -> byId.get(stop.key())).toList();
+        return new RoutePlan(sequenced, payloadKg, toStoreKm, route);
+    }
+
+    private static double legKm(double lat, double lng, Order to) {
+        return GeoUtils.haversineKm(lat, lng, to.getAddress().getLatitude(), to.getAddress().getLongitude());
+    }
+
+    private static double legKm(Order from, Order to) {
+        return legKm(from.getAddress().getLatitude(), from.getAddress().getLongitude(), to);
+    }
+
+    private static double legToHomeKm(Order from, double homeLat, double homeLng) {
+        return GeoUtils.haversineKm(from.getAddress().getLatitude(), from.getAddress().getLongitude(), homeLat, homeLng);
+    }
+
+    /**
+     * Chuyến đã lập: các đơn theo thứ tự giao, tổng tải trọng, chặng drone -> cửa hàng
+     * và tuyến cửa hàng -> các điểm dừng -> trạm
+     */
+    public record RoutePlan(List<Order> stops, double payloadKg, double toStoreKm, RoutePlanner.Route route) {
+        static final RoutePlan EMPTY = new RoutePlan(List.of(), 0, 0, null);
+
+        public boolean isEmpty() {
+            return stops.isEmpty();
+        }
+
+        /**
+         * Quãng đường đường thẳng cả chuyến
+         */
+        public double distanceKm() {
+            return toStoreKm + (route != null ? route.distanceKm() : 0);
+        }
+    }
+}
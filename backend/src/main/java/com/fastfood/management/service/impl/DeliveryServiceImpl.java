@@ -32,6 +32,7 @@ public class DeliveryServiceImpl implements DeliveryService {
     private final DroneRepository droneRepository;
     private final WebSocketService webSocketService;
     private final FleetService fleetService;
+    private final GpsEventSink gpsEventSink;
 
     // Hàm tiện ích: chuyển từ entity Delivery sang DTO DeliveryResponse (đơn giản hoá)
     private DeliveryResponse toResponse(Delivery delivery) {
@@ -53,19 +54,24 @@ public class DeliveryServiceImpl implements DeliveryService {
                     .filter(e -> e.getEventType() == DeliveryEvent.EventType.GPS_UPDATE)
                     .reduce((first, second) -> second);
             if (lastGps.isPresent()) {
-                gpsDto = new DeliveryResponse.GpsPositionResponse();
-                gpsDto.setLat(lastGps.get().getLat());
-                gpsDto.setLng(lastGps.get().getLng());
-                gpsDto.setSpeedKmh(lastGps.get().getSpeedKmh());
-                gpsDto.setHeading(lastGps.get().getHeading());
-                gpsDto.setBatteryPct(lastGps.get().getBatteryPct());
-                gpsDto.setTimestamp(lastGps.get().getTs());
+                gpsDto = toGpsPosition(lastGps.get());
             }
         }
         dto.setCurrentPosition(gpsDto);
         return dto;
     }
 
+    private DeliveryResponse.GpsPositionResponse toGpsPosition(DeliveryEvent event) {
+        DeliveryResponse.GpsPositionResponse gpsDto = new DeliveryResponse.GpsPositionResponse();
+        gpsDto.setLat(event.getLat());
+        gpsDto.setLng(event.getLng());
+        gpsDto.setSpeedKmh(event.getSpeedKmh());
+        gpsDto.setHeading(event.getHeading());
+        gpsDto.setBatteryPct(event.getBatteryPct());
+        gpsDto.setTimestamp(event.getTs());
+        return gpsDto;
+    }
+
     // Lấy danh sách đơn sẵn sàng giao (READY_FOR_DELIVERY) chuyển thành DeliveryResponse
     @Override
     @Transactional(readOnly = true)
@@ -102,7 +108,7 @@ public class DeliveryServiceImpl implements DeliveryService {
         return toResponse(delivery);
     }
 
-    // Cập nhật GPS: thêm event GPS_UPDATE và nếu đang ASSIGNED thì chuyển sang IN_PROGRESS
+    // Cập nhật GPS: thêm event GPS_UPDATE (ghi write-behind) và nếu đang ASSIGNED thì chuyển sang IN_PROGRESS
     @Override
     public DeliveryResponse updateGpsPosition(Long deliveryId, GpsUpdateRequest gpsRequest) {
         Delivery delivery = deliveryRepository.findById(deliveryId)
@@ -116,12 +122,13 @@ public class DeliveryServiceImpl implements DeliveryService {
                 .heading(gpsRequest.getHeading())
                 .batteryPct(gpsRequest.getBatteryPct())
                 .ts(LocalDateTime.now())
+                .nonce(gpsRequest.getNonce())
                 .build();
-        delivery.getEvents().add(gpsEvent);
+        gpsEventSink.submit(gpsEvent);
         if (delivery.getStatus() == Delivery.DeliveryStatus.ASSIGNED) {
             delivery.setStatus(Delivery.DeliveryStatus.IN_PROGRESS);
+            deliveryRepository.save(delivery);
         }
-        deliveryRepository.save(delivery);
 
         // Phát WebSocket GPS realtime tới topic orders/{orderId}
         if (delivery.getOrder() != null) {
@@ -132,7 +139,10 @@ public class DeliveryServiceImpl implements DeliveryService {
             // ETA đơn giản hoá: 0 phút (có thể tính toán thật sau)
             webSocketService.sendDroneGpsUpdate(orderId, gpsRequest.getLat(), gpsRequest.getLng(), 0, speed, heading, battery);
         }
-        return toResponse(delivery);
+        // Event vừa nhận chưa chắc đã được ghi xuống DB, nên vị trí hiện tại lấy trực tiếp từ request
+        DeliveryResponse response = toResponse(delivery);
+        response.setCurrentPosition(toGpsPosition(gpsEvent));
+        return response;
     }
 
     // Hoàn tất giao: set trạng thái COMPLETED và thêm event DELIVERY_COMPLETE
@@ -5,29 +5,41 @@ import com.fastfood.management.entity.Delivery;
 import com.fastfood.management.entity.DeliveryEvent;
 import com.fastfood.management.entity.Drone;
 import com.fastfood.management.entity.Order;
-import com.fastfood.management.repository.DeliveryEventRepository;
 import com.fastfood.management.repository.DeliveryRepository;
 import com.fastfood.management.repository.DroneRepository;
 import com.fastfood.management.repository.OrderRepository;
 import com.fastfood.management.service.api.DroneSimulator;
 import com.fastfood.management.service.api.DroneTrackingService;
 import com.fastfood.management.service.api.FleetService;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.messaging.simp.SimpMessagingTemplate;
-import org.springframework.scheduling.annotation.Async;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.time.LocalDateTime;
+import java.time.ZoneId;
 import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
-import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.TimeUnit;
-import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 
 @Service
 @RequiredArgsConstructor
@@ -38,103 +50,247 @@ public class DroneSimulatorImpl implements DroneSimulator {
     private final DeliveryRepository deliveryRepository;
     private final DroneRepository droneRepository;
     private final OrderRepository orderRepository;
-    private final DeliveryEventRepository eventRepository;
-    private final SimpMessagingTemplate messagingTemplate;
+    private final GpsEventSink gpsEventSink;
+    private final TrackingBroadcaster trackingBroadcaster;
+    private final NotificationOutbox notificationOutbox;
     private final DroneTrackingService droneTrackingService;
     private final FleetService fleetService;
     
-    private final ScheduledExecutorService scheduler = Executors.newScheduledThreadPool(10);
-    private final Map<Long, ScheduledFuture<?>> activeSimulations = new ConcurrentHashMap<>();
+    private final PlatformTransactionManager transactionManager;
+
+    // Số tick liên tiếp chấp nhận không thấy delivery (ví dụ transaction tạo delivery chưa commit) trước khi bỏ
+    private static final int MAX_MISSING_TICKS = 3;
+
+    // Một đồng hồ duy nhất tiến toàn bộ delivery đang bay trong mỗi tick (thay cho một ScheduledFuture/delivery)
+    private final ScheduledExecutorService tickClock = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread t = new Thread(r, "drone-sim-clock");
+        t.setDaemon(true);
+        return t;
+    });
+    // Trạng thái in-flight giữ trong bộ nhớ, key = deliveryId
+    private final Map<Long, SimulationState> activeSimulations = new ConcurrentHashMap<>();
     // Mô phỏng chỉ thị đường bay quay về trạm sau khi giao xong (không ảnh hưởng trạng thái đơn/assignment)
-    private final Map<Long, ScheduledFuture<?>> activeReturnVisualizations = new ConcurrentHashMap<>();
-    
+    private final Map<Long, ReturnFlight> activeReturnVisualizations = new ConcurrentHashMap<>();
+    private final TickStats tickStats = new TickStats();
+
+    private TransactionTemplate transactionTemplate;
+    // Hoàn tất từng delivery trong transaction riêng: lỗi của một delivery không rollback cả tick
+    private TransactionTemplate completionTemplate;
+    private long periodNanos;
+    private long nextDueNanos;
+
+    @PostConstruct
+    void startClock() {
+        transactionTemplate = new TransactionTemplate(transactionManager);
+        completionTemplate = new TransactionTemplate(transactionManager);
+        completionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        periodNanos = TimeUnit.SECONDS.toNanos(Math.max(1, droneConfig.getGpsTickSec()));
+        nextDueNanos = System.nanoTime() + periodNanos;
+        tickClock.scheduleAtFixedRate(this::runTick, periodNanos, periodNanos, TimeUnit.NANOSECONDS);
+        log.info("Drone simulation clock started with tick period {}s", droneConfig.getGpsTickSec());
+    }
+
+    @PreDestroy
+    void stopClock() {
+        tickClock.shutdownNow();
+    }
+
     @Override
-    @Async
     public void startSimulation(Long deliveryId) {
         log.info("Starting simulation for delivery: {}", deliveryId);
         
         // Dừng simulation cũ nếu có
         stopSimulation(deliveryId);
         
-        // Bắt đầu simulation mới với GPS tick interval
-        ScheduledFuture<?> future = scheduler.scheduleAtFixedRate(
-            () -> {
-                try {
-                    Delivery delivery = deliveryRepository.findById(deliveryId).orElse(null);
-                    if (delivery != null && delivery.getStatus() == Delivery.DeliveryStatus.IN_PROGRESS) {
-                        tick(delivery);
-                    } else {
-                        stopSimulation(deliveryId);
-                    }
-                } catch (Exception e) {
-                    log.error("Error in simulation tick for delivery {}: {}", deliveryId, e.getMessage());
-                }
-            },
-            0, // Initial delay
-            droneConfig.getGpsTickSec(), // Period
-            TimeUnit.SECONDS
-        );
-        
-        activeSimulations.put(deliveryId, future);
+        // Đồng hồ chung sẽ tiến delivery này từ tick kế tiếp
+        activeSimulations.put(deliveryId, new SimulationState());
     }
     
     @Override
     public void stopSimulation(Long deliveryId) {
-        ScheduledFuture<?> future = activeSimulations.remove(deliveryId);
-        if (future != null) {
-            future.cancel(false);
+        if (activeSimulations.remove(deliveryId) != null) {
             log.info("Stopped simulation for delivery: {}", deliveryId);
         }
     }
+
+    /**
+     * Một nhịp của đồng hồ mô phỏng: tiến mọi delivery đang bay trong một transaction duy nhất,
+     * sau đó ghi nhận thời gian xử lý và độ trễ so với lịch tick. GPS event, descriptor segment và
+     * việc hoàn tất các delivery tới đích chỉ chạy sau khi transaction của tick commit.
+     */
+    private void runTick() {
+        try {
+            tick();
+        } catch (Exception e) {
+            // Ngoại lệ lọt ra ngoài sẽ huỷ lịch scheduleAtFixedRate mà không báo lỗi: chỉ log và chờ tick sau
+            log.error("Simulation tick failed: {}", e.getMessage(), e);
+        }
+    }
+
+    private void tick() {
+        long startedNanos = System.nanoTime();
+        long lagNanos = Math.max(0, startedNanos - nextDueNanos);
+        nextDueNanos += periodNanos;
+
+        int advanced = 0;
+        if (!activeSimulations.isEmpty() || !activeReturnVisualizations.isEmpty()) {
+            try {
+                Integer count = transactionTemplate.execute(status -> advanceAll(LocalDateTime.now()));
+                advanced = count != null ? count : 0;
+            } catch (Exception e) {
+                log.error("Error in simulation tick: {}", e.getMessage());
+            }
+            // Một frame mỗi drone cho cả tick, phát sau commit
+            trackingBroadcaster.flush();
+        }
+        tickStats.record(advanced, System.nanoTime() - startedNanos, lagNanos, periodNanos);
+    }
+
+    private int advanceAll(LocalDateTime now) {
+        Set<Long> ids = new HashSet<>(activeSimulations.keySet());
+        ids.addAll(activeReturnVisualizations.keySet());
+        // Một query cho toàn bộ delivery (drone/order được join eager)
+        Map<Long, Delivery> deliveries = deliveryRepository.findAllById(ids).stream()
+                .collect(Collectors.toMap(Delivery::getId, Function.identity()));
+
+        List<DeliveryEvent> gpsEvents = new ArrayList<>();
+        List<Runnable> afterCommit = new ArrayList<>();
+        List<Long> finished = new ArrayList<>();
+        int advanced = 0;
+        for (Map.Entry<Long, SimulationState> entry : activeSimulations.entrySet()) {
+            Long deliveryId = entry.getKey();
+            SimulationState state = entry.getValue();
+            Delivery delivery = deliveries.get(deliveryId);
+            if (delivery == null) {
+                if (++state.missingTicks > MAX_MISSING_TICKS) {
+                    stopSimulation(deliveryId);
+                }
+                continue;
+            }
+            state.missingTicks = 0;
+            if (delivery.getStatus() != Delivery.DeliveryStatus.IN_PROGRESS) {
+                stopSimulation(deliveryId);
+                continue;
+            }
+            try {
+                advance(delivery, state, now, gpsEvents, afterCommit, finished);
+                advanced++;
+            } catch (Exception e) {
+                log.error("Error in tick for delivery {}: {}", deliveryId, e.getMessage());
+            }
+        }
+
+        for (Map.Entry<Long, ReturnFlight> entry : activeReturnVisualizations.entrySet()) {
+            Delivery delivery = deliveries.get(entry.getKey());
+            if (delivery == null) {
+                stopReturnVisualization(entry.getKey());
+                continue;
+            }
+            try {
+                advanceReturnFlight(delivery, entry.getValue(), now, afterCommit);
+                advanced++;
+            } catch (Exception e) {
+                log.warn("Return-to-base visualization error for delivery {}: {}", entry.getKey(), e.getMessage());
+            }
+        }
+
+        // Delivery là entity managed: ETA/segment được flush cùng lúc khi commit, vị trí drone nằm
+        // trong fleet state (checkpoint định kỳ), GPS event đi qua write-behind sink để ghi theo batch.
+        // Tick rollback thì không có GPS event / frame nào của nó được phát
+        gpsEvents.forEach(event -> afterCommit.add(() -> gpsEventSink.submit(event)));
+        finished.forEach(id -> afterCommit.add(() -> finishDelivery(id)));
+        runAfterCommit(afterCommit);
+        return advanced;
+    }
     
     @Override
     @Transactional
     public void tick(Delivery delivery) {
         try {
-            // Tính toán vị trí hiện tại
-            double[] currentPos = calculateCurrentPosition(delivery);
-            double currentLat = currentPos[0];
-            double currentLng = currentPos[1];
-            
-            // Tính ETA còn lại
-            int remainingETA = calculateRemainingETA(delivery);
-            
-            // Cập nhật vị trí drone
-            Drone drone = delivery.getDrone();
-            drone.setCurrentLat(currentLat);
-            drone.setCurrentLng(currentLng);
-            drone.setLastSeenAt(LocalDateTime.now());
-            droneRepository.save(drone);
-            
-            // Cập nhật ETA trong delivery
-            delivery.setEtaSeconds(remainingETA);
+            SimulationState state = activeSimulations.getOrDefault(delivery.getId(), new SimulationState());
+            List<DeliveryEvent> gpsEvents = new ArrayList<>(1);
+            List<Runnable> afterCommit = new ArrayList<>();
+            List<Long> finished = new ArrayList<>(1);
+            advance(delivery, state, LocalDateTime.now(), gpsEvents, afterCommit, finished);
             deliveryRepository.save(delivery);
-            
-            // Tạo GPS event
-            DeliveryEvent gpsEvent = DeliveryEvent.builder()
-                    .delivery(delivery)
-                    .eventType(DeliveryEvent.EventType.GPS_UPDATE)
-                    .lat(currentLat)
-                    .lng(currentLng)
-                    .ts(LocalDateTime.now())
-                    .build();
-            eventRepository.save(gpsEvent);
-            
-            // Gửi WebSocket update
-            sendGPSUpdate(delivery, currentLat, currentLng, remainingETA);
-            
-            // Kiểm tra chuyển segment
-            if (shouldMoveToNextSegment(delivery)) {
-                boolean hasNext = moveToNextSegment(delivery);
-                if (!hasNext) {
-                    completeDelivery(delivery);
-                }
-            }
-            
+            gpsEvents.forEach(event -> afterCommit.add(() -> gpsEventSink.submit(event)));
+            finished.forEach(id -> afterCommit.add(() -> finishDelivery(id)));
+            runAfterCommit(afterCommit);
         } catch (Exception e) {
             log.error("Error in tick for delivery {}: {}", delivery.getId(), e.getMessage());
         }
     }
+
+    // Chạy các hành động sau khi transaction hiện tại commit (ngay lập tức nếu không có transaction)
+    private static void runAfterCommit(List<Runnable> actions) {
+        if (actions.isEmpty()) {
+            return;
+        }
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            actions.forEach(DroneSimulatorImpl::runQuietly);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                actions.forEach(DroneSimulatorImpl::runQuietly);
+            }
+        });
+    }
+
+    private static void runQuietly(Runnable action) {
+        try {
+            action.run();
+        } catch (Exception e) {
+            log.warn("Post-commit simulation action failed: {}", e.getMessage());
+        }
+    }
+
+    private void advance(Delivery delivery, SimulationState state, LocalDateTime now, List<DeliveryEvent> gpsEvents,
+                         List<Runnable> afterCommit, List<Long> finished) {
+        // Tính toán vị trí hiện tại
+        double[] currentPos = calculateCurrentPosition(delivery);
+        double currentLat = currentPos[0];
+        double currentLng = currentPos[1];
+        
+        // Tính ETA còn lại
+        int remainingETA = calculateRemainingETA(delivery);
+        
+        // Cập nhật ETA trong delivery
+        delivery.setEtaSeconds(remainingETA);
+
+        // Segment mới (kể cả điểm dừng kế tiếp của tuyến): phát descriptor để client tự nội suy
+        String segment = delivery.getCurrentSegment() != null ? delivery.getCurrentSegment() : "W0_W1";
+        if (!segment.equals(state.announcedSegment) || !delivery.getSegmentStartTime().equals(state.announcedStart)) {
+            TrackingBroadcaster.SegmentDescriptor descriptor = segmentDescriptor(delivery, segment, remainingETA);
+            afterCommit.add(() -> trackingBroadcaster.segmentStarted(descriptor));
+            state.announcedSegment = segment;
+            state.announcedStart = delivery.getSegmentStartTime();
+        }
+        
+        // Tạo GPS event
+        gpsEvents.add(DeliveryEvent.builder()
+                .delivery(delivery)
+                .eventType(DeliveryEvent.EventType.GPS_UPDATE)
+                .lat(currentLat)
+                .lng(currentLng)
+                .ts(now)
+                .nonce("sim-" + delivery.getId() + "-" + state.sessionId + "-" + (++state.gpsSeq))
+                .build());
+        
+        // Gửi WebSocket update
+        boolean etaChanged = state.lastEtaSec == null || state.lastEtaSec != remainingETA;
+        state.lastEtaSec = remainingETA;
+        afterCommit.add(gpsUpdate(delivery, currentLat, currentLng, remainingETA, etaChanged));
+        
+        // Kiểm tra chuyển segment; tới đích thì hoàn tất trong transaction riêng sau khi tick commit
+        if (shouldMoveToNextSegment(delivery)) {
+            boolean hasNext = moveToNextSegment(delivery);
+            if (!hasNext) {
+                finished.add(delivery.getId());
+            }
+        }
+    }
     
     @Override
     public double[] calculateCurrentPosition(Delivery delivery) {
@@ -150,7 +306,7 @@ public class DroneSimulatorImpl implements DroneSimulator {
                 // Không chặn mô phỏng nếu save thất bại
             }
         }
-        int segmentDuration = Math.max(1, droneConfig.getLegDuration(segment));
+        int segmentDuration = Math.max(1, segmentDuration(delivery, segment));
         
         // Tính elapsed time từ khi bắt đầu segment (seconds)
         long elapsedSeconds = Math.max(0, ChronoUnit.SECONDS.between(segmentStart, LocalDateTime.now()));
@@ -173,7 +329,7 @@ public class DroneSimulatorImpl implements DroneSimulator {
     public int calculateRemainingETA(Delivery delivery) {
         String segment = delivery.getCurrentSegment() != null ? delivery.getCurrentSegment() : "W0_W1";
         LocalDateTime segmentStart = delivery.getSegmentStartTime();
-        int segmentDuration = Math.max(1, droneConfig.getLegDuration(segment));
+        int segmentDuration = Math.max(1, segmentDuration(delivery, segment));
         
         // Thời gian còn lại của segment hiện tại (nếu thiếu segmentStart -> giả định full duration)
         long elapsedSeconds = segmentStart != null
@@ -187,7 +343,7 @@ public class DroneSimulatorImpl implements DroneSimulator {
         int remainingSegments = 0;
         switch (segment) {
             case "W0_W1":
-                remainingSegments = droneConfig.getLegDuration("W1_W2") + droneConfig.getDwellSecCustomer();
+                remainingSegments = segmentDuration(delivery, "W1_W2") + droneConfig.getDwellSecCustomer();
                 break;
             case "W1_W2":
                 remainingSegments = droneConfig.getDwellSecCustomer();
@@ -237,6 +393,14 @@ public class DroneSimulatorImpl implements DroneSimulator {
         return true;
     }
     
+    // Chặng W1_W2 của chuyến đã lập tuyến bay theo thời gian tính từ quãng đường; còn lại theo cấu hình
+    private int segmentDuration(Delivery delivery, String segment) {
+        if ("W1_W2".equals(segment) && delivery.getLegDurationSec() != null) {
+            return delivery.getLegDurationSec();
+        }
+        return droneConfig.getLegDuration(segment);
+    }
+
     private boolean shouldMoveToNextSegment(Delivery delivery) {
         String segment = delivery.getCurrentSegment() != null ? delivery.getCurrentSegment() : "W0_W1";
         
@@ -261,7 +425,7 @@ public class DroneSimulatorImpl implements DroneSimulator {
             } catch (Exception ignore) {}
             return true;
         }
-        int segmentDuration = Math.max(1, droneConfig.getLegDuration(segment));
+        int segmentDuration = Math.max(1, segmentDuration(delivery, segment));
         long elapsedSeconds = Math.max(0, ChronoUnit.SECONDS.between(segmentStart, LocalDateTime.now()));
         
         return elapsedSeconds >= segmentDuration;
@@ -314,7 +478,23 @@ public class DroneSimulatorImpl implements DroneSimulator {
         }
     }
     
+    /**
+     * Hoàn tất một delivery đã tới đích trong transaction riêng (REQUIRES_NEW). Lỗi từ FleetService chỉ rollback
+     * delivery này: simulation vẫn giữ nguyên và tick sau thử lại. Thay đổi trong bộ nhớ (dừng/khởi động simulation,
+     * bay về trạm) chỉ chạy sau khi commit.
+     */
+    private void finishDelivery(Long deliveryId) {
+        try {
+            completionTemplate.executeWithoutResult(status -> deliveryRepository.findById(deliveryId)
+                    .filter(delivery -> delivery.getStatus() == Delivery.DeliveryStatus.IN_PROGRESS)
+                    .ifPresent(this::completeDelivery));
+        } catch (Exception e) {
+            log.error("Completing delivery {} failed, will retry next tick: {}", deliveryId, e.getMessage());
+        }
+    }
+
     private void completeDelivery(Delivery delivery) {
+        List<Runnable> afterCommit = new ArrayList<>();
         // Đánh dấu đơn giao hoàn tất
         delivery.setStatus(Delivery.DeliveryStatus.COMPLETED);
         deliveryRepository.save(delivery);
@@ -324,91 +504,80 @@ public class DroneSimulatorImpl implements DroneSimulator {
         order.setStatus(Order.OrderStatus.DELIVERED);
         orderRepository.save(order);
 
+        // Dừng simulation
+        afterCommit.add(() -> stopSimulation(delivery.getId()));
+
+        // Chuyến nhiều đơn: bay tiếp tới điểm dừng kế tiếp, drone chỉ về IDLE sau điểm cuối
+        if (delivery.getRoute() != null) {
+            Optional<Delivery> nextStop = fleetService.completeRouteStop(delivery);
+            sendStateChangeEvent(delivery, "COMPLETED");
+            if (nextStop.isPresent()) {
+                Long nextId = nextStop.get().getId();
+                afterCommit.add(() -> startSimulation(nextId));
+                log.info("Delivery {} completed, route {} continues with delivery {}",
+                        delivery.getId(), delivery.getRoute().getId(), nextId);
+            } else {
+                log.info("Delivery {} completed, route {} finished", delivery.getId(), delivery.getRoute().getId());
+                afterCommit.add(() -> startReturnToBaseVisualization(delivery));
+            }
+            runAfterCommit(afterCommit);
+            return;
+        }
+
         // Hoàn tất assignment và đưa drone về IDLE qua FleetService
         Drone drone = delivery.getDrone();
         fleetService.getCurrentAssignment(drone.getId()).ifPresent(assignment -> {
             fleetService.completeAssignment(assignment.getId());
         });
 
-        // Dừng simulation
-        stopSimulation(delivery.getId());
-
         // Gửi completion event
         sendStateChangeEvent(delivery, "COMPLETED");
 
         log.info("Delivery {} completed successfully", delivery.getId());
 
-        AtomicBoolean startedNextSimulation = new AtomicBoolean(false);
-        // Tự động gán đơn READY_FOR_DELIVERY nếu chế độ AUTO và có đơn trong cùng cửa hàng
-        try {
-            if ("AUTO".equalsIgnoreCase(droneConfig.getAssignMode()) && order.getStore() != null && order.getStore().getId() != null) {
-                org.springframework.data.domain.Page<Order> readyPage =
-                        orderRepository.findByStoreIdAndStatus(order.getStore().getId(), Order.OrderStatus.READY_FOR_DELIVERY,
-                                org.springframework.data.domain.PageRequest.of(0, 1));
-                if (!readyPage.isEmpty()) {
-                    Order nextOrder = readyPage.getContent().get(0);
-                    fleetService.autoAssignDrone(nextOrder).ifPresent(da -> {
-                        Delivery nextDelivery = da.getDelivery();
-                        if (nextDelivery != null) {
-                            nextDelivery.setStatus(Delivery.DeliveryStatus.IN_PROGRESS);
-                            nextDelivery.setSegmentStartTime(LocalDateTime.now());
-                            deliveryRepository.save(nextDelivery);
-                            startSimulation(nextDelivery.getId());
-                            log.info("Auto-assigned and started simulation for next order {} with delivery {}", nextOrder.getId(), nextDelivery.getId());
-                            // Có đơn mới, bỏ qua mô phỏng quay về trạm
-                            startedNextSimulation.set(true);
-                        }
-                    });
-                }
-            }
-        } catch (Exception ex) {
-            log.warn("Auto-assign after completion failed: {}", ex.getMessage());
-        }
+        // Đơn kế tiếp do AutoAssignScheduler gán khi nhận DRONE_IDLE sau commit; drone bay về trạm (chỉ hiển thị)
+        afterCommit.add(() -> startReturnToBaseVisualization(delivery));
+        runAfterCommit(afterCommit);
+    }
 
-        // Không có đơn mới thì chạy mô phỏng đường bay quay về trạm (chỉ hiển thị)
-        if (!startedNextSimulation.get()) {
-            startReturnToBaseVisualization(delivery);
-        }
+    // Chụp giá trị hiện tại của delivery; trả về hành động phát GPS chạy sau commit
+    private Runnable gpsUpdate(Delivery delivery, double lat, double lng, int eta, boolean etaChanged) {
+        Long droneId = delivery.getDrone().getId();
+        Double battery = delivery.getDrone().getBatteryPct();
+        Long deliveryId = delivery.getId();
+        Long orderId = delivery.getOrder().getId();
+        String segment = delivery.getCurrentSegment();
+        String status = delivery.getStatus().toString();
+        return () -> {
+            // Cập nhật vị trí drone qua tracking service
+            droneTrackingService.updateDroneGps(droneId, lat, lng, battery);
+
+            // Tiến độ + ETA gộp vào cùng frame của drone, broadcaster phát một lần sau tick
+            // (kể cả topic /topic/delivery/{orderId} cho backward compatibility)
+            droneTrackingService.publishDeliveryProgress(droneId, deliveryId, orderId, segment, eta, status, etaChanged);
+        };
     }
     
-    private void sendGPSUpdate(Delivery delivery, double lat, double lng, int eta) {
-        // Cập nhật vị trí drone qua tracking service
-        droneTrackingService.updateDroneGps(
-            delivery.getDrone().getId(), 
-            lat, 
-            lng, 
-            delivery.getDrone().getBatteryPct()
-        );
-        
-        // Cập nhật tiến độ delivery
-        droneTrackingService.updateDeliveryProgress(
-            delivery.getId(),
-            delivery.getCurrentSegment(),
-            eta,
-            delivery.getStatus().toString()
-        );
-        
-        // Gửi ETA update nếu có thay đổi
-        if (delivery.getEtaSeconds() != eta) {
-            droneTrackingService.notifyDeliveryEtaUpdate(delivery.getId(), eta);
-        }
-        
-        // Vẫn giữ WebSocket cũ cho backward compatibility
-        Map<String, Object> payload = Map.of(
-            "eventType", "GPS_UPDATE",
-            "deliveryId", delivery.getId(),
-            "orderId", delivery.getOrder().getId(),
-            "droneId", delivery.getDrone().getId(),
-            "lat", lat,
-            "lng", lng,
-            "segment", delivery.getCurrentSegment(),
-            "etaSec", eta,
-            "ts", LocalDateTime.now().toString()
-        );
-        
-        messagingTemplate.convertAndSend("/topic/delivery/" + delivery.getOrder().getId(), payload);
+    private TrackingBroadcaster.SegmentDescriptor segmentDescriptor(Delivery delivery, String segment, int remainingETA) {
+        // DWELL đứng yên tại W2 theo số tick, các segment bay theo thời lượng chặng
+        int durationSec = "DWELL".equals(segment)
+                ? Math.max(0, delivery.getDwellTicksRemaining() != null
+                        ? delivery.getDwellTicksRemaining() : droneConfig.getDwellTicks()) * droneConfig.getGpsTickSec()
+                : Math.max(1, segmentDuration(delivery, segment));
+        long startedAtMs = toEpochMillis(delivery.getSegmentStartTime());
+        long remainingInSegmentSec = Math.max(0, durationSec - (System.currentTimeMillis() - startedAtMs) / 1000);
+        double[] from = getSegmentStartPosition(delivery, segment);
+        double[] to = getSegmentEndPosition(delivery, segment);
+        return new TrackingBroadcaster.SegmentDescriptor(
+                delivery.getDrone().getId(), delivery.getId(), delivery.getOrder().getId(), segment,
+                from[0], from[1], to[0], to[1], startedAtMs, durationSec * 1000L,
+                (int) Math.max(0, remainingETA - remainingInSegmentSec), false);
     }
-    
+
+    private static long toEpochMillis(LocalDateTime time) {
+        return time.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+    }
+
     private void sendStateChangeEvent(Delivery delivery, String newState) {
         Map<String, Object> payload = Map.of(
             "eventType", "STATE_CHANGE",
@@ -419,13 +588,24 @@ public class DroneSimulatorImpl implements DroneSimulator {
             "ts", LocalDateTime.now().toString()
         );
         
-        messagingTemplate.convertAndSend("/topic/delivery/" + delivery.getOrder().getId(), payload);
+        // Qua outbox: sự kiện của tick bị rollback không được phát, thứ tự theo đơn được giữ
+        notificationOutbox.enqueue(delivery.getOrder().getId(), "/topic/delivery/" + delivery.getOrder().getId(), payload);
     }
     
     @Override
     public boolean isSimulationRunning(Long deliveryId) {
-        ScheduledFuture<?> future = activeSimulations.get(deliveryId);
-        return future != null && !future.isDone() && !future.isCancelled();
+        return activeSimulations.containsKey(deliveryId);
+    }
+
+    @Override
+    public Map<String, Object> getEngineStats() {
+        Map<String, Object> stats = tickStats.snapshot(periodNanos);
+        stats.put("activeSimulations", activeSimulations.size());
+        stats.put("returnFlights", activeReturnVisualizations.size());
+        stats.put("gpsEventSink", gpsEventSink.getStats());
+        stats.put("notificationOutbox", notificationOutbox.getStats());
+        stats.put("trackingBroadcast", trackingBroadcaster.getStats());
+        return stats;
     }
 
     // --- Return-to-base visualization (post-completion, purely cosmetic) ---
@@ -433,47 +613,127 @@ public class DroneSimulatorImpl implements DroneSimulator {
         Long deliveryId = delivery.getId();
         stopReturnVisualization(deliveryId);
 
-        final LocalDateTime startTime = LocalDateTime.now();
-        final int durationSec = droneConfig.getLegDuration("W2_W3");
-        final double[] startPos = getSegmentStartPosition(delivery, "W2_W3");
-        final double[] endPos = getSegmentEndPosition(delivery, "W2_W3");
+        activeReturnVisualizations.put(deliveryId, new ReturnFlight(
+                LocalDateTime.now(),
+                Math.max(1, droneConfig.getLegDuration("W2_W3")),
+                getSegmentStartPosition(delivery, "W2_W3"),
+                getSegmentEndPosition(delivery, "W2_W3")));
+        log.info("Started return-to-base visualization for delivery {}", deliveryId);
+    }
 
-        ScheduledFuture<?> future = scheduler.scheduleAtFixedRate(() -> {
-            try {
-                long elapsed = ChronoUnit.SECONDS.between(startTime, LocalDateTime.now());
-                double u = Math.min(1.0, (double) elapsed / durationSec);
-                double lat = (1 - u) * startPos[0] + u * endPos[0];
-                double lng = (1 - u) * startPos[1] + u * endPos[1];
-
-                // Cập nhật vị trí drone nhưng KHÔNG thay đổi trạng thái đơn/assignment
-                Drone drone = delivery.getDrone();
-                drone.setCurrentLat(lat);
-                drone.setCurrentLng(lng);
-                drone.setLastSeenAt(LocalDateTime.now());
-                droneRepository.save(drone);
-
-                // Gửi GPS update để hiển thị đường bay, ETA=0, segment vẫn là segment cuối
-                sendGPSUpdate(delivery, lat, lng, 0);
-
-                if (u >= 1.0) {
-                    // Hoàn tất mô phỏng quay về trạm
-                    stopReturnVisualization(deliveryId);
-                    log.info("Return-to-base visualization finished for delivery {}", deliveryId);
-                }
-            } catch (Exception e) {
-                log.warn("Return-to-base visualization error for delivery {}: {}", deliveryId, e.getMessage());
-            }
-        }, 0, droneConfig.getGpsTickSec(), TimeUnit.SECONDS);
+    private void advanceReturnFlight(Delivery delivery, ReturnFlight flight, LocalDateTime now, List<Runnable> afterCommit) {
+        long elapsed = ChronoUnit.SECONDS.between(flight.startTime, now);
+        double u = Math.min(1.0, (double) elapsed / flight.durationSec);
+        double lat = (1 - u) * flight.startPos[0] + u * flight.endPos[0];
+        double lng = (1 - u) * flight.startPos[1] + u * flight.endPos[1];
 
-        activeReturnVisualizations.put(deliveryId, future);
-        log.info("Started return-to-base visualization for delivery {}", deliveryId);
+        if (!flight.etaAnnounced) {
+            TrackingBroadcaster.SegmentDescriptor descriptor = new TrackingBroadcaster.SegmentDescriptor(
+                    delivery.getDrone().getId(), delivery.getId(), delivery.getOrder().getId(), "W2_W3",
+                    flight.startPos[0], flight.startPos[1], flight.endPos[0], flight.endPos[1],
+                    toEpochMillis(flight.startTime), flight.durationSec * 1000L, 0, false);
+            afterCommit.add(() -> trackingBroadcaster.segmentStarted(descriptor));
+        }
+
+        // Vị trí drone đi qua fleet state trong gpsUpdate, KHÔNG thay đổi trạng thái đơn/assignment
+        // Gửi GPS update để hiển thị đường bay, ETA=0, segment vẫn là segment cuối
+        afterCommit.add(gpsUpdate(delivery, lat, lng, 0, !flight.etaAnnounced));
+        flight.etaAnnounced = true;
+
+        if (u >= 1.0) {
+            // Hoàn tất mô phỏng quay về trạm
+            stopReturnVisualization(delivery.getId());
+            log.info("Return-to-base visualization finished for delivery {}", delivery.getId());
+        }
     }
 
     private void stopReturnVisualization(Long deliveryId) {
-        ScheduledFuture<?> future = activeReturnVisualizations.remove(deliveryId);
-        if (future != null) {
-            future.cancel(false);
+        if (activeReturnVisualizations.remove(deliveryId) != null) {
             log.info("Stopped return-to-base visualization for delivery {}", deliveryId);
         }
     }
-}
\ No newline at end of file
+
+    // Trạng thái in-flight của một delivery, chỉ được đọc/ghi trên thread đồng hồ
+    // Bắt đầu từ epoch-ms nên id phiên sau restart lớn hơn các phiên trước
+    private static final AtomicLong SESSION_IDS = new AtomicLong(System.currentTimeMillis());
+
+    private static final class SimulationState {
+        // Phiên mô phỏng + số thứ tự tick tạo nonce GPS: retry ghi cùng nonce, phiên sau (restart) không trùng phiên trước
+        private final long sessionId = SESSION_IDS.incrementAndGet();
+        private long gpsSeq;
+        private Integer lastEtaSec;
+        private int missingTicks;
+        // Segment đã phát descriptor gần nhất
+        private String announcedSegment;
+        private LocalDateTime announcedStart;
+    }
+
+    private static final class ReturnFlight {
+        private final LocalDateTime startTime;
+        private final int durationSec;
+        private final double[] startPos;
+        private final double[] endPos;
+        private boolean etaAnnounced;
+
+        private ReturnFlight(LocalDateTime startTime, int durationSec, double[] startPos, double[] endPos) {
+            this.startTime = startTime;
+            this.durationSec = durationSec;
+            this.startPos = startPos;
+            this.endPos = endPos;
+        }
+    }
+
+    /**
+     * Số liệu của đồng hồ mô phỏng. Chỉ thread đồng hồ ghi, các endpoint đọc snapshot.
+     * Từ thời gian xử lý trung bình mỗi delivery suy ra số delivery đồng thời tối đa
+     * còn giữ được nhịp gpsTickSec.
+     */
+    private static final class TickStats {
+        private static final double EWMA_ALPHA = 0.2;
+
+        private volatile long ticks;
+        private volatile long overruns;
+        private volatile int lastAdvanced;
+        private volatile long lastTickNanos;
+        private volatile long maxTickNanos;
+        private volatile long lastLagNanos;
+        private volatile long maxLagNanos;
+        private volatile double avgTickNanos;
+        private volatile double avgPerDeliveryNanos;
+
+        private void record(int advanced, long tickNanos, long lagNanos, long periodNanos) {
+            ticks++;
+            lastAdvanced = advanced;
+            lastTickNanos = tickNanos;
+            maxTickNanos = Math.max(maxTickNanos, tickNanos);
+            lastLagNanos = lagNanos;
+            maxLagNanos = Math.max(maxLagNanos, lagNanos);
+            if (tickNanos + lagNanos > periodNanos) {
+                overruns++;
+            }
+            avgTickNanos = ticks == 1 ? tickNanos : avgTickNanos + EWMA_ALPHA * (tickNanos - avgTickNanos);
+            if (advanced > 0) {
+                double perDelivery = (double) tickNanos / advanced;
+                avgPerDeliveryNanos = avgPerDeliveryNanos == 0
+                        ? perDelivery
+                        : avgPerDeliveryNanos + EWMA_ALPHA * (perDelivery - avgPerDeliveryNanos);
+            }
+        }
+
+        private Map<String, Object> snapshot(long periodNanos) {
+            Map<String, Object> stats = new LinkedHashMap<>();
+            stats.put("tickPeriodMs", TimeUnit.NANOSECONDS.toMillis(periodNanos));
+            stats.put("ticks", ticks);
+            stats.put("overruns", overruns);
+            stats.put("lastAdvanced", lastAdvanced);
+            stats.put("lastTickMs", lastTickNanos / 1_000_000.0);
+            stats.put("avgTickMs", avgTickNanos / 1_000_000.0);
+            stats.put("maxTickMs", maxTickNanos / 1_000_000.0);
+            stats.put("lastLagMs", lastLagNanos / 1_000_000.0);
+            stats.put("maxLagMs", maxLagNanos / 1_000_000.0);
+            stats.put("avgPerDeliveryMs", avgPerDeliveryNanos / 1_000_000.0);
+            stats.put("estimatedCapacity", avgPerDeliveryNanos > 0 ? (long) (periodNanos / avgPerDeliveryNanos) : null);
+            return stats;
+        }
+    }
+}
@@ -0,0 +1,93 @@
+package com.fastfood.management.service.impl;
+
+import com.fastfood.management.entity.Drone;
+import jakarta.annotation.PostConstruct;
+import jakarta.persistence.EntityManagerFactory;
+import lombok.RequiredArgsConstructor;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.event.service.spi.EventListenerRegistry;
+import org.hibernate.event.spi.EventType;
+import org.hibernate.event.spi.PostDeleteEvent;
+import org.hibernate.event.spi.PostDeleteEventListener;
+import org.hibernate.event.spi.PostInsertEvent;
+import org.hibernate.event.spi.PostInsertEventListener;
+import org.hibernate.event.spi.PostUpdateEvent;
+import org.hibernate.event.spi.PostUpdateEventListener;
+import org.hibernate.persister.entity.EntityPersister;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.stereotype.Component;
+
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * Đẩy mọi thay đổi Drone ghi qua JPA (trạng thái, thông số) vào FleetStateStore sau khi commit.
+ * Đăng ký trực tiếp vào Hibernate (như OrderStatsListener) nên entity không phụ thuộc tầng service.
+ * Store được lấy lazy vì listener được đăng ký trước khi store sẵn sàng.
+ */
+@Component
+@RequiredArgsConstructor
+public class DroneStateListener implements PostInsertEventListener, PostUpdateEventListener, PostDeleteEventListener {
+
+    // Thuộc tính vị trí/pin: GPS ghi thẳng vào store, chỉ admin/demo sửa qua entity
+    private static final Set<String> POSITION_PROPERTIES = Set.of("currentLat", "currentLng", "batteryPct");
+
+    private final EntityManagerFactory entityManagerFactory;
+    private final ObjectProvider<FleetStateStore> fleetStateStore;
+
+    @PostConstruct
+    void register() {
+        EventListenerRegistry registry = entityManagerFactory.unwrap(SessionFactoryImplementor.class)
+                .getServiceRegistry().getService(EventListenerRegistry.class);
+        registry.appendListeners(EventType.POST_INSERT, this);
+        registry.appendListeners(EventType.POST_UPDATE, this);
+        registry.appendListeners(EventType.POST_DELETE, this);
+    }
+
+    @Override
+    public void onPostInsert(PostInsertEvent event) {
+        if (event.getEntity() instanceof Drone drone) {
+            onSaved(drone, false);
+        }
+    }
+
+    @Override
+    public void onPostUpdate(PostUpdateEvent event) {
+        if (event.getEntity() instanceof Drone drone) {
+            onSaved(drone, positionEdited(event));
+        }
+    }
+
+    @Override
+    public void onPostDelete(PostDeleteEvent event) {
+        if (event.getEntity() instanceof Drone drone) {
+            Long droneId = drone.getId();
+            FleetStateStore.afterCommit(() -> fleetStateStore.ifAvailable(store -> store.remove(droneId)));
+        }
+    }
+
+    @Override
+    public boolean requiresPostCommitHandling(EntityPersister persister) {
+        return false;
+    }
+
+    private void onSaved(Drone drone, boolean positionEdited) {
+        FleetStateStore.afterCommit(() -> fleetStateStore.ifAvailable(store -> store.syncFromEntity(drone, positionEdited)));
+    }
+
+    // So sánh trạng thái trước/sau flush; không có trạng thái cũ thì giữ vị trí trong store
+    private static boolean positionEdited(PostUpdateEvent event) {
+        Object[] oldState = event.getOldState();
+        if (oldState == null) {
+            return false;
+        }
+        Object[] state = event.getState();
+        String[] names = event.getPersister().getPropertyNames();
+        for (int i = 0; i < names.length; i++) {
+            if (POSITION_PROPERTIES.contains(names[i]) && !Objects.equals(oldState[i], state[i])) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -2,10 +2,7 @@ package com.fastfood.management.service.impl;
 
 import com.fastfood.management.entity.Drone;
 import com.fastfood.management.entity.Delivery;
-import com.fastfood.management.entity.DroneAssignment;
-import com.fastfood.management.repository.DroneRepository;
 import com.fastfood.management.repository.DeliveryRepository;
-import com.fastfood.management.repository.DroneAssignmentRepository;
 import com.fastfood.management.service.api.DroneTrackingService;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
@@ -14,7 +11,6 @@ import org.springframework.stereotype.Service;
 
 import java.time.LocalDateTime;
 import java.util.*;
-import java.util.concurrent.ConcurrentHashMap;
 import java.util.stream.Collectors;
 
 @Service
@@ -22,14 +18,12 @@ import java.util.stream.Collectors;
 @Slf4j
 public class DroneTrackingServiceImpl implements DroneTrackingService {
 
-    private final DroneRepository droneRepository;
     private final DeliveryRepository deliveryRepository;
-    private final DroneAssignmentRepository assignmentRepository;
     private final SimpMessagingTemplate messagingTemplate;
-    
-    // Cache để lưu trữ real-time data
-    private final Map<Long, DroneGpsData> droneGpsCache = new ConcurrentHashMap<>();
-    private final Map<Long, DeliveryProgress> deliveryProgressCache = new ConcurrentHashMap<>();
+    // Nguồn dữ liệu real-time cho mọi truy vấn vị trí/tracking (không đọc DB)
+    private final FleetStateStore fleetStateStore;
+    // GPS/tiến độ/ETA được gộp thành một frame mỗi drone mỗi lần flush
+    private final TrackingBroadcaster trackingBroadcaster;
 
     // Giới hạn tọa độ trong khu vực TP.HCM (bounding box gần đúng)
     private static final double HCMC_MIN_LAT = 10.35;
@@ -37,6 +31,15 @@ public class DroneTrackingServiceImpl implements DroneTrackingService {
     private static final double HCMC_MIN_LNG = 106.20;
     private static final double HCMC_MAX_LNG = 106.95;
 
+    private static final Set<Drone.DroneStatus> ACTIVE_STATUSES = EnumSet.of(
+        Drone.DroneStatus.ASSIGNED,
+        Drone.DroneStatus.EN_ROUTE_TO_STORE,
+        Drone.DroneStatus.AT_STORE,
+        Drone.DroneStatus.EN_ROUTE_TO_CUSTOMER,
+        Drone.DroneStatus.ARRIVING,
+        Drone.DroneStatus.RETURN_TO_BASE
+    );
+
     @Override
     public void updateDroneGps(Long droneId, double lat, double lng, double batteryLevel) {
         try {
@@ -50,31 +53,14 @@ public class DroneTrackingServiceImpl implements DroneTrackingService {
 
             // Clamp battery về khoảng [0, 100]
             double battery = Math.max(0.0, Math.min(100.0, batteryLevel));
-            // Cập nhật database
-            Optional<Drone> droneOpt = droneRepository.findById(droneId);
-            if (droneOpt.isPresent()) {
-                Drone drone = droneOpt.get();
-                drone.setCurrentLat(lat);
-                drone.setCurrentLng(lng);
-                droneRepository.save(drone);
-
-                // Cập nhật cache
-                DroneGpsData gpsData = new DroneGpsData(droneId, lat, lng, battery, LocalDateTime.now());
-                droneGpsCache.put(droneId, gpsData);
-
-                // Broadcast qua WebSocket
-                Map<String, Object> update = Map.of(
-                    "type", "DRONE_GPS_UPDATE",
-                    "droneId", droneId,
-                    "lat", lat,
-                    "lng", lng,
-                    "batteryLevel", battery,
-                    "timestamp", LocalDateTime.now().toString()
-                );
-                
-                messagingTemplate.convertAndSend("/topic/drone-tracking", update);
-                log.debug("Sent GPS update for drone {}: lat={}, lng={}, battery={}%", 
+            // Chỉ cập nhật fleet state (DB được checkpoint định kỳ). Store nạp mọi drone lúc khởi động và được
+            // DroneStateListener giữ đồng bộ, nên drone không có trong store là drone không tồn tại
+            if (fleetStateStore.updatePosition(droneId, lat, lng, battery, LocalDateTime.now())) {
+                trackingBroadcaster.gpsChanged(droneId);
+                log.debug("Queued GPS update for drone {}: lat={}, lng={}, battery={}%",
                     droneId, lat, lng, battery);
+            } else {
+                log.debug("Ignored GPS update for unknown drone {}", droneId);
             }
         } catch (Exception e) {
             log.error("Error updating drone GPS for drone {}: {}", droneId, e.getMessage());
@@ -105,24 +91,15 @@ public class DroneTrackingServiceImpl implements DroneTrackingService {
                 
                 deliveryRepository.save(delivery);
 
-                // Cập nhật cache
-                DeliveryProgress progress = new DeliveryProgress(
-                    deliveryId, currentSegment, etaSeconds, status, LocalDateTime.now()
-                );
-                deliveryProgressCache.put(deliveryId, progress);
-
-                // Broadcast qua WebSocket
-                Map<String, Object> update = Map.of(
-                    "type", "DELIVERY_PROGRESS_UPDATE",
-                    "deliveryId", deliveryId,
-                    "currentSegment", currentSegment,
-                    "etaSeconds", etaSeconds,
-                    "status", status != null ? status : delivery.getStatus().toString(),
-                    "timestamp", LocalDateTime.now().toString()
-                );
-                
-                messagingTemplate.convertAndSend("/topic/delivery-tracking", update);
-                log.debug("Sent delivery progress update for delivery {}: segment={}, eta={}s, status={}", 
+                // Cập nhật fleet state và frame tracking
+                String deliveryStatus = delivery.getStatus().name();
+                fleetStateStore.updateProgress(deliveryId, currentSegment, etaSeconds, deliveryStatus);
+                if (delivery.getDrone() != null) {
+                    trackingBroadcaster.progressChanged(delivery.getDrone().getId(), deliveryId,
+                        delivery.getOrder() != null ? delivery.getOrder().getId() : null,
+                        currentSegment, etaSeconds, deliveryStatus, false);
+                }
+                log.debug("Queued delivery progress update for delivery {}: segment={}, eta={}s, status={}", 
                     deliveryId, currentSegment, etaSeconds, status);
             }
         } catch (Exception e) {
@@ -130,6 +107,13 @@ public class DroneTrackingServiceImpl implements DroneTrackingService {
         }
     }
 
+    @Override
+    public void publishDeliveryProgress(Long droneId, Long deliveryId, Long orderId, String currentSegment,
+                                        int etaSeconds, String status, boolean etaChanged) {
+        fleetStateStore.updateProgress(deliveryId, currentSegment, etaSeconds, status);
+        trackingBroadcaster.progressChanged(droneId, deliveryId, orderId, currentSegment, etaSeconds, status, etaChanged);
+    }
+
     @Override
     public void notifyDroneStatusChange(Long droneId, String oldStatus, String newStatus) {
         try {
@@ -152,16 +136,8 @@ public class DroneTrackingServiceImpl implements DroneTrackingService {
     @Override
     public void notifyDeliveryEtaUpdate(Long deliveryId, int newEtaSeconds) {
         try {
-            Map<String, Object> notification = Map.of(
-                "type", "DELIVERY_ETA_UPDATE",
-                "deliveryId", deliveryId,
-                "etaSeconds", newEtaSeconds,
-                "etaMinutes", Math.ceil(newEtaSeconds / 60.0),
-                "timestamp", LocalDateTime.now().toString()
-            );
-            
-            messagingTemplate.convertAndSend("/topic/delivery-eta", notification);
-            log.debug("Sent ETA update for delivery {}: {}s", deliveryId, newEtaSeconds);
+            trackingBroadcaster.etaChanged(deliveryId, newEtaSeconds);
+            log.debug("Queued ETA update for delivery {}: {}s", deliveryId, newEtaSeconds);
         } catch (Exception e) {
             log.error("Error sending delivery ETA update: {}", e.getMessage());
         }
@@ -172,37 +148,26 @@ public class DroneTrackingServiceImpl implements DroneTrackingService {
         List<Map<String, Object>> positions = new ArrayList<>();
         
         try {
-            // Lấy tất cả drone đang hoạt động
-            List<Drone> activeDrones = droneRepository.findByStatusIn(
-                Arrays.asList(
-                    Drone.DroneStatus.ASSIGNED,
-                    Drone.DroneStatus.EN_ROUTE_TO_STORE,
-                    Drone.DroneStatus.AT_STORE,
-                    Drone.DroneStatus.EN_ROUTE_TO_CUSTOMER,
-                    Drone.DroneStatus.ARRIVING,
-                    Drone.DroneStatus.RETURN_TO_BASE
-                )
-            );
-            
-            for (Drone drone : activeDrones) {
+            // Lấy tất cả drone đang hoạt động từ fleet state
+            for (FleetStateStore.DroneState drone : fleetStateStore.all()) {
+                if (!ACTIVE_STATUSES.contains(drone.status())) {
+                    continue;
+                }
                 Map<String, Object> position = new HashMap<>();
-                position.put("droneId", drone.getId());
-                position.put("serialNumber", drone.getSerialNumber());
-                position.put("lat", drone.getCurrentLat());
-                position.put("lng", drone.getCurrentLng());
-                position.put("batteryLevel", drone.getBatteryPct());
-                position.put("status", drone.getStatus().toString());
+                position.put("droneId", drone.droneId());
+                position.put("serialNumber", drone.serial());
+                position.put("lat", drone.lat());
+                position.put("lng", drone.lng());
+                position.put("batteryLevel", drone.batteryPct());
+                position.put("status", drone.status().toString());
                 
                 // Thêm thông tin delivery nếu có
-                List<DroneAssignment> assignments = assignmentRepository
-                    .findByDroneAndCompletedAtIsNull(drone);
-                if (!assignments.isEmpty()) {
-                    DroneAssignment assignment = assignments.get(0);
-                    Delivery delivery = assignment.getDelivery();
-                    position.put("deliveryId", delivery.getId());
-                    position.put("orderId", assignment.getOrder().getId());
-                    position.put("currentSegment", delivery.getCurrentSegment());
-                    position.put("etaSeconds", delivery.getEtaSeconds());
+                FleetStateStore.AssignmentState assignment = drone.assignment();
+                if (assignment != null) {
+                    position.put("deliveryId", assignment.deliveryId());
+                    position.put("orderId", assignment.orderId());
+                    position.put("currentSegment", assignment.currentSegment());
+                    position.put("etaSeconds", assignment.etaSeconds());
                 }
                 
                 positions.add(position);
@@ -217,39 +182,32 @@ public class DroneTrackingServiceImpl implements DroneTrackingService {
     @Override
     public Map<String, Object> getDeliveryTrackingInfo(Long deliveryId) {
         try {
-            Optional<Delivery> deliveryOpt = deliveryRepository.findById(deliveryId);
-            if (deliveryOpt.isEmpty()) {
+            Optional<FleetStateStore.DroneState> stateOpt = fleetStateStore.findByDelivery(deliveryId);
+            if (stateOpt.isEmpty()) {
                 return null;
             }
             
-            Delivery delivery = deliveryOpt.get();
-            List<DroneAssignment> assignments = assignmentRepository.findByDelivery(delivery);
-            
-            if (assignments.isEmpty()) {
-                return null;
-            }
-            
-            DroneAssignment assignment = assignments.get(0);
-            Drone drone = assignment.getDrone();
+            FleetStateStore.DroneState drone = stateOpt.get();
+            FleetStateStore.AssignmentState assignment = drone.assignment();
             
             Map<String, Object> trackingInfo = new HashMap<>();
             trackingInfo.put("deliveryId", deliveryId);
-            trackingInfo.put("orderId", assignment.getOrder().getId());
-            trackingInfo.put("droneId", drone.getId());
-            trackingInfo.put("droneSerialNumber", drone.getSerialNumber());
-            trackingInfo.put("currentLat", drone.getCurrentLat());
-            trackingInfo.put("currentLng", drone.getCurrentLng());
-            trackingInfo.put("batteryLevel", drone.getBatteryPct());
-            trackingInfo.put("status", delivery.getStatus().toString());
-            trackingInfo.put("currentSegment", delivery.getCurrentSegment());
-            Integer etaSecondsVal = delivery.getEtaSeconds();
+            trackingInfo.put("orderId", assignment.orderId());
+            trackingInfo.put("droneId", drone.droneId());
+            trackingInfo.put("droneSerialNumber", drone.serial());
+            trackingInfo.put("currentLat", drone.lat());
+            trackingInfo.put("currentLng", drone.lng());
+            trackingInfo.put("batteryLevel", drone.batteryPct());
+            trackingInfo.put("status", assignment.deliveryStatus());
+            trackingInfo.put("currentSegment", assignment.currentSegment());
+            Integer etaSecondsVal = assignment.etaSeconds();
             int etaSeconds = etaSecondsVal != null ? etaSecondsVal : 0;
             trackingInfo.put("etaSeconds", etaSeconds);
             trackingInfo.put("etaMinutes", Math.ceil(etaSeconds / 60.0));
             
             // Parse waypoints
-            if (delivery.getWaypoints() != null) {
-                trackingInfo.put("waypoints", parseWaypoints(delivery.getWaypoints()));
+            if (assignment.waypoints() != null) {
+                trackingInfo.put("waypoints", parseWaypoints(assignment.waypoints()));
             }
             
             return trackingInfo;
@@ -277,56 +235,6 @@ public class DroneTrackingServiceImpl implements DroneTrackingService {
         }
     }
 
-    private List<Map<String, Object>> parseWaypoints(String waypointsJson) {
-        // Simple JSON parsing for waypoints
-        // In production, use proper JSON library
-        List<Map<String, Object>> waypoints = new ArrayList<>();
-        
-        try {
-            // Mock waypoints parsing - replace with actual JSON parsing
-            waypoints.add(Map.of("lat", 10.762622, "lng", 106.660172, "type", "PICKUP"));
-            waypoints.add(Map.of("lat", 10.762822, "lng", 106.660372, "type", "DELIVERY"));
-            waypoints.add(Map.of("lat", 10.762622, "lng", 106.660172, "type", "RETURN"));
-        } catch (Exception e) {
-            log.error("Error parsing waypoints: {}", e.getMessage());
-        }
-        
-        return waypoints;
-    }
-
-    // Inner classes for data structures
-    public static class DroneGpsData {
-        public final Long droneId;
-        public final double lat;
-        public final double lng;
-        public final double batteryLevel;
-        public final LocalDateTime timestamp;
-
-        public DroneGpsData(Long droneId, double lat, double lng, double batteryLevel, LocalDateTime timestamp) {
-            this.droneId = droneId;
-            this.lat = lat;
-            this.lng = lng;
-            this.batteryLevel = batteryLevel;
-            this.timestamp = timestamp;
-        }
-    }
-
-    public static class DeliveryProgress {
-        public final Long deliveryId;
-        public final String currentSegment;
-        public final int etaSeconds;
-        public final String status;
-        public final LocalDateTime timestamp;
-
-        public DeliveryProgress(Long deliveryId, String currentSegment, int etaSeconds, String status, LocalDateTime timestamp) {
-            this.deliveryId = deliveryId;
-            this.currentSegment = currentSegment;
-            this.etaSeconds = etaSeconds;
-            this.status = status;
-            this.timestamp = timestamp;
-        }
-    }
-    
     private List<Map<String, Double>> parseWaypoints(List<Double[]> waypoints) {
         return waypoints.stream()
             .map(waypoint -> Map.of("lat", waypoint[0], "lng", waypoint[1]))
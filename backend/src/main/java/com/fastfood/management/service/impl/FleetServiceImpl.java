@@ -1,20 +1,31 @@
 package com.fastfood.management.service.impl;
 
 import com.fastfood.management.entity.*;
+import com.fastfood.management.event.DispatchEvent;
 import com.fastfood.management.repository.DeliveryRepository;
+import com.fastfood.management.repository.DeliveryRouteRepository;
 import com.fastfood.management.repository.DroneAssignmentRepository;
 import com.fastfood.management.repository.DroneRepository;
+import com.fastfood.management.repository.OrderRepository;
 import com.fastfood.management.service.api.FleetService;
 import com.fastfood.management.service.api.DroneTrackingService;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import utils.GeoUtils;
 
 import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.Comparator;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
+import java.util.Set;
 import java.util.stream.Collectors;
 
 @Service
@@ -25,7 +36,12 @@ public class FleetServiceImpl implements FleetService {
     private final DroneRepository droneRepository;
     private final DroneAssignmentRepository assignmentRepository;
     private final DeliveryRepository deliveryRepository;
+    private final DeliveryRouteRepository routeRepository;
+    private final OrderRepository orderRepository;
+    private final DeliveryBatchPlanner batchPlanner;
     private final DroneTrackingService droneTrackingService;
+    private final FleetStateStore fleetStateStore;
+    private final ApplicationEventPublisher eventPublisher;
 
     // Demo config for simple ETA calculation
     private static final double DISPATCH_RADIUS_KM = 10.0; // chỉ chọn drone trong bán kính này quanh cửa hàng
@@ -35,25 +51,241 @@ public class FleetServiceImpl implements FleetService {
     private static final double V_MAX_KMH = 60.0;           // tốc độ tối đa (km/h)
     private static final int T_OVERHEAD_SEC = 60;           // thời gian chuẩn bị/cất cánh (s)
     private static final int T_QUEUE_SEC = 0;               // thời gian chờ xếp hàng (s)
+    private static final int CANDIDATE_LIMIT = 8;           // số drone gần nhất lấy từ index để xác nhận
+    private static final double INFEASIBLE_COST = 1e9;      // chi phí cặp đơn/drone ngoài bán kính dispatch
+    private static final int ETA_TO_STORE_SEC = 90;         // POC: chặng W0→W1 (s)
+    private static final int ETA_TO_CUSTOMER_SEC = 240;     // POC: chặng W1→W2 khi thiếu tọa độ (s)
+    private static final int ETA_DWELL_SEC = 10;            // POC: dwell tại khách (s)
     
     @Override
     @Transactional
     public Optional<DroneAssignment> autoAssignDrone(Order order) {
         log.info("Auto-assigning drone for order: {}", order.getId());
         
-        List<Drone> availableDrones = getAvailableDrones();
-        if (availableDrones.isEmpty()) {
+        // Tra index drone IDLE theo bán kính quanh cửa hàng, rank theo ETA rồi khoảng cách đến cửa hàng
+        Optional<Drone> selectedDrone = selectDroneByEta(order);
+        if (selectedDrone.isEmpty()) {
             log.warn("No available drones for order: {}", order.getId());
             return Optional.empty();
         }
+        
+        return Optional.of(createAssignment(order, selectedDrone.get(), "SYSTEM", DroneAssignment.AssignmentMode.AUTO));
+    }
+    
+    @Override
+    @Transactional
+    public List<DroneAssignment> batchAssignDrones(List<Order> orders) {
+        List<Order> routable = orders.stream()
+                .filter(this::hasRouteCoordinates)
+                .toList();
+        if (routable.isEmpty()) {
+            return List.of();
+        }
 
-        // Lọc theo bán kính từ cửa hàng và rank theo ETA rồi khoảng cách đến cửa hàng
-        Optional<Drone> selectedDrone = selectDroneByEta(order, availableDrones);
-        if (selectedDrone.isEmpty()) {
+        // Ứng viên: drone IDLE trong bán kính dispatch của ít nhất một cửa hàng trong lô
+        Map<Long, IdleDroneIndex.Neighbor> candidates = new LinkedHashMap<>();
+        routable.stream()
+                .map(Order::getStore)
+                .collect(Collectors.toMap(Store::getId, store -> store, (a, b) -> a, LinkedHashMap::new))
+                .values()
+                .forEach(store -> fleetStateStore
+                        .findIdleWithin(store.getLatitude(), store.getLongitude(), DISPATCH_RADIUS_KM)
+                        .forEach(n -> candidates.putIfAbsent(n.droneId(), n)));
+        // Xác nhận IDLE trên entity bằng một query
+        List<Drone> drones = droneRepository.findAllById(candidates.keySet()).stream()
+                .filter(d -> d.getStatus() == Drone.DroneStatus.IDLE)
+                .toList();
+        if (drones.isEmpty()) {
+            log.warn("No idle drones within dispatch radius for batch of {} orders", routable.size());
+            return List.of();
+        }
+
+        // Ma trận chi phí: ETA giao hàng nếu drone ở trong bán kính dispatch của cửa hàng
+        double[][] cost = new double[routable.size()][drones.size()];
+        for (int i = 0; i < routable.size(); i++) {
+            Order order = routable.get(i);
+            double storeLat = order.getStore().getLatitude();
+            double storeLng = order.getStore().getLongitude();
+            for (int j = 0; j < drones.size(); j++) {
+                IdleDroneIndex.Neighbor pos = candidates.get(drones.get(j).getId());
+                double distanceToStoreKm = GeoUtils.haversineKm(pos.lat(), pos.lng(), storeLat, storeLng);
+                cost[i][j] = distanceToStoreKm <= DISPATCH_RADIUS_KM
+                        ? estimateDeliveryEtaSec(distanceToStoreKm, storeLat, storeLng,
+                                order.getAddress().getLatitude(), order.getAddress().getLongitude())
+                        : INFEASIBLE_COST;
+            }
+        }
+
+        int[] match = HungarianSolver.solve(cost);
+        List<DroneAssignment> assignments = new ArrayList<>();
+        double totalEtaSec = 0;
+        for (int i = 0; i < match.length; i++) {
+            int j = match[i];
+            if (j < 0 || cost[i][j] >= INFEASIBLE_COST) {
+                continue;
+            }
+            totalEtaSec += cost[i][j];
+            assignments.add(createAssignment(routable.get(i), drones.get(j), "SYSTEM", DroneAssignment.AssignmentMode.AUTO));
+        }
+        log.info("Batch assigned {}/{} orders across {} idle drones, total ETA {}s",
+                assignments.size(), routable.size(), drones.size(), Math.round(totalEtaSec));
+        return assignments;
+    }
+
+    @Override
+    @Transactional
+    public List<DroneAssignment> assignRoutes(List<Order> orders) {
+        // Đơn ứng viên được đọc ngoài transaction: nạp lại kèm orderItems (ước lượng tải trọng)
+        // và bỏ các đơn đã được gán trong lúc chờ; giữ nguyên thứ tự đầu vào (đơn cũ nhất trước)
+        Map<Long, Order> loaded = orderRepository.findAllWithItemsByIdIn(orders.stream().map(Order::getId).toList())
+                .stream()
+                .collect(Collectors.toMap(Order::getId, order -> order));
+        List<Order> routable = orders.stream()
+                .map(order -> loaded.get(order.getId()))
+                .filter(Objects::nonNull)
+                .filter(order -> order.getStatus() == Order.OrderStatus.READY_FOR_DELIVERY)
+                .filter(this::hasRouteCoordinates)
+                .toList();
+        List<DroneAssignment> assignments = new ArrayList<>();
+        Set<Long> usedDrones = new HashSet<>();
+        int routes = 0;
+        for (List<Order> pending : batchPlanner.groupByStore(routable).values()) {
+            Store store = pending.get(0).getStore();
+            for (Drone drone : nearestIdleDrones(store, usedDrones)) {
+                if (pending.isEmpty()) {
+                    break;
+                }
+                usedDrones.add(drone.getId());
+                double[] position = livePosition(drone);
+                if (position == null) {
+                    continue;
+                }
+                double homeLat = drone.getHomeLat() != null ? drone.getHomeLat() : store.getLatitude();
+                double homeLng = drone.getHomeLng() != null ? drone.getHomeLng() : store.getLongitude();
+                double maxPayloadKg = drone.getMaxPayloadKg() != null ? drone.getMaxPayloadKg() : Double.MAX_VALUE;
+                double rangeBudgetKm = drone.getMaxRangeKm() != null ? drone.getMaxRangeKm() / PATH_FACTOR : Double.MAX_VALUE;
+
+                DeliveryBatchPlanner.RoutePlan plan = batchPlanner.plan(pending, position[0], position[1],
+                        homeLat, homeLng, maxPayloadKg, rangeBudgetKm);
+                if (plan.isEmpty()) {
+                    continue;
+                }
+                if (plan.stops().size() == 1) {
+                    assignments.add(createAssignment(plan.stops().get(0), drone, "SYSTEM", DroneAssignment.AssignmentMode.AUTO));
+                } else {
+                    assignments.addAll(createRoute(plan, drone, store));
+                }
+                routes++;
+            }
+        }
+        log.info("Route dispatch assigned {}/{} orders on {} drones", assignments.size(), routable.size(), routes);
+        return assignments;
+    }
+
+    // Drone IDLE trong bán kính dispatch của cửa hàng (gần nhất trước), đã xác nhận trạng thái trên entity
+    private List<Drone> nearestIdleDrones(Store store, Set<Long> exclude) {
+        List<Long> ids = fleetStateStore
+                .findIdleWithin(store.getLatitude(), store.getLongitude(), DISPATCH_RADIUS_KM).stream()
+                .map(IdleDroneIndex.Neighbor::droneId)
+                .filter(id -> !exclude.contains(id))
+                .toList();
+        Map<Long, Drone> byId = droneRepository.findAllById(ids).stream()
+                .filter(d -> d.getStatus() == Drone.DroneStatus.IDLE)
+                .collect(Collectors.toMap(Drone::getId, d -> d));
+        return ids.stream().map(byId::get).filter(d -> d != null).toList();
+    }
+
+    private List<DroneAssignment> createRoute(DeliveryBatchPlanner.RoutePlan plan, Drone drone, Store store) {
+        drone.setStatus(Drone.DroneStatus.ASSIGNED);
+        drone.setLastAssignedAt(LocalDateTime.now());
+        droneRepository.save(drone);
+
+        DeliveryRoute route = routeRepository.save(DeliveryRoute.builder()
+                .drone(drone)
+                .store(store)
+                .status(DeliveryRoute.RouteStatus.IN_PROGRESS)
+                .totalPayloadKg(plan.payloadKg())
+                .plannedDistanceKm(plan.distanceKm() * PATH_FACTOR)
+                .build());
+
+        List<DroneAssignment> assignments = new ArrayList<>();
+        Order previous = null;
+        int etaSec = ETA_TO_STORE_SEC;
+        for (int i = 0; i < plan.stops().size(); i++) {
+            Order order = plan.stops().get(i);
+            Delivery delivery = prepareDelivery(order, drone);
+            delivery.setRoute(route);
+            delivery.setStopSequence(i);
+            delivery.setPayloadKg(batchPlanner.estimatePayloadKg(order));
+            if (previous != null) {
+                // Điểm dừng sau bay tiếp từ điểm giao trước, không quay lại cửa hàng
+                Address from = previous.getAddress();
+                delivery.setW0Lat(from.getLatitude());
+                delivery.setW0Lng(from.getLongitude());
+                delivery.setW1Lat(from.getLatitude());
+                delivery.setW1Lng(from.getLongitude());
+                delivery.setCurrentSegment("W1_W2");
+            }
+            // Thời gian bay và ETA từng điểm dừng lấy theo các chặng của tuyến đã lập
+            int legSec = legDurationSec(plan.route().legKm()[i]);
+            delivery.setLegDurationSec(legSec);
+            etaSec += legSec + ETA_DWELL_SEC;
+            delivery.setEtaSeconds(etaSec);
+            DroneAssignment assignment = saveAssignment(order, drone, deliveryRepository.save(delivery),
+                    "SYSTEM", DroneAssignment.AssignmentMode.AUTO);
+            if (i == 0) {
+                fleetStateStore.assign(assignment);
+            }
+            assignments.add(assignment);
+            previous = order;
+        }
+        log.info("Created route {} for drone {}: {} stops, {} kg, ~{} km",
+                route.getId(), drone.getId(), plan.stops().size(),
+                String.format("%.2f", plan.payloadKg()), String.format("%.1f", route.getPlannedDistanceKm()));
+        return assignments;
+    }
+
+    @Override
+    @Transactional
+    public Optional<Delivery> completeRouteStop(Delivery delivery) {
+        DeliveryRoute route = delivery.getRoute();
+        if (route == null) {
+            throw new IllegalStateException("Delivery " + delivery.getId() + " is not part of a route");
+        }
+        List<DroneAssignment> current = assignmentRepository.findByDelivery(delivery);
+        Optional<Delivery> next = deliveryRepository.findByRouteIdOrderByStopSequenceAsc(route.getId()).stream()
+                .filter(stop -> stop.getStatus() == Delivery.DeliveryStatus.ASSIGNED)
+                .findFirst();
+        if (next.isEmpty()) {
+            route.setStatus(DeliveryRoute.RouteStatus.COMPLETED);
+            route.setCompletedAt(LocalDateTime.now());
+            routeRepository.save(route);
+            current.forEach(assignment -> completeAssignment(assignment.getId()));
             return Optional.empty();
         }
-        
-        return Optional.of(createAssignment(order, selectedDrone.get(), "SYSTEM", DroneAssignment.AssignmentMode.AUTO));
+
+        current.forEach(assignment -> {
+            assignment.setCompletedAt(LocalDateTime.now());
+            assignmentRepository.save(assignment);
+        });
+        Delivery nextStop = next.get();
+        nextStop.setStatus(Delivery.DeliveryStatus.IN_PROGRESS);
+        nextStop.setCurrentSegment("W1_W2");
+        nextStop.setSegmentStartTime(LocalDateTime.now());
+        deliveryRepository.save(nextStop);
+        assignmentRepository.findByDelivery(nextStop).forEach(fleetStateStore::assign);
+
+        Drone drone = route.getDrone();
+        drone.setStatus(Drone.DroneStatus.EN_ROUTE_TO_CUSTOMER);
+        droneRepository.save(drone);
+        log.info("Route {} moved to stop {} (delivery {})", route.getId(), nextStop.getStopSequence(), nextStop.getId());
+        return Optional.of(nextStop);
+    }
+
+    private boolean hasRouteCoordinates(Order order) {
+        return order.getStore() != null && order.getAddress() != null
+                && order.getStore().getLatitude() != null && order.getStore().getLongitude() != null
+                && order.getAddress().getLatitude() != null && order.getAddress().getLongitude() != null;
     }
     
     @Override
@@ -88,6 +320,12 @@ public class FleetServiceImpl implements FleetService {
         if (drone == null) {
             throw new IllegalStateException("Drone is required for assignment");
         }
+        // Mỗi đơn chỉ một drone: delivery còn đang gán/bay thì không tạo assignment thứ hai
+        Delivery existing = order.getDelivery();
+        if (existing != null && (existing.getStatus() == Delivery.DeliveryStatus.ASSIGNED
+                || existing.getStatus() == Delivery.DeliveryStatus.IN_PROGRESS)) {
+            throw new IllegalStateException("Order " + order.getId() + " is already assigned to delivery " + existing.getId());
+        }
 
         // Cập nhật trạng thái drone
         drone.setStatus(Drone.DroneStatus.ASSIGNED);
@@ -97,6 +335,14 @@ public class FleetServiceImpl implements FleetService {
         // Không cập nhật trạng thái order tại đây nữa
         // Việc chuyển READY_FOR_DELIVERY -> OUT_FOR_DELIVERY sẽ do OrderService xử lý
         
+        Delivery delivery = deliveryRepository.save(prepareDelivery(order, drone));
+        DroneAssignment assignment = saveAssignment(order, drone, delivery, assignedBy, mode);
+        fleetStateStore.assign(assignment);
+        return assignment;
+    }
+
+    // Delivery W0 (drone) -> W1 (cửa hàng) -> W2 (khách) -> W3 (trạm) cho đơn, chưa lưu
+    private Delivery prepareDelivery(Order order, Drone drone) {
         // Tạo hoặc tái sử dụng delivery record để tránh vi phạm unique constraint (order_id)
         Delivery delivery = order.getDelivery();
         if (delivery == null) {
@@ -107,8 +353,9 @@ public class FleetServiceImpl implements FleetService {
 
         delivery.setDrone(drone);
         delivery.setStatus(Delivery.DeliveryStatus.ASSIGNED);
-        delivery.setW0Lat(drone.getCurrentLat());
-        delivery.setW0Lng(drone.getCurrentLng());
+        double[] position = livePosition(drone);
+        delivery.setW0Lat(position != null ? position[0] : null);
+        delivery.setW0Lng(position != null ? position[1] : null);
         delivery.setW1Lat(order.getStore().getLatitude());
         delivery.setW1Lng(order.getStore().getLongitude());
         delivery.setW2Lat(order.getAddress().getLatitude());
@@ -117,9 +364,12 @@ public class FleetServiceImpl implements FleetService {
         delivery.setW3Lng(drone.getHomeLng());
         delivery.setCurrentSegment("W0_W1");
         delivery.setSegmentStartTime(LocalDateTime.now());
-        delivery.setEtaSeconds(calculateInitialETA());
+        delivery.setEtaSeconds(calculateInitialETA(delivery));
+        return delivery;
+    }
 
-        delivery = deliveryRepository.save(delivery);
+    private DroneAssignment saveAssignment(Order order, Drone drone, Delivery delivery,
+                                           String assignedBy, DroneAssignment.AssignmentMode mode) {
         order.setDelivery(delivery);
 
         // Tạo assignment record
@@ -134,6 +384,19 @@ public class FleetServiceImpl implements FleetService {
         
         return assignmentRepository.save(assignment);
     }
+
+    // Vị trí mới nhất nằm trong fleet state (bảng drones chỉ được checkpoint định kỳ)
+    private double[] livePosition(Drone drone) {
+        Optional<FleetStateStore.DroneState> liveState = fleetStateStore.get(drone.getId())
+                .filter(state -> state.lat() != null && state.lng() != null);
+        if (liveState.isPresent()) {
+            return new double[]{liveState.get().lat(), liveState.get().lng()};
+        }
+        if (drone.getCurrentLat() == null || drone.getCurrentLng() == null) {
+            return null;
+        }
+        return new double[]{drone.getCurrentLat(), drone.getCurrentLng()};
+    }
     
     @Override
     public List<Drone> getAvailableDrones() {
@@ -152,65 +415,61 @@ public class FleetServiceImpl implements FleetService {
                     drone.getLastAssignedAt() != null ? drone.getLastAssignedAt() : LocalDateTime.MIN));
     }
 
-    private Optional<Drone> selectDroneByEta(Order order, List<Drone> availableDrones) {
+    /**
+     * Chọn drone IDLE cho đơn theo ETA (chỉ đọc, chưa gán): tra index quanh cửa hàng rồi xác nhận trên entity
+     */
+    public Optional<Drone> selectDroneByEta(Order order) {
         Store store = order.getStore();
         Address dest = order.getAddress();
-        if (store == null || dest == null ||
-                store.getLatitude() == null || store.getLongitude() == null ||
-                dest.getLatitude() == null || dest.getLongitude() == null) {
+        if (!hasRouteCoordinates(order)) {
             log.warn("Missing coordinates for store or destination; fallback to round-robin");
-            return selectDroneRoundRobin(availableDrones);
+            return selectDroneRoundRobin(getAvailableDrones());
         }
 
         double storeLat = store.getLatitude();
         double storeLng = store.getLongitude();
 
-        // Khoảng cách cửa hàng -> khách hàng (đã nhân path factor)
-        double dStoreToDestKm = haversineKm(storeLat, storeLng, dest.getLatitude(), dest.getLongitude()) * PATH_FACTOR;
-
-        // Chỉ chọn drone trong bán kính dispatch quanh cửa hàng
-        List<DroneCandidate> candidates = availableDrones.stream()
-                .filter(d -> d.getCurrentLat() != null && d.getCurrentLng() != null)
-                .map(d -> new DroneCandidate(d,
-                        haversineKm(d.getCurrentLat(), d.getCurrentLng(), storeLat, storeLng)))
-                .filter(dc -> dc.distanceToStoreKm() <= DISPATCH_RADIUS_KM)
-                .collect(Collectors.toList());
-
+        // Chỉ chọn drone trong bán kính dispatch quanh cửa hàng. ETA tăng theo khoảng cách drone -> cửa hàng
+        // nên thứ tự khoảng cách mà index trả về cũng là thứ hạng theo ETA.
+        List<IdleDroneIndex.Neighbor> candidates =
+                fleetStateStore.findNearestIdle(storeLat, storeLng, CANDIDATE_LIMIT, DISPATCH_RADIUS_KM);
         if (candidates.isEmpty()) {
             log.warn("No candidates within dispatch radius; fallback to round-robin");
-            return selectDroneRoundRobin(availableDrones);
+            return selectDroneRoundRobin(getAvailableDrones());
         }
 
-        // wind_along = wind_speed * cos(phi) -> demo: wind_speed=0 => v_eff = clamp(V_AIR_KMH)
-        double vEffKmh = clamp(V_AIR_KMH, V_MIN_KMH, V_MAX_KMH);
-        double tFlightSec = (dStoreToDestKm / vEffKmh) * 3600.0; // đổi giờ -> giây
-        double etaSecBase = T_QUEUE_SEC + T_OVERHEAD_SEC + tFlightSec;
-
-        // Rank theo ETA (như nhau cho demo) và sau đó theo khoảng cách đến cửa hàng
-        return candidates.stream()
-                .sorted(Comparator
-                        .comparingDouble((DroneCandidate dc) -> etaSecBase)
-                        .thenComparingDouble(DroneCandidate::distanceToStoreKm))
-                .map(DroneCandidate::drone)
-                .findFirst();
+        // Index có thể trễ so với DB trong chốc lát: xác nhận lại trạng thái IDLE trên entity
+        for (IdleDroneIndex.Neighbor candidate : candidates) {
+            Optional<Drone> drone = droneRepository.findById(candidate.droneId())
+                    .filter(d -> d.getStatus() == Drone.DroneStatus.IDLE);
+            if (drone.isPresent()) {
+                log.debug("Selected drone {} for order {}: {} km from store, ETA ~{}s",
+                        candidate.droneId(), order.getId(), String.format("%.2f", candidate.distanceKm()),
+                        Math.round(estimateDeliveryEtaSec(candidate.distanceKm(), storeLat, storeLng,
+                                dest.getLatitude(), dest.getLongitude())));
+                return drone;
+            }
+        }
+        log.warn("Indexed candidates are no longer idle; fallback to round-robin");
+        return selectDroneRoundRobin(getAvailableDrones());
     }
 
-    private double haversineKm(double lat1, double lon1, double lat2, double lon2) {
-        double R = 6371.0; // bán kính Trái Đất (km)
-        double dLat = Math.toRadians(lat2 - lat1);
-        double dLon = Math.toRadians(lon2 - lon1);
-        double a = Math.sin(dLat / 2) * Math.sin(dLat / 2)
-                + Math.cos(Math.toRadians(lat1)) * Math.cos(Math.toRadians(lat2))
-                * Math.sin(dLon / 2) * Math.sin(dLon / 2);
-        double c = 2 * Math.atan2(Math.sqrt(a), Math.sqrt(1 - a));
-        return R * c;
+    /**
+     * ETA (giây) từ lúc nhận đơn đến khi giao: overhead + bay drone -> cửa hàng -> khách theo tốc độ danh định
+     */
+    private double estimateDeliveryEtaSec(double distanceToStoreKm, double storeLat, double storeLng,
+                                          double destLat, double destLng) {
+        // Khoảng cách drone -> cửa hàng -> khách hàng (đã nhân path factor)
+        double dFlightKm = (distanceToStoreKm + GeoUtils.haversineKm(storeLat, storeLng, destLat, destLng)) * PATH_FACTOR;
+        // wind_along = wind_speed * cos(phi) -> demo: wind_speed=0 => v_eff = clamp(V_AIR_KMH)
+        double vEffKmh = clamp(V_AIR_KMH, V_MIN_KMH, V_MAX_KMH);
+        double tFlightSec = (dFlightKm / vEffKmh) * 3600.0; // đổi giờ -> giây
+        return T_QUEUE_SEC + T_OVERHEAD_SEC + tFlightSec;
     }
 
     private double clamp(double v, double min, double max) {
         return Math.max(min, Math.min(max, v));
     }
-
-    private record DroneCandidate(Drone drone, double distanceToStoreKm) {}
     
     @Override
     @Transactional
@@ -227,6 +486,9 @@ public class FleetServiceImpl implements FleetService {
         String oldStatus = drone.getStatus() != null ? drone.getStatus().name() : "UNKNOWN";
         drone.setStatus(Drone.DroneStatus.IDLE);
         droneRepository.save(drone);
+        fleetStateStore.release(drone.getId());
+        // Drone rảnh: báo dispatcher gán đơn đang chờ ngay sau commit
+        eventPublisher.publishEvent(DispatchEvent.droneIdle(drone.getId()));
         
         // Broadcast trạng thái qua tracking service để tránh phụ thuộc Controller
         try {
@@ -248,9 +510,24 @@ public class FleetServiceImpl implements FleetService {
         return assignmentRepository.findTopByDroneIdAndCompletedAtIsNullOrderByAssignedAtDesc(droneId);
     }
     
-    private Integer calculateInitialETA() {
-        // POC: Tổng thời gian các leg theo config
-        // W0→W1: 90s, W1→W2: 240s, W2→W3: 120s + dwell: 10s
-        return 90 + 240 + 10; // Không tính W2→W3 trong ETA giao hàng
+    // ETA giao một đơn: W0→W1 theo POC, W1→W2 tính từ quãng đường cửa hàng → khách như khi lập tuyến, cộng dwell.
+    // Không tính W2→W3. Thiếu tọa độ thì W1→W2 giữ thời lượng cấu hình của mô phỏng.
+    private Integer calculateInitialETA(Delivery delivery) {
+        delivery.setLegDurationSec(null);
+        if (delivery.getW1Lat() == null || delivery.getW1Lng() == null
+                || delivery.getW2Lat() == null || delivery.getW2Lng() == null) {
+            return ETA_TO_STORE_SEC + ETA_TO_CUSTOMER_SEC + ETA_DWELL_SEC;
+        }
+        int legSec = legDurationSec(GeoUtils.haversineKm(delivery.getW1Lat(), delivery.getW1Lng(),
+                delivery.getW2Lat(), delivery.getW2Lng()));
+        // Mô phỏng bay chặng W1→W2 đúng thời lượng này nên ETA khớp với chuyến bay
+        delivery.setLegDurationSec(legSec);
+        return ETA_TO_STORE_SEC + legSec + ETA_DWELL_SEC;
+    }
+
+    // Thời gian bay một chặng theo tốc độ danh định (đã nhân path factor)
+    private int legDurationSec(double legKm) {
+        double vEffKmh = clamp(V_AIR_KMH, V_MIN_KMH, V_MAX_KMH);
+        return Math.max(1, (int) Math.round(legKm * PATH_FACTOR / vEffKmh * 3600.0));
     }
 }
\ No newline at end of file
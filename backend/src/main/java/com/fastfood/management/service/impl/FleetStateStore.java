@@ -0,0 +1,322 @@
+package com.fastfood.management.service.impl;
+
+import com.fastfood.management.entity.Delivery;
+import com.fastfood.management.entity.Drone;
+import com.fastfood.management.entity.DroneAssignment;
+import com.fastfood.management.repository.DroneAssignmentRepository;
+import com.fastfood.management.repository.DroneRepository;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.With;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Trạng thái fleet giữ trong bộ nhớ: vị trí, pin, trạng thái và assignment hiện tại của từng drone.
+ * Mọi truy vấn vị trí/tracking đọc từ đây, vị trí chỉ được checkpoint xuống bảng drones theo chu kỳ.
+ * Mỗi drone giữ đúng một snapshot bất biến nên bộ nhớ không tăng theo số lần cập nhật GPS.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class FleetStateStore {
+
+    private static final String CHECKPOINT_SQL =
+            "UPDATE drones SET current_lat = ?, current_lng = ?, battery_pct = ?, last_seen_at = ? WHERE id = ?";
+    // Giữ lại snapshot của các delivery vừa hoàn tất để tracking sau khi giao vẫn đọc từ bộ nhớ
+    private static final int RECENTLY_COMPLETED_LIMIT = 256;
+    // Kích thước ô của index drone IDLE (~1.1 km)
+    private static final double IDLE_INDEX_CELL_DEG = 0.01;
+
+    private final DroneRepository droneRepository;
+    private final DroneAssignmentRepository assignmentRepository;
+    private final JdbcTemplate jdbcTemplate;
+
+    private final Map<Long, DroneState> drones = new ConcurrentHashMap<>();
+    private final Map<Long, Long> droneByDelivery = new ConcurrentHashMap<>();
+    private final Set<Long> dirtyPositions = ConcurrentHashMap.newKeySet();
+    private final IdleDroneIndex idleIndex = new IdleDroneIndex(IDLE_INDEX_CELL_DEG);
+    private final Map<Long, DroneState> recentlyCompleted = Collections.synchronizedMap(
+            new LinkedHashMap<>(64, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<Long, DroneState> eldest) {
+                    return size() > RECENTLY_COMPLETED_LIMIT;
+                }
+            });
+
+    @EventListener(ApplicationReadyEvent.class)
+    @Transactional(readOnly = true)
+    public void load() {
+        droneRepository.findAll().forEach(this::syncFromEntity);
+        for (DroneAssignment assignment : assignmentRepository.findByCompletedAtIsNull()) {
+            applyAssignment(assignment);
+        }
+        log.info("Fleet state store loaded {} drones, {} active assignments", drones.size(), droneByDelivery.size());
+    }
+
+    public Optional<DroneState> get(Long droneId) {
+        return Optional.ofNullable(drones.get(droneId));
+    }
+
+    public Collection<DroneState> all() {
+        return Collections.unmodifiableCollection(drones.values());
+    }
+
+    /**
+     * k drone IDLE gần điểm (lat, lng) nhất trong bán kính, sắp xếp theo khoảng cách
+     */
+    public List<IdleDroneIndex.Neighbor> findNearestIdle(double lat, double lng, int k, double radiusKm) {
+        return idleIndex.nearest(lat, lng, k, radiusKm);
+    }
+
+    /**
+     * Mọi drone IDLE trong bán kính quanh điểm (lat, lng), sắp xếp theo khoảng cách
+     */
+    public List<IdleDroneIndex.Neighbor> findIdleWithin(double lat, double lng, double radiusKm) {
+        return idleIndex.withinRadius(lat, lng, radiusKm);
+    }
+
+    public int idleCount() {
+        return idleIndex.size();
+    }
+
+    /**
+     * Tìm drone đang (hoặc vừa) thực hiện delivery
+     */
+    public Optional<DroneState> findByDelivery(Long deliveryId) {
+        Long droneId = droneByDelivery.get(deliveryId);
+        if (droneId != null) {
+            DroneState state = drones.get(droneId);
+            if (state != null && state.assignment() != null && deliveryId.equals(state.assignment().deliveryId())) {
+                return Optional.of(state);
+            }
+        }
+        return Optional.ofNullable(recentlyCompleted.get(deliveryId));
+    }
+
+    /**
+     * Cập nhật vị trí từ GPS, chỉ đánh dấu dirty để checkpoint sau
+     * @return false nếu drone chưa có trong store
+     */
+    public boolean updatePosition(Long droneId, double lat, double lng, double batteryPct, LocalDateTime ts) {
+        DroneState updated = drones.computeIfPresent(droneId, (id, state) -> state
+                .withLat(lat)
+                .withLng(lng)
+                .withBatteryPct(batteryPct)
+                .withLastSeenAt(ts));
+        if (updated == null) {
+            return false;
+        }
+        reindex(updated);
+        dirtyPositions.add(droneId);
+        return true;
+    }
+
+    /**
+     * Đồng bộ các thuộc tính do JPA ghi (trạng thái, thông số, home). Vị trí/pin trong store
+     * là nguồn chính nên chỉ lấy từ entity khi store chưa có.
+     */
+    public void syncFromEntity(Drone drone) {
+        syncFromEntity(drone, false);
+    }
+
+    /**
+     * Như {@link #syncFromEntity(Drone)}; positionEdited = true khi vị trí/pin được sửa trực tiếp trên entity
+     * (admin, demo reset) thì giá trị của entity thay cho giá trị trong store.
+     */
+    public void syncFromEntity(Drone drone, boolean positionEdited) {
+        if (drone.getId() == null) {
+            return;
+        }
+        DroneState synced = drones.compute(drone.getId(), (id, state) -> {
+            if (state == null) {
+                return new DroneState(id, drone.getSerial(), drone.getStatus(),
+                        drone.getCurrentLat(), drone.getCurrentLng(), drone.getBatteryPct(),
+                        drone.getHomeLat(), drone.getHomeLng(), drone.getMaxPayloadKg(), drone.getMaxRangeKm(),
+                        drone.getLastSeenAt(), null);
+            }
+            if (positionEdited) {
+                state = state
+                        .withLat(drone.getCurrentLat())
+                        .withLng(drone.getCurrentLng())
+                        .withBatteryPct(drone.getBatteryPct());
+            }
+            return state
+                    .withSerial(drone.getSerial())
+                    .withStatus(drone.getStatus())
+                    .withLat(state.lat() != null ? state.lat() : drone.getCurrentLat())
+                    .withLng(state.lng() != null ? state.lng() : drone.getCurrentLng())
+                    .withBatteryPct(state.batteryPct() != null ? state.batteryPct() : drone.getBatteryPct())
+                    .withHomeLat(drone.getHomeLat())
+                    .withHomeLng(drone.getHomeLng())
+                    .withMaxPayloadKg(drone.getMaxPayloadKg())
+                    .withMaxRangeKm(drone.getMaxRangeKm());
+        });
+        reindex(synced);
+    }
+
+    public void remove(Long droneId) {
+        DroneState removed = drones.remove(droneId);
+        dirtyPositions.remove(droneId);
+        idleIndex.remove(droneId);
+        if (removed != null && removed.assignment() != null) {
+            droneByDelivery.remove(removed.assignment().deliveryId());
+        }
+    }
+
+    /**
+     * Ghi nhận assignment mới sau khi transaction tạo assignment commit
+     */
+    public void assign(DroneAssignment assignment) {
+        afterCommit(() -> applyAssignment(assignment));
+    }
+
+    /**
+     * Giải phóng assignment của drone sau khi transaction hoàn tất assignment commit
+     */
+    public void release(Long droneId) {
+        afterCommit(() -> {
+            DroneState state = drones.get(droneId);
+            if (state == null || state.assignment() == null) {
+                return;
+            }
+            Long deliveryId = state.assignment().deliveryId();
+            droneByDelivery.remove(deliveryId, droneId);
+            recentlyCompleted.put(deliveryId, state);
+            drones.computeIfPresent(droneId, (id, s) -> s.withAssignment(null));
+        });
+    }
+
+    public void updateProgress(Long deliveryId, String currentSegment, int etaSeconds, String status) {
+        Long droneId = droneByDelivery.get(deliveryId);
+        if (droneId == null) {
+            return;
+        }
+        drones.computeIfPresent(droneId, (id, state) -> {
+            AssignmentState assignment = state.assignment();
+            if (assignment == null || !deliveryId.equals(assignment.deliveryId())) {
+                return state;
+            }
+            return state.withAssignment(assignment
+                    .withCurrentSegment(currentSegment)
+                    .withEtaSeconds(etaSeconds)
+                    .withDeliveryStatus(status != null ? status : assignment.deliveryStatus()));
+        });
+    }
+
+    /**
+     * Ghi các vị trí đã thay đổi xuống bảng drones bằng một batch UPDATE
+     */
+    @Scheduled(fixedDelayString = "${drone.fleetState.checkpointMs:10000}")
+    public void checkpoint() {
+        if (dirtyPositions.isEmpty()) {
+            return;
+        }
+        List<Object[]> rows = new ArrayList<>();
+        for (Iterator<Long> it = dirtyPositions.iterator(); it.hasNext(); ) {
+            Long droneId = it.next();
+            it.remove();
+            DroneState state = drones.get(droneId);
+            if (state == null) {
+                continue;
+            }
+            rows.add(new Object[]{
+                    state.lat(), state.lng(), state.batteryPct(),
+                    state.lastSeenAt() != null ? Timestamp.valueOf(state.lastSeenAt()) : null,
+                    droneId
+            });
+        }
+        if (rows.isEmpty()) {
+            return;
+        }
+        try {
+            jdbcTemplate.batchUpdate(CHECKPOINT_SQL, rows);
+            log.debug("Checkpointed positions of {} drones", rows.size());
+        } catch (Exception e) {
+            // Đánh dấu dirty lại để lần checkpoint sau ghi tiếp
+            rows.forEach(row -> dirtyPositions.add((Long) row[4]));
+            log.error("Fleet state checkpoint failed for {} drones: {}", rows.size(), e.getMessage());
+        }
+    }
+
+    @PreDestroy
+    void flushOnShutdown() {
+        checkpoint();
+    }
+
+    private void applyAssignment(DroneAssignment assignment) {
+        Drone drone = assignment.getDrone();
+        Delivery delivery = assignment.getDelivery();
+        if (drone == null || delivery == null) {
+            return;
+        }
+        syncFromEntity(drone);
+        AssignmentState assignmentState = new AssignmentState(
+                assignment.getId(),
+                delivery.getId(),
+                assignment.getOrder() != null ? assignment.getOrder().getId() : null,
+                assignment.getOrder() != null && assignment.getOrder().getStore() != null
+                        ? assignment.getOrder().getStore().getId() : null,
+                delivery.getStatus() != null ? delivery.getStatus().name() : null,
+                delivery.getCurrentSegment(),
+                delivery.getEtaSeconds(),
+                List.copyOf(delivery.getWaypoints()));
+        // Chuyến nhiều điểm dừng: điểm dừng trước được giữ lại để tracking như delivery đã hoàn tất
+        DroneState previous = drones.get(drone.getId());
+        if (previous != null && previous.assignment() != null
+                && !delivery.getId().equals(previous.assignment().deliveryId())) {
+            droneByDelivery.remove(previous.assignment().deliveryId(), drone.getId());
+            recentlyCompleted.put(previous.assignment().deliveryId(), previous);
+        }
+        drones.computeIfPresent(drone.getId(), (id, state) -> state.withAssignment(assignmentState));
+        droneByDelivery.put(delivery.getId(), drone.getId());
+        recentlyCompleted.remove(delivery.getId());
+    }
+
+    private void reindex(DroneState state) {
+        idleIndex.update(state.droneId(), state.status() == Drone.DroneStatus.IDLE, state.lat(), state.lng());
+    }
+
+    static void afterCommit(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        } else {
+            action.run();
+        }
+    }
+
+    @With
+    public record DroneState(Long droneId, String serial, Drone.DroneStatus status,
+                             Double lat, Double lng, Double batteryPct,
+                             Double homeLat, Double homeLng, Double maxPayloadKg, Double maxRangeKm,
+                             LocalDateTime lastSeenAt, AssignmentState assignment) {}
+
+    @With
+    public record AssignmentState(Long assignmentId, Long deliveryId, Long orderId, Long storeId, String deliveryStatus,
+                                  String currentSegment, Integer etaSeconds, List<Double[]> waypoints) {}
+}
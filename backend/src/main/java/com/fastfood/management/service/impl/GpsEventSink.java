@@ -0,0 +1,233 @@
+package com.fastfood.management.service.impl;
+
+import com.fastfood.management.entity.DeliveryEvent;
+import com.fastfood.management.entity.id.IdGenerator;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Ghi GPS_UPDATE vào bảng delivery_events theo kiểu write-behind.
+ * Event của mọi delivery được gom vào một hàng đợi có giới hạn và ghi bằng INSERT nhiều dòng
+ * khi đủ batch hoặc hết chu kỳ flush. Trùng (delivery_id, nonce) bị bỏ qua nên retry an toàn; các lỗi khác
+ * (FK, dữ liệu) vẫn được báo và batch lỗi được ghi lại từng dòng để chỉ bỏ dòng hỏng.
+ * Caller phải truyền nonce xác định cho mỗi lần đo (vd. mã phiên mô phỏng + số thứ tự tick).
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class GpsEventSink {
+
+    private static final String INSERT_PREFIX = "INSERT INTO delivery_events "
+            + "(id, delivery_id, event_type, lat, lng, speed_kmh, heading, battery_pct, ts, nonce) VALUES ";
+    private static final String ROW_PLACEHOLDER = "(?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+    // Chỉ bỏ qua trùng khóa; dòng trùng không đổi gì nên không được tính là đã ghi
+    // (cần useAffectedRows=true: mặc định Connector/J đếm cả dòng tìm thấy nên dòng trùng cũng ra 1)
+    private static final String INSERT_SUFFIX = " ON DUPLICATE KEY UPDATE id = id";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final IdGenerator idGenerator;
+
+    @Value("${drone.gpsSink.capacity:10000}")
+    private int capacity;
+
+    @Value("${drone.gpsSink.batchSize:200}")
+    private int batchSize;
+
+    @Value("${drone.gpsSink.flushIntervalMs:500}")
+    private long flushIntervalMs;
+
+    @Value("${drone.gpsSink.offerTimeoutMs:50}")
+    private long offerTimeoutMs;
+
+    @Value("${drone.gpsSink.shutdownTimeoutMs:10000}")
+    private long shutdownTimeoutMs;
+
+    private BlockingQueue<GpsRow> queue;
+    private Thread writer;
+    private volatile boolean running;
+
+    private final AtomicLong written = new AtomicLong();
+    private final AtomicLong duplicates = new AtomicLong();
+    private final AtomicLong dropped = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+    private final AtomicLong batches = new AtomicLong();
+
+    @PostConstruct
+    void start() {
+        queue = new ArrayBlockingQueue<>(Math.max(1, capacity));
+        running = true;
+        writer = new Thread(this::writeLoop, "gps-event-writer");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    /**
+     * Đảm bảo flush hết hàng đợi trước khi DataSource bị đóng.
+     */
+    @PreDestroy
+    void stop() {
+        running = false;
+        try {
+            writer.join(shutdownTimeoutMs);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (writer.isAlive()) {
+            log.warn("GPS event writer did not drain within {}ms, {} events pending", shutdownTimeoutMs, queue.size());
+        }
+        log.info("GPS event sink stopped: written={}, dropped={}, failed={}", written.get(), dropped.get(), failed.get());
+    }
+
+    /**
+     * Đưa một GPS event vào hàng đợi ghi. Khi hàng đợi đầy, caller bị chặn tối đa offerTimeoutMs
+     * (backpressure) rồi event bị bỏ.
+     * @return true nếu event đã được nhận
+     * @throws IllegalArgumentException nếu event không có nonce
+     */
+    public boolean submit(DeliveryEvent event) {
+        if (event.getDelivery() == null || event.getDelivery().getId() == null) {
+            return false;
+        }
+        if (event.getNonce() == null || event.getNonce().isBlank()) {
+            throw new IllegalArgumentException("GPS event requires a nonce");
+        }
+        LocalDateTime ts = event.getTs() != null ? event.getTs() : LocalDateTime.now();
+        GpsRow row = new GpsRow(idGenerator.nextId(), event.getDelivery().getId(), event.getLat(), event.getLng(), event.getSpeedKmh(),
+                event.getHeading(), event.getBatteryPct(), ts, event.getNonce());
+        try {
+            if (running && queue.offer(row, offerTimeoutMs, TimeUnit.MILLISECONDS)) {
+                return true;
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        long total = dropped.incrementAndGet();
+        if (total == 1 || total % 1000 == 0) {
+            log.warn("GPS event queue full, dropped {} events so far", total);
+        }
+        return false;
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("pending", queue.size());
+        stats.put("capacity", capacity);
+        stats.put("written", written.get());
+        stats.put("duplicates", duplicates.get());
+        stats.put("dropped", dropped.get());
+        stats.put("failed", failed.get());
+        stats.put("batches", batches.get());
+        return stats;
+    }
+
+    private void writeLoop() {
+        List<GpsRow> batch = new ArrayList<>(batchSize);
+        while (running || !queue.isEmpty()) {
+            try {
+                GpsRow first = queue.poll(flushIntervalMs, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                // Gom thêm đến khi đủ batch hoặc hết chu kỳ flush
+                long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(flushIntervalMs);
+                while (batch.size() < batchSize) {
+                    queue.drainTo(batch, batchSize - batch.size());
+                    long remaining = deadline - System.nanoTime();
+                    if (batch.size() >= batchSize || remaining <= 0 || !running) {
+                        break;
+                    }
+                    GpsRow next = queue.poll(remaining, TimeUnit.NANOSECONDS);
+                    if (next == null) {
+                        break;
+                    }
+                    batch.add(next);
+                }
+                flush(batch);
+            } catch (InterruptedException e) {
+                running = false;
+            } catch (Exception e) {
+                log.error("GPS event writer error: {}", e.getMessage());
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+    private void flush(List<GpsRow> batch) {
+        if (batch.isEmpty()) {
+            return;
+        }
+        try {
+            record(batch.size(), insert(batch));
+            batches.incrementAndGet();
+            return;
+        } catch (Exception e) {
+            log.warn("Flush of {} GPS events failed: {}", batch.size(), e.getMessage());
+        }
+        if (batch.size() == 1) {
+            failed.incrementAndGet();
+            return;
+        }
+        // Ghi lại từng dòng để dòng hỏng (delivery đã xóa, dữ liệu sai) không kéo cả batch theo
+        for (GpsRow row : batch) {
+            try {
+                record(1, insert(List.of(row)));
+            } catch (Exception e) {
+                failed.incrementAndGet();
+                log.warn("GPS event {} of delivery {} rejected: {}", row.nonce(), row.deliveryId(), e.getMessage());
+            }
+        }
+        batches.incrementAndGet();
+    }
+
+    private int insert(List<GpsRow> rows) {
+        StringBuilder sql = new StringBuilder(INSERT_PREFIX.length() + rows.size() * (ROW_PLACEHOLDER.length() + 1)
+                + INSERT_SUFFIX.length());
+        sql.append(INSERT_PREFIX);
+        Object[] args = new Object[rows.size() * 10];
+        int i = 0;
+        for (GpsRow row : rows) {
+            if (i > 0) {
+                sql.append(',');
+            }
+            sql.append(ROW_PLACEHOLDER);
+            args[i++] = row.id();
+            args[i++] = row.deliveryId();
+            args[i++] = DeliveryEvent.EventType.GPS_UPDATE.name();
+            args[i++] = row.lat();
+            args[i++] = row.lng();
+            args[i++] = row.speedKmh();
+            args[i++] = row.heading();
+            args[i++] = row.batteryPct();
+            args[i++] = Timestamp.valueOf(row.ts());
+            args[i++] = row.nonce();
+        }
+        return jdbcTemplate.update(sql.append(INSERT_SUFFIX).toString(), args);
+    }
+
+    // Số dòng trả về chỉ gồm dòng mới; phần còn lại là trùng (delivery_id, nonce)
+    private void record(int submitted, int inserted) {
+        written.addAndGet(inserted);
+        duplicates.addAndGet(Math.max(0, submitted - inserted));
+    }
+
+    private record GpsRow(long id, Long deliveryId, Double lat, Double lng, Double speedKmh, Double heading,
+                          Double batteryPct, LocalDateTime ts, String nonce) {}
+}
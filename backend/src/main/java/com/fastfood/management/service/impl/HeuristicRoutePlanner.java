@@ -0,0 +1,235 @@
+package com.fastfood.management.service.impl;
+
+import com.fastfood.management.service.api.RoutePlanner;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import utils.GeoUtils;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * RoutePlanner dùng heuristic cho tuyến mở có điểm đầu/cuối cố định:
+ * nearest-neighbour dựng tuyến ban đầu, 2-opt và or-opt cải thiện cục bộ trong ngân sách thời gian.
+ * Ma trận khoảng cách haversine được tính một lần cho mỗi lần lập tuyến.
+ */
+@Service
+public class HeuristicRoutePlanner implements RoutePlanner {
+
+    private static final double EPS = 1e-9;
+    // Độ dài tối đa của cụm điểm được dời trong or-opt
+    private static final int OR_OPT_MAX_SEGMENT = 3;
+
+    @Value("${drone.routing.strategy:OR_OPT}")
+    private Strategy defaultStrategy = Strategy.OR_OPT;
+
+    @Value("${drone.routing.timeBudgetMs:20}")
+    private long defaultTimeBudgetMs = 20;
+
+    @Override
+    public Route plan(Point start, List<Stop> stops, Point end) {
+        return plan(start, stops, end, defaultStrategy, Duration.ofMillis(defaultTimeBudgetMs));
+    }
+
+    @Override
+    public Route plan(Point start, List<Stop> stops, Point end, Strategy strategy, Duration timeBudget) {
+        long startedNanos = System.nanoTime();
+        long deadline = startedNanos + timeBudget.toNanos();
+        int n = stops.size();
+
+        // Nút 0 = start, 1..n = stops, n+1 = end
+        double[][] dist = distanceMatrix(start, stops, end);
+        int[] tour = nearestNeighbour(dist, n);
+        boolean exhausted = false;
+        if (strategy != Strategy.NEAREST_NEIGHBOUR && n > 2) {
+            exhausted = !twoOpt(tour, dist, deadline);
+            if (strategy == Strategy.OR_OPT && !exhausted) {
+                // Or-opt có thể mở ra nước đi 2-opt mới: lặp tới khi cả hai không cải thiện
+                boolean improved = true;
+                while (improved && !exhausted) {
+                    improved = orOpt(tour, dist, deadline);
+                    exhausted = System.nanoTime() > deadline;
+                    if (improved && !exhausted) {
+                        exhausted = !twoOpt(tour, dist, deadline);
+                    }
+                }
+            }
+        }
+
+        return toRoute(stops, tour, dist, strategy, startedNanos, exhausted);
+    }
+
+    @Override
+    public Route evaluate(Point start, List<Stop> stops, Point end) {
+        long startedNanos = System.nanoTime();
+        int[] tour = new int[stops.size() + 2];
+        for (int i = 0; i < tour.length; i++) {
+            tour[i] = i;
+        }
+        return toRoute(stops, tour, distanceMatrix(start, stops, end), null, startedNanos, false);
+    }
+
+    private static Route toRoute(List<Stop> stops, int[] tour, double[][] dist, Strategy strategy,
+                                 long startedNanos, boolean exhausted) {
+        int n = stops.size();
+        List<Stop> ordered = new ArrayList<>(n);
+        double[] legKm = new double[n + 1];
+        double total = 0;
+        for (int i = 1; i <= n + 1; i++) {
+            legKm[i - 1] = dist[tour[i - 1]][tour[i]];
+            total += legKm[i - 1];
+            if (i <= n) {
+                ordered.add(stops.get(tour[i] - 1));
+            }
+        }
+        return new Route(List.copyOf(ordered), legKm, total, strategy, System.nanoTime() - startedNanos, exhausted);
+    }
+
+    private static double[][] distanceMatrix(Point start, List<Stop> stops, Point end) {
+        int size = stops.size() + 2;
+        double[] lat = new double[size];
+        double[] lng = new double[size];
+        lat[0] = start.lat();
+        lng[0] = start.lng();
+        for (int i = 0; i < stops.size(); i++) {
+            lat[i + 1] = stops.get(i).lat();
+            lng[i + 1] = stops.get(i).lng();
+        }
+        lat[size - 1] = end.lat();
+        lng[size - 1] = end.lng();
+
+        double[][] dist = new double[size][size];
+        for (int i = 0; i < size; i++) {
+            for (int j = i + 1; j < size; j++) {
+                dist[i][j] = dist[j][i] = GeoUtils.haversineKm(lat[i], lng[i], lat[j], lng[j]);
+            }
+        }
+        return dist;
+    }
+
+    private static int[] nearestNeighbour(double[][] dist, int n) {
+        int[] tour = new int[n + 2];
+        boolean[] visited = new boolean[n + 1];
+        int current = 0;
+        for (int pos = 1; pos <= n; pos++) {
+            int best = -1;
+            for (int candidate = 1; candidate <= n; candidate++) {
+                if (!visited[candidate] && (best < 0 || dist[current][candidate] < dist[current][best])) {
+                    best = candidate;
+                }
+            }
+            visited[best] = true;
+            tour[pos] = best;
+            current = best;
+        }
+        tour[n + 1] = n + 1;
+        return tour;
+    }
+
+    /**
+     * Đảo đoạn tour[i+1..j] khi thay cạnh (a,b),(c,e) bằng (a,c),(b,e) làm tuyến ngắn hơn
+     * @return false nếu dừng vì hết ngân sách thời gian
+     */
+    private static boolean twoOpt(int[] tour, double[][] dist, long deadline) {
+        int last = tour.length - 1;
+        boolean improved = true;
+        while (improved) {
+            improved = false;
+            for (int i = 0; i < last - 2; i++) {
+                if (System.nanoTime() > deadline) {
+                    return false;
+                }
+                int a = tour[i];
+                int b = tour[i + 1];
+                for (int j = i + 2; j < last; j++) {
+                    int c = tour[j];
+                    int e = tour[j + 1];
+                    double delta = dist[a][c] + dist[b][e] - dist[a][b] - dist[c][e];
+                    if (delta < -EPS) {
+                        reverse(tour, i + 1, j);
+                        b = tour[i + 1];
+                        improved = true;
+                    }
+                }
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Dời một cụm 1-3 điểm liên tiếp (giữ hoặc đảo chiều) sang vị trí chèn rẻ nhất
+     * @return true nếu đã cải thiện tuyến
+     */
+    private static boolean orOpt(int[] tour, double[][] dist, long deadline) {
+        int last = tour.length - 1;
+        boolean improvedAny = false;
+        boolean improved = true;
+        while (improved) {
+            improved = false;
+            for (int len = 1; len <= OR_OPT_MAX_SEGMENT && !improved; len++) {
+                for (int i = 1; i + len - 1 < last && !improved; i++) {
+                    if (System.nanoTime() > deadline) {
+                        return improvedAny;
+                    }
+                    int segEnd = i + len - 1;
+                    int prev = tour[i - 1];
+                    int next = tour[segEnd + 1];
+                    int first = tour[i];
+                    int tail = tour[segEnd];
+                    double removeGain = dist[prev][first] + dist[tail][next] - dist[prev][next];
+
+                    for (int j = 0; j < last; j++) {
+                        if (j >= i - 1 && j <= segEnd) {
+                            continue; // cạnh kề hoặc nằm trong cụm
+                        }
+                        int a = tour[j];
+                        int b = tour[j + 1];
+                        double forward = dist[a][first] + dist[tail][b] - dist[a][b];
+                        double reversed = dist[a][tail] + dist[first][b] - dist[a][b];
+                        double insertCost = Math.min(forward, reversed);
+                        if (insertCost - removeGain < -EPS) {
+                            moveSegment(tour, i, segEnd, j, reversed < forward);
+                            improved = true;
+                            improvedAny = true;
+                            break;
+                        }
+                    }
+                }
+            }
+        }
+        return improvedAny;
+    }
+
+    // Đưa cụm tour[from..to] vào giữa tour[after] và tour[after+1]
+    private static void moveSegment(int[] tour, int from, int to, int after, boolean reverseSegment) {
+        int len = to - from + 1;
+        int[] segment = new int[len];
+        for (int k = 0; k < len; k++) {
+            segment[k] = tour[reverseSegment ? to - k : from + k];
+        }
+        int[] rest = new int[tour.length - len];
+        int r = 0;
+        int insertAt = -1;
+        for (int k = 0; k < tour.length; k++) {
+            if (k >= from && k <= to) {
+                continue;
+            }
+            rest[r++] = tour[k];
+            if (k == after) {
+                insertAt = r;
+            }
+        }
+        System.arraycopy(rest, 0, tour, 0, insertAt);
+        System.arraycopy(segment, 0, tour, insertAt, len);
+        System.arraycopy(rest, insertAt, tour, insertAt + len, rest.length - insertAt);
+    }
+
+    private static void reverse(int[] tour, int from, int to) {
+        while (from < to) {
+            int tmp = tour[from];
+            tour[from++] = tour[to];
+            tour[to--] = tmp;
+        }
+    }
+}
@@ -0,0 +1,142 @@
+package com.fastfood.management.service.impl;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Timer wheel phân cấp: level 0 có wheelSize ô, mỗi ô rộng tickMs; level k rộng gấp wheelSize lần level k-1.
+ * Thêm/hủy timer O(1), mỗi tick chỉ xử lý một ô; timer ở level cao được chuyển xuống level thấp khi
+ * ô của nó tới lượt. Timer bắn trễ tối đa một tick, không bao giờ sớm. Mỗi key có tối đa một timer,
+ * đặt lại thì timer cũ bị hủy (hủy lười: bỏ qua khi tới ô).
+ * Không thread-safe, caller tự đồng bộ.
+ */
+public class HierarchicalTimerWheel<K> {
+
+    private final long[] tickMs;
+    private final int wheelSize;
+    private final List<ArrayDeque<Timer<K>>[]> levels;
+    private final Map<K, Timer<K>> active = new HashMap<>();
+    private final List<Timer<K>> due = new ArrayList<>();
+
+    // Đầu ô level 0 chưa bắn
+    private long currentMs;
+
+    @SuppressWarnings("unchecked")
+    public HierarchicalTimerWheel(long tickMs, int wheelSize, int levelCount, long startMs) {
+        if (tickMs <= 0 || wheelSize < 2 || levelCount < 1) {
+            throw new IllegalArgumentException("Invalid timer wheel geometry");
+        }
+        this.wheelSize = wheelSize;
+        this.tickMs = new long[levelCount];
+        this.levels = new ArrayList<>(levelCount);
+        long tick = tickMs;
+        for (int level = 0; level < levelCount; level++) {
+            this.tickMs[level] = tick;
+            ArrayDeque<Timer<K>>[] buckets = new ArrayDeque[wheelSize];
+            for (int i = 0; i < wheelSize; i++) {
+                buckets[i] = new ArrayDeque<>();
+            }
+            levels.add(buckets);
+            tick = Math.multiplyExact(tick, wheelSize);
+        }
+        this.currentMs = Math.floorDiv(startMs, tickMs) * tickMs;
+    }
+
+    /**
+     * Đặt (hoặc đặt lại) deadline cho key
+     */
+    public void schedule(K key, long deadlineMs) {
+        Timer<K> timer = new Timer<>(key, deadlineMs);
+        active.put(key, timer);
+        place(timer);
+    }
+
+    public boolean cancel(K key) {
+        return active.remove(key) != null;
+    }
+
+    public boolean contains(K key) {
+        return active.containsKey(key);
+    }
+
+    public int size() {
+        return active.size();
+    }
+
+    /**
+     * Tiến đồng hồ tới nowMs và trả về các key đã tới hạn, theo thứ tự ô
+     */
+    public List<K> advanceTo(long nowMs) {
+        List<K> fired = new ArrayList<>();
+        if (!due.isEmpty()) {
+            List<Timer<K>> ready = new ArrayList<>(due);
+            due.clear();
+            ready.forEach(timer -> fire(timer, fired));
+        }
+        long tick = tickMs[0];
+        while (currentMs + tick <= nowMs) {
+            // Ô hiện tại chứa deadline trong [currentMs, currentMs + tick), đều đã qua
+            ArrayDeque<Timer<K>> bucket = levels.get(0)[slot(0, currentMs)];
+            Timer<K> timer;
+            while ((timer = bucket.poll()) != null) {
+                fire(timer, fired);
+            }
+            currentMs += tick;
+            // Ô level cao bắt đầu tại currentMs được rải xuống các level thấp, từ trên xuống
+            for (int level = tickMs.length - 1; level >= 1; level--) {
+                if (currentMs % tickMs[level] == 0) {
+                    ArrayDeque<Timer<K>> upper = levels.get(level)[slot(level, currentMs)];
+                    List<Timer<K>> cascading = new ArrayList<>(upper);
+                    upper.clear();
+                    for (Timer<K> pending : cascading) {
+                        if (active.get(pending.key) == pending) {
+                            place(pending);
+                        }
+                    }
+                }
+            }
+        }
+        if (!due.isEmpty()) {
+            List<Timer<K>> ready = new ArrayList<>(due);
+            due.clear();
+            ready.forEach(t -> fire(t, fired));
+        }
+        return fired;
+    }
+
+    private void place(Timer<K> timer) {
+        if (timer.deadlineMs < currentMs) {
+            due.add(timer);
+            return;
+        }
+        int top = tickMs.length - 1;
+        for (int level = 0; level <= top; level++) {
+            long tick = tickMs[level];
+            long windowStart = Math.floorDiv(currentMs, tick) * tick;
+            if (timer.deadlineMs < windowStart + tick * wheelSize) {
+                levels.get(level)[slot(level, timer.deadlineMs)].add(timer);
+                return;
+            }
+        }
+        // Xa hơn tầm của level cao nhất: gửi vào ô cuối, sẽ được đặt lại khi ô đó tới lượt
+        long tick = tickMs[top];
+        long lastSlotStart = Math.floorDiv(currentMs, tick) * tick + tick * (wheelSize - 1);
+        levels.get(top)[slot(top, lastSlotStart)].add(timer);
+    }
+
+    private void fire(Timer<K> timer, List<K> fired) {
+        if (active.get(timer.key) == timer) {
+            active.remove(timer.key);
+            fired.add(timer.key);
+        }
+    }
+
+    private int slot(int level, long timeMs) {
+        return (int) Math.floorMod(Math.floorDiv(timeMs, tickMs[level]), (long) wheelSize);
+    }
+
+    private record Timer<K>(K key, long deadlineMs) {}
+}
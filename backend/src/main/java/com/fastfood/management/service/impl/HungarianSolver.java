@@ -0,0 +1,107 @@
+package com.fastfood.management.service.impl;
+
+import java.util.Arrays;
+
+/**
+ * Bài toán gán tối ưu (Hungarian / Kuhn-Munkres, O(n^2 * m)) cho ma trận chi phí hàng x cột.
+ * Ma trận chữ nhật được hỗ trợ: mỗi hàng nhận tối đa một cột và ngược lại.
+ * Cặp không khả thi nên mang chi phí lớn hữu hạn (không dùng Infinity) và được lọc bởi caller.
+ */
+public final class HungarianSolver {
+
+    private HungarianSolver() {
+    }
+
+    /**
+     * @param cost ma trận chi phí [rows][cols]
+     * @return assignment[i] = cột được gán cho hàng i, -1 nếu hàng không được gán
+     */
+    public static int[] solve(double[][] cost) {
+        int rows = cost.length;
+        if (rows == 0) {
+            return new int[0];
+        }
+        int cols = cost[0].length;
+        if (cols == 0) {
+            int[] none = new int[rows];
+            Arrays.fill(none, -1);
+            return none;
+        }
+        if (rows > cols) {
+            // Thuật toán yêu cầu rows <= cols: giải trên ma trận chuyển vị rồi đảo kết quả
+            double[][] transposed = new double[cols][rows];
+            for (int i = 0; i < rows; i++) {
+                for (int j = 0; j < cols; j++) {
+                    transposed[j][i] = cost[i][j];
+                }
+            }
+            int[] byCol = solve(transposed);
+            int[] result = new int[rows];
+            Arrays.fill(result, -1);
+            for (int j = 0; j < cols; j++) {
+                if (byCol[j] >= 0) {
+                    result[byCol[j]] = j;
+                }
+            }
+            return result;
+        }
+
+        // Thế vị u (hàng), v (cột); p[j] = hàng đang giữ cột j (chỉ số từ 1, 0 = cột ảo)
+        double[] u = new double[rows + 1];
+        double[] v = new double[cols + 1];
+        int[] p = new int[cols + 1];
+        int[] way = new int[cols + 1];
+        double[] minv = new double[cols + 1];
+        boolean[] used = new boolean[cols + 1];
+
+        for (int i = 1; i <= rows; i++) {
+            p[0] = i;
+            int j0 = 0;
+            Arrays.fill(minv, Double.MAX_VALUE);
+            Arrays.fill(used, false);
+            do {
+                used[j0] = true;
+                int i0 = p[j0];
+                double delta = Double.MAX_VALUE;
+                int j1 = 0;
+                for (int j = 1; j <= cols; j++) {
+                    if (!used[j]) {
+                        double cur = cost[i0 - 1][j - 1] - u[i0] - v[j];
+                        if (cur < minv[j]) {
+                            minv[j] = cur;
+                            way[j] = j0;
+                        }
+                        if (minv[j] < delta) {
+                            delta = minv[j];
+                            j1 = j;
+                        }
+                    }
+                }
+                for (int j = 0; j <= cols; j++) {
+                    if (used[j]) {
+                        u[p[j]] += delta;
+                        v[j] -= delta;
+                    } else {
+                        minv[j] -= delta;
+                    }
+                }
+                j0 = j1;
+            } while (p[j0] != 0);
+            // Đảo đường tăng
+            do {
+                int j1 = way[j0];
+                p[j0] = p[j1];
+                j0 = j1;
+            } while (j0 != 0);
+        }
+
+        int[] result = new int[rows];
+        Arrays.fill(result, -1);
+        for (int j = 1; j <= cols; j++) {
+            if (p[j] != 0) {
+                result[p[j] - 1] = j - 1;
+            }
+        }
+        return result;
+    }
+}
@@ -0,0 +1,182 @@
+package com.fastfood.management.service.impl;
+
+import utils.GeoUtils;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Lưới ô vuông (lat/lng) chỉ chứa các drone IDLE để tìm drone gần cửa hàng mà không quét toàn fleet.
+ * Truy vấn chỉ duyệt các ô phủ bán kính tìm kiếm nên chi phí phụ thuộc mật độ drone quanh điểm,
+ * không phụ thuộc tổng số drone.
+ */
+public class IdleDroneIndex {
+
+    private final double cellDeg;
+    private final Map<Long, Set<Long>> cells = new HashMap<>();
+    private final Map<Long, Entry> entries = new HashMap<>();
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    public IdleDroneIndex(double cellDeg) {
+        this.cellDeg = cellDeg;
+    }
+
+    /**
+     * Thêm/cập nhật drone; drone không IDLE hoặc thiếu tọa độ sẽ bị gỡ khỏi index
+     */
+    public void update(Long droneId, boolean idle, Double lat, Double lng) {
+        if (!idle || lat == null || lng == null) {
+            remove(droneId);
+            return;
+        }
+        long cell = cellKey(lat, lng);
+        lock.writeLock().lock();
+        try {
+            Entry previous = entries.put(droneId, new Entry(droneId, lat, lng, cell));
+            if (previous != null && previous.cell() != cell) {
+                removeFromCell(previous.cell(), droneId);
+            }
+            if (previous == null || previous.cell() != cell) {
+                cells.computeIfAbsent(cell, k -> new HashSet<>()).add(droneId);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void remove(Long droneId) {
+        lock.writeLock().lock();
+        try {
+            Entry previous = entries.remove(droneId);
+            if (previous != null) {
+                removeFromCell(previous.cell(), droneId);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return entries.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Các drone IDLE trong bán kính, sắp xếp theo khoảng cách tăng dần
+     */
+    public List<Neighbor> withinRadius(double lat, double lng, double radiusKm) {
+        int rowSpan = (int) Math.ceil(radiusKm / (GeoUtils.KM_PER_DEG_LAT * cellDeg));
+        int colSpan = (int) Math.ceil(radiusKm / (GeoUtils.kmPerDegLng(lat) * cellDeg));
+        List<Neighbor> result = new ArrayList<>();
+        lock.readLock().lock();
+        try {
+            int row = row(lat);
+            int col = col(lng);
+            for (int r = row - rowSpan; r <= row + rowSpan; r++) {
+                for (int c = col - colSpan; c <= col + colSpan; c++) {
+                    collect(key(r, c), lat, lng, radiusKm, result);
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        result.sort(Comparator.comparingDouble(Neighbor::distanceKm));
+        return result;
+    }
+
+    /**
+     * k drone IDLE gần nhất trong bán kính tối đa: mở rộng dần theo vòng ô cho đến khi
+     * đủ k drone và vòng kế tiếp không thể chứa drone gần hơn
+     */
+    public List<Neighbor> nearest(double lat, double lng, int k, double maxRadiusKm) {
+        List<Neighbor> found = new ArrayList<>();
+        if (k <= 0) {
+            return found;
+        }
+        double cellKm = Math.min(GeoUtils.KM_PER_DEG_LAT, GeoUtils.kmPerDegLng(lat)) * cellDeg;
+        int maxRing = (int) Math.ceil(maxRadiusKm / cellKm) + 1;
+        lock.readLock().lock();
+        try {
+            if (entries.isEmpty()) {
+                return found;
+            }
+            int row = row(lat);
+            int col = col(lng);
+            for (int ring = 0; ring <= maxRing; ring++) {
+                for (int r = row - ring; r <= row + ring; r++) {
+                    for (int c = col - ring; c <= col + ring; c++) {
+                        if (Math.abs(r - row) == ring || Math.abs(c - col) == ring) {
+                            collect(key(r, c), lat, lng, maxRadiusKm, found);
+                        }
+                    }
+                }
+                // Mọi điểm ngoài vòng hiện tại cách tâm ít nhất ring * cellKm
+                if (found.size() >= k) {
+                    found.sort(Comparator.comparingDouble(Neighbor::distanceKm));
+                    if (found.get(k - 1).distanceKm() <= ring * cellKm) {
+                        break;
+                    }
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        found.sort(Comparator.comparingDouble(Neighbor::distanceKm));
+        return found.size() > k ? new ArrayList<>(found.subList(0, k)) : found;
+    }
+
+    private void collect(long cell, double lat, double lng, double radiusKm, List<Neighbor> out) {
+        Set<Long> ids = cells.get(cell);
+        if (ids == null) {
+            return;
+        }
+        for (Long id : ids) {
+            Entry e = entries.get(id);
+            double d = GeoUtils.haversineKm(lat, lng, e.lat(), e.lng());
+            if (d <= radiusKm) {
+                out.add(new Neighbor(id, e.lat(), e.lng(), d));
+            }
+        }
+    }
+
+    private void removeFromCell(long cell, Long droneId) {
+        Set<Long> ids = cells.get(cell);
+        if (ids != null) {
+            ids.remove(droneId);
+            if (ids.isEmpty()) {
+                cells.remove(cell);
+            }
+        }
+    }
+
+    private int row(double lat) {
+        return (int) Math.floor(lat / cellDeg);
+    }
+
+    private int col(double lng) {
+        return (int) Math.floor(lng / cellDeg);
+    }
+
+    private long cellKey(double lat, double lng) {
+        return key(row(lat), col(lng));
+    }
+
+    private static long key(int row, int col) {
+        return ((long) row << 32) | (col & 0xffffffffL);
+    }
+
+    private record Entry(Long droneId, double lat, double lng, long cell) {}
+
+    public record Neighbor(Long droneId, double lat, double lng, double distanceKm) {}
+}
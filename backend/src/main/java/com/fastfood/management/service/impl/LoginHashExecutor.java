@@ -0,0 +1,167 @@
+package com.fastfood.management.service.impl;
+
+import com.fastfood.management.entity.User;
+import com.fastfood.management.exception.LoginThrottledException;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.stereotype.Component;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Kiểm mật khẩu BCrypt khi đăng nhập trên pool riêng có giới hạn thay vì trực tiếp trên thread servlet, để một
+ * đợt đăng nhập dồn dập chỉ chiếm tối đa hashThreads lõi CPU. Hàng đợi đầy hoặc chờ quá timeoutMs thì từ chối
+ * ngay bằng LoginThrottledException (429 + Retry-After). Khi rehash bật và hash lưu trong DB yếu hơn cấu hình
+ * hiện tại (auth.bcrypt.strength), mật khẩu đúng được băm lại ở nền và ghi đè.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class LoginHashExecutor {
+
+    private final PasswordEncoder passwordEncoder;
+    private final JdbcTemplate jdbcTemplate;
+    private final PrincipalUserCache principalUserCache;
+
+    @Value("${auth.login.hashThreads:0}")
+    private int hashThreads;
+
+    @Value("${auth.login.queueCapacity:64}")
+    private int queueCapacity;
+
+    @Value("${auth.login.timeoutMs:5000}")
+    private long timeoutMs;
+
+    @Value("${auth.login.retryAfterSeconds:2}")
+    private int retryAfterSeconds;
+
+    @Value("${auth.login.rehash:false}")
+    private boolean rehash;
+
+    private ThreadPoolExecutor workers;
+
+    private final AtomicLong verified = new AtomicLong();
+    private final AtomicLong rejected = new AtomicLong();
+    private final AtomicLong timedOut = new AtomicLong();
+    private final AtomicLong rehashed = new AtomicLong();
+    private final AtomicLong hashNanos = new AtomicLong();
+    private final AtomicLong maxHashNanos = new AtomicLong();
+    private final AtomicLong waitNanos = new AtomicLong();
+
+    @PostConstruct
+    void start() {
+        // Mặc định một nửa số lõi: phần còn lại để phục vụ đơn hàng / tracking
+        int threads = hashThreads > 0 ? hashThreads : Math.max(1, Runtime.getRuntime().availableProcessors() / 2);
+        AtomicInteger threadCount = new AtomicInteger();
+        workers = new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(Math.max(1, queueCapacity)), r -> {
+                    Thread thread = new Thread(r, "login-hash-" + threadCount.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                }, new ThreadPoolExecutor.AbortPolicy());
+        log.info("Login hash pool: {} threads, queue {}", threads, queueCapacity);
+    }
+
+    @PreDestroy
+    void stop() {
+        workers.shutdownNow();
+    }
+
+    /**
+     * Kiểm rawPassword với hash của user trên pool; thread gọi chờ tối đa timeoutMs
+     */
+    public boolean matches(User user, String rawPassword) {
+        String encoded = user.getPasswordHash();
+        long submittedAt = System.nanoTime();
+        Future<Boolean> result;
+        try {
+            result = workers.submit(() -> {
+                long startedAt = System.nanoTime();
+                waitNanos.addAndGet(startedAt - submittedAt);
+                try {
+                    return passwordEncoder.matches(rawPassword, encoded);
+                } finally {
+                    record(System.nanoTime() - startedAt);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            rejected.incrementAndGet();
+            throw new LoginThrottledException(retryAfterSeconds);
+        }
+
+        boolean matches;
+        try {
+            matches = result.get(timeoutMs, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            result.cancel(true);
+            timedOut.incrementAndGet();
+            throw new LoginThrottledException(retryAfterSeconds);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new LoginThrottledException(retryAfterSeconds);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Password verification failed: " + e.getCause().getMessage(), e.getCause());
+        }
+
+        if (matches && rehash && passwordEncoder.upgradeEncoding(encoded)) {
+            scheduleRehash(user.getId(), rawPassword, encoded);
+        }
+        return matches;
+    }
+
+    public Map<String, Object> getStats() {
+        long count = verified.get();
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("threads", workers.getMaximumPoolSize());
+        stats.put("active", workers.getActiveCount());
+        stats.put("queueDepth", workers.getQueue().size());
+        stats.put("queueCapacity", queueCapacity);
+        stats.put("verified", count);
+        stats.put("rejected", rejected.get());
+        stats.put("timedOut", timedOut.get());
+        stats.put("rehashed", rehashed.get());
+        stats.put("avgHashMs", count > 0 ? hashNanos.get() / count / 1_000_000.0 : 0.0);
+        stats.put("maxHashMs", maxHashNanos.get() / 1_000_000.0);
+        stats.put("avgQueueWaitMs", count > 0 ? waitNanos.get() / count / 1_000_000.0 : 0.0);
+        return stats;
+    }
+
+    private void record(long nanos) {
+        verified.incrementAndGet();
+        hashNanos.addAndGet(nanos);
+        maxHashNanos.accumulateAndGet(nanos, Math::max);
+    }
+
+    // Băm lại ở nền, bỏ qua nếu pool đang đầy (lần đăng nhập sau sẽ thử lại)
+    private void scheduleRehash(Long userId, String rawPassword, String previous) {
+        try {
+            workers.execute(() -> {
+                String upgraded = passwordEncoder.encode(rawPassword);
+                // Chỉ ghi đè nếu hash chưa bị đổi (vd. user vừa đổi mật khẩu)
+                int updated = jdbcTemplate.update("UPDATE users SET password_hash = ? WHERE id = ? AND password_hash = ?",
+                        upgraded, userId, previous);
+                if (updated > 0) {
+                    rehashed.incrementAndGet();
+                    principalUserCache.evict(userId);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            log.debug("Login hash pool full, skipping rehash for user {}", userId);
+        }
+    }
+}
@@ -0,0 +1,135 @@
+package com.fastfood.management.service.impl;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fastfood.management.entity.Category;
+import com.fastfood.management.entity.MenuItem;
+import com.fastfood.management.entity.Store;
+import com.fastfood.management.repository.CategoryRepository;
+import com.fastfood.management.repository.MenuItemRepository;
+import com.fastfood.management.repository.StoreRepository;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Sort;
+import org.springframework.stereotype.Service;
+import org.springframework.util.DigestUtils;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Catalog menu theo cửa hàng (món đang bán + danh mục) và danh sách cửa hàng, giữ trong bộ nhớ.
+ * Mỗi snapshot có ETag mạnh là hash nội dung nên giống nhau giữa các node và qua restart; client gửi
+ * If-None-Match trùng thì nhận 304 mà không chạm DB. Ghi qua MenuController/StoreController xóa snapshot
+ * liên quan; ttlSeconds giới hạn độ trễ khi ghi xảy ra ở node khác.
+ */
+@Service
+@RequiredArgsConstructor
+public class MenuCatalogCache {
+
+    // Khóa của catalog gộp mọi cửa hàng (storeId = null)
+    private static final long ALL_STORES = 0L;
+
+    private final MenuItemRepository menuItemRepository;
+    private final CategoryRepository categoryRepository;
+    private final StoreRepository storeRepository;
+    private final ObjectMapper objectMapper;
+
+    @Value("${menu.cache.ttlSeconds:300}")
+    private long ttlSeconds;
+
+    private final Map<Long, StoreCatalog> catalogs = new ConcurrentHashMap<>();
+    private volatile StoreList stores;
+
+    /**
+     * @param store null khi là catalog gộp hoặc cửa hàng không tồn tại (exists = false)
+     */
+    public record StoreCatalog(Long storeId, Store store, boolean exists, List<MenuItem> items,
+                               Map<Long, MenuItem> itemsById, List<Category> categories, String etag,
+                               long loadedAtNanos) {}
+
+    public record StoreList(List<Store> stores, String etag, long loadedAtNanos) {}
+
+    /**
+     * Catalog của cửa hàng, storeId = null cho mọi cửa hàng
+     */
+    public StoreCatalog catalog(Long storeId) {
+        long key = storeId != null ? storeId : ALL_STORES;
+        StoreCatalog cached = catalogs.get(key);
+        if (cached != null && fresh(cached.loadedAtNanos())) {
+            return cached;
+        }
+        // compute giữ khóa theo key: nhiều request trượt cache cùng lúc chỉ nạp một lần
+        return catalogs.compute(key, (k, current) ->
+                current != null && current != cached && fresh(current.loadedAtNanos()) ? current : load(storeId));
+    }
+
+    public StoreList stores() {
+        StoreList cached = stores;
+        if (cached != null && fresh(cached.loadedAtNanos())) {
+            return cached;
+        }
+        synchronized (this) {
+            if (stores == null || stores == cached || !fresh(stores.loadedAtNanos())) {
+                List<Store> all = List.copyOf(storeRepository.findAll(Sort.by("id")));
+                stores = new StoreList(all, etagOf(all), System.nanoTime());
+            }
+            return stores;
+        }
+    }
+
+    /**
+     * Bỏ catalog của các cửa hàng bị ảnh hưởng (và catalog gộp) sau khi món/danh mục thay đổi
+     */
+    public void invalidate(Long... storeIds) {
+        for (Long storeId : storeIds) {
+            if (storeId != null) {
+                catalogs.remove(storeId);
+            }
+        }
+        catalogs.remove(ALL_STORES);
+    }
+
+    /**
+     * Bỏ toàn bộ: thông tin cửa hàng/danh mục được nhúng trong JSON món của nhiều catalog
+     */
+    public void invalidateAll() {
+        catalogs.clear();
+        stores = null;
+    }
+
+    private StoreCatalog load(Long storeId) {
+        Store store = null;
+        if (storeId != null) {
+            store = storeRepository.findById(storeId).orElse(null);
+            if (store == null) {
+                return new StoreCatalog(storeId, null, false, List.of(), Map.of(), List.of(), etagOf(List.of()), System.nanoTime());
+            }
+        }
+        List<MenuItem> items = List.copyOf(menuItemRepository.findAvailableForCatalog(storeId));
+        List<Category> categories = List.copyOf(storeId != null
+                ? categoryRepository.findByStoreIdOrderByIdAsc(storeId)
+                : categoryRepository.findAll(Sort.by("id")));
+        String etag = etagOf(List.of(storeId != null ? storeId : ALL_STORES, items, categories));
+        Map<Long, MenuItem> itemsById = items.stream()
+                .collect(Collectors.toUnmodifiableMap(MenuItem::getId, Function.identity()));
+        return new StoreCatalog(storeId, store, true, items, itemsById, categories, etag, System.nanoTime());
+    }
+
+    private boolean fresh(long loadedAtNanos) {
+        return System.nanoTime() - loadedAtNanos < TimeUnit.SECONDS.toNanos(ttlSeconds);
+    }
+
+    // Hash của đúng JSON sẽ trả về: cùng nội dung thì cùng ETag
+    private String etagOf(Object content) {
+        try {
+            return "\"" + DigestUtils.md5DigestAsHex(objectMapper.writeValueAsBytes(content)) + "\"";
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Menu catalog is not serializable: " + e.getMessage(), e);
+        }
+    }
+}
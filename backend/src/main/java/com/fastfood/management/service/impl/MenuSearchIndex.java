@@ -0,0 +1,325 @@
+package com.fastfood.management.service.impl;
+
+import com.fastfood.management.entity.MenuItem;
+import com.fastfood.management.repository.MenuItemRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.regex.Pattern;
+
+/**
+ * Chỉ mục tìm kiếm món trong bộ nhớ trên tên, mô tả và tên danh mục của các món đang bán.
+ * Văn bản được bỏ dấu tiếng Việt ("Gà rán" -> "ga ran") rồi tách từ; từ khóa từ 3 ký tự tra theo trigram
+ * (khớp chuỗi con trong từ), từ khóa ngắn hơn tra theo tiền tố từ. Mọi từ khóa phải khớp; kết quả xếp hạng
+ * theo trường khớp (tên > danh mục > mô tả) và độ khớp (trùng từ > tiền tố > chuỗi con).
+ * Chi phí tra cứu tỉ lệ với số món khớp chứ không với kích thước menu.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class MenuSearchIndex {
+
+    private static final Pattern MARKS = Pattern.compile("\\p{M}+");
+    private static final Pattern NON_WORD = Pattern.compile("[^a-z0-9]+");
+    private static final int GRAM = 3;
+
+    private final MenuItemRepository menuItemRepository;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private Index index = new Index();
+
+    /**
+     * Bỏ dấu, chữ thường, gộp ký tự không phải chữ/số thành một khoảng trắng
+     */
+    public static String fold(String text) {
+        if (text == null || text.isEmpty()) {
+            return "";
+        }
+        String decomposed = Normalizer.normalize(text.replace('đ', 'd').replace('Đ', 'D'), Normalizer.Form.NFD);
+        String folded = MARKS.matcher(decomposed).replaceAll("").toLowerCase(java.util.Locale.ROOT);
+        return NON_WORD.matcher(folded).replaceAll(" ").trim();
+    }
+
+    /**
+     * Id các món khớp query theo thứ tự hạng giảm dần; storeId = null để tìm mọi cửa hàng
+     */
+    public List<Long> search(String query, Long storeId) {
+        String foldedQuery = fold(query);
+        List<String> terms = foldedQuery.isEmpty() ? List.of() : List.of(foldedQuery.split(" "));
+        lock.readLock().lock();
+        try {
+            return index.search(foldedQuery, new ArrayList<>(new LinkedHashSet<>(terms)), storeId);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return index.docs.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Dựng lại toàn bộ từ danh sách món; món không bán bị bỏ qua
+     */
+    public void replaceAll(Collection<MenuItem> items) {
+        Index rebuilt = new Index();
+        items.forEach(rebuilt::put);
+        lock.writeLock().lock();
+        try {
+            index = rebuilt;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    @Scheduled(fixedDelayString = "${menu.search.rebuildMs:300000}", initialDelayString = "${menu.search.rebuildMs:300000}")
+    public void rebuild() {
+        try {
+            long startedNanos = System.nanoTime();
+            replaceAll(menuItemRepository.findAvailableForCatalog(null));
+            log.debug("Menu search index rebuilt: {} items in {} ms", size(), (System.nanoTime() - startedNanos) / 1_000_000);
+        } catch (Exception e) {
+            log.warn("Menu search index rebuild failed: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Nạp lại các món sau khi ghi (kèm store, category) và cập nhật chỉ mục tại chỗ
+     */
+    public void refresh(Collection<Long> itemIds) {
+        if (itemIds.isEmpty()) {
+            return;
+        }
+        List<MenuItem> items = menuItemRepository.findAllWithStoreByIdIn(itemIds);
+        lock.writeLock().lock();
+        try {
+            itemIds.forEach(index::remove);
+            items.forEach(index::put);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void remove(Long itemId) {
+        lock.writeLock().lock();
+        try {
+            index.remove(itemId);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Tên danh mục đổi: nạp lại các món thuộc danh mục
+     */
+    public void refreshCategory(Long categoryId) {
+        refresh(itemsOfCategory(categoryId));
+    }
+
+    public void removeCategory(Long categoryId) {
+        List<Long> ids = itemsOfCategory(categoryId);
+        lock.writeLock().lock();
+        try {
+            ids.forEach(index::remove);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private List<Long> itemsOfCategory(Long categoryId) {
+        lock.readLock().lock();
+        try {
+            return index.docs.values().stream()
+                    .filter(doc -> categoryId != null && categoryId.equals(doc.categoryId()))
+                    .map(Doc::id)
+                    .toList();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private record Doc(Long id, Long storeId, Long categoryId, String name, Set<String> nameTokens,
+                       String category, String description) {
+
+        Set<String> tokens() {
+            Set<String> all = new HashSet<>(nameTokens);
+            addTokens(all, category);
+            addTokens(all, description);
+            return all;
+        }
+    }
+
+    private static void addTokens(Set<String> target, String folded) {
+        if (!folded.isEmpty()) {
+            target.addAll(List.of(folded.split(" ")));
+        }
+    }
+
+    private static final class Index {
+        private final Map<Long, Doc> docs = new HashMap<>();
+        private final Map<String, Set<Long>> grams = new HashMap<>();
+        private final NavigableMap<String, Set<Long>> tokens = new TreeMap<>();
+
+        void put(MenuItem item) {
+            if (item.getId() == null || !item.isAvailable()) {
+                return;
+            }
+            remove(item.getId());
+            String name = fold(item.getName());
+            Set<String> nameTokens = new HashSet<>();
+            addTokens(nameTokens, name);
+            Doc doc = new Doc(item.getId(),
+                    item.getStore() != null ? item.getStore().getId() : null,
+                    item.getCategory() != null ? item.getCategory().getId() : null,
+                    name, nameTokens,
+                    fold(item.getCategory() != null ? item.getCategory().getName() : null),
+                    fold(item.getDescription()));
+            docs.put(doc.id(), doc);
+            for (String token : doc.tokens()) {
+                tokens.computeIfAbsent(token, t -> new HashSet<>()).add(doc.id());
+                for (int i = 0; i + GRAM <= token.length(); i++) {
+                    grams.computeIfAbsent(token.substring(i, i + GRAM), g -> new HashSet<>()).add(doc.id());
+                }
+            }
+        }
+
+        void remove(Long id) {
+            Doc doc = docs.remove(id);
+            if (doc == null) {
+                return;
+            }
+            for (String token : doc.tokens()) {
+                detach(tokens, token, id);
+                for (int i = 0; i + GRAM <= token.length(); i++) {
+                    detach(grams, token.substring(i, i + GRAM), id);
+                }
+            }
+        }
+
+        List<Long> search(String phrase, List<String> terms, Long storeId) {
+            if (terms.isEmpty()) {
+                return List.of();
+            }
+            // Giao các tập ứng viên, bắt đầu từ tập nhỏ nhất
+            List<Set<Long>> candidateSets = new ArrayList<>(terms.size());
+            for (String term : terms) {
+                Set<Long> candidates = candidates(term);
+                if (candidates.isEmpty()) {
+                    return List.of();
+                }
+                candidateSets.add(candidates);
+            }
+            candidateSets.sort(Comparator.comparingInt(Set::size));
+            List<Scored> scored = new ArrayList<>();
+            for (Long id : candidateSets.get(0)) {
+                Doc doc = docs.get(id);
+                if (doc == null || (storeId != null && !storeId.equals(doc.storeId()))) {
+                    continue;
+                }
+                int score = score(doc, phrase, terms);
+                if (score > 0) {
+                    scored.add(new Scored(id, score));
+                }
+            }
+            scored.sort(Comparator.comparingInt(Scored::score).reversed().thenComparing(Scored::id));
+            return scored.stream().map(Scored::id).toList();
+        }
+
+        private Set<Long> candidates(String term) {
+            if (term.length() < GRAM) {
+                Set<Long> union = new HashSet<>();
+                tokens.subMap(term, true, term + Character.MAX_VALUE, false).values().forEach(union::addAll);
+                return union;
+            }
+            Set<Long> smallest = null;
+            List<Set<Long>> postings = new ArrayList<>();
+            for (int i = 0; i + GRAM <= term.length(); i++) {
+                Set<Long> posting = grams.get(term.substring(i, i + GRAM));
+                if (posting == null) {
+                    return Set.of();
+                }
+                postings.add(posting);
+                if (smallest == null || posting.size() < smallest.size()) {
+                    smallest = posting;
+                }
+            }
+            Set<Long> result = new HashSet<>(smallest);
+            for (Set<Long> posting : postings) {
+                if (posting != smallest) {
+                    result.retainAll(posting);
+                }
+            }
+            return result;
+        }
+
+        // 0 nếu có từ khóa không khớp trường nào (ứng viên trigram/tiền tố chưa chắc khớp thật)
+        private static int score(Doc doc, String phrase, List<String> terms) {
+            int score = 0;
+            for (String term : terms) {
+                int best;
+                if (doc.nameTokens().contains(term)) {
+                    best = 8;
+                } else if (doc.nameTokens().stream().anyMatch(token -> token.startsWith(term))) {
+                    best = 6;
+                } else if (term.length() >= GRAM && doc.name().contains(term)) {
+                    best = 4;
+                } else if (matches(doc.category(), term)) {
+                    best = 2;
+                } else if (matches(doc.description(), term)) {
+                    best = 1;
+                } else {
+                    return 0;
+                }
+                score += best;
+            }
+            // Cả cụm từ nằm liền trong tên
+            if (terms.size() > 1 && doc.name().contains(phrase)) {
+                score += 5;
+            }
+            return score;
+        }
+
+        private static boolean matches(String folded, String term) {
+            if (term.length() >= GRAM) {
+                return folded.contains(term);
+            }
+            return folded.startsWith(term) || folded.contains(" " + term);
+        }
+
+        private static void detach(Map<String, Set<Long>> postings, String key, Long id) {
+            Set<Long> posting = postings.get(key);
+            if (posting != null) {
+                posting.remove(id);
+                if (posting.isEmpty()) {
+                    postings.remove(key);
+                }
+            }
+        }
+    }
+
+    private record Scored(Long id, int score) {}
+}
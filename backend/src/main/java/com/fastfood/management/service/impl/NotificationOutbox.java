@@ -0,0 +1,156 @@
+package com.fastfood.management.service.impl;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PostConstruct;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.orm.jpa.EntityManagerFactoryUtils;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Ghi thông báo STOMP vào bảng notification_outbox trong transaction hiện tại thay vì gửi ngay.
+ * Thông báo của một transaction được gom lại và ghi bằng một INSERT nhiều dòng lúc commit; rollback thì
+ * không có gì được gửi. Sau commit OutboxRelay được đánh thức để phát.
+ * Id là số thứ tự lấy từ dòng đếm outbox_sequence ngay trước commit: transaction giữ khóa dòng đếm tới lúc commit
+ * nên id tăng đúng theo thứ tự commit và không có id nhỏ hơn nào còn chưa commit khi một id lớn hơn đã thấy được.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class NotificationOutbox {
+
+    private static final String INSERT_PREFIX = "INSERT INTO notification_outbox "
+            + "(id, aggregate_id, destination, payload, created_at) VALUES ";
+    private static final String ROW_PLACEHOLDER = "(?, ?, ?, ?, ?)";
+    private static final int SEQUENCE_ROW = 1;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final ObjectMapper objectMapper;
+    private final EntityManagerFactory entityManagerFactory;
+    private final PlatformTransactionManager transactionManager;
+    private final OutboxRelay outboxRelay;
+
+    private final AtomicLong enqueued = new AtomicLong();
+    private TransactionTemplate transactionTemplate;
+
+    @PostConstruct
+    void init() {
+        transactionTemplate = new TransactionTemplate(transactionManager);
+        // Dòng đếm được tạo một lần, bắt đầu sau id lớn nhất đang có trong bảng
+        try {
+            jdbcTemplate.update("INSERT INTO outbox_sequence (id, next_value) "
+                    + "SELECT ?, COALESCE(MAX(id), 0) FROM notification_outbox", SEQUENCE_ROW);
+        } catch (DuplicateKeyException e) {
+            // đã có
+        }
+    }
+
+    /**
+     * Đăng ký một thông báo cho aggregateId (id đơn hàng, có thể null) tới destination.
+     * Ngoài transaction thì ghi ngay và đánh thức relay.
+     */
+    public void enqueue(Long aggregateId, String destination, Object payload) {
+        Pending message = new Pending(aggregateId, destination, serialize(payload), LocalDateTime.now());
+        enqueued.incrementAndGet();
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            transactionTemplate.executeWithoutResult(status -> write(List.of(message)));
+            outboxRelay.wakeUp();
+            return;
+        }
+        PendingBatch batch = (PendingBatch) TransactionSynchronizationManager.getResource(this);
+        if (batch == null) {
+            batch = new PendingBatch();
+            TransactionSynchronizationManager.bindResource(this, batch);
+            TransactionSynchronizationManager.registerSynchronization(batch);
+        }
+        batch.messages.add(message);
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = outboxRelay.getStats();
+        stats.put("enqueued", enqueued.get());
+        return stats;
+    }
+
+    private String serialize(Object payload) {
+        try {
+            return objectMapper.writeValueAsString(payload);
+        } catch (JsonProcessingException e) {
+            throw new IllegalArgumentException("Notification payload is not serializable: " + e.getMessage(), e);
+        }
+    }
+
+    private void write(List<Pending> messages) {
+        if (messages.isEmpty()) {
+            return;
+        }
+        long id = reserveIds(messages.size());
+        StringBuilder sql = new StringBuilder(INSERT_PREFIX.length() + messages.size() * (ROW_PLACEHOLDER.length() + 1));
+        sql.append(INSERT_PREFIX);
+        Object[] args = new Object[messages.size() * 5];
+        int i = 0;
+        for (Pending message : messages) {
+            if (i > 0) {
+                sql.append(',');
+            }
+            sql.append(ROW_PLACEHOLDER);
+            args[i++] = id++;
+            args[i++] = message.aggregateId();
+            args[i++] = message.destination();
+            args[i++] = message.payload();
+            args[i++] = Timestamp.valueOf(message.createdAt());
+        }
+        jdbcTemplate.update(sql.toString(), args);
+    }
+
+    /**
+     * Giữ n id liên tiếp, trả về id đầu tiên. Khóa dòng đếm giữ tới khi transaction kết thúc.
+     */
+    private long reserveIds(int count) {
+        jdbcTemplate.update("UPDATE outbox_sequence SET next_value = next_value + ? WHERE id = ?", count, SEQUENCE_ROW);
+        Long last = jdbcTemplate.queryForObject("SELECT next_value FROM outbox_sequence WHERE id = ?", Long.class, SEQUENCE_ROW);
+        return last - count + 1;
+    }
+
+    private record Pending(Long aggregateId, String destination, String payload, LocalDateTime createdAt) {}
+
+    private class PendingBatch implements TransactionSynchronization {
+        private final List<Pending> messages = new ArrayList<>();
+
+        @Override
+        public void beforeCommit(boolean readOnly) {
+            // Flush trước để dòng đếm là khóa lấy sau cùng, giữ trong khoảng ngắn nhất trước commit
+            EntityManager entityManager = EntityManagerFactoryUtils.getTransactionalEntityManager(entityManagerFactory);
+            if (entityManager != null) {
+                entityManager.flush();
+            }
+            write(messages);
+        }
+
+        @Override
+        public void afterCompletion(int status) {
+            TransactionSynchronizationManager.unbindResourceIfPossible(NotificationOutbox.this);
+            if (status == STATUS_COMMITTED) {
+                outboxRelay.wakeUp();
+            } else {
+                log.debug("Discarded {} notifications of a rolled back transaction", messages.size());
+            }
+        }
+    }
+}
@@ -0,0 +1,49 @@
+package com.fastfood.management.service.impl;
+
+import com.fastfood.management.entity.id.TimeOrderedIdGenerator;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Sinh mã đơn ORD-YYYYMMDD-N trước khi insert, để đơn được ghi một lần với đầy đủ mã.
+ * N = mili-giây trong ngày * 1000 + nodeId (3 chữ số cuối, đủ cho cả dải 0-255 của app.id.nodeId),
+ * tăng đơn điệu trong một instance (nhiều đơn cùng mili-giây sẽ mượn mili-giây kế tiếp), nên không trùng
+ * giữa các lần khởi động và giữa các instance có nodeId khác nhau.
+ */
+@Component
+public class OrderCodeGenerator {
+
+    private static final DateTimeFormatter DATE = DateTimeFormatter.BASIC_ISO_DATE;
+    private static final ZoneId ZONE = ZoneId.systemDefault();
+    private static final int NODE_MULTIPLIER = 1000;
+
+    @Value("${app.id.nodeId:0}")
+    private int nodeId;
+
+    // Mốc epoch-ms đã cấp gần nhất
+    private final AtomicLong lastMillis = new AtomicLong();
+
+    @PostConstruct
+    void validateNodeId() {
+        if (nodeId < 0 || nodeId > TimeOrderedIdGenerator.MAX_NODE_ID) {
+            throw new IllegalStateException("app.id.nodeId must be between 0 and "
+                    + TimeOrderedIdGenerator.MAX_NODE_ID + ": " + nodeId);
+        }
+    }
+
+    public String next() {
+        long now = System.currentTimeMillis();
+        long millis = lastMillis.accumulateAndGet(now, (last, current) -> Math.max(last + 1, current));
+        Instant instant = Instant.ofEpochMilli(millis);
+        LocalDate day = instant.atZone(ZONE).toLocalDate();
+        long millisOfDay = millis - day.atStartOfDay(ZONE).toInstant().toEpochMilli();
+        return "ORD-" + day.format(DATE) + "-" + (millisOfDay * NODE_MULTIPLIER + nodeId);
+    }
+}
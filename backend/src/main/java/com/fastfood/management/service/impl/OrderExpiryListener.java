@@ -0,0 +1,95 @@
+package com.fastfood.management.service.impl;
+
+import com.fastfood.management.entity.Order;
+import jakarta.annotation.PostConstruct;
+import jakarta.persistence.EntityManagerFactory;
+import lombok.RequiredArgsConstructor;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.event.service.spi.EventListenerRegistry;
+import org.hibernate.event.spi.EventType;
+import org.hibernate.event.spi.PostInsertEvent;
+import org.hibernate.event.spi.PostInsertEventListener;
+import org.hibernate.event.spi.PostUpdateEvent;
+import org.hibernate.event.spi.PostUpdateEventListener;
+import org.hibernate.persister.entity.EntityPersister;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Đặt lại deadline hết hạn của đơn mỗi khi Hibernate ghi đơn mới hoặc đổi trạng thái / trạng thái thanh toán,
+ * bất kể service nào đổi. Deadline chỉ được đăng ký sau khi transaction commit.
+ */
+@Component
+@RequiredArgsConstructor
+public class OrderExpiryListener implements PostInsertEventListener, PostUpdateEventListener {
+
+    private static final List<String> TRACKED = List.of("status", "paymentStatus");
+
+    private final EntityManagerFactory entityManagerFactory;
+    private final OrderExpiryScheduler orderExpiryScheduler;
+
+    @Value("${orders.expiry.enabled:true}")
+    private boolean enabled;
+
+    @PostConstruct
+    void register() {
+        if (!enabled) {
+            return;
+        }
+        EventListenerRegistry registry = entityManagerFactory.unwrap(SessionFactoryImplementor.class)
+                .getServiceRegistry().getService(EventListenerRegistry.class);
+        registry.appendListeners(EventType.POST_INSERT, this);
+        registry.appendListeners(EventType.POST_UPDATE, this);
+    }
+
+    @Override
+    public void onPostInsert(PostInsertEvent event) {
+        if (event.getEntity() instanceof Order order) {
+            registerAfterCommit(snapshotOf(order));
+        }
+    }
+
+    @Override
+    public void onPostUpdate(PostUpdateEvent event) {
+        if (!(event.getEntity() instanceof Order order)) {
+            return;
+        }
+        EntityPersister persister = event.getPersister();
+        int[] dirty = event.getDirtyProperties();
+        if (dirty != null && Arrays.stream(dirty)
+                .noneMatch(index -> TRACKED.contains(persister.getPropertyNames()[index]))) {
+            return;
+        }
+        registerAfterCommit(snapshotOf(order));
+    }
+
+    @Override
+    public boolean requiresPostCommitHandling(EntityPersister persister) {
+        return false;
+    }
+
+    private void registerAfterCommit(OrderExpiryScheduler.OrderSnapshot snapshot) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            orderExpiryScheduler.register(snapshot);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                orderExpiryScheduler.register(snapshot);
+            }
+        });
+    }
+
+    private static OrderExpiryScheduler.OrderSnapshot snapshotOf(Order order) {
+        LocalDateTime changedAt = order.getUpdatedAt() != null ? order.getUpdatedAt() : LocalDateTime.now();
+        return new OrderExpiryScheduler.OrderSnapshot(order.getId(), order.getStatus(), order.getPaymentMethod(),
+                order.getPaymentStatus(), order.getCreatedAt() != null ? order.getCreatedAt() : changedAt, changedAt);
+    }
+}
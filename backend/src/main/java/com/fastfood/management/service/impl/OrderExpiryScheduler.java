@@ -0,0 +1,284 @@
+package com.fastfood.management.service.impl;
+
+import com.fastfood.management.entity.Order;
+import com.fastfood.management.entity.OrderActivity;
+import com.fastfood.management.entity.Payment;
+import com.fastfood.management.repository.OrderActivityRepository;
+import com.fastfood.management.repository.OrderRepository;
+import com.fastfood.management.repository.PaymentRepository;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Hết hạn đơn bằng timer wheel thay vì quét bảng định kỳ. Mỗi lần đơn được tạo hoặc đổi trạng thái
+ * (OrderExpiryListener) deadline của đơn được đặt lại:
+ * - đơn VNPAY chưa thanh toán ở CREATED bị hủy sau orders.expiry.unpaidMinutes kể từ lúc tạo;
+ * - đơn còn ở CREATED/CONFIRMED quá orders.expiry.staleMinutes kể từ lần đổi trạng thái cuối được báo cho bếp/admin.
+ * Khi tới hạn, trạng thái đơn được đọc lại trong transaction nên timer cũ hoặc của transaction đã rollback vô hại.
+ * Hủy đơn là một UPDATE có điều kiện (không ghi đè PAID từ callback VNPAY); cảnh báo đơn treo được ghi nhận một lần
+ * vào order_activity dưới khóa dòng của đơn nên chỉ một node gửi ORDER_STALE.
+ * Wheel nằm trong bộ nhớ và được dựng lại từ các đơn còn mở lúc khởi động.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class OrderExpiryScheduler {
+
+    private static final int WHEEL_SIZE = 64;
+    private static final int WHEEL_LEVELS = 4;
+    private static final String ESCALATION_REASON = "Stale order escalated";
+    private static final String CANCEL_UNPAID_SQL = "UPDATE orders SET status = ?, updated_at = ? "
+            + "WHERE id = ? AND status = ? AND payment_status <> ?";
+
+    private final OrderRepository orderRepository;
+    private final OrderActivityRepository orderActivityRepository;
+    private final PaymentRepository paymentRepository;
+    private final WebSocketService webSocketService;
+    private final OrderStatsRollup orderStatsRollup;
+    private final JdbcTemplate jdbcTemplate;
+    private final PlatformTransactionManager transactionManager;
+
+    @Value("${orders.expiry.enabled:true}")
+    private boolean enabled;
+
+    @Value("${orders.expiry.unpaidMinutes:15}")
+    private long unpaidMinutes;
+
+    @Value("${orders.expiry.staleMinutes:30}")
+    private long staleMinutes;
+
+    @Value("${orders.expiry.tickMs:1000}")
+    private long tickMs;
+
+    public enum Action {
+        CANCEL_UNPAID, ESCALATE
+    }
+
+    /**
+     * Trạng thái đơn dùng để tính deadline; statusChangedAt = lúc vào trạng thái hiện tại
+     */
+    public record OrderSnapshot(Long id, Order.OrderStatus status, Order.PaymentMethod paymentMethod,
+                                Order.PaymentStatus paymentStatus, LocalDateTime createdAt, LocalDateTime statusChangedAt) {}
+
+    public record Deadline(Action action, LocalDateTime at) {}
+
+    private HierarchicalTimerWheel<Long> wheel;
+    private final Map<Long, Deadline> deadlines = new ConcurrentHashMap<>();
+    private TransactionTemplate transactionTemplate;
+    private final ScheduledExecutorService clock = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread thread = new Thread(r, "order-expiry");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final AtomicLong cancelled = new AtomicLong();
+    private final AtomicLong escalated = new AtomicLong();
+
+    @PostConstruct
+    void init() {
+        transactionTemplate = new TransactionTemplate(transactionManager);
+        wheel = new HierarchicalTimerWheel<>(tickMs, WHEEL_SIZE, WHEEL_LEVELS, System.currentTimeMillis());
+    }
+
+    @PreDestroy
+    void stop() {
+        clock.shutdownNow();
+    }
+
+    /**
+     * Dựng lại wheel từ các đơn còn có thể hết hạn rồi mới bắt đầu chạy đồng hồ
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuild() {
+        if (!enabled) {
+            return;
+        }
+        try {
+            List<OrderSnapshot> open = jdbcTemplate.query(
+                    "SELECT id, status, payment_method, payment_status, created_at, updated_at FROM orders WHERE status IN (?, ?)",
+                    (rs, n) -> {
+                        Timestamp createdAt = rs.getTimestamp("created_at");
+                        Timestamp updatedAt = rs.getTimestamp("updated_at");
+                        return new OrderSnapshot(rs.getLong("id"),
+                                Order.OrderStatus.valueOf(rs.getString("status")),
+                                Order.PaymentMethod.valueOf(rs.getString("payment_method")),
+                                Order.PaymentStatus.valueOf(rs.getString("payment_status")),
+                                createdAt.toLocalDateTime(),
+                                (updatedAt != null ? updatedAt : createdAt).toLocalDateTime());
+                    },
+                    Order.OrderStatus.CREATED.name(), Order.OrderStatus.CONFIRMED.name());
+            open.forEach(this::register);
+            log.info("Order expiry wheel rebuilt with {} timers", deadlines.size());
+        } catch (Exception e) {
+            log.warn("Order expiry rebuild failed: {}", e.getMessage());
+        }
+        clock.scheduleWithFixedDelay(this::tick, tickMs, tickMs, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Đặt lại (hoặc bỏ) deadline của đơn theo trạng thái mới
+     */
+    public void register(OrderSnapshot order) {
+        if (!enabled || order.id() == null) {
+            return;
+        }
+        Deadline deadline = deadlineFor(order);
+        synchronized (this) {
+            if (deadline == null) {
+                deadlines.remove(order.id());
+                wheel.cancel(order.id());
+                return;
+            }
+            deadlines.put(order.id(), deadline);
+            wheel.schedule(order.id(), toEpochMillis(deadline.at()));
+        }
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("enabled", enabled);
+        stats.put("pendingTimers", deadlines.size());
+        stats.put("cancelledUnpaid", cancelled.get());
+        stats.put("escalated", escalated.get());
+        return stats;
+    }
+
+    Deadline deadlineFor(OrderSnapshot order) {
+        if (order.status() == Order.OrderStatus.CREATED
+                && order.paymentMethod() == Order.PaymentMethod.VNPAY
+                && order.paymentStatus() != Order.PaymentStatus.PAID
+                && order.createdAt() != null) {
+            return new Deadline(Action.CANCEL_UNPAID, order.createdAt().plusMinutes(unpaidMinutes));
+        }
+        if ((order.status() == Order.OrderStatus.CREATED || order.status() == Order.OrderStatus.CONFIRMED)
+                && order.statusChangedAt() != null) {
+            return new Deadline(Action.ESCALATE, order.statusChangedAt().plusMinutes(staleMinutes));
+        }
+        return null;
+    }
+
+    private void tick() {
+        List<Long> fired;
+        synchronized (this) {
+            fired = wheel.advanceTo(System.currentTimeMillis());
+        }
+        for (Long orderId : fired) {
+            Deadline deadline = deadlines.remove(orderId);
+            if (deadline == null) {
+                continue;
+            }
+            try {
+                transactionTemplate.executeWithoutResult(status -> expire(orderId, deadline));
+            } catch (Exception e) {
+                log.warn("Expiry of order {} ({}) failed: {}", orderId, deadline.action(), e.getMessage());
+            }
+        }
+    }
+
+    private void expire(Long orderId, Deadline fired) {
+        Order order = orderRepository.findById(orderId).orElse(null);
+        if (order == null) {
+            return;
+        }
+        // Đọc lại: đơn có thể đã được thanh toán/xử lý ở node khác hoặc timer thuộc transaction đã rollback
+        LocalDateTime changedAt = order.getUpdatedAt() != null ? order.getUpdatedAt() : order.getCreatedAt();
+        Deadline current = deadlineFor(new OrderSnapshot(order.getId(), order.getStatus(), order.getPaymentMethod(),
+                order.getPaymentStatus(), order.getCreatedAt(), changedAt));
+        if (current == null) {
+            return;
+        }
+        if (current.action() != fired.action() || current.at().isAfter(LocalDateTime.now())) {
+            register(new OrderSnapshot(order.getId(), order.getStatus(), order.getPaymentMethod(),
+                    order.getPaymentStatus(), order.getCreatedAt(), changedAt));
+            return;
+        }
+        switch (current.action()) {
+            case CANCEL_UNPAID -> cancelUnpaid(order);
+            case ESCALATE -> escalate(order, changedAt);
+        }
+    }
+
+    private void cancelUnpaid(Order order) {
+        Order.OrderStatus oldStatus = order.getStatus();
+        // Chỉ hủy khi đơn vẫn CREATED và chưa PAID ngay tại thời điểm ghi: callback VNPAY commit trước thì không đổi dòng nào
+        int updated = jdbcTemplate.update(CANCEL_UNPAID_SQL, Order.OrderStatus.CANCELLED.name(),
+                Timestamp.valueOf(LocalDateTime.now()), order.getId(), Order.OrderStatus.CREATED.name(),
+                Order.PaymentStatus.PAID.name());
+        if (updated != 1) {
+            log.debug("Order {} changed before unpaid cancellation, skipped", order.getId());
+            return;
+        }
+        // UPDATE đi vòng Hibernate nên tự chuyển đóng góp thống kê của đơn
+        orderStatsRollup.apply(statsState(order, oldStatus), statsState(order, Order.OrderStatus.CANCELLED));
+        for (Payment payment : paymentRepository.findByOrderId(order.getId())) {
+            if (payment.getStatus() == Payment.PaymentStatus.PENDING) {
+                payment.setStatus(Payment.PaymentStatus.FAILED);
+                paymentRepository.save(payment);
+            }
+        }
+        orderActivityRepository.save(OrderActivity.builder()
+                .order(order)
+                .fromStatus(oldStatus)
+                .toStatus(Order.OrderStatus.CANCELLED)
+                .reason("Payment timeout after " + unpaidMinutes + " minutes")
+                .build());
+        webSocketService.sendOrderStatusUpdate(order.getId(), Order.OrderStatus.CANCELLED.name());
+        cancelled.incrementAndGet();
+        log.info("Order {} cancelled: unpaid for {} minutes", order.getId(), unpaidMinutes);
+    }
+
+    private void escalate(Order order, LocalDateTime changedAt) {
+        // Khóa dòng đơn để các node có cùng timer xếp hàng; node đầu tiên ghi activity, các node sau thấy và bỏ qua
+        List<String> locked = jdbcTemplate.queryForList("SELECT status FROM orders WHERE id = ? FOR UPDATE",
+                String.class, order.getId());
+        if (locked.isEmpty() || !order.getStatus().name().equals(locked.get(0))) {
+            return;
+        }
+        // Đọc có khóa để thấy bản ghi vừa commit của node khác (đọc thường dùng snapshot đầu transaction)
+        List<Long> already = jdbcTemplate.queryForList(
+                "SELECT id FROM order_activity WHERE order_id = ? AND reason = ? AND created_at >= ? FOR UPDATE",
+                Long.class, order.getId(), ESCALATION_REASON, Timestamp.valueOf(changedAt));
+        if (!already.isEmpty()) {
+            return;
+        }
+        orderActivityRepository.save(OrderActivity.builder()
+                .order(order)
+                .fromStatus(order.getStatus())
+                .toStatus(order.getStatus())
+                .reason(ESCALATION_REASON)
+                .build());
+        webSocketService.sendOrderEscalation(order.getId(), order.getStatus().name(), staleMinutes);
+        escalated.incrementAndGet();
+        log.info("Order {} escalated: {} for over {} minutes", order.getId(), order.getStatus(), staleMinutes);
+    }
+
+    private static OrderStatsRollup.OrderState statsState(Order order, Order.OrderStatus status) {
+        return new OrderStatsRollup.OrderState(order.getStore() != null ? order.getStore().getId() : null,
+                order.getCreatedAt(), status, order.getTotalAmount());
+    }
+
+    private static long toEpochMillis(LocalDateTime time) {
+        return time.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+    }
+}
@@ -0,0 +1,91 @@
+package com.fastfood.management.service.impl;
+
+import com.fastfood.management.dto.response.CursorPage;
+import com.fastfood.management.dto.response.OrderCompactResponse;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Lịch sử đơn dạng compact của khách: một câu SQL lấy đúng các cột của OrderCompactResponse.
+ * Subquery phân trang keyset trên (customer_id, created_at, id) theo index idx_orders_customer_created,
+ * sau đó join dòng đơn của đúng các đơn trong trang.
+ */
+@Component
+@RequiredArgsConstructor
+public class OrderHistoryQuery {
+
+    private static final String SELECT = "SELECT o.id, o.order_code, o.status, o.total_amount, o.created_at, "
+            + "i.id AS item_id, COALESCE(i.name_snapshot, m.name) AS item_name, i.quantity, "
+            + "COALESCE(i.unit_price, m.price) AS item_price, COALESCE(i.image_snapshot, m.image_url) AS item_image "
+            + "FROM (SELECT id, order_code, status, total_amount, created_at FROM orders WHERE customer_id = ?";
+    private static final String AFTER_CURSOR = " AND (created_at < ? OR (created_at = ? AND id < ?))";
+    private static final String PAGE_AND_JOIN = " ORDER BY created_at DESC, id DESC LIMIT ?) o "
+            + "LEFT JOIN order_items i ON i.order_id = o.id "
+            + "LEFT JOIN menu_items m ON m.id = i.menu_item_id "
+            + "ORDER BY o.created_at DESC, o.id DESC, i.id";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public CursorPage<OrderCompactResponse> compactPage(Long customerId, OrderHistoryCursor after, int limit) {
+        List<Object> args = new ArrayList<>(5);
+        StringBuilder sql = new StringBuilder(SELECT);
+        args.add(customerId);
+        if (after != null) {
+            sql.append(AFTER_CURSOR);
+            Timestamp createdAt = Timestamp.valueOf(after.createdAt());
+            args.add(createdAt);
+            args.add(createdAt);
+            args.add(after.id());
+        }
+        sql.append(PAGE_AND_JOIN);
+        // Lấy dư một đơn để biết còn trang sau hay không
+        args.add(limit + 1);
+
+        List<OrderCompactResponse> orders = new ArrayList<>(limit + 1);
+        jdbcTemplate.query(sql.toString(), rs -> {
+            long orderId = rs.getLong("id");
+            OrderCompactResponse current = orders.isEmpty() ? null : orders.get(orders.size() - 1);
+            if (current == null || current.getId() != orderId) {
+                String status = rs.getString("status");
+                BigDecimal total = rs.getBigDecimal("total_amount");
+                Timestamp createdAt = rs.getTimestamp("created_at");
+                current = OrderCompactResponse.builder()
+                        .id(orderId)
+                        .orderCode(rs.getString("order_code"))
+                        .status(status != null ? status : "CREATED")
+                        .total(total != null ? total : BigDecimal.ZERO)
+                        .createdAt(createdAt != null ? createdAt.toLocalDateTime() : null)
+                        .orderItems(new ArrayList<>())
+                        .build();
+                orders.add(current);
+            }
+            long itemId = rs.getLong("item_id");
+            if (!rs.wasNull()) {
+                String name = rs.getString("item_name");
+                BigDecimal price = rs.getBigDecimal("item_price");
+                int quantity = rs.getInt("quantity");
+                current.getOrderItems().add(OrderCompactResponse.Item.builder()
+                        .id(itemId)
+                        .name(name != null ? name : "Item")
+                        .quantity(rs.wasNull() ? null : quantity)
+                        .price(price != null ? price : BigDecimal.ZERO)
+                        .image(rs.getString("item_image"))
+                        .build());
+            }
+        }, args.toArray());
+
+        String nextCursor = null;
+        if (orders.size() > limit) {
+            orders.remove(limit);
+            OrderCompactResponse last = orders.get(limit - 1);
+            nextCursor = new OrderHistoryCursor(last.getCreatedAt(), last.getId()).encode();
+        }
+        return CursorPage.<OrderCompactResponse>builder().items(orders).nextCursor(nextCursor).build();
+    }
+}
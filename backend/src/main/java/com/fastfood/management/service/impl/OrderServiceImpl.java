@@ -1,8 +1,11 @@
 package com.fastfood.management.service.impl;
 
 import com.fastfood.management.dto.request.OrderRequest;
+import com.fastfood.management.dto.response.CursorPage;
+import com.fastfood.management.dto.response.OrderCompactResponse;
 import com.fastfood.management.dto.response.OrderResponse;
 import com.fastfood.management.entity.*;
+import com.fastfood.management.event.DispatchEvent;
 import com.fastfood.management.repository.*;
 import java.util.UUID;
 import com.fastfood.management.service.api.OrderService;
@@ -12,16 +15,23 @@ import jakarta.persistence.EntityNotFoundException;
 import org.springframework.transaction.annotation.Transactional;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.security.access.AccessDeniedException;
 import org.springframework.stereotype.Service;
 
 import java.math.BigDecimal;
-import java.util.HashMap;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 @Service
@@ -30,7 +40,6 @@ import java.util.stream.Collectors;
 public class OrderServiceImpl implements OrderService {
 
     private final OrderRepository orderRepository;
-    private final OrderItemRepository orderItemRepository;
     private final MenuItemRepository menuItemRepository;
     private final AddressRepository addressRepository;
     private final OrderActivityRepository orderActivityRepository;
@@ -38,6 +47,13 @@ public class OrderServiceImpl implements OrderService {
     private final DeliveryRepository deliveryRepository;
     private final WebSocketService webSocketService;
     private final FleetService fleetService;
+    private final ApplicationEventPublisher eventPublisher;
+    private final OrderCodeGenerator orderCodeGenerator;
+    private final OrderStatsRollup orderStatsRollup;
+    private final OrderHistoryQuery orderHistoryQuery;
+
+    @Value("${orders.stats.useRollups:true}")
+    private boolean statsRollupEnabled;
 
     @Override
     @Transactional
@@ -50,41 +66,29 @@ public class OrderServiceImpl implements OrderService {
         if (orderRequest.getItems() == null || orderRequest.getItems().isEmpty()) {
             throw new IllegalArgumentException("Order must contain at least one item");
         }
-        MenuItem firstMenuItem = menuItemRepository.findById(orderRequest.getItems().get(0).getMenuItemId())
-                .orElseThrow(() -> new EntityNotFoundException("Menu item not found"));
+        // Một query cho toàn bộ món của đơn
+        Set<Long> menuItemIds = orderRequest.getItems().stream()
+                .map(OrderRequest.OrderItemRequest::getMenuItemId)
+                .collect(Collectors.toCollection(LinkedHashSet::new));
+        Map<Long, MenuItem> menuItems = menuItemRepository.findAllWithStoreByIdIn(menuItemIds).stream()
+                .collect(Collectors.toMap(MenuItem::getId, Function.identity()));
+        MenuItem firstMenuItem = menuItems.get(orderRequest.getItems().get(0).getMenuItemId());
+        if (firstMenuItem == null) {
+            throw new EntityNotFoundException("Menu item not found");
+        }
         Store store = firstMenuItem.getStore();
         if (store == null) {
             throw new IllegalStateException("Menu item does not belong to a store");
         }
 
-        // Create order
-        Order order = Order.builder()
-                .customer(currentUser)
-                .store(store)
-                .status(Order.OrderStatus.CREATED)
-                .totalAmount(BigDecimal.ZERO)
-                .paymentMethod(Order.PaymentMethod.valueOf(orderRequest.getPaymentMethod()))
-                .paymentStatus(Order.PaymentStatus.PENDING)
-                .address(address)
-                .note(orderRequest.getNote())
-                .build();
-        
-        order = orderRepository.save(order);
-
-        // Generate order code: ORD-YYYYMMDD-ID
-        java.time.LocalDate today = java.time.LocalDate.now();
-        String datePart = today.format(java.time.format.DateTimeFormatter.BASIC_ISO_DATE);
-        String code = "ORD-" + datePart + "-" + order.getId();
-        order.setOrderCode(code);
-        order = orderRepository.save(order);
-        
-        // tạo order, tính total 
+        // tạo dòng đơn, tính total trước khi ghi để đơn chỉ insert một lần (dòng đơn insert theo batch khi flush)
         BigDecimal totalAmount = BigDecimal.ZERO;
-        Map<Long, Integer> menuItemQuantities = new HashMap<>();
-        
+        List<OrderItem> orderItems = new ArrayList<>(orderRequest.getItems().size());
         for (OrderRequest.OrderItemRequest itemRequest : orderRequest.getItems()) {
-            MenuItem menuItem = menuItemRepository.findById(itemRequest.getMenuItemId())
-                    .orElseThrow(() -> new EntityNotFoundException("Menu item not found"));
+            MenuItem menuItem = menuItems.get(itemRequest.getMenuItemId());
+            if (menuItem == null) {
+                throw new EntityNotFoundException("Menu item not found");
+            }
             // check trạng thái (có sẳn) có bật hay không
             if (!menuItem.isAvailable()) {
                 throw new IllegalStateException("Menu item " + menuItem.getName() + " is not available");
@@ -93,23 +97,36 @@ public class OrderServiceImpl implements OrderService {
                 throw new IllegalStateException("All items in an order must belong to the same store");
             }
             
-            OrderItem orderItem = OrderItem.builder()
-                    .order(order)
+            orderItems.add(OrderItem.builder()
                     .menuItem(menuItem)
                     .quantity(itemRequest.getQuantity())
                     .unitPrice(menuItem.getPrice())
                     .nameSnapshot(menuItem.getName())
                     .imageSnapshot(menuItem.getImageUrl())
-                    .build();
-            
-            orderItemRepository.save(orderItem);
+                    .build());
             
             totalAmount = totalAmount.add(menuItem.getPrice().multiply(BigDecimal.valueOf(itemRequest.getQuantity())));
-            menuItemQuantities.put(menuItem.getId(), itemRequest.getQuantity());
         }
+
+        // Create order: mã đơn sinh trước nên order được insert một lần với đủ mã + total
+        Order order = Order.builder()
+                .customer(currentUser)
+                .store(store)
+                .status(Order.OrderStatus.CREATED)
+                .orderCode(orderCodeGenerator.next())
+                .totalAmount(totalAmount)
+                .paymentMethod(Order.PaymentMethod.valueOf(orderRequest.getPaymentMethod()))
+                .paymentStatus(Order.PaymentStatus.PENDING)
+                .address(address)
+                .note(orderRequest.getNote())
+                .build();
         
-        // Update order total
-        order.setTotalAmount(totalAmount);
+        for (OrderItem orderItem : orderItems) {
+            orderItem.setOrder(order);
+        }
+        order.getOrderItems().addAll(orderItems);
+
+        // Id sinh phía ứng dụng: persist chưa chạy INSERT, mọi bảng được ghi theo batch lúc commit
         order = orderRepository.save(order);
 
         // Auto insert payment record based on payment method
@@ -259,6 +276,8 @@ public class OrderServiceImpl implements OrderService {
                 if (order.getDelivery() == null) {
                     insertDeliveryForOrder(order);
                 }
+                // Báo dispatcher sau commit để gán ngay khi có drone, không chờ chu kỳ poll
+                eventPublisher.publishEvent(DispatchEvent.orderReady(order.getId()));
             } else {
                 // Có drone: cập nhật order và delivery ngay lập tức
                 Order.OrderStatus prev = order.getStatus();
@@ -303,13 +322,9 @@ public class OrderServiceImpl implements OrderService {
             }
         }
         
-        // Gửi WebSocket notification cho realtime order tracking (trạng thái cuối cùng sau auto-assign nếu có)
-        try {
-            webSocketService.sendOrderStatusUpdate(order.getId(), order.getStatus().name());
-        } catch (Exception e) {
-            // Không để thất bại WebSocket làm hỏng luồng cập nhật trạng thái
-            log.warn("WebSocket send failed for order {}: {}", order.getId(), e.getMessage());
-        }
+        // Thông báo realtime (trạng thái cuối cùng sau auto-assign nếu có) đi qua outbox:
+        // ghi cùng transaction, relay phát sau commit nên broker không kéo dài thời gian giữ khóa
+        webSocketService.sendOrderStatusUpdate(order.getId(), order.getStatus().name());
         
         return order;
     }
@@ -345,12 +360,8 @@ public class OrderServiceImpl implements OrderService {
                 .build();
         orderActivityRepository.save(activity);
         
-        // Gửi WebSocket notification cho realtime order tracking
-        try {
-            webSocketService.sendOrderStatusUpdate(order.getId(), order.getStatus().name());
-        } catch (Exception e) {
-            log.warn("WebSocket send failed for order {}: {}", order.getId(), e.getMessage());
-        }
+        // Thông báo realtime qua outbox, chỉ phát nếu việc hủy đơn commit thành công
+        webSocketService.sendOrderStatusUpdate(order.getId(), order.getStatus().name());
     }
     
     @Override
@@ -379,15 +390,32 @@ public class OrderServiceImpl implements OrderService {
 
     @Override
     @Transactional(readOnly = true)
-    public List<Order> listMyOrders(User currentUser) {
-        List<Order> orders = orderRepository.findByCustomerOrderByCreatedAtDesc(currentUser);
-        // Initialize lazy collections to avoid LazyInitializationException during JSON serialization
-        for (Order order : orders) {
-            if (order.getOrderItems() != null) {
-                order.getOrderItems().size();
-            }
+    public CursorPage<Order> listMyOrders(User currentUser, String cursor, int limit) {
+        OrderHistoryCursor after = OrderHistoryCursor.decode(cursor);
+        // Lấy dư một id để biết còn trang sau hay không
+        PageRequest page = PageRequest.of(0, limit + 1);
+        List<Long> ids = after == null
+                ? orderRepository.findIdPageByCustomer(currentUser, page)
+                : orderRepository.findIdPageByCustomerAfter(currentUser, after.createdAt(), after.id(), page);
+        if (ids.isEmpty()) {
+            return CursorPage.<Order>builder().items(List.of()).build();
         }
-        return orders;
+        List<Long> pageIds = ids.size() > limit ? ids.subList(0, limit) : ids;
+        // Fetch join dòng đơn theo id để JSON không chạm lazy collection (tránh N+1)
+        List<Order> orders = new ArrayList<>(orderRepository.findAllWithItemsByIdIn(pageIds));
+        orders.sort(Comparator.comparing(Order::getCreatedAt, Comparator.nullsLast(Comparator.reverseOrder()))
+                .thenComparing(Order::getId, Comparator.reverseOrder()));
+        String nextCursor = null;
+        if (ids.size() > limit && !orders.isEmpty()) {
+            Order last = orders.get(orders.size() - 1);
+            nextCursor = new OrderHistoryCursor(last.getCreatedAt(), last.getId()).encode();
+        }
+        return CursorPage.<Order>builder().items(orders).nextCursor(nextCursor).build();
+    }
+
+    @Override
+    public CursorPage<OrderCompactResponse> listMyOrdersCompact(User currentUser, String cursor, int limit) {
+        return orderHistoryQuery.compactPage(currentUser.getId(), OrderHistoryCursor.decode(cursor), limit);
     }
 
     @Override
@@ -440,10 +468,23 @@ public class OrderServiceImpl implements OrderService {
                 Order.OrderStatus.FAILED
         );
 
-        java.math.BigDecimal totalRevenue = orderRepository.sumTotalAmountByStatusAndStore(storeId, deliveredStatuses, start, end);
-        long processingCount = orderRepository.countByStatusAndStore(storeId, processingStatuses, start, end);
-        long deliveredCount = orderRepository.countByStatusAndStore(storeId, deliveredStatuses, start, end);
-        long cancelledCount = orderRepository.countByStatusAndStore(storeId, cancelledStatuses, start, end);
+        java.math.BigDecimal totalRevenue;
+        long processingCount;
+        long deliveredCount;
+        long cancelledCount;
+        if (statsRollupEnabled) {
+            // Cộng bucket giờ/ngày đã tổng hợp sẵn, chỉ phần lẻ hai đầu khoảng mới quét bảng orders
+            Map<Order.OrderStatus, OrderStatsRollup.Totals> totals = orderStatsRollup.totals(storeId, start, end);
+            totalRevenue = sumTotals(totals, deliveredStatuses).amount();
+            processingCount = sumTotals(totals, processingStatuses).count();
+            deliveredCount = sumTotals(totals, deliveredStatuses).count();
+            cancelledCount = sumTotals(totals, cancelledStatuses).count();
+        } else {
+            totalRevenue = orderRepository.sumTotalAmountByStatusAndStore(storeId, deliveredStatuses, start, end);
+            processingCount = orderRepository.countByStatusAndStore(storeId, processingStatuses, start, end);
+            deliveredCount = orderRepository.countByStatusAndStore(storeId, deliveredStatuses, start, end);
+            cancelledCount = orderRepository.countByStatusAndStore(storeId, cancelledStatuses, start, end);
+        }
 
         return com.fastfood.management.dto.response.OrderStatsResponse.builder()
                 .storeId(storeId)
@@ -456,6 +497,20 @@ public class OrderServiceImpl implements OrderService {
                 .build();
     }
 
+    @Override
+    public int rebuildOrderStats() {
+        return orderStatsRollup.rebuild();
+    }
+
+    private static OrderStatsRollup.Totals sumTotals(Map<Order.OrderStatus, OrderStatsRollup.Totals> totals,
+                                                     List<Order.OrderStatus> statuses) {
+        OrderStatsRollup.Totals sum = OrderStatsRollup.Totals.ZERO;
+        for (Order.OrderStatus status : statuses) {
+            sum = sum.plus(totals.getOrDefault(status, OrderStatsRollup.Totals.ZERO));
+        }
+        return sum;
+    }
+
     // Helper methods
     
     private void validateStatusTransition(Order.OrderStatus currentStatus, Order.OrderStatus newStatus) {
@@ -0,0 +1,118 @@
+package com.fastfood.management.service.impl;
+
+import com.fastfood.management.entity.Order;
+import com.fastfood.management.entity.Store;
+import jakarta.annotation.PostConstruct;
+import jakarta.persistence.EntityManagerFactory;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.event.service.spi.EventListenerRegistry;
+import org.hibernate.event.spi.EventType;
+import org.hibernate.event.spi.PostDeleteEvent;
+import org.hibernate.event.spi.PostDeleteEventListener;
+import org.hibernate.event.spi.PostInsertEvent;
+import org.hibernate.event.spi.PostInsertEventListener;
+import org.hibernate.event.spi.PostUpdateEvent;
+import org.hibernate.event.spi.PostUpdateEventListener;
+import org.hibernate.persister.entity.EntityPersister;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Cập nhật rollup thống kê mỗi khi Hibernate ghi một Order: tạo đơn, đổi trạng thái (ở bất kỳ service nào:
+ * updateOrderStatus, cancelOrder, FleetService, mô phỏng giao hàng...) hoặc xóa đơn.
+ * Chạy trong lúc flush; delta chỉ được đưa vào bộ đệm của OrderStatsRollup khi transaction của đơn commit.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class OrderStatsListener implements PostInsertEventListener, PostUpdateEventListener, PostDeleteEventListener {
+
+    private static final List<String> TRACKED = List.of("status", "totalAmount", "createdAt", "store");
+
+    private final EntityManagerFactory entityManagerFactory;
+    private final OrderStatsRollup orderStatsRollup;
+
+    @Value("${orders.stats.useRollups:true}")
+    private boolean enabled;
+
+    @PostConstruct
+    void register() {
+        if (!enabled) {
+            return;
+        }
+        EventListenerRegistry registry = entityManagerFactory.unwrap(SessionFactoryImplementor.class)
+                .getServiceRegistry().getService(EventListenerRegistry.class);
+        registry.appendListeners(EventType.POST_INSERT, this);
+        registry.appendListeners(EventType.POST_UPDATE, this);
+        registry.appendListeners(EventType.POST_DELETE, this);
+    }
+
+    @Override
+    public void onPostInsert(PostInsertEvent event) {
+        if (event.getEntity() instanceof Order order) {
+            orderStatsRollup.apply(null, stateOf(order));
+        }
+    }
+
+    @Override
+    public void onPostUpdate(PostUpdateEvent event) {
+        if (!(event.getEntity() instanceof Order order)) {
+            return;
+        }
+        Object[] oldState = event.getOldState();
+        if (oldState == null) {
+            log.warn("Order {} updated without loaded state, stats rollup may drift until next rebuild", order.getId());
+            return;
+        }
+        // Chỉ các cột ảnh hưởng thống kê mới cần ghi rollup
+        EntityPersister persister = event.getPersister();
+        int[] dirty = event.getDirtyProperties();
+        if (dirty != null && Arrays.stream(dirty)
+                .noneMatch(index -> TRACKED.contains(persister.getPropertyNames()[index]))) {
+            return;
+        }
+        orderStatsRollup.apply(stateOf(persister, oldState), stateOf(order));
+    }
+
+    @Override
+    public void onPostDelete(PostDeleteEvent event) {
+        if (event.getEntity() instanceof Order) {
+            orderStatsRollup.apply(stateOf(event.getPersister(), event.getDeletedState()), null);
+        }
+    }
+
+    @Override
+    public boolean requiresPostCommitHandling(EntityPersister persister) {
+        return false;
+    }
+
+    private static OrderStatsRollup.OrderState stateOf(Order order) {
+        return new OrderStatsRollup.OrderState(order.getStore() != null ? order.getStore().getId() : null,
+                order.getCreatedAt(), order.getStatus(), order.getTotalAmount());
+    }
+
+    private static OrderStatsRollup.OrderState stateOf(EntityPersister persister, Object[] state) {
+        String[] names = persister.getPropertyNames();
+        Store store = null;
+        LocalDateTime createdAt = null;
+        Order.OrderStatus status = null;
+        BigDecimal totalAmount = null;
+        for (int i = 0; i < names.length; i++) {
+            switch (names[i]) {
+                case "store" -> store = (Store) state[i];
+                case "createdAt" -> createdAt = (LocalDateTime) state[i];
+                case "status" -> status = (Order.OrderStatus) state[i];
+                case "totalAmount" -> totalAmount = (BigDecimal) state[i];
+                default -> { }
+            }
+        }
+        return new OrderStatsRollup.OrderState(store != null ? store.getId() : null, createdAt, status, totalAmount);
+    }
+}
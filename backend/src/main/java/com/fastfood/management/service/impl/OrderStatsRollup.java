@@ -0,0 +1,413 @@
+package com.fastfood.management.service.impl;
+
+import com.fastfood.management.entity.Order;
+import com.fastfood.management.entity.OrderStatsBucket.Granularity;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.time.temporal.TemporalUnit;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Rollup thống kê đơn theo cửa hàng / giờ và ngày tạo đơn / trạng thái (bảng order_stats_buckets).
+ * Mỗi lần tạo hoặc đổi trạng thái đơn chỉ cộng/trừ vài dòng bucket; thống kê một khoảng thời gian
+ * cộng các bucket ngày và giờ nằm trọn trong khoảng, phần lẻ ở hai đầu (dưới một giờ) mới quét bảng orders.
+ * Delta không ghi trong transaction của đơn: sau commit được cộng vào bộ đệm trong bộ nhớ và flush định kỳ
+ * (orders.stats.flushIntervalMs) bằng một upsert nhiều dòng, nên transaction đặt đơn không tranh khóa dòng bucket.
+ * Thống kê vì vậy có thể trễ tối đa một chu kỳ flush.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class OrderStatsRollup {
+
+    // Đơn không gắn cửa hàng
+    public static final long NO_STORE = 0L;
+
+    private static final String UPSERT_PREFIX = "INSERT INTO order_stats_buckets "
+            + "(store_id, granularity, bucket_start, status, order_count, total_amount) VALUES ";
+    private static final String UPSERT_SUFFIX = " ON DUPLICATE KEY UPDATE "
+            + "order_count = order_count + VALUES(order_count), total_amount = total_amount + VALUES(total_amount)";
+    private static final String ROW_PLACEHOLDER = "(?, ?, ?, ?, ?, ?)";
+    private static final int REBUILD_CHUNK_ROWS = 500;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final PlatformTransactionManager transactionManager;
+
+    @Value("${orders.stats.rebuildOnStartup:true}")
+    private boolean rebuildOnStartup;
+
+    private TransactionTemplate transactionTemplate;
+    private TransactionTemplate rebuildTemplate;
+
+    // Delta đã commit, chờ flush; khóa bằng chính map
+    private final Map<BucketKey, Totals> pending = new TreeMap<>();
+    // Transaction đang có delta giữ read lock tới khi kết thúc; rebuild lấy write lock để chốt mốc đọc orders
+    private final ReentrantReadWriteLock fence = new ReentrantReadWriteLock();
+    // Flush và rebuild không chạy song song
+    private final Object writeMonitor = new Object();
+
+    @PostConstruct
+    void init() {
+        transactionTemplate = new TransactionTemplate(transactionManager);
+        rebuildTemplate = new TransactionTemplate(transactionManager);
+        rebuildTemplate.setIsolationLevel(TransactionDefinition.ISOLATION_REPEATABLE_READ);
+    }
+
+    @PreDestroy
+    void shutdown() {
+        flush();
+    }
+
+    /**
+     * Trạng thái của đơn ảnh hưởng tới thống kê
+     */
+    public record OrderState(Long storeId, LocalDateTime createdAt, Order.OrderStatus status, BigDecimal totalAmount) {}
+
+    public record Totals(long count, BigDecimal amount) {
+
+        public static final Totals ZERO = new Totals(0, BigDecimal.ZERO);
+
+        public Totals plus(Totals other) {
+            return new Totals(count + other.count, amount.add(other.amount));
+        }
+    }
+
+    /**
+     * Chuyển đóng góp của đơn từ before sang after (before = null khi tạo đơn, after = null khi xóa).
+     * Trong transaction thì delta được gom theo transaction và chỉ vào bộ đệm khi commit; rollback thì bỏ.
+     */
+    public void apply(OrderState before, OrderState after) {
+        Map<BucketKey, Totals> deltas = new TreeMap<>();
+        addDeltas(deltas, before, -1);
+        addDeltas(deltas, after, 1);
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            fence.readLock().lock();
+            try {
+                merge(deltas);
+            } finally {
+                fence.readLock().unlock();
+            }
+            return;
+        }
+        TransactionDeltas transaction = (TransactionDeltas) TransactionSynchronizationManager.getResource(this);
+        if (transaction == null) {
+            fence.readLock().lock();
+            transaction = new TransactionDeltas();
+            TransactionSynchronizationManager.bindResource(this, transaction);
+            TransactionSynchronizationManager.registerSynchronization(transaction);
+        }
+        Map<BucketKey, Totals> buffered = transaction.deltas;
+        deltas.forEach((key, delta) -> buffered.merge(key, delta, Totals::plus));
+    }
+
+    /**
+     * Ghi bộ đệm vào order_stats_buckets bằng upsert nhiều dòng (sắp theo khóa). Lỗi thì trả delta lại bộ đệm.
+     */
+    @Scheduled(fixedDelayString = "${orders.stats.flushIntervalMs:1000}", initialDelayString = "${orders.stats.flushIntervalMs:1000}")
+    public void flush() {
+        synchronized (writeMonitor) {
+            Map<BucketKey, Totals> batch;
+            synchronized (pending) {
+                if (pending.isEmpty()) {
+                    return;
+                }
+                batch = new TreeMap<>(pending);
+                pending.clear();
+            }
+            try {
+                transactionTemplate.executeWithoutResult(status -> upsert(new ArrayList<>(batch.entrySet()), UPSERT_SUFFIX));
+            } catch (Exception e) {
+                log.warn("Order stats flush of {} buckets failed, will retry: {}", batch.size(), e.getMessage());
+                merge(batch);
+            }
+        }
+    }
+
+    /**
+     * Tổng số đơn / doanh thu theo trạng thái cho đơn tạo trong [start, end] (null = không giới hạn)
+     */
+    public Map<Order.OrderStatus, Totals> totals(Long storeId, LocalDateTime start, LocalDateTime end) {
+        Map<Order.OrderStatus, Totals> result = new EnumMap<>(Order.OrderStatus.class);
+        if (start != null && end != null && start.isAfter(end)) {
+            return result;
+        }
+        // Phần giờ trọn vẹn: [hourLo, hourHi); giờ chứa end chỉ được phủ một phần nên quét trực tiếp
+        LocalDateTime hourLo = start != null ? ceil(start, ChronoUnit.HOURS) : null;
+        LocalDateTime hourHi = end != null ? end.truncatedTo(ChronoUnit.HOURS) : null;
+        if (hourLo != null && hourHi != null && !hourLo.isBefore(hourHi)) {
+            scanOrders(result, storeId, List.of(new Range(start, end, true)));
+            return result;
+        }
+
+        List<Range> buckets = new ArrayList<>(3);
+        LocalDateTime dayLo = hourLo != null ? ceil(hourLo, ChronoUnit.DAYS) : null;
+        LocalDateTime dayHi = hourHi != null ? hourHi.truncatedTo(ChronoUnit.DAYS) : null;
+        if (dayLo == null || dayHi == null || dayLo.isBefore(dayHi)) {
+            buckets.add(new Range(Granularity.DAY, dayLo, dayHi));
+            if (hourLo != null && hourLo.isBefore(dayLo)) {
+                buckets.add(new Range(Granularity.HOUR, hourLo, dayLo));
+            }
+            if (hourHi != null && dayHi.isBefore(hourHi)) {
+                buckets.add(new Range(Granularity.HOUR, dayHi, hourHi));
+            }
+        } else {
+            buckets.add(new Range(Granularity.HOUR, hourLo, hourHi));
+        }
+        sumBuckets(result, storeId, buckets);
+
+        List<Range> edges = new ArrayList<>(2);
+        if (start != null && start.isBefore(hourLo)) {
+            edges.add(new Range(start, hourLo, false));
+        }
+        if (end != null) {
+            edges.add(new Range(hourHi, end, true));
+        }
+        scanOrders(result, storeId, edges);
+        return result;
+    }
+
+    /**
+     * Dựng lại toàn bộ rollup từ bảng orders (backfill / đối soát). Flush bị chặn trong lúc rebuild.
+     * Mốc đọc orders được chốt khi không có transaction nào đang ghi delta: delta đã commit trước mốc bị bỏ khỏi
+     * bộ đệm (đã nằm trong kết quả quét), delta commit sau mốc được flush sau rebuild. Rào chắn này chỉ áp dụng
+     * cho node chạy rebuild.
+     * @return số dòng bucket đã ghi
+     */
+    public int rebuild() {
+        long startedNanos = System.nanoTime();
+        Integer rows;
+        synchronized (writeMonitor) {
+            rows = rebuildTemplate.execute(status -> {
+                Map<BucketKey, Totals> buckets = new TreeMap<>();
+                fence.writeLock().lock();
+                try {
+                    synchronized (pending) {
+                        pending.clear();
+                    }
+                    // Lần đọc đầu tiên chốt snapshot REPEATABLE READ cho cả lần quét bên dưới
+                    jdbcTemplate.queryForObject("SELECT COUNT(*) FROM orders", Long.class);
+                } finally {
+                    fence.writeLock().unlock();
+                }
+                jdbcTemplate.query("SELECT store_id, created_at, status, total_amount FROM orders WHERE created_at IS NOT NULL",
+                        rs -> {
+                            long storeId = rs.getLong("store_id");
+                            OrderState state = new OrderState(rs.wasNull() ? null : storeId,
+                                    rs.getTimestamp("created_at").toLocalDateTime(),
+                                    Order.OrderStatus.valueOf(rs.getString("status")),
+                                    rs.getBigDecimal("total_amount"));
+                            addDeltas(buckets, state, 1);
+                        });
+                jdbcTemplate.update("DELETE FROM order_stats_buckets");
+                List<Map.Entry<BucketKey, Totals>> entries = new ArrayList<>(buckets.entrySet());
+                upsert(entries, "");
+                return entries.size();
+            });
+        }
+        log.info("Order stats rollup rebuilt: {} buckets in {} ms", rows,
+                (System.nanoTime() - startedNanos) / 1_000_000);
+        return rows != null ? rows : 0;
+    }
+
+    // Backfill khi bảng rollup còn trống (lần đầu triển khai) mà đã có đơn
+    @EventListener(ApplicationReadyEvent.class)
+    public void backfillIfEmpty() {
+        if (!rebuildOnStartup) {
+            return;
+        }
+        try {
+            Integer buckets = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM order_stats_buckets", Integer.class);
+            Integer orders = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM orders", Integer.class);
+            if (buckets != null && buckets == 0 && orders != null && orders > 0) {
+                rebuild();
+            }
+        } catch (Exception e) {
+            log.warn("Order stats backfill skipped: {}", e.getMessage());
+        }
+    }
+
+    // Đối soát định kỳ, tắt mặc định ("-")
+    @Scheduled(cron = "${orders.stats.rebuildCron:-}")
+    public void scheduledRebuild() {
+        rebuild();
+    }
+
+    private void merge(Map<BucketKey, Totals> deltas) {
+        synchronized (pending) {
+            deltas.forEach((key, delta) -> pending.merge(key, delta, Totals::plus));
+            pending.values().removeIf(d -> d.count() == 0 && d.amount().signum() == 0);
+        }
+    }
+
+    // Ghi theo đoạn REBUILD_CHUNK_ROWS dòng; suffix rỗng khi bảng vừa được xóa (rebuild)
+    private void upsert(List<Map.Entry<BucketKey, Totals>> entries, String suffix) {
+        for (int from = 0; from < entries.size(); from += REBUILD_CHUNK_ROWS) {
+            List<Map.Entry<BucketKey, Totals>> chunk = entries.subList(from, Math.min(entries.size(), from + REBUILD_CHUNK_ROWS));
+            StringBuilder sql = new StringBuilder(UPSERT_PREFIX);
+            Object[] args = new Object[chunk.size() * 6];
+            int i = 0;
+            for (Map.Entry<BucketKey, Totals> entry : chunk) {
+                if (i > 0) {
+                    sql.append(',');
+                }
+                sql.append(ROW_PLACEHOLDER);
+                i = bindRow(args, i, entry.getKey(), entry.getValue());
+            }
+            jdbcTemplate.update(sql.append(suffix).toString(), args);
+        }
+    }
+
+    private void sumBuckets(Map<Order.OrderStatus, Totals> result, Long storeId, List<Range> ranges) {
+        StringBuilder sql = new StringBuilder(
+                "SELECT status, SUM(order_count), SUM(total_amount) FROM order_stats_buckets WHERE ");
+        List<Object> args = new ArrayList<>();
+        if (storeId != null) {
+            sql.append("store_id = ? AND ");
+            args.add(storeId);
+        }
+        sql.append('(');
+        for (int r = 0; r < ranges.size(); r++) {
+            Range range = ranges.get(r);
+            sql.append(r > 0 ? " OR " : "").append("(granularity = ?");
+            args.add(range.granularity().name());
+            if (range.from() != null) {
+                sql.append(" AND bucket_start >= ?");
+                args.add(Timestamp.valueOf(range.from()));
+            }
+            if (range.to() != null) {
+                sql.append(" AND bucket_start < ?");
+                args.add(Timestamp.valueOf(range.to()));
+            }
+            sql.append(')');
+        }
+        sql.append(") GROUP BY status");
+        collect(result, sql.toString(), args);
+    }
+
+    private void scanOrders(Map<Order.OrderStatus, Totals> result, Long storeId, List<Range> ranges) {
+        if (ranges.isEmpty()) {
+            return;
+        }
+        StringBuilder sql = new StringBuilder(
+                "SELECT status, COUNT(*), COALESCE(SUM(total_amount), 0) FROM orders WHERE ");
+        List<Object> args = new ArrayList<>();
+        if (storeId != null) {
+            sql.append("store_id = ? AND ");
+            args.add(storeId);
+        }
+        sql.append('(');
+        for (int r = 0; r < ranges.size(); r++) {
+            Range range = ranges.get(r);
+            sql.append(r > 0 ? " OR " : "")
+                    .append("(created_at >= ? AND created_at ").append(range.toInclusive() ? "<=" : "<").append(" ?)");
+            args.add(Timestamp.valueOf(range.from()));
+            args.add(Timestamp.valueOf(range.to()));
+        }
+        sql.append(") GROUP BY status");
+        collect(result, sql.toString(), args);
+    }
+
+    private void collect(Map<Order.OrderStatus, Totals> result, String sql, List<Object> args) {
+        jdbcTemplate.query(sql, rs -> {
+            BigDecimal amount = rs.getBigDecimal(3);
+            Totals totals = new Totals(rs.getLong(2), amount != null ? amount : BigDecimal.ZERO);
+            result.merge(Order.OrderStatus.valueOf(rs.getString(1)), totals, Totals::plus);
+        }, args.toArray());
+    }
+
+    private static void addDeltas(Map<BucketKey, Totals> deltas, OrderState state, int sign) {
+        if (state == null || state.createdAt() == null || state.status() == null) {
+            return;
+        }
+        long storeId = state.storeId() != null ? state.storeId() : NO_STORE;
+        BigDecimal amount = state.totalAmount() != null ? state.totalAmount() : BigDecimal.ZERO;
+        Totals delta = new Totals(sign, sign > 0 ? amount : amount.negate());
+        deltas.merge(new BucketKey(storeId, Granularity.DAY, state.createdAt().truncatedTo(ChronoUnit.DAYS), state.status()),
+                delta, Totals::plus);
+        deltas.merge(new BucketKey(storeId, Granularity.HOUR, state.createdAt().truncatedTo(ChronoUnit.HOURS), state.status()),
+                delta, Totals::plus);
+    }
+
+    private static int bindRow(Object[] args, int i, BucketKey key, Totals totals) {
+        args[i++] = key.storeId();
+        args[i++] = key.granularity().name();
+        args[i++] = Timestamp.valueOf(key.bucketStart());
+        args[i++] = key.status().name();
+        args[i++] = totals.count();
+        args[i++] = totals.amount();
+        return i;
+    }
+
+    private static LocalDateTime ceil(LocalDateTime time, TemporalUnit unit) {
+        LocalDateTime floor = time.truncatedTo(unit);
+        return floor.equals(time) ? time : floor.plus(1, unit);
+    }
+
+    // Delta của một transaction; giữ read lock của fence từ delta đầu tiên tới khi transaction kết thúc
+    private class TransactionDeltas implements TransactionSynchronization {
+        private final Map<BucketKey, Totals> deltas = new TreeMap<>();
+
+        @Override
+        public void afterCompletion(int status) {
+            TransactionSynchronizationManager.unbindResourceIfPossible(OrderStatsRollup.this);
+            try {
+                if (status == STATUS_COMMITTED) {
+                    merge(deltas);
+                }
+            } finally {
+                fence.readLock().unlock();
+            }
+        }
+    }
+
+    private record BucketKey(long storeId, Granularity granularity, LocalDateTime bucketStart, Order.OrderStatus status)
+            implements Comparable<BucketKey> {
+
+        @Override
+        public int compareTo(BucketKey other) {
+            int cmp = Long.compare(storeId, other.storeId);
+            if (cmp == 0) {
+                cmp = granularity.name().compareTo(other.granularity.name());
+            }
+            if (cmp == 0) {
+                cmp = bucketStart.compareTo(other.bucketStart);
+            }
+            return cmp != 0 ? cmp : status.name().compareTo(other.status.name());
+        }
+    }
+
+    // Khoảng bucket [from, to) theo granularity, hoặc khoảng quét orders [from, to) / [from, to]
+    private record Range(Granularity granularity, LocalDateTime from, LocalDateTime to, boolean toInclusive) {
+
+        private Range(Granularity granularity, LocalDateTime from, LocalDateTime to) {
+            this(granularity, from, to, false);
+        }
+
+        private Range(LocalDateTime from, LocalDateTime to, boolean toInclusive) {
+            this(null, from, to, toInclusive);
+        }
+    }
+}
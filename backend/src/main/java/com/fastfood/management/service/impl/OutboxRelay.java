@@ -0,0 +1,212 @@
+package com.fastfood.management.service.impl;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessageType;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.messaging.support.MessageBuilder;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.util.MimeTypeUtils;
+
+import java.nio.charset.StandardCharsets;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Phát các thông báo trong notification_outbox lên broker STOMP của node này, ngoài mọi transaction nghiệp vụ.
+ * Broker là simple broker riêng từng node nên MỌI node đều phát MỌI dòng cho client đang kết nối với mình;
+ * mỗi node giữ cursor riêng trong bộ nhớ (id đã phát gần nhất) thay vì đánh dấu dòng trong bảng chung.
+ * Id do NotificationOutbox cấp theo thứ tự commit nên đọc tuần tự id > cursor không bỏ sót dòng nào.
+ * Cursor bắt đầu từ id lớn nhất lúc khởi động: client chỉ nhận thông báo phát sinh khi đang kết nối.
+ * Một luồng duy nhất đọc theo batch, được đánh thức ngay sau commit và quét định kỳ để nhặt dòng do node khác ghi.
+ * Gửi lỗi thì dừng tại dòng đó và thử lại ở lượt sau để không đảo thứ tự, quá maxAttempts thì bỏ qua.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class OutboxRelay {
+
+    private static final String SELECT_AFTER = "SELECT id, destination, payload "
+            + "FROM notification_outbox WHERE id > ? ORDER BY id LIMIT ?";
+    private static final int PURGE_CHUNK = 5000;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final SimpMessagingTemplate messagingTemplate;
+
+    @Value("${outbox.relay.enabled:true}")
+    private boolean enabled;
+
+    @Value("${outbox.relay.batchSize:200}")
+    private int batchSize;
+
+    @Value("${outbox.relay.pollIntervalMs:1000}")
+    private long pollIntervalMs;
+
+    @Value("${outbox.relay.maxAttempts:10}")
+    private int maxAttempts;
+
+    @Value("${outbox.retentionHours:24}")
+    private int retentionHours;
+
+    @Value("${outbox.relay.shutdownTimeoutMs:5000}")
+    private long shutdownTimeoutMs;
+
+    private final Semaphore wakeUps = new Semaphore(0);
+    private Thread relay;
+    private volatile boolean running;
+
+    // Id đã phát gần nhất trên node này; chỉ luồng relay ghi
+    private volatile long cursor;
+    // Số lần gửi lỗi liên tiếp của dòng ngay sau cursor
+    private int headAttempts;
+
+    private final AtomicLong published = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+    private final AtomicLong abandoned = new AtomicLong();
+    private final AtomicLong batches = new AtomicLong();
+
+    @PostConstruct
+    void start() {
+        if (!enabled) {
+            log.info("Outbox relay disabled on this node");
+            return;
+        }
+        running = true;
+        relay = new Thread(this::relayLoop, "outbox-relay");
+        relay.setDaemon(true);
+        relay.start();
+    }
+
+    @PreDestroy
+    void stop() {
+        if (relay == null) {
+            return;
+        }
+        running = false;
+        wakeUp();
+        try {
+            relay.join(shutdownTimeoutMs);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        log.info("Outbox relay stopped at id {}: published={}, failed={}, abandoned={}",
+                cursor, published.get(), failed.get(), abandoned.get());
+    }
+
+    /**
+     * Báo có thông báo mới đã commit; nhiều lần gọi liên tiếp gộp thành một lượt relay.
+     */
+    public void wakeUp() {
+        if (wakeUps.availablePermits() == 0) {
+            wakeUps.release();
+        }
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("relayEnabled", enabled);
+        stats.put("cursor", cursor);
+        stats.put("published", published.get());
+        stats.put("failed", failed.get());
+        stats.put("abandoned", abandoned.get());
+        stats.put("batches", batches.get());
+        return stats;
+    }
+
+    /**
+     * Xóa các dòng quá thời gian lưu theo từng đoạn khóa chính, để không khóa bảng lâu.
+     */
+    @Scheduled(fixedDelayString = "${outbox.cleanupIntervalMs:3600000}", initialDelayString = "${outbox.cleanupIntervalMs:3600000}")
+    public void purgePublished() {
+        Timestamp cutoff = Timestamp.valueOf(LocalDateTime.now().minusHours(retentionHours));
+        int total = 0;
+        while (true) {
+            List<Long> ids = jdbcTemplate.queryForList(
+                    "SELECT id FROM notification_outbox WHERE created_at < ? ORDER BY id LIMIT ?",
+                    Long.class, cutoff, PURGE_CHUNK);
+            if (ids.isEmpty()) {
+                break;
+            }
+            total += jdbcTemplate.update("DELETE FROM notification_outbox WHERE id <= ? AND created_at < ?",
+                    ids.get(ids.size() - 1), cutoff);
+            if (ids.size() < PURGE_CHUNK) {
+                break;
+            }
+        }
+        if (total > 0) {
+            log.info("Purged {} outbox rows", total);
+        }
+    }
+
+    private void relayLoop() {
+        boolean positioned = false;
+        while (running) {
+            try {
+                wakeUps.tryAcquire(pollIntervalMs, TimeUnit.MILLISECONDS);
+                wakeUps.drainPermits();
+                if (!positioned) {
+                    // Bảng có thể chưa sẵn sàng khi bean khởi tạo: định vị cursor ở lượt đầu, lỗi thì thử lại lượt sau
+                    Long max = jdbcTemplate.queryForObject("SELECT COALESCE(MAX(id), 0) FROM notification_outbox", Long.class);
+                    cursor = max != null ? max : 0L;
+                    positioned = true;
+                }
+                // Xả hết backlog: batch đầy nghĩa là có thể còn dòng chờ
+                while (running && relayBatch() >= batchSize) {
+                    // tiếp tục
+                }
+            } catch (InterruptedException e) {
+                running = false;
+            } catch (Exception e) {
+                log.error("Outbox relay error: {}", e.getMessage());
+            }
+        }
+    }
+
+    private int relayBatch() {
+        List<Row> rows = jdbcTemplate.query(SELECT_AFTER, (rs, n) -> new Row(
+                rs.getLong("id"),
+                rs.getString("destination"),
+                rs.getString("payload")), cursor, batchSize);
+        batches.incrementAndGet();
+        for (Row row : rows) {
+            try {
+                send(row.destination(), row.payload());
+                published.incrementAndGet();
+            } catch (Exception e) {
+                failed.incrementAndGet();
+                if (++headAttempts < maxAttempts) {
+                    // Dừng tại đây, lượt sau gửi lại từ dòng này
+                    return 0;
+                }
+                log.warn("Giving up outbox message {} to {} after {} attempts: {}",
+                        row.id(), row.destination(), headAttempts, e.getMessage());
+                abandoned.incrementAndGet();
+            }
+            headAttempts = 0;
+            cursor = row.id();
+        }
+        return rows.size();
+    }
+
+    private void send(String destination, String payload) {
+        SimpMessageHeaderAccessor accessor = SimpMessageHeaderAccessor.create(SimpMessageType.MESSAGE);
+        accessor.setContentType(MimeTypeUtils.APPLICATION_JSON);
+        accessor.setLeaveMutable(true);
+        messagingTemplate.send(destination,
+                MessageBuilder.createMessage(payload.getBytes(StandardCharsets.UTF_8), accessor.getMessageHeaders()));
+    }
+
+    private record Row(long id, String destination, String payload) {}
+}
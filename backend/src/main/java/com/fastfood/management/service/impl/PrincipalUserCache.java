@@ -0,0 +1,155 @@
+package com.fastfood.management.service.impl;
+
+import com.fastfood.management.entity.Store;
+import com.fastfood.management.entity.StoreStaff;
+import com.fastfood.management.entity.User;
+import com.fastfood.management.repository.StoreRepository;
+import com.fastfood.management.repository.StoreStaffRepository;
+import com.fastfood.management.repository.UserRepository;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cache User (kèm roles) và các cửa hàng mà user làm nhân viên/quản lý, tra theo email của principal hoặc id.
+ * Hai tầng: trong một request chỉ tra một lần (request attribute), giữa các request dùng chung trong ttlSeconds.
+ * Mỗi request nhận bản sao User riêng nên thay đổi trên entity không lọt sang request khác.
+ * Ghi vào user / store_staff (khóa, mở khóa, đổi vai trò, sửa hồ sơ) phải gọi evict(userId).
+ */
+@Component
+@RequiredArgsConstructor
+public class PrincipalUserCache {
+
+    private static final String REQUEST_ATTRIBUTE = PrincipalUserCache.class.getName() + ".user.";
+
+    private final UserRepository userRepository;
+    private final StoreStaffRepository storeStaffRepository;
+    private final StoreRepository storeRepository;
+
+    @Value("${users.cache.ttlSeconds:30}")
+    private long ttlSeconds;
+
+    private final Map<Long, Entry> byId = new ConcurrentHashMap<>();
+    private final Map<String, Long> idByEmail = new ConcurrentHashMap<>();
+
+    /**
+     * Bản ghi staff ACTIVE và cửa hàng do user quản lý
+     */
+    public record Memberships(List<StoreStaff> activeStaff, List<Store> managedStores) {}
+
+    private record Entry(User user, Memberships memberships, long loadedAtNanos) {}
+
+    public Optional<User> findByEmail(String email) {
+        if (email == null) {
+            return Optional.empty();
+        }
+        Long id = idByEmail.get(email);
+        if (id != null) {
+            Optional<User> cached = findById(id);
+            if (cached.isPresent() && email.equals(cached.get().getEmail())) {
+                return cached;
+            }
+        }
+        return userRepository.findByEmail(email).map(user -> remember(cache(user)));
+    }
+
+    public Optional<User> findById(Long id) {
+        if (id == null) {
+            return Optional.empty();
+        }
+        User inRequest = fromRequest(id);
+        if (inRequest != null) {
+            return Optional.of(inRequest);
+        }
+        Entry entry = byId.get(id);
+        if (entry != null && fresh(entry)) {
+            return Optional.of(remember(copyOf(entry.user())));
+        }
+        return userRepository.findById(id).map(user -> remember(cache(user)));
+    }
+
+    public Memberships memberships(User user) {
+        Entry entry = byId.get(user.getId());
+        if (entry != null && fresh(entry) && entry.memberships() != null) {
+            return entry.memberships();
+        }
+        Memberships memberships = new Memberships(
+                List.copyOf(storeStaffRepository.findByUserIdAndStatus(user.getId(), StoreStaff.StaffStatus.ACTIVE)),
+                List.copyOf(storeRepository.findByManager(user)));
+        // Chỉ gắn vào entry còn hạn và chưa bị evict trong lúc nạp
+        if (entry != null && fresh(entry)) {
+            byId.replace(user.getId(), entry, new Entry(entry.user(), memberships, entry.loadedAtNanos()));
+        }
+        return memberships;
+    }
+
+    public void evict(Long userId) {
+        if (userId == null) {
+            return;
+        }
+        Entry removed = byId.remove(userId);
+        if (removed != null) {
+            idByEmail.remove(removed.user().getEmail(), userId);
+        }
+        RequestAttributes attributes = RequestContextHolder.getRequestAttributes();
+        if (attributes != null) {
+            attributes.removeAttribute(REQUEST_ATTRIBUTE + userId, RequestAttributes.SCOPE_REQUEST);
+        }
+    }
+
+    public void evictAll() {
+        byId.clear();
+        idByEmail.clear();
+    }
+
+    // Lưu bản gốc vào cache dùng chung, trả bản sao cho request
+    private User cache(User user) {
+        byId.put(user.getId(), new Entry(copyOf(user), null, System.nanoTime()));
+        idByEmail.put(user.getEmail(), user.getId());
+        return user;
+    }
+
+    private User remember(User user) {
+        RequestAttributes attributes = RequestContextHolder.getRequestAttributes();
+        if (attributes != null) {
+            attributes.setAttribute(REQUEST_ATTRIBUTE + user.getId(), user, RequestAttributes.SCOPE_REQUEST);
+        }
+        return user;
+    }
+
+    private static User fromRequest(Long id) {
+        RequestAttributes attributes = RequestContextHolder.getRequestAttributes();
+        return attributes != null
+                ? (User) attributes.getAttribute(REQUEST_ATTRIBUTE + id, RequestAttributes.SCOPE_REQUEST)
+                : null;
+    }
+
+    private boolean fresh(Entry entry) {
+        return System.nanoTime() - entry.loadedAtNanos() < TimeUnit.SECONDS.toNanos(ttlSeconds);
+    }
+
+    private static User copyOf(User user) {
+        return User.builder()
+                .id(user.getId())
+                .email(user.getEmail())
+                .passwordHash(user.getPasswordHash())
+                .username(user.getUsername())
+                .fullName(user.getFullName())
+                .phone(user.getPhone())
+                .enabled(user.isEnabled())
+                .defaultAddress(user.getDefaultAddress())
+                .roles(user.getRoles() != null ? new HashSet<>(user.getRoles()) : new HashSet<>())
+                .createdAt(user.getCreatedAt())
+                .updatedAt(user.getUpdatedAt())
+                .build();
+    }
+}
@@ -0,0 +1,372 @@
+package com.fastfood.management.service.impl;
+
+import com.fastfood.management.config.StaleFrameDropInterceptor;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import utils.GeoUtils;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Gom mọi cập nhật tracking (GPS, tiến độ, ETA) thành một frame duy nhất cho mỗi drone trong mỗi lần flush.
+ * Cập nhật tới sau ghi đè cập nhật trước khi chưa flush, vị trí/pin đọc từ FleetStateStore lúc flush
+ * nên frame gửi đi luôn là trạng thái mới nhất. Frame được phát:
+ * - /topic/delivery/{orderId}: một frame cho khách theo dõi đơn
+ * - /topic/fleet/store/{storeId}: một batch cho mỗi cửa hàng có drone đang giao
+ * - /topic/fleet/region/{cell}: một batch cho mỗi ô khu vực (drone không gắn cửa hàng)
+ * - /topic/drone-tracking: một batch toàn fleet (tắt bằng tracking.broadcast.globalTopic=false)
+ *
+ * Dead-reckoning (tracking.deadReckoning.enabled): khi drone có segment đang bay, client nhận một
+ * SegmentDescriptor (điểm đầu/cuối, thời điểm bắt đầu, thời lượng) và tự nội suy vị trí. Frame vị trí
+ * chỉ được gửi khi telemetry thực lệch khỏi vị trí nội suy quá ngưỡng; khi đó descriptor được dựng lại
+ * từ vị trí thực (correction). Descriptor được phát lại định kỳ cho subscriber vào sau.
+ * Trang theo dõi đơn (OrderTracking) nội suy theo descriptor; client chỉ hiểu GPS_UPDATE cần tắt cờ này.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class TrackingBroadcaster {
+
+    // Header STOMP mang số thứ tự frame, dùng để bỏ frame cũ với subscriber chậm
+    public static final String SEQ_HEADER = "x-tracking-seq";
+    // Ô khu vực ~11 km cho shard theo vùng
+    private static final double REGION_CELL_DEG = 0.1;
+
+    private final SimpMessagingTemplate messagingTemplate;
+    private final FleetStateStore fleetStateStore;
+    private final StaleFrameDropInterceptor staleFrameDropInterceptor;
+
+    @Value("${tracking.broadcast.globalTopic:true}")
+    private boolean globalTopicEnabled;
+
+    @Value("${tracking.deadReckoning.enabled:true}")
+    private boolean deadReckoningEnabled;
+
+    // Độ lệch (m) giữa vị trí thực và vị trí nội suy trước khi gửi correction
+    @Value("${tracking.deadReckoning.thresholdMeters:50}")
+    private double correctionThresholdMeters;
+
+    // Chu kỳ phát lại descriptor đang bay cho subscriber mới
+    @Value("${tracking.deadReckoning.keyframeSec:15}")
+    private int keyframeSec;
+
+    // droneId -> cập nhật đang chờ flush
+    private final Map<Long, Pending> pending = new ConcurrentHashMap<>();
+    // droneId -> segment đang bay mà client đang nội suy
+    private final Map<Long, ActiveSegment> activeSegments = new ConcurrentHashMap<>();
+    private final AtomicLong seq = new AtomicLong();
+    private final AtomicLong updatesReceived = new AtomicLong();
+    private final AtomicLong framesSent = new AtomicLong();
+    private final AtomicLong messagesSent = new AtomicLong();
+    private final AtomicLong flushes = new AtomicLong();
+    private final AtomicLong segmentsSent = new AtomicLong();
+    private final AtomicLong correctionsSent = new AtomicLong();
+    private final AtomicLong framesSuppressed = new AtomicLong();
+
+    /**
+     * Ghi nhận drone bắt đầu một segment mới; descriptor được phát ở lần flush kế tiếp
+     */
+    public void segmentStarted(SegmentDescriptor descriptor) {
+        activeSegments.put(descriptor.droneId(), new ActiveSegment(descriptor));
+        merge(descriptor.droneId(), new Pending(descriptor.deliveryId(), descriptor.orderId(),
+                descriptor.segment(), null, null, false));
+    }
+
+    /**
+     * Ghi nhận drone vừa đổi vị trí (vị trí đã nằm trong FleetStateStore)
+     */
+    public void gpsChanged(Long droneId) {
+        merge(droneId, new Pending(null, null, null, null, null, false));
+    }
+
+    /**
+     * Ghi nhận tiến độ delivery của drone
+     */
+    public void progressChanged(Long droneId, Long deliveryId, Long orderId, String segment,
+                                Integer etaSeconds, String deliveryStatus, boolean etaChanged) {
+        merge(droneId, new Pending(deliveryId, orderId, segment, etaSeconds, deliveryStatus, etaChanged));
+    }
+
+    /**
+     * Ghi nhận ETA mới của delivery (drone tra từ FleetStateStore)
+     */
+    public void etaChanged(Long deliveryId, int etaSeconds) {
+        fleetStateStore.findByDelivery(deliveryId).ifPresent(state -> merge(state.droneId(),
+                new Pending(deliveryId, null, null, etaSeconds, null, true)));
+    }
+
+    private void merge(Long droneId, Pending update) {
+        updatesReceived.incrementAndGet();
+        pending.merge(droneId, update, Pending::mergeNewer);
+    }
+
+    /**
+     * Phát các frame đang chờ. Đồng hồ mô phỏng gọi sau mỗi tick; lịch định kỳ bắt các cập nhật ngoài mô phỏng.
+     */
+    @Scheduled(fixedDelayString = "${tracking.broadcast.flushMs:1000}")
+    public synchronized void flush() {
+        if (pending.isEmpty()) {
+            return;
+        }
+        long frameSeq = seq.incrementAndGet();
+        long nowMs = System.currentTimeMillis();
+        String ts = LocalDateTime.now().toString();
+        Map<String, Batch> shards = new LinkedHashMap<>();
+        Batch all = new Batch();
+        Map<String, Object> seqHeader = Map.of(SEQ_HEADER, Long.toString(frameSeq));
+
+        for (Long droneId : new ArrayList<>(pending.keySet())) {
+            Pending update = pending.remove(droneId);
+            TrackingFrame frame = fleetStateStore.get(droneId)
+                    .map(state -> toFrame(state, update))
+                    .orElse(null);
+            if (frame == null || frame.lat() == null || frame.lng() == null) {
+                continue;
+            }
+            Batch shard = shards.computeIfAbsent(shardTopic(frame), k -> new Batch());
+            ActiveSegment active = activeSegment(frame);
+            if (active == null) {
+                all.frames.add(frame);
+                shard.frames.add(frame);
+                if (frame.orderId() != null) {
+                    send("/topic/delivery/" + frame.orderId(), orderPayload(frame, ts), seqHeader);
+                }
+                continue;
+            }
+
+            // Lệch quá ngưỡng: dựng lại descriptor từ vị trí thực, giữ nguyên thời điểm tới điểm cuối
+            boolean corrected = active.deviationMeters(frame.lat(), frame.lng(), nowMs) > correctionThresholdMeters;
+            if (corrected) {
+                active.rebase(frame.lat(), frame.lng(), nowMs);
+                all.frames.add(frame);
+                shard.frames.add(frame);
+                correctionsSent.incrementAndGet();
+            } else {
+                framesSuppressed.incrementAndGet();
+            }
+            if (corrected || active.dueForAnnounce(nowMs, keyframeSec * 1000L)) {
+                SegmentDescriptor descriptor = active.descriptor;
+                active.lastAnnouncedMs = nowMs;
+                all.segments.add(descriptor);
+                shard.segments.add(descriptor);
+                send("/topic/delivery/" + descriptor.orderId(), segmentPayload(descriptor, ts), seqHeader);
+                segmentsSent.incrementAndGet();
+            }
+        }
+        if (all.isEmpty()) {
+            return;
+        }
+        shards.forEach((topic, batch) -> {
+            if (!batch.isEmpty()) {
+                send(topic, batchPayload(frameSeq, ts, batch), seqHeader);
+            }
+        });
+        if (globalTopicEnabled) {
+            send("/topic/drone-tracking", batchPayload(frameSeq, ts, all), seqHeader);
+        }
+        framesSent.addAndGet(all.frames.size());
+        flushes.incrementAndGet();
+    }
+
+    // Segment client đang nội suy cho frame này, null nếu phải gửi frame vị trí đầy đủ
+    private ActiveSegment activeSegment(TrackingFrame frame) {
+        if (!deadReckoningEnabled) {
+            return null;
+        }
+        ActiveSegment active = activeSegments.get(frame.droneId());
+        if (active == null) {
+            return null;
+        }
+        if (frame.deliveryId() == null || !frame.deliveryId().equals(active.descriptor.deliveryId())) {
+            // Drone đã sang chuyến khác mà chưa có descriptor mới: bỏ descriptor cũ
+            activeSegments.remove(frame.droneId(), active);
+            return null;
+        }
+        return active;
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("flushes", flushes.get());
+        stats.put("updatesReceived", updatesReceived.get());
+        stats.put("framesSent", framesSent.get());
+        stats.put("messagesSent", messagesSent.get());
+        stats.put("pending", pending.size());
+        stats.put("deadReckoning", deadReckoningEnabled);
+        stats.put("activeSegments", activeSegments.size());
+        stats.put("segmentsSent", segmentsSent.get());
+        stats.put("correctionsSent", correctionsSent.get());
+        stats.put("framesSuppressed", framesSuppressed.get());
+        stats.put("staleFramesDropped", staleFrameDropInterceptor.getDroppedCount());
+        return stats;
+    }
+
+    private TrackingFrame toFrame(FleetStateStore.DroneState state, Pending update) {
+        FleetStateStore.AssignmentState assignment = state.assignment();
+        // Assignment trong store chỉ dùng khi trùng delivery của cập nhật (chuyến quay về trạm đã release)
+        boolean sameDelivery = assignment != null
+                && (update.deliveryId() == null || update.deliveryId().equals(assignment.deliveryId()));
+        FleetStateStore.AssignmentState current = sameDelivery ? assignment : null;
+        return new TrackingFrame(
+                state.droneId(),
+                update.deliveryId() != null ? update.deliveryId() : current != null ? current.deliveryId() : null,
+                update.orderId() != null ? update.orderId() : current != null ? current.orderId() : null,
+                current != null ? current.storeId() : null,
+                state.lat(),
+                state.lng(),
+                state.batteryPct(),
+                state.status() != null ? state.status().name() : null,
+                update.segment() != null ? update.segment() : current != null ? current.currentSegment() : null,
+                update.etaSeconds() != null ? update.etaSeconds() : current != null ? current.etaSeconds() : null,
+                update.deliveryStatus() != null ? update.deliveryStatus() : current != null ? current.deliveryStatus() : null,
+                update.etaChanged());
+    }
+
+    private String shardTopic(TrackingFrame frame) {
+        if (frame.storeId() != null) {
+            return "/topic/fleet/store/" + frame.storeId();
+        }
+        long latCell = (long) Math.floor(frame.lat() / REGION_CELL_DEG);
+        long lngCell = (long) Math.floor(frame.lng() / REGION_CELL_DEG);
+        return "/topic/fleet/region/" + latCell + "_" + lngCell;
+    }
+
+    // Giữ nguyên khuôn GPS_UPDATE cũ của topic theo đơn
+    private Map<String, Object> orderPayload(TrackingFrame frame, String ts) {
+        Map<String, Object> payload = new LinkedHashMap<>();
+        payload.put("eventType", "GPS_UPDATE");
+        payload.put("deliveryId", frame.deliveryId());
+        payload.put("orderId", frame.orderId());
+        payload.put("droneId", frame.droneId());
+        payload.put("lat", frame.lat());
+        payload.put("lng", frame.lng());
+        payload.put("segment", frame.segment());
+        payload.put("etaSec", frame.etaSec());
+        payload.put("etaChanged", frame.etaChanged());
+        payload.put("ts", ts);
+        return payload;
+    }
+
+    private Map<String, Object> segmentPayload(SegmentDescriptor descriptor, String ts) {
+        Map<String, Object> payload = new LinkedHashMap<>();
+        payload.put("eventType", "SEGMENT");
+        payload.put("deliveryId", descriptor.deliveryId());
+        payload.put("orderId", descriptor.orderId());
+        payload.put("droneId", descriptor.droneId());
+        payload.put("segment", descriptor.segment());
+        payload.put("fromLat", descriptor.fromLat());
+        payload.put("fromLng", descriptor.fromLng());
+        payload.put("toLat", descriptor.toLat());
+        payload.put("toLng", descriptor.toLng());
+        payload.put("startedAtMs", descriptor.startedAtMs());
+        payload.put("durationMs", descriptor.durationMs());
+        payload.put("etaAtEndSec", descriptor.etaAtEndSec());
+        payload.put("correction", descriptor.correction());
+        payload.put("ts", ts);
+        return payload;
+    }
+
+    private Map<String, Object> batchPayload(long frameSeq, String ts, Batch batch) {
+        Map<String, Object> payload = new LinkedHashMap<>();
+        payload.put("type", "FLEET_FRAME");
+        payload.put("seq", frameSeq);
+        payload.put("ts", ts);
+        payload.put("frames", batch.frames);
+        if (!batch.segments.isEmpty()) {
+            payload.put("segments", batch.segments);
+        }
+        return payload;
+    }
+
+    private void send(String topic, Object payload, Map<String, Object> headers) {
+        try {
+            messagingTemplate.convertAndSend(topic, payload, headers);
+            messagesSent.incrementAndGet();
+        } catch (Exception e) {
+            log.warn("Failed to broadcast tracking frame to {}: {}", topic, e.getMessage());
+        }
+    }
+
+    /**
+     * Frame gọn của một drone: vị trí + tiến độ delivery trong một message
+     */
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    public record TrackingFrame(Long droneId, Long deliveryId, Long orderId, Long storeId,
+                                Double lat, Double lng, Double battery, String droneStatus,
+                                String segment, Integer etaSec, String deliveryStatus, boolean etaChanged) {}
+
+    /**
+     * Một đoạn bay thẳng đều: client nội suy tuyến tính từ (fromLat, fromLng) lúc startedAtMs
+     * tới (toLat, toLng) sau durationMs, rồi đứng yên tại điểm cuối. ETA = etaAtEndSec + thời gian còn lại của đoạn.
+     */
+    public record SegmentDescriptor(Long droneId, Long deliveryId, Long orderId, String segment,
+                                    double fromLat, double fromLng, double toLat, double toLng,
+                                    long startedAtMs, long durationMs, int etaAtEndSec, boolean correction) {
+
+        public double[] positionAt(long nowMs) {
+            double u = durationMs <= 0 ? 1.0 : Math.min(1.0, Math.max(0.0, (double) (nowMs - startedAtMs) / durationMs));
+            return new double[]{fromLat + u * (toLat - fromLat), fromLng + u * (toLng - fromLng)};
+        }
+    }
+
+    // Descriptor đang hiệu lực của một drone; chỉ flush (synchronized) sửa đổi
+    private static final class ActiveSegment {
+        private SegmentDescriptor descriptor;
+        private long lastAnnouncedMs = -1;
+
+        private ActiveSegment(SegmentDescriptor descriptor) {
+            this.descriptor = descriptor;
+        }
+
+        private double deviationMeters(double lat, double lng, long nowMs) {
+            double[] predicted = descriptor.positionAt(nowMs);
+            return GeoUtils.haversineKm(lat, lng, predicted[0], predicted[1]) * 1000.0;
+        }
+
+        private void rebase(double lat, double lng, long nowMs) {
+            long endMs = descriptor.startedAtMs() + descriptor.durationMs();
+            descriptor = new SegmentDescriptor(descriptor.droneId(), descriptor.deliveryId(), descriptor.orderId(),
+                    descriptor.segment(), lat, lng, descriptor.toLat(), descriptor.toLng(),
+                    nowMs, Math.max(0, endMs - nowMs), descriptor.etaAtEndSec(), true);
+        }
+
+        private boolean dueForAnnounce(long nowMs, long keyframeMs) {
+            return lastAnnouncedMs < 0 || nowMs - lastAnnouncedMs >= keyframeMs;
+        }
+    }
+
+    private static final class Batch {
+        private final List<TrackingFrame> frames = new ArrayList<>();
+        private final List<SegmentDescriptor> segments = new ArrayList<>();
+
+        private boolean isEmpty() {
+            return frames.isEmpty() && segments.isEmpty();
+        }
+    }
+
+    private record Pending(Long deliveryId, Long orderId, String segment,
+                           Integer etaSeconds, String deliveryStatus, boolean etaChanged) {
+
+        private Pending mergeNewer(Pending newer) {
+            return new Pending(
+                    newer.deliveryId != null ? newer.deliveryId : deliveryId,
+                    newer.orderId != null ? newer.orderId : orderId,
+                    newer.segment != null ? newer.segment : segment,
+                    newer.etaSeconds != null ? newer.etaSeconds : etaSeconds,
+                    newer.deliveryStatus != null ? newer.deliveryStatus : deliveryStatus,
+                    etaChanged || newer.etaChanged);
+        }
+    }
+}
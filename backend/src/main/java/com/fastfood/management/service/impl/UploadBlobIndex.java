@@ -0,0 +1,54 @@
+package com.fastfood.management.service.impl;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Chỉ mục của upload theo nội dung (bảng upload_blobs): digest -> path và lần được upload gần nhất.
+ * Hai request cùng ghi một digest mới được xử lý bằng khóa chính: request sau dùng lại path của request trước.
+ */
+@Component
+@RequiredArgsConstructor
+public class UploadBlobIndex {
+
+    private final JdbcTemplate jdbcTemplate;
+
+    /**
+     * Path đã lưu cho digest, nếu nội dung này từng được upload
+     */
+    public Optional<String> pathOf(String digest) {
+        List<String> paths = jdbcTemplate.queryForList(
+                "SELECT path FROM upload_blobs WHERE digest = ?", String.class, digest);
+        return paths.stream().findFirst();
+    }
+
+    /**
+     * Ghi nhận một lần upload trỏ tới blob; trả về path chuẩn của blob (path của lần ghi đầu tiên)
+     */
+    public String reference(String digest, String path, String contentType, long sizeBytes) {
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        if (touch(digest, now) == 0) {
+            try {
+                jdbcTemplate.update("INSERT INTO upload_blobs "
+                                + "(digest, path, content_type, size_bytes, created_at, last_referenced_at) "
+                                + "VALUES (?, ?, ?, ?, ?, ?)",
+                        digest, path, contentType, sizeBytes, now, now);
+                return path;
+            } catch (DuplicateKeyException e) {
+                // Request khác vừa chèn cùng digest
+            }
+        }
+        return pathOf(digest).orElse(path);
+    }
+
+    private int touch(String digest, Timestamp now) {
+        return jdbcTemplate.update("UPDATE upload_blobs SET last_referenced_at = ? WHERE digest = ?", now, digest);
+    }
+}
@@ -36,6 +36,8 @@ public class UserServiceImpl implements UserService {
     private final UserMapper userMapper;
     private final PasswordEncoder passwordEncoder;
     private final JwtTokenProvider jwtTokenProvider;
+    private final PrincipalUserCache principalUserCache;
+    private final LoginHashExecutor loginHashExecutor;
 //
     @Override
     public UserResponse register(RegisterRequest registerRequest) {
@@ -66,7 +68,7 @@ public class UserServiceImpl implements UserService {
         User user = userRepository.findByEmail(loginRequest.getEmail())
                 .orElseThrow(() -> new ResourceNotFoundException("User not found"));
 
-        if (!passwordEncoder.matches(loginRequest.getPassword(), user.getPasswordHash())) {
+        if (!loginHashExecutor.matches(user, loginRequest.getPassword())) {
             throw new IllegalArgumentException("Invalid credentials");
         }
 
@@ -130,6 +132,7 @@ public class UserServiceImpl implements UserService {
         }
 
         User updatedUser = userRepository.save(user);
+        principalUserCache.evict(updatedUser.getId());
         return userMapper.toResponse(updatedUser);
     }
 //
@@ -139,6 +142,7 @@ public class UserServiceImpl implements UserService {
                 .orElseThrow(() -> new ResourceNotFoundException("User not found with id: " + id));
         user.setEnabled(false);
         userRepository.save(user);
+        principalUserCache.evict(user.getId());
     }
 //
     @Override
@@ -148,7 +152,7 @@ public class UserServiceImpl implements UserService {
             throw new IllegalStateException("No authenticated user found");
         }
         String email = authentication.getName();
-        return userRepository.findByEmail(email)
+        return principalUserCache.findByEmail(email)
                 .filter(User::isEnabled)
                 .orElseThrow(() -> new EntityNotFoundException("User not found"));
     }
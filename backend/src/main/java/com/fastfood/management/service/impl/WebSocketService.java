@@ -4,29 +4,48 @@ import lombok.RequiredArgsConstructor;
 import org.springframework.messaging.simp.SimpMessagingTemplate;
 import org.springframework.stereotype.Service;
 
+import java.util.Map;
+
 @Service
 @RequiredArgsConstructor
 public class WebSocketService {
 
     private final SimpMessagingTemplate messagingTemplate;
+    private final NotificationOutbox notificationOutbox;
 
     /**
-     * Send order status update notification
+     * Send order status update notification.
+     * Ghi qua outbox: chỉ được phát sau khi transaction cập nhật đơn commit, theo đúng thứ tự của đơn.
      */
     public void sendOrderStatusUpdate(Long orderId, String status) {
-        messagingTemplate.convertAndSend(
+        notificationOutbox.enqueue(orderId,
                 "/topic/orders/" + orderId,
                 new WebSocketMessage("ORDER_STATUS_CHANGED", status)
         );
         
         // Also send to kitchen topic for kitchen staff
-        messagingTemplate.convertAndSend(
+        notificationOutbox.enqueue(orderId,
                 "/topic/kitchen/orders",
                 new WebSocketMessage("ORDER_STATUS_CHANGED", 
                         String.format("Order #%d status changed to %s", orderId, status))
         );
     }
 
+    /**
+     * Cảnh báo đơn bị treo ở một trạng thái quá lâu, cho bếp và admin (qua outbox)
+     */
+    public void sendOrderEscalation(Long orderId, String status, long minutes) {
+        notificationOutbox.enqueue(orderId,
+                "/topic/kitchen/orders",
+                new WebSocketMessage("ORDER_STALE",
+                        String.format("Order #%d has been %s for over %d minutes", orderId, status, minutes))
+        );
+        notificationOutbox.enqueue(orderId,
+                "/topic/admin/dashboard",
+                new WebSocketMessage("ORDER_STALE", Map.of("orderId", orderId, "status", status, "minutes", minutes))
+        );
+    }
+
     /**
      * Send drone GPS update notification
      */
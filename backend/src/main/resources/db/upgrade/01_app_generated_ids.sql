@@ -0,0 +1,15 @@
+-- Orders, order items, deliveries, delivery events, order activity and payments
+-- now get their ids from the application (TimeOrderedIdGenerator) instead of AUTO_INCREMENT,
+-- so Hibernate can batch their inserts. Dropping AUTO_INCREMENT makes any insert
+-- that forgets to supply an id fail instead of colliding with generated ids.
+-- FK checks are disabled only while the referenced id columns are modified (types unchanged).
+SET FOREIGN_KEY_CHECKS = 0;
+
+ALTER TABLE orders MODIFY id BIGINT NOT NULL;
+ALTER TABLE order_items MODIFY id BIGINT NOT NULL;
+ALTER TABLE payments MODIFY id BIGINT NOT NULL;
+ALTER TABLE deliveries MODIFY id BIGINT NOT NULL;
+ALTER TABLE delivery_events MODIFY id BIGINT NOT NULL;
+ALTER TABLE order_activity MODIFY id BIGINT NOT NULL;
+
+SET FOREIGN_KEY_CHECKS = 1;
@@ -0,0 +1,14 @@
+-- Incrementally maintained order statistics per store / hour or day of creation / current status.
+-- store_id = 0 collects orders without a store.
+CREATE TABLE IF NOT EXISTS order_stats_buckets (
+    store_id BIGINT NOT NULL,
+    granularity VARCHAR(8) NOT NULL,
+    bucket_start DATETIME(6) NOT NULL,
+    status VARCHAR(32) NOT NULL,
+    order_count BIGINT NOT NULL,
+    total_amount DECIMAL(18,2) NOT NULL,
+    PRIMARY KEY (store_id, granularity, bucket_start, status)
+);
+
+-- Unaligned range edges fall back to scanning orders of one store within a single hour
+CREATE INDEX idx_orders_store_created ON orders(store_id, created_at);
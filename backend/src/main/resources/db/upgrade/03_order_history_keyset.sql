@@ -0,0 +1,3 @@
+-- Keyset pagination of a customer's order history: WHERE customer_id = ? AND (created_at, id) < (?, ?)
+-- ORDER BY created_at DESC, id DESC is answered by a backward range scan without filesort.
+CREATE INDEX idx_orders_customer_created ON orders(customer_id, created_at, id);
@@ -0,0 +1,15 @@
+-- Transactional outbox for STOMP notifications: rows are written in the same transaction as the
+-- order/delivery change and published by the relay after commit, in id order per aggregate_id.
+CREATE TABLE IF NOT EXISTS notification_outbox (
+    id BIGINT NOT NULL,
+    aggregate_id BIGINT NULL,
+    destination VARCHAR(255) NOT NULL,
+    payload VARCHAR(4000) NOT NULL,
+    created_at DATETIME(6) NOT NULL,
+    published_at DATETIME(6) NULL,
+    attempts INT NOT NULL DEFAULT 0,
+    PRIMARY KEY (id)
+);
+
+-- Relay polls WHERE published_at IS NULL ORDER BY id; cleanup deletes old published rows
+CREATE INDEX idx_outbox_pending ON notification_outbox(published_at, id);
@@ -0,0 +1,12 @@
+-- Reference index for content-addressed uploads: one row per unique blob (SHA-256 of the bytes),
+-- stored once under uploads/blobs/; ref_count counts how many uploads resolved to it.
+CREATE TABLE IF NOT EXISTS upload_blobs (
+    digest VARCHAR(64) NOT NULL,
+    path VARCHAR(512) NOT NULL,
+    content_type VARCHAR(100) NULL,
+    size_bytes BIGINT NOT NULL,
+    ref_count INT NOT NULL DEFAULT 1,
+    created_at DATETIME(6) NOT NULL,
+    last_referenced_at DATETIME(6) NOT NULL,
+    PRIMARY KEY (digest)
+);
@@ -0,0 +1,18 @@
+-- Outbox ids now come from a single counter row incremented just before commit, so they follow commit
+-- order. Each node relays every row to its own STOMP broker with an in-memory cursor, so the per-row
+-- delivery state is no longer stored.
+CREATE TABLE IF NOT EXISTS outbox_sequence (
+    id INT NOT NULL,
+    next_value BIGINT NOT NULL,
+    PRIMARY KEY (id)
+);
+
+INSERT INTO outbox_sequence (id, next_value)
+SELECT 1, COALESCE(MAX(id), 0) FROM notification_outbox;
+
+DROP INDEX idx_outbox_pending ON notification_outbox;
+ALTER TABLE notification_outbox DROP COLUMN published_at;
+ALTER TABLE notification_outbox DROP COLUMN attempts;
+
+-- Cleanup deletes rows older than the retention window
+CREATE INDEX idx_outbox_created ON notification_outbox(created_at);
@@ -0,0 +1,3 @@
+-- ref_count was never read: uploads are not tracked per referencing row, so it cannot drive
+-- garbage collection. last_referenced_at remains as the record of the latest upload of a blob.
+ALTER TABLE upload_blobs DROP COLUMN ref_count;
@@ -0,0 +1,21 @@
+-- Multi-stop drone routes (drone.autoAssign.mode=ROUTE): one row per trip of a drone from one store;
+-- each drop-off stays a deliveries row linked by route_id and ordered by stop_sequence.
+CREATE TABLE IF NOT EXISTS delivery_routes (
+    id BIGINT NOT NULL AUTO_INCREMENT,
+    drone_id BIGINT NOT NULL,
+    store_id BIGINT NOT NULL,
+    status VARCHAR(32) NOT NULL,
+    total_payload_kg DOUBLE NULL,
+    planned_distance_km DOUBLE NULL,
+    created_at DATETIME(6) NOT NULL,
+    completed_at DATETIME(6) NULL,
+    PRIMARY KEY (id),
+    CONSTRAINT fk_delivery_routes_drone FOREIGN KEY (drone_id) REFERENCES drones(id),
+    CONSTRAINT fk_delivery_routes_store FOREIGN KEY (store_id) REFERENCES stores(id)
+);
+
+ALTER TABLE deliveries ADD COLUMN route_id BIGINT NULL;
+ALTER TABLE deliveries ADD COLUMN stop_sequence INT NULL;
+ALTER TABLE deliveries ADD COLUMN payload_kg DOUBLE NULL;
+ALTER TABLE deliveries ADD COLUMN leg_duration_sec INT NULL;
+ALTER TABLE deliveries ADD CONSTRAINT fk_deliveries_route FOREIGN KEY (route_id) REFERENCES delivery_routes(id);
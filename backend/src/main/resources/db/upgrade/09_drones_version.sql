@@ -0,0 +1,3 @@
+-- Optimistic locking on drones: concurrent assignments of the same drone no longer both commit.
+-- The FleetStateStore position checkpoint is a plain UPDATE and does not bump the version.
+ALTER TABLE drones ADD COLUMN version BIGINT NOT NULL DEFAULT 0;
@@ -0,0 +1,173 @@
+package com.fastfood.management.bootstrap;
+
+import com.fastfood.management.entity.Address;
+import com.fastfood.management.entity.Delivery;
+import com.fastfood.management.entity.DeliveryRoute;
+import com.fastfood.management.entity.Drone;
+import com.fastfood.management.entity.DroneAssignment;
+import com.fastfood.management.entity.Order;
+import com.fastfood.management.entity.OrderItem;
+import com.fastfood.management.entity.Store;
+import com.fastfood.management.repository.DeliveryRepository;
+import com.fastfood.management.repository.DeliveryRouteRepository;
+import com.fastfood.management.repository.DroneAssignmentRepository;
+import com.fastfood.management.repository.DroneRepository;
+import com.fastfood.management.repository.OrderRepository;
+import com.fastfood.management.service.api.DroneSimulator;
+import com.fastfood.management.service.api.DroneTrackingService;
+import com.fastfood.management.service.impl.DeliveryBatchPlanner;
+import com.fastfood.management.service.impl.FleetServiceImpl;
+import com.fastfood.management.service.impl.FleetStateStore;
+import com.fastfood.management.service.impl.HeuristicRoutePlanner;
+import org.hibernate.collection.spi.PersistentBag;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.Pageable;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Chạy một lượt dispatch chế độ ROUTE qua scheduler và FleetServiceImpl thật, repository giả lập.
+ * Đơn ứng viên có orderItems chưa khởi tạo (như entity detached khi open-in-view tắt).
+ */
+class AutoAssignSchedulerRouteTest {
+
+    private final OrderRepository orderRepository = mock(OrderRepository.class);
+    private final DeliveryRepository deliveryRepository = mock(DeliveryRepository.class);
+    private final DroneRepository droneRepository = mock(DroneRepository.class);
+    private final DroneAssignmentRepository assignmentRepository = mock(DroneAssignmentRepository.class);
+    private final DeliveryRouteRepository routeRepository = mock(DeliveryRouteRepository.class);
+    private final DroneSimulator droneSimulator = mock(DroneSimulator.class);
+    private final AtomicLong ids = new AtomicLong(100);
+
+    private final Store store = Store.builder().id(1L).lat(10.7700).lng(106.7000).build();
+    private final Drone drone = Drone.builder()
+            .id(7L).serial("D-7").status(Drone.DroneStatus.IDLE)
+            .currentLat(10.7705).currentLng(106.7005).homeLat(10.7705).homeLng(106.7005)
+            .batteryPct(100.0).maxPayloadKg(5.0).maxRangeKm(30.0)
+            .build();
+
+    private AutoAssignScheduler scheduler;
+
+    @BeforeEach
+    void setUp() {
+        FleetStateStore fleetStateStore = new FleetStateStore(droneRepository, assignmentRepository, null);
+        fleetStateStore.syncFromEntity(drone);
+
+        DeliveryBatchPlanner batchPlanner = new DeliveryBatchPlanner(new HeuristicRoutePlanner());
+        ReflectionTestUtils.setField(batchPlanner, "maxStops", 3);
+        ReflectionTestUtils.setField(batchPlanner, "itemWeightKg", 0.35);
+        ReflectionTestUtils.setField(batchPlanner, "maxStopSpreadKm", 3.0);
+
+        FleetServiceImpl fleetService = new FleetServiceImpl(droneRepository, assignmentRepository, deliveryRepository,
+                routeRepository, orderRepository, batchPlanner, mock(DroneTrackingService.class), fleetStateStore,
+                mock(ApplicationEventPublisher.class));
+
+        scheduler = new AutoAssignScheduler(fleetService, orderRepository, deliveryRepository, droneRepository,
+                droneSimulator, mock(PlatformTransactionManager.class));
+        ReflectionTestUtils.setField(scheduler, "mode", "ROUTE");
+        ReflectionTestUtils.setField(scheduler, "maxStops", 3);
+        scheduler.init();
+
+        when(droneRepository.findByStatus(Drone.DroneStatus.IDLE)).thenReturn(List.of(drone));
+        when(droneRepository.findAllById(any())).thenReturn(List.of(drone));
+        when(deliveryRepository.save(any(Delivery.class))).thenAnswer(inv -> withId(inv.getArgument(0, Delivery.class)));
+        when(routeRepository.save(any(DeliveryRoute.class))).thenAnswer(inv -> {
+            DeliveryRoute route = inv.getArgument(0);
+            route.setId(ids.incrementAndGet());
+            return route;
+        });
+        when(assignmentRepository.save(any(DroneAssignment.class))).thenAnswer(inv -> {
+            DroneAssignment assignment = inv.getArgument(0);
+            assignment.setId(ids.incrementAndGet());
+            return assignment;
+        });
+    }
+
+    @Test
+    void routeDispatchReloadsItemsAndStartsOnlyTheFirstStop() {
+        List<Order> detached = List.of(
+                order(11L, 10.7750, 106.7050, uninitializedItems()),
+                order(12L, 10.7760, 106.7060, uninitializedItems()));
+        List<Order> reloaded = List.of(
+                order(12L, 10.7760, 106.7060, items(2)),
+                order(11L, 10.7750, 106.7050, items(1)));
+        when(orderRepository.findByStatus(eq(Order.OrderStatus.READY_FOR_DELIVERY), any(Pageable.class)))
+                .thenReturn(new PageImpl<>(detached));
+        when(orderRepository.findAllWithItemsByIdIn(any(Collection.class))).thenReturn(reloaded);
+
+        scheduler.pollAndAssign();
+
+        verify(routeRepository).save(any(DeliveryRoute.class));
+        verify(droneSimulator, times(1)).startSimulation(anyLong());
+        reloaded.forEach(order -> {
+            assertEquals(Order.OrderStatus.OUT_FOR_DELIVERY, order.getStatus());
+            assertEquals(drone, order.getDelivery().getDrone());
+        });
+        assertEquals(Drone.DroneStatus.EN_ROUTE_TO_STORE, drone.getStatus());
+    }
+
+    @Test
+    void ordersAssignedSinceTheCandidateReadAreSkipped() {
+        List<Order> detached = List.of(order(11L, 10.7750, 106.7050, uninitializedItems()));
+        Order alreadyOut = order(11L, 10.7750, 106.7050, items(1));
+        alreadyOut.setStatus(Order.OrderStatus.OUT_FOR_DELIVERY);
+        when(orderRepository.findByStatus(eq(Order.OrderStatus.READY_FOR_DELIVERY), any(Pageable.class)))
+                .thenReturn(new PageImpl<>(detached));
+        when(orderRepository.findAllWithItemsByIdIn(any(Collection.class))).thenReturn(List.of(alreadyOut));
+
+        scheduler.pollAndAssign();
+
+        verify(assignmentRepository, never()).save(any(DroneAssignment.class));
+        verify(droneSimulator, never()).startSimulation(anyLong());
+        assertEquals(Drone.DroneStatus.IDLE, drone.getStatus());
+    }
+
+    private Order order(Long id, double lat, double lng, List<OrderItem> items) {
+        return Order.builder()
+                .id(id)
+                .store(store)
+                .address(Address.builder().id(id).lat(lat).lng(lng).build())
+                .status(Order.OrderStatus.READY_FOR_DELIVERY)
+                .paymentStatus(Order.PaymentStatus.PAID)
+                .orderItems(items)
+                .createdAt(LocalDateTime.now().minusMinutes(id))
+                .build();
+    }
+
+    // Collection lazy không có session: mọi lần đọc ném LazyInitializationException
+    private static List<OrderItem> uninitializedItems() {
+        return new PersistentBag<>();
+    }
+
+    private static List<OrderItem> items(int quantity) {
+        List<OrderItem> items = new ArrayList<>();
+        items.add(OrderItem.builder().quantity(quantity).build());
+        return items;
+    }
+
+    private Delivery withId(Delivery delivery) {
+        if (delivery.getId() == null) {
+            delivery.setId(ids.incrementAndGet());
+        }
+        return delivery;
+    }
+}
@@ -0,0 +1,74 @@
+package com.fastfood.management.security;
+
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+import org.springframework.util.AntPathMatcher;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class RequestPathClassifierTest {
+
+    private final RequestPathClassifier classifier = new RequestPathClassifier();
+    private final AntPathMatcher pathMatcher = new AntPathMatcher();
+
+    // Kết quả phải giống cách filter cũ: bỏ contextPath rồi AntPathMatcher.match với từng pattern
+    @ParameterizedTest(name = "[{index}] contextPath=''{0}'' uri=''{1}''")
+    @CsvSource(value = {
+            "'', /auth/login",
+            "'', /auth",
+            "'', /auth/",
+            "'', /authx",
+            "'', /authx/login",
+            "'', /api/auth/register",
+            "'', /api/auths",
+            "'', /public",
+            "'', /public/images/a.png",
+            "'', /payments/vnpay/return",
+            "'', /payments/vnpay",
+            "'', /payments/momo/return",
+            "'', /payments",
+            "'', /ws",
+            "'', /ws/info",
+            "'', /api/ws/123/abc/websocket",
+            "'', /drone-management/drones",
+            "'', /deliveries/42/gps",
+            "'', /deliveries",
+            "'', /delivery/42",
+            "'', /drone-tracking/drone/1/gps",
+            "'', /orders/me",
+            "'', /",
+            "'', ''",
+            "'', auth/login",
+            "'', //auth//login",
+            "'', ///deliveries",
+            "'', /orders//auth/login",
+            "'', /deliveries;x/abc",
+            "'', /deliveries;jsessionid=1",
+            "'', /auth/login;jsessionid=ABC",
+            "'', /auth;x",
+            "'', /ws;x/info",
+            "'', /Auth/login",
+            "/app, /app/auth/login",
+            "/app, /app/orders/me",
+            "/app, /app",
+            "/app, /app/",
+            "/app, /appauth/login",
+            "/app, /auth/login",
+            "/app, /app//deliveries/1",
+            "/app, /app/deliveries;x/abc",
+            "/api, /api/auth/login",
+            "/api, /api/api/auth/login",
+            "/api, /api/ws",
+    })
+    void matchesAntPathMatcher(String contextPath, String uri) {
+        String path = !contextPath.isEmpty() && uri.startsWith(contextPath) ? uri.substring(contextPath.length()) : uri;
+        int expected = 0;
+        for (var pattern : RequestPathClassifier.PATTERNS.entrySet()) {
+            if (pathMatcher.match(pattern.getKey(), path)) {
+                expected |= pattern.getValue();
+            }
+        }
+
+        assertEquals(expected, classifier.classify(uri, contextPath));
+    }
+}
@@ -0,0 +1,119 @@
+package com.fastfood.management.service.impl;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class HierarchicalTimerWheelTest {
+
+    // 3 level: tầm 80ms, 640ms, 5120ms
+    private static final long TICK_MS = 10;
+    private static final int WHEEL_SIZE = 8;
+    private static final int LEVELS = 3;
+    private static final long START_MS = 1_000;
+
+    private final HierarchicalTimerWheel<String> wheel = new HierarchicalTimerWheel<>(TICK_MS, WHEEL_SIZE, LEVELS, START_MS);
+
+    @Test
+    void neverFiresEarlyAndAtMostOneTickLate() {
+        Random random = new Random(42);
+        Map<String, Long> deadlines = new HashMap<>();
+        for (int i = 0; i < 500; i++) {
+            long deadline = START_MS + random.nextInt(12_000);
+            deadlines.put("t" + i, deadline);
+            wheel.schedule("t" + i, deadline);
+        }
+
+        Map<String, Long> firedAt = runUntil(START_MS + 13_000);
+
+        assertEquals(deadlines.keySet(), firedAt.keySet());
+        deadlines.forEach((key, deadline) -> {
+            long at = firedAt.get(key);
+            assertTrue(at >= deadline, key + " fired early at " + at + " for deadline " + deadline);
+            assertTrue(at - deadline <= TICK_MS, key + " fired late at " + at + " for deadline " + deadline);
+        });
+        assertEquals(0, wheel.size());
+    }
+
+    @Test
+    void cascadesFromUpperLevels() {
+        // level 2 (>= 640ms) rồi level 1 (>= 80ms)
+        wheel.schedule("level2", START_MS + 700);
+        wheel.schedule("level1", START_MS + 95);
+
+        Map<String, Long> firedAt = runUntil(START_MS + 800);
+
+        assertFiredWithinOneTick(firedAt, "level1", START_MS + 95);
+        assertFiredWithinOneTick(firedAt, "level2", START_MS + 700);
+    }
+
+    @Test
+    void firesDeadlinesBeyondTopLevelRange() {
+        long deadline = START_MS + 20_003;
+        wheel.schedule("far", deadline);
+
+        Map<String, Long> firedAt = runUntil(deadline + 50);
+
+        assertFiredWithinOneTick(firedAt, "far", deadline);
+    }
+
+    @Test
+    void cancelledTimerNeverFires() {
+        wheel.schedule("cancelled", START_MS + 300);
+        assertTrue(wheel.cancel("cancelled"));
+        assertFalse(wheel.contains("cancelled"));
+        assertFalse(wheel.cancel("cancelled"));
+
+        assertTrue(runUntil(START_MS + 1_000).isEmpty());
+    }
+
+    @Test
+    void rescheduleReplacesPreviousDeadline() {
+        wheel.schedule("later", START_MS + 100);
+        wheel.schedule("later", START_MS + 900);
+        wheel.schedule("sooner", START_MS + 900);
+        wheel.schedule("sooner", START_MS + 50);
+
+        Map<String, Long> firedAt = runUntil(START_MS + 1_000);
+
+        assertFiredWithinOneTick(firedAt, "later", START_MS + 900);
+        assertFiredWithinOneTick(firedAt, "sooner", START_MS + 50);
+        assertEquals(2, firedAt.size());
+    }
+
+    @Test
+    void pastDeadlineFiresOnNextAdvance() {
+        wheel.advanceTo(START_MS + 500);
+        wheel.schedule("past", START_MS + 100);
+
+        List<String> fired = wheel.advanceTo(START_MS + 500);
+
+        assertEquals(List.of("past"), fired);
+        assertFalse(wheel.contains("past"));
+    }
+
+    // Tiến từng ms, ghi lại thời điểm mỗi key bắn; key bắn hai lần thì fail
+    private Map<String, Long> runUntil(long endMs) {
+        Map<String, Long> firedAt = new HashMap<>();
+        for (long now = START_MS; now <= endMs; now++) {
+            for (String key : new ArrayList<>(wheel.advanceTo(now))) {
+                assertTrue(firedAt.put(key, now) == null, key + " fired twice");
+            }
+        }
+        return firedAt;
+    }
+
+    private static void assertFiredWithinOneTick(Map<String, Long> firedAt, String key, long deadline) {
+        assertTrue(firedAt.containsKey(key), key + " never fired");
+        long at = firedAt.get(key);
+        assertTrue(at >= deadline && at - deadline <= TICK_MS, key + " fired at " + at + " for deadline " + deadline);
+    }
+}
@@ -9,6 +9,9 @@ const OrderHistory: React.FC = () => {
   const navigate = useNavigate();
   const { user } = useSelector((state: RootState) => state.auth);
   const [orders, setOrders] = useState<OrderVM[]>([]);
+  // Cursor trang lịch sử kế tiếp; undefined = đã tải hết
+  const [nextCursor, setNextCursor] = useState<string | undefined>();
+  const [loadingMore, setLoadingMore] = useState(false);
   const [page, setPage] = useState(0);
   const [rowsPerPage, setRowsPerPage] = useState(10);
   const [loading, setLoading] = useState(false);
@@ -20,9 +23,9 @@ const OrderHistory: React.FC = () => {
       setLoading(true);
       setError(null);
       listMyOrders(user.id)
-        .then((data) => {
-          console.log("API Response Data:", data);
-          setOrders(Array.isArray(data) ? data : []);
+        .then((page) => {
+          setOrders(Array.isArray(page.items) ? page.items : []);
+          setNextCursor(page.nextCursor);
         })
         .catch((error: any) => {
           // Log chi tiết để chẩn đoán nhanh
@@ -37,6 +40,7 @@ const OrderHistory: React.FC = () => {
           console.error('Failed to fetch orders:', { status, url, contentType: ct, bodySnippet, error });
 
           setOrders([]);
+          setNextCursor(undefined);
 
           // Thông điệp người dùng rõ ràng hơn
           if (error?.message === 'HTML_RESPONSE_NOT_JSON') {
@@ -55,6 +59,24 @@ const OrderHistory: React.FC = () => {
     }
   }, [user]);
 
+  // Tải thêm một trang đơn cũ hơn và nối vào danh sách đang hiển thị
+  const handleLoadMore = () => {
+    if (!user?.id || !nextCursor) return;
+    setLoadingMore(true);
+    listMyOrders(user.id, nextCursor)
+      .then((page) => {
+        setOrders((prev) => [...prev, ...page.items]);
+        setNextCursor(page.nextCursor);
+      })
+      .catch((error: any) => {
+        console.error('Failed to fetch more orders:', error);
+        setError(error?.response?.data?.message || 'Không thể tải thêm đơn hàng. Vui lòng thử lại.');
+      })
+      .finally(() => {
+        setLoadingMore(false);
+      });
+  };
+
   const formatCurrency = (amount?: number) => {
     if (typeof amount !== 'number') return '--';
     return new Intl.NumberFormat('vi-VN', { style: 'currency', currency: 'VND' }).format(amount);
@@ -193,6 +215,15 @@ const OrderHistory: React.FC = () => {
           rowsPerPageOptions={[5, 10, 25]}
           labelRowsPerPage="Hàng mỗi trang"
         />
+
+        {nextCursor && (
+          <Box sx={{ display: 'flex', justifyContent: 'center', mt: 1 }}>
+            <Button variant="text" onClick={handleLoadMore} disabled={loadingMore}
+              startIcon={loadingMore ? <CircularProgress size={16} /> : undefined}>
+              Tải thêm đơn cũ hơn
+            </Button>
+          </Box>
+        )}
       </Paper>
       )}
     </Box>
@@ -46,6 +46,7 @@ import { completeDelivery, completeDeliveryByDeliveryId, updateOrderStatus } fro
 import droneManagementService from '../services/droneManagementService';
 import { droneService } from '../services/droneService';
 import { useWebSocket } from '../hooks/useWebSocket';
+import { interpolateSegment, parseSegment, SegmentDescriptor, segmentEtaSec } from '../services/telemetry';
 
 // Order status steps
 const steps = ['Đã tạo', 'Đã xác nhận', 'Đang chuẩn bị', 'Sẵn sàng giao hàng', 'Drone đang giao', 'Đã giao hàng'];
@@ -268,6 +269,8 @@ const OrderTracking: React.FC = () => {
   const [activeStep, setActiveStep] = useState<number>(0);
   const [isArrivingSoon, setIsArrivingSoon] = useState(false);
   const [droneLocation, setDroneLocation] = useState<{ lat: number; lng: number } | null>(null);
+  // Segment đang bay do backend gửi (dead-reckoning); null khi vị trí lấy theo GPS_UPDATE
+  const [segment, setSegment] = useState<SegmentDescriptor | null>(null);
   const [customerLocation, setCustomerLocation] = useState<{ lat: number; lng: number } | null>(null);
   const [deliveryId, setDeliveryId] = useState<number | null>(null);
   const [hasArrived, setHasArrived] = useState<boolean>(false);
@@ -520,6 +523,61 @@ const OrderTracking: React.FC = () => {
     };
   }, [isConnected, subscribe, unsubscribe, id]);
 
+  // Realtime: topic tracking theo đơn. GPS_UPDATE mang vị trí thực; SEGMENT mô tả chặng bay để client
+  // tự nội suy vị trí (backend bật tracking.deadReckoning.enabled thì chỉ gửi lại khi lệch quá ngưỡng)
+  useEffect(() => {
+    if (!isConnected || !subscribe || !id) return;
+
+    const trackingSub = subscribe(`/topic/delivery/${id}`, (msg: any) => {
+      try {
+        const type = String(msg?.eventType || '').toUpperCase();
+        if (type === 'SEGMENT') {
+          const seg = parseSegment(msg);
+          if (seg) setSegment(seg);
+          return;
+        }
+        if (type === 'GPS_UPDATE') {
+          setSegment(null);
+          const lat = Number(msg?.lat);
+          const lng = Number(msg?.lng);
+          const fixed = clampToHcmRadius(normalizePair(lat, lng));
+          if (fixed) setDroneLocation(fixed);
+          else if (isValidCoord(lat, lng)) setDroneLocation({ lat, lng });
+          const etaSec = Number(msg?.etaSec);
+          if (Number.isFinite(etaSec) && etaSec > 0) {
+            setOrder(prev => prev ? { ...prev, estimatedDelivery: `${Math.max(1, Math.round(etaSec / 60))} phút` } : prev);
+          }
+        }
+      } catch (e) {
+        console.warn('Error handling delivery tracking message', e);
+      }
+    });
+
+    return () => {
+      if (trackingSub && unsubscribe) unsubscribe(trackingSub);
+    };
+  }, [isConnected, subscribe, unsubscribe, id]);
+
+  // Nội suy vị trí drone theo segment đang bay tới khi hết segment hoặc có frame mới
+  useEffect(() => {
+    if (!segment) return;
+    const step = () => {
+      const now = Date.now();
+      const p = interpolateSegment(segment, now);
+      if (isValidCoord(p.lat, p.lng)) setDroneLocation({ lat: p.lat, lng: p.lng });
+      const etaSec = segmentEtaSec(segment, now);
+      if (etaSec !== undefined && etaSec > 0) {
+        setOrder(prev => prev ? { ...prev, estimatedDelivery: `${Math.max(1, Math.round(etaSec / 60))} phút` } : prev);
+      }
+      return p.done;
+    };
+    if (step()) return;
+    const timer = setInterval(() => {
+      if (step()) clearInterval(timer);
+    }, 250);
+    return () => clearInterval(timer);
+  }, [segment]);
+
   // API call to get current order status from server
   const fetchOrderFromAPI = async (orderId: string) => {
     try {
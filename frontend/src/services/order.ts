@@ -181,35 +181,47 @@ function findOrderArrayDeepLoose(obj: any): any[] | null {
   return null;
 }
 
+// Lịch sử đơn trả theo trang, cursor trang sau nằm ở header X-Next-Cursor (không có header = trang cuối).
+// Màn hình lịch sử tải trang đầu rồi gọi lại với nextCursor khi người dùng muốn xem thêm.
+const HISTORY_PAGE_SIZE = 20;
+
+export interface HistoryPage<T> {
+  items: T[];
+  nextCursor?: string;
+}
+
+async function getHistoryPage(path: string, params?: Record<string, any>, cursor?: string): Promise<{ data: any; nextCursor?: string }> {
+  const res = await api.get(path, { params: { ...(params || {}), limit: HISTORY_PAGE_SIZE, ...(cursor ? { cursor } : {}) } });
+  return { data: res.data, nextCursor: res.headers?.['x-next-cursor'] || undefined };
+}
+
 export async function getOrderById(userId: string | number, orderId: string | number): Promise<OrderDTO> {
   const res = await api.get(`/orders/${orderId}`, { params: { userId } });
   return res.data;
 }
 
-export async function listMyOrders(userId: string | number): Promise<OrderVM[]> {
+export async function listMyOrders(userId: string | number, cursor?: string): Promise<HistoryPage<OrderVM>> {
   let data: any;
+  let nextCursor: string | undefined;
   try {
     // Ưu tiên endpoint compact để tránh payload quá lớn
-    const res = await api.get('/orders/me/compact', { params: { userId } });
-    data = res.data;
+    ({ data, nextCursor } = await getHistoryPage('/orders/me/compact', { userId }, cursor));
   } catch (e: any) {
     // Fallback sang endpoint đầy đủ nếu compact không có (404/500/403)
     try {
-      const res2 = await api.get('/orders/me', { params: { userId } });
-      data = res2.data;
+      ({ data, nextCursor } = await getHistoryPage('/orders/me', { userId }, cursor));
     } catch (e2: any) {
       // Thử thêm lần nữa không kèm params nếu 403
       if (e2?.response?.status === 403) {
         try {
-          const res3 = await api.get('/orders/me');
-          data = res3.data;
+          ({ data, nextCursor } = await getHistoryPage('/orders/me', undefined, cursor));
         } catch (e3: any) {
           console.warn('listMyOrders: fallback failed', e3?.message || e3);
-          return [];
+          return { items: [] };
         }
       } else {
         console.warn('listMyOrders: request failed', e2?.message || e2);
-        return [];
+        return { items: [] };
       }
     }
   }
@@ -223,12 +235,12 @@ export async function listMyOrders(userId: string | number): Promise<OrderVM[]>
         data = JSON.parse(trimmed);
       } catch (e) {
         console.warn('listMyOrders: JSON parse failed for string body');
-        return [];
+        return { items: [] };
       }
     } else {
       // Có thể là trang login HTML do auth chưa đúng
       console.warn('listMyOrders: HTML response instead of JSON (likely auth/session issue)');
-      return [];
+      return { items: [] };
     }
   }
 
@@ -283,7 +295,7 @@ export async function listMyOrders(userId: string | number): Promise<OrderVM[]>
     console.warn('listMyOrders: Response is neither array nor object');
     orders = [];
   }
-  return orders.map(toVM);
+  return { items: orders.map(toVM), nextCursor };
 }
 
 // Types used when creating an order from Checkout
@@ -300,16 +312,15 @@ export async function createOrder(userId: string | number, payload: CreateOrderR
   return res.data;
 }
 
-export async function getMyOrders(userId: string | number): Promise<OrderDTO[]> {
+export async function getMyOrders(userId: string | number, cursor?: string): Promise<HistoryPage<OrderDTO>> {
   // Thử gọi với userId (một số backend yêu cầu), nếu 403 thì fallback không kèm params
   let data: any;
+  let nextCursor: string | undefined;
   try {
-    const res = await api.get('/orders/me', { params: { userId } });
-    data = res.data;
+    ({ data, nextCursor } = await getHistoryPage('/orders/me', { userId }, cursor));
   } catch (e: any) {
     if (e?.response?.status === 403) {
-      const res2 = await api.get('/orders/me');
-      data = res2.data;
+      ({ data, nextCursor } = await getHistoryPage('/orders/me', undefined, cursor));
     } else {
       throw e;
     }
@@ -324,12 +335,12 @@ export async function getMyOrders(userId: string | number): Promise<OrderDTO[]>
         data = JSON.parse(trimmed);
       } catch (e) {
         console.warn('getMyOrders: JSON parse failed for string body');
-        return [];
+        return { items: [] };
       }
     } else {
       // Có thể là trang login HTML do auth chưa đúng
       console.warn('getMyOrders: HTML response instead of JSON (likely auth/session issue)');
-      return [];
+      return { items: [] };
     }
   }
 
@@ -448,15 +459,15 @@ export async function getMyOrders(userId: string | number): Promise<OrderDTO[]>
       } else {
         const keys = Object.keys(data || {});
         console.warn('getMyOrders: Unrecognized response structure', { keys, sample: JSON.stringify(data).slice(0, 200) });
-        return [];
+        return { items: [] };
       }
     }
   } else {
     console.warn('getMyOrders: Response is neither array nor object');
-    return [];
+    return { items: [] };
   }
 
-  return orders;
+  return { items: orders, nextCursor };
 }
 
 // ================================================
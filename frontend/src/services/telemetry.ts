@@ -17,6 +17,59 @@ export interface TelemetryOptions {
   intervalMs?: number;
 }
 
+/**
+ * SEGMENT descriptor on /topic/delivery/{orderId} (backend dead-reckoning): the drone flies straight
+ * from (fromLat, fromLng) to (toLat, toLng) over durationMs starting at startedAtMs (server epoch ms).
+ * Between descriptors the client interpolates the position itself; GPS_UPDATE frames still carry real fixes.
+ */
+export interface SegmentDescriptor {
+  deliveryId?: number;
+  segment?: string;
+  fromLat: number;
+  fromLng: number;
+  toLat: number;
+  toLng: number;
+  startedAtMs: number;
+  durationMs: number;
+  etaAtEndSec?: number; // ETA còn lại khi drone tới cuối segment
+}
+
+export function parseSegment(msg: any): SegmentDescriptor | null {
+  if (!msg || typeof msg !== 'object' || String(msg.eventType || '').toUpperCase() !== 'SEGMENT') return null;
+  const seg = {
+    fromLat: Number(msg.fromLat),
+    fromLng: Number(msg.fromLng),
+    toLat: Number(msg.toLat),
+    toLng: Number(msg.toLng),
+    startedAtMs: Number(msg.startedAtMs),
+    durationMs: Number(msg.durationMs),
+  };
+  if (Object.values(seg).some((n) => !Number.isFinite(n))) return null;
+  return {
+    ...seg,
+    deliveryId: Number.isFinite(Number(msg.deliveryId)) ? Number(msg.deliveryId) : undefined,
+    segment: msg.segment ? String(msg.segment) : undefined,
+    etaAtEndSec: Number.isFinite(Number(msg.etaAtEndSec)) ? Number(msg.etaAtEndSec) : undefined,
+  };
+}
+
+// Vị trí nội suy tuyến tính tại nowMs; done = đã tới cuối segment (giữ nguyên điểm cuối)
+export function interpolateSegment(seg: SegmentDescriptor, nowMs: number = Date.now()) {
+  const t = seg.durationMs > 0 ? Math.min(1, Math.max(0, (nowMs - seg.startedAtMs) / seg.durationMs)) : 1;
+  return {
+    lat: seg.fromLat + (seg.toLat - seg.fromLat) * t,
+    lng: seg.fromLng + (seg.toLng - seg.fromLng) * t,
+    done: t >= 1,
+  };
+}
+
+// ETA (giây) tại nowMs: thời gian còn lại của segment cộng ETA tính từ cuối segment
+export function segmentEtaSec(seg: SegmentDescriptor, nowMs: number = Date.now()): number | undefined {
+  if (seg.etaAtEndSec === undefined) return undefined;
+  const remainingMs = Math.max(0, seg.startedAtMs + seg.durationMs - nowMs);
+  return seg.etaAtEndSec + Math.round(remainingMs / 1000);
+}
+
 // Build a simple interpolated path for fallback simulation
 function buildPath(start: { lat: number; lng: number }, end: { lat: number; lng: number }, steps = 200) {
   const pts: Telemetry[] = [];